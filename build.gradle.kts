@@ -2,6 +2,7 @@ plugins {
   id("java-library")
   id("maven-publish")
   jacoco
+  alias(libs.plugins.jmh)
   alias(libs.plugins.jreleaser)
   alias(libs.plugins.sonar)
 }
@@ -50,6 +51,17 @@ dependencies {
   testImplementation(libs.servlet.api)
   testRuntimeOnly(libs.junit.jupiter.engine)
   testRuntimeOnly(libs.slf4j.simple)
+
+  jmh(libs.servlet.api)
+}
+
+jmh {
+  // Benchmarks are not part of the build, run them with `./gradlew jmh`
+  jmhVersion.set(libs.versions.jmh)
+  warmupIterations.set(3)
+  iterations.set(5)
+  fork.set(1)
+  resultFormat.set("JSON")
 }
 
 sonar {
@@ -75,6 +87,28 @@ tasks.test {
   finalizedBy(tasks.jacocoTestReport)
 }
 
+// The specialized validation plans are defined as hidden classes, which require Java 15
+val testSpecialized by tasks.registering(Test::class) {
+  description = "Runs the validation tests with specialized plans on Java 17."
+  group = LifecycleBasePlugin.VERIFICATION_GROUP
+  useJUnitPlatform()
+  testClassesDirs = sourceSets.test.get().output.classesDirs
+  classpath = sourceSets.test.get().runtimeClasspath
+  javaLauncher.set(javaToolchains.launcherFor {
+    languageVersion.set(JavaLanguageVersion.of(17))
+  })
+  systemProperty("org.pageseeder.berlioz.plus.specialize", "true")
+  filter {
+    includeTestsMatching("org.pageseeder.berlioz.plus.PlanSpecializerTest")
+    includeTestsMatching("org.pageseeder.berlioz.plus.RequestValidatorTest")
+  }
+  shouldRunAfter(tasks.test)
+}
+
+tasks.check {
+  dependsOn(testSpecialized)
+}
+
 tasks.jacocoTestReport {
   dependsOn(tasks.test)
   reports {
@@ -0,0 +1,83 @@
+plugins {
+  id("java-library")
+  id("maven-publish")
+}
+
+val title: String by project
+val gitName: String by project
+
+group = "org.pageseeder.berlioz"
+version = rootProject.file("version.txt").readText().trim()
+description = "Annotation processor generating Berlioz Plus request validators at build time"
+
+java {
+  sourceCompatibility = JavaVersion.VERSION_11
+  targetCompatibility = JavaVersion.VERSION_11
+  toolchain {
+    languageVersion.set(JavaLanguageVersion.of(11))
+  }
+  withJavadocJar()
+  withSourcesJar()
+}
+
+tasks.withType<JavaCompile>().configureEach {
+  options.encoding = "UTF-8"
+}
+
+repositories {
+  mavenCentral()
+}
+
+dependencies {
+  // The processor refers to the library types by name only
+  testImplementation(project(":"))
+  testImplementation(platform(libs.junit.bom))
+  testImplementation(libs.bundles.junit)
+  testRuntimeOnly(libs.junit.jupiter.engine)
+  testRuntimeOnly(libs.slf4j.simple)
+}
+
+tasks.test {
+  useJUnitPlatform()
+}
+
+publishing {
+  publications {
+    create<MavenPublication>("maven") {
+      artifactId = "pso-berlioz-plus-processor"
+      from(components["java"])
+      pom {
+        name.set("$title Processor")
+        description.set(project.description)
+        url.set("https://github.com/pageseeder/${gitName}")
+        licenses {
+          license {
+            name.set("The Apache Software License, Version 2.0")
+            url.set("https://www.apache.org/licenses/LICENSE-2.0.txt")
+          }
+        }
+        organization {
+          name.set("Allette Systems")
+          url.set("https://www.allette.com.au")
+        }
+        scm {
+          url.set("git@github.com:pageseeder/${gitName}.git")
+          connection.set("scm:git:git@github.com:pageseeder/${gitName}.git")
+          developerConnection.set("scm:git:git@github.com:pageseeder/${gitName}.git")
+        }
+        developers {
+          developer {
+            name.set("Christophe Lauret")
+            email.set("clauret@weborganic.com")
+          }
+        }
+      }
+    }
+  }
+  repositories {
+    maven {
+      // Staged with the library so that both artifacts are released together
+      url = rootProject.layout.buildDirectory.dir("staging-deploy").get().asFile.toURI()
+    }
+  }
+}
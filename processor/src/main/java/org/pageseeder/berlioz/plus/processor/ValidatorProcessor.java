@@ -0,0 +1,306 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Generates a request validator for each generator annotated with the built-in annotations.
+ *
+ * <p>For a generator <code>com.example.SearchGenerator</code>, this processor generates the
+ * class <code>com.example.SearchGenerator_Validator</code> which builds the same validator as
+ * the one computed from the annotations at runtime, and lists it in the
+ * {@value #INDEX} index file. Generators use the generated validator when it is listed in
+ * the index, so the annotations do not need to be discovered using reflection.
+ *
+ * <p>The generated class only replays the calls to the validator builder with the values
+ * of the annotations: the constraints, their plan and the code checking them are the same
+ * as with the annotations. The generated class is still loaded by name and instantiated
+ * once per generator class, and the processor registry is still loaded to check for custom
+ * processors. Checking the constraints in straight-line code is left to the specialized
+ * plans enabled by the <code>org.pageseeder.berlioz.plus.specialize</code> system property.
+ *
+ * <p>A validator is only generated when the result is known at build time, that is when
+ * all the runtime annotations of the generator are built-in. Generators using other
+ * annotations, for example the annotations of a custom
+ * <code>org.pageseeder.berlioz.plus.spi.AnnotationProcessor</code>, are left to the
+ * reflective path.
+ *
+ * <p>This processor does not depend on the Berlioz Plus library and refers to its types
+ * by name.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+@SupportedAnnotationTypes({
+  ValidatorProcessor.PARAMETER,
+  ValidatorProcessor.LONG_PARAMETER,
+  ValidatorProcessor.EMAIL_PARAMETER,
+  ValidatorProcessor.TEMPORAL_PARAMETER,
+  ValidatorProcessor.LONG_LIST_PARAMETER,
+  ValidatorProcessor.REPORT_ALL_ERRORS,
+  ValidatorProcessor.ADAPTIVE_ORDER
+})
+public final class ValidatorProcessor extends AbstractProcessor {
+
+  /**
+   * The location of the index mapping the generators to their validators.
+   */
+  public static final String INDEX = "META-INF/berlioz-plus/validators";
+
+  /**
+   * The suffix appended to the name of the generator for the validator class.
+   */
+  public static final String SUFFIX = "_Validator";
+
+  private static final String PLUS = "org.pageseeder.berlioz.plus";
+
+  private static final String GENERATOR = PLUS + ".Generator";
+
+  private static final String CONSTRAINTS = PLUS + ".constraints.";
+
+  static final String PARAMETER = PLUS + ".annotations.Parameter";
+
+  static final String LONG_PARAMETER = PLUS + ".annotations.LongParameter";
+
+  static final String EMAIL_PARAMETER = PLUS + ".annotations.EmailParameter";
+
+  static final String TEMPORAL_PARAMETER = PLUS + ".annotations.TemporalParameter";
+
+  static final String LONG_LIST_PARAMETER = PLUS + ".annotations.LongListParameter";
+
+  static final String REPORT_ALL_ERRORS = PLUS + ".annotations.ReportAllErrors";
+
+  static final String ADAPTIVE_ORDER = PLUS + ".annotations.AdaptiveOrder";
+
+  /** The validators generated so far (generator binary name to validator binary name) */
+  private final Map<String, String> index = new TreeMap<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    if (round.processingOver()) {
+      if (!this.index.isEmpty()) writeIndex();
+      return false;
+    }
+    TypeElement generator = this.processingEnv.getElementUtils().getTypeElement(GENERATOR);
+    if (generator == null) return false;
+    Set<TypeElement> types = new LinkedHashSet<>();
+    for (TypeElement annotation : annotations) {
+      for (Element element : round.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() == ElementKind.CLASS) types.add((TypeElement)element);
+      }
+    }
+    Types typeUtils = this.processingEnv.getTypeUtils();
+    TypeMirror base = typeUtils.erasure(generator.asType());
+    for (TypeElement type : types) {
+      if (type.getModifiers().contains(Modifier.ABSTRACT)) continue;
+      if (type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) continue;
+      if (!typeUtils.isSubtype(typeUtils.erasure(type.asType()), base)) continue;
+      generate(type);
+    }
+    // Do not claim the annotations so that other processors can use them
+    return false;
+  }
+
+  /**
+   * Generates the validator for the specified generator if all its annotations are known.
+   */
+  private void generate(TypeElement type) {
+    Elements elements = this.processingEnv.getElementUtils();
+    List<String> statements = new ArrayList<>();
+    boolean reportAllErrors = false;
+    boolean adaptive = false;
+    for (AnnotationMirror mirror : annotations(type)) {
+      TypeElement annotation = (TypeElement)mirror.getAnnotationType().asElement();
+      String name = annotation.getQualifiedName().toString();
+      Map<? extends ExecutableElement, ? extends AnnotationValue> values = elements.getElementValuesWithDefaults(mirror);
+      switch (name) {
+        case PARAMETER:
+          statements.add("new " + CONSTRAINTS + "ParameterConstraint(" + string(values, "value") + ", " + value(values, "required")
+              + ", " + string(values, "matches") + ", " + PLUS + ".regex.RegexEngine." + value(values, "engine")
+              + ", " + value(values, "budget") + "L)");
+          break;
+        case LONG_PARAMETER:
+          statements.add("new " + CONSTRAINTS + "LongParameterConstraint(" + string(values, "value") + ", " + value(values, "required")
+              + ", " + value(values, "min") + "L, " + value(values, "max") + "L)");
+          break;
+        case EMAIL_PARAMETER:
+          statements.add("new " + CONSTRAINTS + "EmailParameterConstraint(" + string(values, "value") + ", " + value(values, "required") + ")");
+          break;
+        case TEMPORAL_PARAMETER:
+          statements.add("new " + CONSTRAINTS + "TemporalParameterConstraint(" + string(values, "value") + ", " + value(values, "required")
+              + ", " + value(values, "type") + ".class)");
+          break;
+        case LONG_LIST_PARAMETER:
+          statements.add("new " + CONSTRAINTS + "LongListParameterConstraint(" + string(values, "value") + ", " + value(values, "required")
+              + ", " + value(values, "min") + "L, " + value(values, "max") + "L, " + value(values, "minCount")
+              + ", " + value(values, "maxCount") + ")");
+          break;
+        case REPORT_ALL_ERRORS:
+          reportAllErrors = true;
+          break;
+        case ADAPTIVE_ORDER:
+          adaptive = true;
+          break;
+        default:
+          note(type, "Validator of " + type + " left to reflection because of @" + name);
+          return;
+      }
+    }
+    String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+    String binaryName = elements.getBinaryName(type).toString();
+    String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)).replace('$', '_') + SUFFIX;
+    String className = packageName.isEmpty() ? simpleName : packageName + '.' + simpleName;
+    try {
+      write(type, packageName, simpleName, className, statements, reportAllErrors, adaptive);
+      this.index.put(binaryName, className);
+    } catch (IOException ex) {
+      this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + className + ": " + ex.getMessage(), type);
+    }
+  }
+
+  /**
+   * Returns the runtime annotations of the type including the inherited ones.
+   */
+  private List<AnnotationMirror> annotations(TypeElement type) {
+    List<AnnotationMirror> annotations = new ArrayList<>();
+    Set<String> present = new LinkedHashSet<>();
+    for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+      if (isRuntime(mirror)) {
+        annotations.add(mirror);
+        present.add(mirror.getAnnotationType().toString());
+      }
+    }
+    TypeMirror superclass = type.getSuperclass();
+    while (superclass.getKind() == TypeKind.DECLARED) {
+      TypeElement element = (TypeElement)((DeclaredType)superclass).asElement();
+      for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+        Element annotation = mirror.getAnnotationType().asElement();
+        if (isRuntime(mirror) && annotation.getAnnotation(Inherited.class) != null
+            && present.add(mirror.getAnnotationType().toString())) {
+          annotations.add(mirror);
+        }
+      }
+      superclass = element.getSuperclass();
+    }
+    return annotations;
+  }
+
+  private static boolean isRuntime(AnnotationMirror mirror) {
+    Retention retention = mirror.getAnnotationType().asElement().getAnnotation(Retention.class);
+    return retention != null && retention.value() == RetentionPolicy.RUNTIME;
+  }
+
+  private void write(TypeElement type, String packageName, String simpleName, String className,
+      List<String> constraints, boolean reportAllErrors, boolean adaptive) throws IOException {
+    boolean generated = this.processingEnv.getElementUtils().getTypeElement("javax.annotation.processing.Generated") != null;
+    try (Writer out = this.processingEnv.getFiler().createSourceFile(className, type).openWriter()) {
+      if (!packageName.isEmpty()) out.write("package " + packageName + ";\n\n");
+      // Names are qualified so that they cannot clash with the classes of the package
+      out.write("/**\n * Validator for {@code " + type.getQualifiedName() + "}.\n */\n");
+      if (generated) out.write("@javax.annotation.processing.Generated(\"" + ValidatorProcessor.class.getName() + "\")\n");
+      out.write("public final class " + simpleName + " implements java.util.function.Supplier<" + PLUS + ".RequestValidator> {\n\n");
+      out.write("  @Override\n");
+      out.write("  public " + PLUS + ".RequestValidator get() {\n");
+      out.write("    return " + PLUS + ".RequestValidator.builder()\n");
+      for (String constraint : constraints) {
+        out.write("        .add(" + constraint + ")\n");
+      }
+      if (reportAllErrors) out.write("        .reportAllErrors()\n");
+      if (adaptive) out.write("        .order(" + PLUS + ".ConstraintOrder.ADAPTIVE)\n");
+      out.write("        .build();\n");
+      out.write("  }\n\n");
+      out.write("}\n");
+    }
+  }
+
+  private void writeIndex() {
+    try {
+      FileObject file = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+      try (Writer out = file.openWriter()) {
+        out.write("# Generated by " + ValidatorProcessor.class.getName() + "\n");
+        for (Map.Entry<String, String> entry : this.index.entrySet()) {
+          out.write(entry.getKey() + '=' + entry.getValue() + '\n');
+        }
+      }
+    } catch (IOException ex) {
+      this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + INDEX + ": " + ex.getMessage());
+    }
+  }
+
+  private void note(Element element, String message) {
+    this.processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, message, element);
+  }
+
+  private static Object value(Map<? extends ExecutableElement, ? extends AnnotationValue> values, String name) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(name)) {
+        Object value = entry.getValue().getValue();
+        if (value instanceof VariableElement) return ((VariableElement)value).getSimpleName();
+        if (value instanceof DeclaredType) return ((TypeElement)((DeclaredType)value).asElement()).getQualifiedName();
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("No value for " + name);
+  }
+
+  private static String string(Map<? extends ExecutableElement, ? extends AnnotationValue> values, String name) {
+    String value = value(values, name).toString();
+    StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        literal.append('\\').append(c);
+      } else if (c >= 0x20 && c < 0x7F) {
+        literal.append(c);
+      } else if (c < 0x20) {
+        // Unicode escapes of line terminators are not allowed in literals
+        literal.append(String.format("\\%03o", (int)c));
+      } else {
+        literal.append(String.format("\\u%04x", (int)c));
+      }
+    }
+    return literal.append('"').toString();
+  }
+
+}
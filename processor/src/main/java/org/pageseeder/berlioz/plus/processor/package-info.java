@@ -0,0 +1,10 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+/**
+ * Annotation processor generating the request validators of generators at build time.
+ *
+ * <p>Add this artifact to the annotation processor path of the project containing the
+ * generators; no runtime dependency is required.
+ */
+package org.pageseeder.berlioz.plus.processor;
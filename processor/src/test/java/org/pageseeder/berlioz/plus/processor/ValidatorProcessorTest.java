@@ -0,0 +1,147 @@
+package org.pageseeder.berlioz.plus.processor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.plus.Generator;
+import org.pageseeder.berlioz.plus.RequestValidator;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.ValueConstraint;
+import org.pageseeder.berlioz.plus.constraints.Violation;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class ValidatorProcessorTest {
+
+  private static final String HEADER = "package sample;\n"
+      + "import org.pageseeder.berlioz.content.ContentStatus;\n"
+      + "import org.pageseeder.berlioz.plus.*;\n"
+      + "import org.pageseeder.berlioz.plus.annotations.*;\n"
+      + "import org.pageseeder.berlioz.plus.regex.RegexEngine;\n";
+
+  private static final String BODY = " extends ValidatingGenerator {\n"
+      + "  public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) { return ContentStatus.OK; }\n"
+      + "}\n";
+
+  private static final String[] VALUES = {null, "", "abc", "a\"b", "12", "-1", "x@example.org", "2016-01-02T03:04:05"};
+
+  @Test
+  void process_builtinAnnotations_generatesEquivalentValidators() throws Exception {
+    Path dir = compile(
+        "@Parameter(value = \"q\", matches = \"[a-z\\\"\\\\\\\\]+\\t?\\u00e9*\", engine = RegexEngine.DFA, budget = 1000)\n"
+        + "@LongParameter(value = \"id\", required = false, min = Long.MIN_VALUE, max = 100)\n"
+        + "@EmailParameter(value = \"email\", required = false)\n"
+        + "@TemporalParameter(value = \"from\", type = java.time.LocalDateTime.class)\n"
+        + "@ReportAllErrors\n"
+        + "public final class SearchGenerator" + BODY,
+        "@AdaptiveOrder\n"
+        + "public abstract class AdaptiveBase" + BODY.replace("public ContentStatus", "public abstract ContentStatus").replace(" { return ContentStatus.OK; }", ";"),
+        "@Parameter(\"x\")\n"
+        + "public final class InheritingGenerator extends AdaptiveBase {\n"
+        + "  public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) { return ContentStatus.OK; }\n"
+        + "}\n",
+        "public final class Outer {\n"
+        + "  @EmailParameter(\"e\")\n"
+        + "  public static final class NestedGenerator" + BODY
+        + "}\n");
+    String index = Files.readString(dir.resolve(ValidatorProcessor.INDEX));
+    assertTrue(index.contains("sample.SearchGenerator=sample.SearchGenerator_Validator\n"), index);
+    assertTrue(index.contains("sample.InheritingGenerator=sample.InheritingGenerator_Validator\n"), index);
+    assertTrue(index.contains("sample.Outer$NestedGenerator=sample.Outer_NestedGenerator_Validator\n"), index);
+    assertFalse(index.contains("AdaptiveBase"), index);
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+      assertEquivalent(loader, "sample.SearchGenerator");
+      assertEquivalent(loader, "sample.InheritingGenerator");
+      assertEquivalent(loader, "sample.Outer$NestedGenerator");
+    }
+  }
+
+  @Test
+  void process_unknownAnnotations_leavesReflection() throws Exception {
+    Path dir = compile(
+        "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+        + "public @interface Custom {}\n",
+        "@Custom\n"
+        + "@Parameter(\"q\")\n"
+        + "public final class CustomGenerator" + BODY,
+        "@Parameter(\"a\")\n"
+        + "@Parameter(\"b\")\n"
+        + "public final class RepeatedGenerator" + BODY,
+        "@SuppressWarnings(\"unused\")\n"
+        + "@Parameter(\"q\")\n"
+        + "public final class SourceAnnotatedGenerator" + BODY,
+        "@Parameter(\"q\")\n"
+        + "public final class NotAGenerator {}\n");
+    String index = Files.readString(dir.resolve(ValidatorProcessor.INDEX));
+    assertEquals("sample.SourceAnnotatedGenerator=sample.SourceAnnotatedGenerator_Validator", index.lines().filter(l -> !l.startsWith("#")).reduce("", String::concat));
+    assertFalse(Files.exists(dir.resolve("sample/CustomGenerator_Validator.class")));
+    assertFalse(Files.exists(dir.resolve("sample/RepeatedGenerator_Validator.class")));
+    assertFalse(Files.exists(dir.resolve("sample/NotAGenerator_Validator.class")));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void assertEquivalent(ClassLoader loader, String name) throws ReflectiveOperationException {
+    Class<? extends Generator<?>> type = (Class<? extends Generator<?>>)Class.forName(name, true, loader);
+    String validatorName = name.replace('$', '_') + ValidatorProcessor.SUFFIX;
+    Supplier<RequestValidator> supplier = (Supplier<RequestValidator>)Class.forName(validatorName, true, loader).getConstructor().newInstance();
+    RequestValidator generated = supplier.get();
+    RequestValidator reflective = RequestValidator.create(type);
+    assertEquals(reflective.reportsAllErrors(), generated.reportsAllErrors(), name);
+    assertEquals(reflective.order(), generated.order(), name);
+    List<Constraint> expected = reflective.getConstraints();
+    List<Constraint> actual = generated.getConstraints();
+    assertEquals(expected.size(), actual.size(), name);
+    for (int i = 0; i < expected.size(); i++) {
+      Constraint e = expected.get(i);
+      Constraint a = actual.get(i);
+      assertEquals(e.getClass(), a.getClass(), name);
+      assertEquals(e.cost(), a.cost(), name);
+      if (e instanceof ValueConstraint) {
+        for (String value : VALUES) {
+          assertEquals(toXML(((ValueConstraint)e).check(value)), toXML(((ValueConstraint)a).check(value)), name + " ~ " + value);
+        }
+      }
+    }
+  }
+
+  private static String toXML(Violation violation) {
+    if (violation == null) return "";
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    violation.toXML(new XMLPrinter(xml));
+    return violation.status() + xml.toString();
+  }
+
+  private static Path compile(String... sources) throws IOException {
+    Path dir = Files.createTempDirectory("validators");
+    List<File> files = new ArrayList<>();
+    for (String source : sources) {
+      String name = source.replaceAll("(?s).*public (?:final |abstract )?(?:class|@interface) (\\w+).*", "$1");
+      Path file = dir.resolve("sample/" + name + ".java");
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, HEADER + source, StandardCharsets.UTF_8);
+      files.add(file.toFile());
+    }
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    List<String> options = List.of("-d", dir.toString(), "-s", dir.toString(), "-encoding", "UTF-8",
+        "-classpath", System.getProperty("java.class.path"), "-processor", ValidatorProcessor.class.getName());
+    boolean ok = compiler.getTask(null, null, null, options, null, compiler.getStandardFileManager(null, null, null).getJavaFileObjectsFromFiles(files)).call();
+    assertTrue(ok, "Compilation failed");
+    return dir;
+  }
+
+}
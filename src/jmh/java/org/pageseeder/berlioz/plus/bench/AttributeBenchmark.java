@@ -0,0 +1,55 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pageseeder.berlioz.plus.AttributeKey;
+import org.pageseeder.berlioz.plus.ValidatedRequest;
+
+/**
+ * Compares reading request attributes by name and with typed attribute keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AttributeBenchmark {
+
+  private static final AttributeKey<String> USER = AttributeKey.of("org.example.user", String.class);
+
+  private static final AttributeKey<Integer> TENANT = AttributeKey.of("org.example.tenant", Integer.class);
+
+  private static final AttributeKey<Boolean> ADMIN = AttributeKey.of("org.example.admin", Boolean.class);
+
+  private final ValidatedRequest req = new ValidatedRequest(new BenchRequest(Map.of()));
+
+  public AttributeBenchmark() {
+    this.req.setAttribute(USER, "john");
+    this.req.setAttribute(TENANT, 42);
+    this.req.setAttribute(ADMIN, Boolean.TRUE);
+  }
+
+  @Benchmark
+  public void byName(Blackhole bh) {
+    bh.consume((String) this.req.getAttribute("org.example.user"));
+    bh.consume((Integer) this.req.getAttribute("org.example.tenant"));
+    bh.consume((Boolean) this.req.getAttribute("org.example.admin"));
+  }
+
+  @Benchmark
+  public void byKey(Blackhole bh) {
+    bh.consume(this.req.getAttribute(USER));
+    bh.consume(this.req.getAttribute(TENANT));
+    bh.consume(this.req.getAttribute(ADMIN));
+  }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.xml.ByteBufferPool;
+import org.pageseeder.berlioz.plus.xml.Utf8XMLWriter;
+
+/**
+ * Compares writing numeric and date attributes as strings with passing the values
+ * themselves, which are formatted directly into the output buffer.
+ *
+ * <p>Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AttributeFormatBenchmark {
+
+  private static final int ROWS = 200;
+
+  private final OutputStream out = OutputStream.nullOutputStream();
+
+  private final ByteBufferPool pool = new ByteBufferPool(8192, 4, false);
+
+  private final LocalDate[] dates = new LocalDate[ROWS];
+
+  private final LocalDateTime[] created = new LocalDateTime[ROWS];
+
+  private final OffsetDateTime[] modified = new OffsetDateTime[ROWS];
+
+  private final Instant[] indexed = new Instant[ROWS];
+
+  public AttributeFormatBenchmark() {
+    LocalDateTime start = LocalDateTime.of(2016, 2, 29, 9, 30, 15, 250_000_000);
+    for (int i = 0; i < ROWS; i++) {
+      this.created[i] = start.plusMinutes(i * 97L);
+      this.dates[i] = this.created[i].toLocalDate();
+      this.modified[i] = this.created[i].plusSeconds(i).atOffset(ZoneOffset.ofHours(10));
+      this.indexed[i] = this.modified[i].toInstant();
+    }
+  }
+
+  @Benchmark
+  public void strings() {
+    XMLPrinter xml = new XMLPrinter(new Utf8XMLWriter(this.out, this.pool));
+    xml.openElement("rows", true);
+    for (int i = 0; i < ROWS; i++) {
+      xml.openElement("row");
+      xml.attribute("id", Long.toString(100_000L + i));
+      xml.attribute("amount", Double.toString(i * 10.0));
+      xml.attribute("date", this.dates[i].toString());
+      xml.attribute("created", this.created[i].toString());
+      xml.attribute("modified", this.modified[i].toString());
+      xml.attribute("indexed", this.indexed[i].toString());
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  @Benchmark
+  public void typed() {
+    XMLPrinter xml = new XMLPrinter(new Utf8XMLWriter(this.out, this.pool));
+    xml.openElement("rows", true);
+    for (int i = 0; i < ROWS; i++) {
+      xml.openElement("row");
+      xml.attribute("id", 100_000L + i);
+      xml.attribute("amount", i * 10.0);
+      xml.attribute("date", this.dates[i]);
+      xml.attribute("created", this.created[i]);
+      xml.attribute("modified", this.modified[i]);
+      xml.attribute("indexed", this.indexed[i]);
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+}
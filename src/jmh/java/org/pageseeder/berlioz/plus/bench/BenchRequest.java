@@ -0,0 +1,123 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpSession;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.content.Environment;
+import org.pageseeder.berlioz.content.Location;
+
+/**
+ * A minimal content request backed by maps for benchmarks.
+ */
+final class BenchRequest implements ContentRequest {
+
+  private final Map<String, String[]> parameters = new HashMap<>();
+
+  private final Map<String, Object> attributes = new HashMap<>();
+
+  BenchRequest(Map<String, String> parameters) {
+    for (Map.Entry<String, String> p : parameters.entrySet()) {
+      this.parameters.put(p.getKey(), new String[]{p.getValue()});
+    }
+  }
+
+  BenchRequest with(String name, String... values) {
+    this.parameters.put(name, values);
+    return this;
+  }
+
+  @Override
+  public String getBerliozPath() {
+    return "/";
+  }
+
+  @Override
+  public @Nullable String getParameter(String name) {
+    String[] values = this.parameters.get(name);
+    return values != null ? values[0] : null;
+  }
+
+  @Override
+  public String getParameter(String name, String def) {
+    String value = getParameter(name);
+    return value != null ? value : def;
+  }
+
+  @Override
+  public int getIntParameter(String name, int def) {
+    String value = getParameter(name);
+    return value != null ? Integer.parseInt(value) : def;
+  }
+
+  @Override
+  public long getLongParameter(String name, long def) {
+    String value = getParameter(name);
+    return value != null ? Long.parseLong(value) : def;
+  }
+
+  @Override
+  public String @Nullable [] getParameterValues(String name) {
+    return this.parameters.get(name);
+  }
+
+  @Override
+  public Enumeration<String> getParameterNames() {
+    return Collections.enumeration(this.parameters.keySet());
+  }
+
+  @Override
+  public @Nullable Object getAttribute(String name) {
+    return this.attributes.get(name);
+  }
+
+  @Override
+  public void setAttribute(String name, Object o) {
+    this.attributes.put(name, o);
+  }
+
+  @Override
+  public @Nullable Date getDateParameter(String name) {
+    return null;
+  }
+
+  @Override
+  public Cookie @Nullable [] getCookies() {
+    return null;
+  }
+
+  @Override
+  public @Nullable HttpSession getSession() {
+    return null;
+  }
+
+  @Override
+  public Environment getEnvironment() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Location getLocation() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void setStatus(ContentStatus code) {
+  }
+
+  @Override
+  public void setRedirect(String url, ContentStatus code) {
+  }
+
+}
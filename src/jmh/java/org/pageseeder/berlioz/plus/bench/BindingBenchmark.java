@@ -0,0 +1,129 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pageseeder.berlioz.BerliozException;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.BindingGenerator;
+import org.pageseeder.berlioz.plus.RequestParameter;
+import org.pageseeder.berlioz.plus.ValidatedRequest;
+import org.pageseeder.berlioz.plus.ValidatingGenerator;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.annotations.LongParameter;
+import org.pageseeder.berlioz.plus.annotations.TemporalParameter;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+/**
+ * Compares reading the parameters with the typed getters of the validated request and
+ * binding them to a parameters object, from validation to the call to <code>generate</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BindingBenchmark {
+
+  private final BenchRequest req = new BenchRequest(Map.of("id", "12345", "page", "3", "from", "2016-02-29", "to", "2016-03-31"));
+
+  private final XMLWriter xml = new XMLWriterImpl(new StringWriter());
+
+  private final Getters getters = new Getters();
+
+  private final Bound bound = new Bound();
+
+  /**
+   * The generator reads each parameter using the typed getters.
+   */
+  @Benchmark
+  public void getters(Blackhole bh) throws BerliozException, IOException {
+    this.getters.bh = bh;
+    this.getters.process(this.req, this.xml);
+  }
+
+  /**
+   * The parameters are bound to the constructor of the parameters class.
+   */
+  @Benchmark
+  public void binding(Blackhole bh) throws BerliozException, IOException {
+    this.bound.bh = bh;
+    this.bound.process(this.req, this.xml);
+  }
+
+  private enum Param implements RequestParameter {
+    ID, PAGE, FROM, TO;
+
+    @Override
+    public String getName() {
+      return name().toLowerCase();
+    }
+  }
+
+  @LongParameter(value = "id", min = 1)
+  @LongParameter(value = "page", min = 1, max = 1000)
+  @TemporalParameter("from")
+  @TemporalParameter("to")
+  static final class Getters extends ValidatingGenerator {
+
+    Blackhole bh;
+
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      this.bh.consume(req.getLong(Param.ID));
+      this.bh.consume(req.getLong(Param.PAGE));
+      this.bh.consume(req.getLocalDate(Param.FROM));
+      this.bh.consume(req.getLocalDate(Param.TO));
+      return ContentStatus.OK;
+    }
+  }
+
+  public static final class Params {
+
+    final long id;
+    final long page;
+    final LocalDate from;
+    final LocalDate to;
+
+    public Params(@LongParameter(value = "id", min = 1) long id,
+                  @LongParameter(value = "page", min = 1, max = 1000) long page,
+                  @TemporalParameter("from") LocalDate from,
+                  @TemporalParameter("to") LocalDate to) {
+      this.id = id;
+      this.page = page;
+      this.from = from;
+      this.to = to;
+    }
+  }
+
+  static final class Bound extends BindingGenerator<Params> {
+
+    Blackhole bh;
+
+    Bound() {
+      super(Params.class);
+    }
+
+    @Override
+    public ContentStatus generate(Params parameters, ValidatedRequest req, XMLPrinter xml) {
+      this.bh.consume(parameters.id);
+      this.bh.consume(parameters.page);
+      this.bh.consume(parameters.from);
+      this.bh.consume(parameters.to);
+      return ContentStatus.OK;
+    }
+  }
+
+}
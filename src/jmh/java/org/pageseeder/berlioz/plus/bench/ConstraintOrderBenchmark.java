@@ -0,0 +1,65 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.Writer;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.ConstraintOrder;
+import org.pageseeder.berlioz.plus.RequestValidator;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.constraints.EmailParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.TemporalParameterConstraint;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+/**
+ * Compares the orders of the parameters on requests rejected because a cheap
+ * required parameter is missing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConstraintOrderBenchmark {
+
+  @Param({"DECLARATION", "COST", "ADAPTIVE"})
+  public ConstraintOrder order;
+
+  private RequestValidator validator;
+
+  private final BenchRequest req = new BenchRequest(Map.of(
+      "from", "2016-01-01T10:00:00Z",
+      "email", "john@example.org",
+      "slug", "a-long-slug-with-several-words"));
+
+  private final XMLPrinter xml = new XMLPrinter(new XMLWriterImpl(Writer.nullWriter()));
+
+  @Setup
+  public void setup() {
+    this.validator = RequestValidator.builder()
+        .add(new TemporalParameterConstraint("from", true, OffsetDateTime.class))
+        .add(new EmailParameterConstraint("email", true))
+        .add(new ParameterConstraint("slug", true, "[a-z]+(-[a-z]+)*"))
+        .requires("token")
+        .order(this.order)
+        .build();
+  }
+
+  @Benchmark
+  public ContentStatus rejectMissing() {
+    return this.validator.validate(this.req, this.xml);
+  }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.constraints.EmailParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.Violation;
+
+/**
+ * Compares the regular expression previously used for email addresses with the
+ * state machine, including adversarial near-miss inputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmailBenchmark {
+
+  private static final Pattern EMAIL_PATTERN =
+      Pattern.compile("^[A-Za-z0-9]+(?>[._%+-][A-Za-z0-9]+)*@[A-Za-z0-9]+(?>[.-][A-Za-z0-9]+)*\\.[A-Za-z]{2,}$");
+
+  @Param({"valid", "invalid", "long-local", "dotted-domain", "oversized"})
+  public String input;
+
+  private String value;
+
+  private final EmailParameterConstraint constraint = new EmailParameterConstraint("email", true);
+
+  @Setup
+  public void setup() {
+    switch (this.input) {
+      case "valid": this.value = "john.smith+news@mail.example.org"; break;
+      case "invalid": this.value = "wp-login.php"; break;
+      // Long local part which fails at the very end
+      case "long-local": this.value = "a.".repeat(120) + "a@example.o"; break;
+      // Many domain parts without a valid top-level domain
+      case "dotted-domain": this.value = "a@" + "b.".repeat(120) + "c1"; break;
+      default: this.value = "a".repeat(10_000) + "@example.org";
+    }
+  }
+
+  @Benchmark
+  public boolean pattern() {
+    return EMAIL_PATTERN.matcher(this.value).matches();
+  }
+
+  @Benchmark
+  public Violation stateMachine() {
+    return this.constraint.check(this.value);
+  }
+
+}
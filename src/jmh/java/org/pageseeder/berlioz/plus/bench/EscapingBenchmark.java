@@ -0,0 +1,133 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.xml.ByteBufferPool;
+import org.pageseeder.berlioz.plus.xml.Utf8XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+/**
+ * Measures the escaping of document titles and descriptions written as text and
+ * attribute values.
+ *
+ * <p>The <code>perCharacter</code> benchmark writes the same text one character at a
+ * time to show the cost of escaping without the bulk path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EscapingBenchmark {
+
+  /**
+   * Clean English text, text with a few characters to escape, accented text and CJK text.
+   */
+  @Param({"clean", "special", "latin", "cjk"})
+  public String text;
+
+  private final OutputStream out = OutputStream.nullOutputStream();
+
+  private final ByteBufferPool pool = new ByteBufferPool(8192, 4, false);
+
+  private String title = "";
+
+  private String description = "";
+
+  @Setup
+  public void setup() {
+    switch (this.text) {
+      case "special":
+        this.title = "Profit & loss statement for Q3 <draft>";
+        this.description = "Revenue grew by 12% while costs stayed flat; see \"Appendix B\" & the notes "
+            + "on <currency> conversion for the methodology used by the finance team.";
+        break;
+      case "latin":
+        this.title = "R\u00e9sum\u00e9 des activit\u00e9s du trimestre";
+        this.description = "Les d\u00e9penses ont diminu\u00e9 gr\u00e2ce \u00e0 la r\u00e9organisation "
+            + "des \u00e9quipes et \u00e0 la n\u00e9gociation des contrats fournisseurs.";
+        break;
+      case "cjk":
+        this.title = "\u56db\u534a\u671f\u306e\u6d3b\u52d5\u6982\u8981";
+        this.description = "\u4eca\u56db\u534a\u671f\u306f\u58f2\u4e0a\u304c\u5897\u52a0\u3057\u3001"
+            + "\u8cbb\u7528\u306f\u6a2a\u3070\u3044\u3067\u3057\u305f\u3002";
+        break;
+      default:
+        this.title = "Quarterly summary of activities and expenses";
+        this.description = "Revenue grew steadily over the quarter while operating costs remained "
+            + "flat thanks to the reorganisation of the support and delivery teams.";
+    }
+  }
+
+  @Benchmark
+  public void writer() throws IOException {
+    XMLWriter xml = new XMLWriterImpl(new OutputStreamWriter(this.out, StandardCharsets.UTF_8));
+    listing(xml);
+    xml.flush();
+  }
+
+  @Benchmark
+  public void utf8() throws IOException {
+    Utf8XMLWriter xml = new Utf8XMLWriter(this.out, this.pool);
+    listing(xml);
+    xml.close();
+  }
+
+  @Benchmark
+  public void utf8Attributes() throws IOException {
+    Utf8XMLWriter xml = new Utf8XMLWriter(this.out, this.pool);
+    xml.openElement("documents", true);
+    for (int i = 0; i < 100; i++) {
+      xml.openElement("document");
+      xml.attribute("title", this.title);
+      xml.attribute("description", this.description);
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  @Benchmark
+  public void perCharacter() throws IOException {
+    Utf8XMLWriter xml = new Utf8XMLWriter(this.out, this.pool);
+    xml.openElement("documents", true);
+    for (int i = 0; i < 100; i++) {
+      xml.openElement("document", true);
+      xml.openElement("title");
+      for (int j = 0; j < this.title.length(); j++) xml.writeText(this.title.charAt(j));
+      xml.closeElement();
+      xml.openElement("description");
+      for (int j = 0; j < this.description.length(); j++) xml.writeText(this.description.charAt(j));
+      xml.closeElement();
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  private void listing(XMLWriter xml) throws IOException {
+    xml.openElement("documents", true);
+    for (int i = 0; i < 100; i++) {
+      xml.openElement("document", true);
+      xml.element("title", this.title);
+      xml.element("description", this.description);
+      xml.closeElement();
+    }
+    xml.closeElement();
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.ValidatedRequest;
+import org.pageseeder.berlioz.plus.ValidatingGenerator;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.annotations.EmailParameter;
+import org.pageseeder.berlioz.plus.annotations.LongParameter;
+import org.pageseeder.berlioz.plus.annotations.Parameter;
+import org.pageseeder.berlioz.plus.annotations.TemporalParameter;
+
+/**
+ * Sample annotated generators used by the benchmarks.
+ */
+final class Generators {
+
+  /** All the sample generator classes */
+  static final List<Class<? extends ValidatingGenerator>> ALL =
+      List.of(GetDocument.class, ListDocuments.class, Invite.class, Report.class);
+
+  private Generators() {
+  }
+
+  @LongParameter(value = "id", min = 1)
+  static final class GetDocument extends Sample {
+  }
+
+  @Parameter(value = "q", required = false)
+  @LongParameter(value = "page", required = false, min = 1, max = 1000)
+  static final class ListDocuments extends Sample {
+  }
+
+  @EmailParameter("email")
+  @Parameter(value = "name", matches = "[\\p{L} '-]{1,64}")
+  static final class Invite extends Sample {
+  }
+
+  @TemporalParameter("from")
+  @TemporalParameter(value = "to", type = LocalDateTime.class)
+  @Parameter(value = "format", required = false, matches = "csv|xml|json")
+  static final class Report extends Sample {
+  }
+
+  abstract static class Sample extends ValidatingGenerator {
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      return ContentStatus.OK;
+    }
+  }
+
+}
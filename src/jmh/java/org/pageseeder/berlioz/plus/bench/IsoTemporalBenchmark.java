@@ -0,0 +1,46 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.time.DateTimeException;
+import java.time.OffsetDateTime;
+import java.time.temporal.Temporal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.util.IsoTemporal;
+
+/**
+ * Compares the <code>java.time</code> formatters with the ISO lexers on valid and
+ * invalid offset date-times.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IsoTemporalBenchmark {
+
+  @Param({"2016-05-27T10:15:30.123+10:00", "2016-02-30T10:15:30Z", "yesterday"})
+  public String value;
+
+  @Benchmark
+  public Temporal jdk() {
+    try {
+      return OffsetDateTime.parse(this.value);
+    } catch (DateTimeException ex) {
+      return null;
+    }
+  }
+
+  @Benchmark
+  public Temporal lexer() {
+    return IsoTemporal.parseOffsetDateTime(this.value);
+  }
+
+}
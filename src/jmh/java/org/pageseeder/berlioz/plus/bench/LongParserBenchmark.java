@@ -0,0 +1,46 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.util.LongParser;
+
+/**
+ * Compares {@link Long#parseLong(String)} with the exception-free parser on
+ * valid and invalid values.
+ *
+ * <p>Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LongParserBenchmark {
+
+  @Param({"1234567", "-9223372036854775808", "wp-login.php", "12345678901234567890"})
+  public String value;
+
+  @Benchmark
+  public long jdk() {
+    try {
+      return Long.parseLong(this.value);
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  @Benchmark
+  public long parser() {
+    if (LongParser.check(this.value) != LongParser.OK) return -1;
+    return LongParser.parse(this.value);
+  }
+
+}
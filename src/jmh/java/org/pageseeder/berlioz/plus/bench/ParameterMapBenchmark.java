@@ -0,0 +1,62 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pageseeder.berlioz.plus.ValidatedRequest;
+
+/**
+ * Compares copying the parameters into a map with the live view and the snapshot,
+ * when reading a few parameters and when building a cache key from all of them.
+ *
+ * <p>Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParameterMapBenchmark {
+
+  private final ValidatedRequest req = new ValidatedRequest(new BenchRequest(Map.of(
+      "id", "12345", "page", "3", "size", "20", "sort", "title", "order", "asc",
+      "from", "2016-02-29", "to", "2016-03-31", "q", "berlioz")));
+
+  @Benchmark
+  public void copyGet(Blackhole bh) {
+    Map<String, String> parameters = this.req.getParameterMap();
+    bh.consume(parameters.get("id"));
+    bh.consume(parameters.get("q"));
+  }
+
+  @Benchmark
+  public void viewGet(Blackhole bh) {
+    Map<String, String> parameters = this.req.getParameters();
+    bh.consume(parameters.get("id"));
+    bh.consume(parameters.get("q"));
+  }
+
+  @Benchmark
+  public int copyKey() {
+    return this.req.getParameterMap().hashCode();
+  }
+
+  @Benchmark
+  public int viewKey() {
+    return this.req.getParameters().hashCode();
+  }
+
+  @Benchmark
+  public int snapshotKey() {
+    return this.req.getParameterSnapshot().hashCode();
+  }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.BerliozException;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+/**
+ * Measures the overhead of {@code Generator.process} around a generator which does
+ * nothing, for valid requests.
+ *
+ * <p>Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessBenchmark {
+
+  private final Generators.GetDocument getDocument = new Generators.GetDocument();
+
+  private final Generators.Invite invite = new Generators.Invite();
+
+  private final BenchRequest document = new BenchRequest(Map.of("id", "12345"));
+
+  private final BenchRequest invitation = new BenchRequest(Map.of("email", "john@example.org", "name", "John Smith"));
+
+  private final XMLWriter xml = new XMLWriterImpl(new StringWriter());
+
+  @Benchmark
+  public void getDocument() throws BerliozException, IOException {
+    this.getDocument.process(this.document, this.xml);
+  }
+
+  @Benchmark
+  public void invite() throws BerliozException, IOException {
+    this.invite.process(this.invitation, this.xml);
+  }
+
+}
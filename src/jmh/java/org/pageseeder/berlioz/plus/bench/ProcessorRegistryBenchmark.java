@@ -0,0 +1,83 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.pageseeder.berlioz.plus.ProcessorRegistry;
+import org.pageseeder.berlioz.plus.ValidatingGenerator;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.spi.AnnotationProcessor;
+
+/**
+ * Compares the cost of turning generator annotations into constraints using a
+ * {@link ServiceLoader} per annotation and using the {@link ProcessorRegistry}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProcessorRegistryBenchmark {
+
+  private Annotation[] annotations = new Annotation[0];
+
+  @Setup
+  public void setup() {
+    List<Annotation> all = new ArrayList<>();
+    for (Class<? extends ValidatingGenerator> type : Generators.ALL) {
+      for (Annotation annotation : type.getAnnotations()) {
+        all.add(annotation);
+      }
+    }
+    this.annotations = all.toArray(new Annotation[0]);
+  }
+
+  /**
+   * The path used before the registry: one service loader per annotation.
+   */
+  @Benchmark
+  public void serviceLoader(Blackhole bh) {
+    for (Annotation annotation : this.annotations) {
+      ServiceLoader<AnnotationProcessor> loader = ServiceLoader.load(AnnotationProcessor.class);
+      for (AnnotationProcessor processor : loader) {
+        if (processor.accepts(annotation)) {
+          Constraint constraint = processor.getConstraint(annotation);
+          bh.consume(constraint);
+        }
+      }
+    }
+  }
+
+  /**
+   * The registry once warm, which is the cost for every generator class but the first.
+   */
+  @Benchmark
+  public void registry(Blackhole bh) {
+    ProcessorRegistry registry = ProcessorRegistry.getInstance();
+    for (Annotation annotation : this.annotations) {
+      bh.consume(registry.getConstraints(annotation));
+    }
+  }
+
+  /**
+   * The registry including the cost of loading the service providers.
+   */
+  @Benchmark
+  public void registryCold(Blackhole bh) {
+    ProcessorRegistry.refresh();
+    registry(bh);
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.regex.RegexEngine;
+import org.pageseeder.berlioz.plus.regex.RegexMatcher;
+
+/**
+ * Compares {@link java.util.regex.Pattern} with the DFA engine on typical ID and slug
+ * patterns and on a pathological pattern.
+ *
+ * <p>The pathological case grows exponentially with {@code n} for {@code Pattern}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RegexEngineBenchmark {
+
+  @Param({"id", "slug", "pathological"})
+  public String scenario;
+
+  @Param({"16", "24"})
+  public int n;
+
+  private RegexMatcher pattern;
+
+  private RegexMatcher dfa;
+
+  private String value;
+
+  @Setup
+  public void setup() {
+    String regex;
+    switch (this.scenario) {
+      case "id":
+        regex = "[0-9]{1,12}";
+        this.value = "123456789012".substring(0, Math.min(12, this.n));
+        break;
+      case "slug":
+        regex = "[a-z0-9]+(-[a-z0-9]+)*";
+        this.value = "a-long-slug-with-words-".repeat(this.n / 8 + 1) + "X";
+        break;
+      default:
+        regex = "(a|aa)+b";
+        this.value = "a".repeat(this.n);
+    }
+    this.pattern = RegexEngine.PATTERN.compile(regex);
+    this.dfa = RegexEngine.DFA.compile(regex);
+  }
+
+  @Benchmark
+  public boolean pattern() {
+    return this.pattern.matches(this.value);
+  }
+
+  @Benchmark
+  public boolean dfa() {
+    return this.dfa.matches(this.value);
+  }
+
+}
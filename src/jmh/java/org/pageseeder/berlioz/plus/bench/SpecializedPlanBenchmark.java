@@ -0,0 +1,99 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.ConstraintOrder;
+import org.pageseeder.berlioz.plus.RequestValidator;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.constraints.EmailParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.LongParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.RequiredParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.TemporalParameterConstraint;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+/**
+ * Compares the interpreted validation plan with the plan specialized into a hidden class
+ * for validators with 1, 5 and 20 constraints of mixed kinds.
+ *
+ * <p>Requires Java 15 or later for the specialized plans.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpecializedPlanBenchmark {
+
+  @Param({"1", "5", "20"})
+  public int constraints;
+
+  @Param({"false", "true"})
+  public boolean specialized;
+
+  private RequestValidator validator;
+
+  private BenchRequest req;
+
+  private final XMLPrinter xml = new XMLPrinter(new XMLWriterImpl(new StringWriter()));
+
+  @Setup
+  public void setup() {
+    RequestValidator.Builder builder = RequestValidator.builder().order(ConstraintOrder.DECLARATION);
+    Map<String, String> parameters = new HashMap<>();
+    for (int i = 0; i < this.constraints; i++) {
+      String name = "p" + i;
+      // Cycle through the kinds of constraints so that the interpreted call site is megamorphic
+      switch (i % 5) {
+        case 0:
+          builder.add(new RequiredParameterConstraint(name));
+          parameters.put(name, "value");
+          break;
+        case 1:
+          builder.add(new LongParameterConstraint(name, true, 1, 1000));
+          parameters.put(name, "123");
+          break;
+        case 2:
+          builder.add(new ParameterConstraint(name, true, "[a-z]+"));
+          parameters.put(name, "abc");
+          break;
+        case 3:
+          builder.add(new EmailParameterConstraint(name, true));
+          parameters.put(name, "john@example.org");
+          break;
+        default:
+          builder.add(new TemporalParameterConstraint(name, true, LocalDate.class));
+          parameters.put(name, "2016-02-29");
+      }
+    }
+    System.setProperty(RequestValidator.SPECIALIZE_PROPERTY, Boolean.toString(this.specialized));
+    try {
+      this.validator = builder.build();
+    } finally {
+      System.clearProperty(RequestValidator.SPECIALIZE_PROPERTY);
+    }
+    this.req = new BenchRequest(parameters);
+    // Generate the specialized code before measuring
+    this.validator.validate(this.req, this.xml);
+  }
+
+  @Benchmark
+  public ContentStatus validate() {
+    return this.validator.validate(this.req, this.xml);
+  }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.xml.ByteBufferPool;
+import org.pageseeder.berlioz.plus.xml.Utf8XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriter;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+/**
+ * Compares writing a listing page through a <code>Writer</code> and a charset encoder
+ * with encoding directly into pooled byte buffers.
+ *
+ * <p>Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class Utf8XMLWriterBenchmark {
+
+  @Param({"ascii", "latin", "cjk"})
+  public String text;
+
+  private final OutputStream out = OutputStream.nullOutputStream();
+
+  private final WritableByteChannel channel = Channels.newChannel(this.out);
+
+  private final ByteBufferPool heap = new ByteBufferPool(8192, 4, false);
+
+  private final ByteBufferPool direct = new ByteBufferPool(8192, 4, true);
+
+  private String title() {
+    switch (this.text) {
+      case "latin": return "R\u00e9sum\u00e9 des activit\u00e9s & d\u00e9penses <2016>";
+      case "cjk": return "\u6d3b\u52d5\u3068\u8cbb\u7528\u306e\u6982\u8981 & <2016>";
+      default: return "Summary of activities & expenses <2016>";
+    }
+  }
+
+  @Benchmark
+  public void writer() throws IOException {
+    OutputStreamWriter w = new OutputStreamWriter(this.out, StandardCharsets.UTF_8);
+    XMLWriter xml = new XMLWriterImpl(w);
+    listing(xml);
+    xml.flush();
+  }
+
+  @Benchmark
+  public void utf8Stream() throws IOException {
+    Utf8XMLWriter xml = new Utf8XMLWriter(this.out, this.heap);
+    listing(xml);
+    xml.close();
+  }
+
+  @Benchmark
+  public void utf8Channel() throws IOException {
+    Utf8XMLWriter xml = new Utf8XMLWriter(this.channel, this.direct);
+    listing(xml);
+    xml.close();
+  }
+
+  private void listing(XMLWriter xml) throws IOException {
+    String title = title();
+    xml.openElement("documents", true);
+    for (int i = 0; i < 200; i++) {
+      xml.openElement("document", true);
+      xml.attribute("id", i);
+      xml.attribute("title", title);
+      xml.element("description", title);
+      xml.closeElement();
+    }
+    xml.closeElement();
+  }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.RequestValidator;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.EmailParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.LongParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.RequiredParameterConstraint;
+import org.pageseeder.xmlwriter.XMLWriterImpl;
+
+/**
+ * Compares evaluating each constraint against the request with the compiled
+ * validation plan which looks up each parameter once.
+ *
+ * <p>Run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationPlanBenchmark {
+
+  private final List<Constraint> constraints = List.of(
+      new RequiredParameterConstraint("id"),
+      new LongParameterConstraint("id", true, 1, Long.MAX_VALUE),
+      new ParameterConstraint("id", true, "[0-9]{1,12}"),
+      new ParameterConstraint("name", false, "[a-z-]+"),
+      new EmailParameterConstraint("email", true),
+      new RequiredParameterConstraint("email")
+  );
+
+  private final RequestValidator validator = new RequestValidator(this.constraints);
+
+  private final BenchRequest req = new BenchRequest(Map.of("id", "12345", "name", "john-smith", "email", "john@example.org"));
+
+  private final XMLPrinter xml = new XMLPrinter(new XMLWriterImpl(new StringWriter()));
+
+  @Setup
+  public void setup() {
+    // Compile the plan before measuring
+    this.validator.validate(this.req, this.xml);
+  }
+
+  /**
+   * Each constraint looks up its own parameter.
+   */
+  @Benchmark
+  public ContentStatus perConstraint() {
+    for (Constraint c : this.constraints) {
+      ContentStatus status = c.validate(this.req, this.xml);
+      if (status != ContentStatus.OK) return status;
+    }
+    return ContentStatus.OK;
+  }
+
+  /**
+   * Constraints are grouped by parameter.
+   */
+  @Benchmark
+  public ContentStatus plan() {
+    return this.validator.validate(this.req, this.xml);
+  }
+
+}
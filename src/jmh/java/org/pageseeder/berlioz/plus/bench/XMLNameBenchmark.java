@@ -0,0 +1,70 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.bench;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.xml.ByteBufferPool;
+import org.pageseeder.berlioz.plus.xml.Utf8XMLWriter;
+import org.pageseeder.berlioz.plus.xml.XMLName;
+
+/**
+ * Compares writing a listing page with string names and with pre-encoded names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class XMLNameBenchmark {
+
+  private static final XMLName DOCUMENTS = XMLName.of("documents");
+  private static final XMLName DOCUMENT = XMLName.of("document");
+  private static final XMLName ID = XMLName.of("id");
+  private static final XMLName TITLE = XMLName.of("title");
+  private static final XMLName DESCRIPTION = XMLName.of("description");
+
+  private static final String TEXT = "Summary of activities & expenses <2016>";
+
+  private final OutputStream out = OutputStream.nullOutputStream();
+
+  private final ByteBufferPool pool = new ByteBufferPool(8192, 4, false);
+
+  @Benchmark
+  public void strings() {
+    XMLPrinter xml = new XMLPrinter(new Utf8XMLWriter(this.out, this.pool));
+    xml.openElement("documents", true);
+    for (int i = 0; i < 200; i++) {
+      xml.openElement("document", true);
+      xml.attribute("id", i);
+      xml.attribute("title", TEXT);
+      xml.element("description", TEXT);
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+  @Benchmark
+  public void names() {
+    XMLPrinter xml = new XMLPrinter(new Utf8XMLWriter(this.out, this.pool));
+    xml.openElement(DOCUMENTS, true);
+    for (int i = 0; i < 200; i++) {
+      xml.openElement(DOCUMENT, true);
+      xml.attribute(ID, i);
+      xml.attribute(TITLE, TEXT);
+      xml.element(DESCRIPTION, TEXT);
+      xml.closeElement();
+    }
+    xml.closeElement();
+    xml.close();
+  }
+
+}
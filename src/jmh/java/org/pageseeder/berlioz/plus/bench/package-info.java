@@ -0,0 +1,10 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+/**
+ * JMH benchmarks for Berlioz Plus.
+ *
+ * <p>Benchmarks are not part of the build and are run with {@code ./gradlew jmh}.
+ */
+@org.jspecify.annotations.NullMarked
+package org.pageseeder.berlioz.plus.bench;
@@ -0,0 +1,113 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A typed handle on a request attribute.
+ *
+ * <p>Each key is given a slot index when it is created, so that the validated request can
+ * store its value in an array instead of the string-keyed attributes of the request:
+ *
+ * <pre>{@code
+ * public static final AttributeKey<User> USER = AttributeKey.of("user", User.class);
+ *
+ * req.setAttribute(USER, user);
+ * User user = req.getAttribute(USER);
+ * }</pre>
+ *
+ * <p>Keys should be created once, typically as constants, as every key adds a slot to the
+ * attributes of each request which uses them.
+ *
+ * @param <T> The type of value
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class AttributeKey<T> {
+
+  /**
+   * The number of keys created so far.
+   */
+  private static final AtomicInteger COUNT = new AtomicInteger();
+
+  /**
+   * The name of the underlying request attribute.
+   */
+  private final String name;
+
+  /**
+   * The type of value.
+   */
+  private final Class<T> type;
+
+  /**
+   * The index of the slot for this key.
+   */
+  private final int index;
+
+  private AttributeKey(String name, Class<T> type) {
+    this.name = name;
+    this.type = type;
+    this.index = COUNT.getAndIncrement();
+  }
+
+  /**
+   * Creates a new key for the specified attribute.
+   *
+   * @param name The name of the underlying request attribute
+   * @param type The type of value
+   * @param <T>  The type of value
+   *
+   * @return a new key
+   *
+   * @throws NullPointerException     If the name or type is <code>null</code>
+   * @throws IllegalArgumentException If the name is empty or the type is primitive.
+   */
+  public static <T> AttributeKey<T> of(String name, Class<T> type) {
+    Objects.requireNonNull(name, "Attribute name is required");
+    Objects.requireNonNull(type, "Attribute type is required");
+    if (name.isEmpty()) throw new IllegalArgumentException("Attribute name cannot be empty");
+    if (type.isPrimitive()) throw new IllegalArgumentException("Attribute type cannot be primitive");
+    return new AttributeKey<>(name, type);
+  }
+
+  /**
+   * @return the name of the underlying request attribute.
+   */
+  public String name() {
+    return this.name;
+  }
+
+  /**
+   * @return the type of value.
+   */
+  public Class<T> type() {
+    return this.type;
+  }
+
+  /**
+   * @return the index of the slot for this key.
+   */
+  int index() {
+    return this.index;
+  }
+
+  /**
+   * @return the number of keys created so far.
+   */
+  static int count() {
+    return COUNT.get();
+  }
+
+  @Override
+  public String toString() {
+    return this.name + ':' + this.type.getSimpleName();
+  }
+
+}
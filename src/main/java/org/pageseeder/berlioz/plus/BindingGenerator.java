@@ -0,0 +1,74 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.spi.RequestFactory;
+
+/**
+ * A generator receiving the request parameters as an immutable object.
+ *
+ * <p>The parameters class declares a constructor (typically the canonical constructor
+ * of a record) with each parameter annotated with the constraint it must satisfy:
+ *
+ * <pre>{@code
+ * public record Params(@LongParameter("id") long id,
+ *                      @TemporalParameter("from") LocalDate from) {}
+ * }</pre>
+ *
+ * <p>The constraints are added to the validator of the generator, and the values
+ * parsed during validation are passed directly to the constructor, so that the
+ * generator does not need to look up and parse the parameters again.
+ *
+ * @param <P> The type of parameters
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public abstract class BindingGenerator<P> extends Generator<ValidatedRequest> {
+
+  private static final RequestFactory<ValidatedRequest> REQUEST_FACTORY = new BuiltinFactory();
+
+  /**
+   * Binds the parameters for this generator.
+   */
+  private final ParameterBinder<P> binder;
+
+  /**
+   * Construct a new instance.
+   *
+   * @param type The type of parameters
+   *
+   * @throws IllegalArgumentException If the parameters cannot be bound to the type.
+   */
+  protected BindingGenerator(Class<P> type) {
+    this(ParameterBinder.of(type));
+  }
+
+  private BindingGenerator(ParameterBinder<P> binder) {
+    super(REQUEST_FACTORY, binder::extend);
+    this.binder = binder;
+  }
+
+  @Override
+  public final ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+    return generate(this.binder.bind(req), req, xml);
+  }
+
+  /**
+   * Generate the content
+   *
+   * @param parameters The parameters of the request.
+   * @param req        The request to process.
+   * @param xml        The XML output.
+   *
+   * @return the status of the content.
+   *
+   * @throws org.pageseeder.berlioz.plus.exceptions.RequestException If an error occurred processing the request.
+   */
+  public abstract ContentStatus generate(P parameters, ValidatedRequest req, XMLPrinter xml);
+
+}
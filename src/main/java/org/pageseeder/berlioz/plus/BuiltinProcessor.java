@@ -2,13 +2,17 @@ package org.pageseeder.berlioz.plus;
 
 import java.lang.annotation.Annotation;
 import java.time.temporal.Temporal;
+import java.util.Collection;
+import java.util.List;
 
 import org.pageseeder.berlioz.plus.annotations.EmailParameter;
+import org.pageseeder.berlioz.plus.annotations.LongListParameter;
 import org.pageseeder.berlioz.plus.annotations.LongParameter;
 import org.pageseeder.berlioz.plus.annotations.Parameter;
 import org.pageseeder.berlioz.plus.annotations.TemporalParameter;
 import org.pageseeder.berlioz.plus.constraints.Constraint;
 import org.pageseeder.berlioz.plus.constraints.EmailParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.LongListParameterConstraint;
 import org.pageseeder.berlioz.plus.constraints.LongParameterConstraint;
 import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
 import org.pageseeder.berlioz.plus.constraints.TemporalParameterConstraint;
@@ -20,16 +24,24 @@ import org.pageseeder.berlioz.plus.spi.AnnotationProcessor;
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 public final class BuiltinProcessor implements AnnotationProcessor {
 
+  /**
+   * The annotation types supported by this processor.
+   */
+  private static final List<Class<? extends Annotation>> ANNOTATION_TYPES =
+      List.of(Parameter.class, LongParameter.class, EmailParameter.class, TemporalParameter.class,
+          LongListParameter.class);
+
   @Override
   public boolean accepts(Annotation annotation) {
     return (annotation instanceof Parameter
          || annotation instanceof LongParameter
          || annotation instanceof EmailParameter
-         || annotation instanceof TemporalParameter);
+         || annotation instanceof TemporalParameter
+         || annotation instanceof LongListParameter);
   }
 
   @Override
@@ -39,7 +51,7 @@ public final class BuiltinProcessor implements AnnotationProcessor {
       String name = parameter.value();
       boolean required = parameter.required();
       String regex = parameter.matches();
-      return new ParameterConstraint(name, required, regex);
+      return new ParameterConstraint(name, required, regex, parameter.engine(), parameter.budget());
     } else if (annotation instanceof LongParameter) {
       LongParameter parameter = (LongParameter)annotation;
       String name = parameter.value();
@@ -58,7 +70,18 @@ public final class BuiltinProcessor implements AnnotationProcessor {
       boolean required = parameter.required();
       Class<? extends Temporal> type = parameter.type();
       return new TemporalParameterConstraint(name, required, type);
+    } else if (annotation instanceof LongListParameter) {
+      LongListParameter parameter = (LongListParameter)annotation;
+      String name = parameter.value();
+      boolean required = parameter.required();
+      return new LongListParameterConstraint(name, required, parameter.min(), parameter.max(),
+          parameter.minCount(), parameter.maxCount());
     } else throw new IllegalArgumentException();
   }
 
+  @Override
+  public Collection<Class<? extends Annotation>> getAnnotationTypes() {
+    return ANNOTATION_TYPES;
+  }
+
 }
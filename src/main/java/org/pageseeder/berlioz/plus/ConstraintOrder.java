@@ -0,0 +1,47 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import org.pageseeder.berlioz.plus.constraints.ConstraintCost;
+
+/**
+ * The order in which a validator stopping at the first error checks the parameters.
+ *
+ * <p>Whatever the order, constraints on the same parameter are always checked in
+ * declaration order and parameters are never checked across a constraint which is
+ * not specific to a parameter. Only the order of the parameters between these
+ * constraints may change, so when several parameters are invalid the error reported
+ * may be for a different parameter.
+ *
+ * <p>Validators reporting all errors always report them in declaration order.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public enum ConstraintOrder {
+
+  /**
+   * Parameters are checked in the order their constraints are declared.
+   */
+  DECLARATION,
+
+  /**
+   * Parameters are checked by increasing {@link ConstraintCost cost}.
+   *
+   * <p>This is the default.
+   */
+  COST,
+
+  /**
+   * Parameters are initially checked by increasing cost and are reordered at runtime
+   * so that parameters likely to reject the request at a low cost are checked first.
+   *
+   * <p>The rejection rate and the time taken to check each parameter are sampled on
+   * a small fraction of the requests.
+   */
+  ADAPTIVE
+
+}
@@ -4,6 +4,7 @@
 package org.pageseeder.berlioz.plus;
 
 import java.io.IOException;
+import java.util.function.UnaryOperator;
 
 import org.pageseeder.berlioz.BerliozException;
 import org.pageseeder.berlioz.content.ContentGenerator;
@@ -23,12 +24,12 @@ import org.slf4j.LoggerFactory;
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 public abstract class Generator<R extends ValidatedRequest> implements ContentGenerator {
 
   /**
-   * Validator for this generator (instantiated from annotations)
+   * Validator for this generator (computed once per class from annotations)
    */
   private final RequestValidator validator;
 
@@ -40,23 +41,34 @@ public abstract class Generator<R extends ValidatedRequest> implements ContentGe
    * @param factory The factory to use to create the request.
    */
   protected Generator(RequestFactory<R> factory) {
-    this.validator = RequestValidator.create(this.getClass());
+    this(factory, UnaryOperator.identity());
+  }
+
+  /**
+   * Construct a new instance with additional constraints.
+   *
+   * @param factory   The factory to use to create the request.
+   * @param validator Returns the validator to use given the validator for this class.
+   */
+  Generator(RequestFactory<R> factory, UnaryOperator<RequestValidator> validator) {
+    this.validator = validator.apply(RequestValidator.forClass(this.getClass()));
     this.factory = factory;
   }
 
   @Override
   public final void process(ContentRequest req, XMLWriter xml) throws BerliozException, IOException {
 
-    XMLPrinter appender = new XMLPrinter(xml);
+    // A single printer for validation and generation
+    XMLPrinter printer = XMLPrinter.of(xml);
 
     // Validate first
-    ContentStatus status = this.validator.validate(req, appender);
+    ContentStatus status = this.validator.validate(req, printer);
 
     // Continue if request is valid
     if (status == ContentStatus.OK) {
       try {
         R r = this.factory.getRequest(req);
-        status = generate(r, new XMLPrinter(xml));
+        status = generate(r, printer);
       } catch (RequestException ex) {
         Logger logger = LoggerFactory.getLogger(this.getClass());
         logger.error("Caught request exception: {}", ex.getMessage(), ex);
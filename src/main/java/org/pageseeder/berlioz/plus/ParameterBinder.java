@@ -0,0 +1,438 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.plus.annotations.EmailParameter;
+import org.pageseeder.berlioz.plus.annotations.LongListParameter;
+import org.pageseeder.berlioz.plus.annotations.LongParameter;
+import org.pageseeder.berlioz.plus.annotations.Parameter;
+import org.pageseeder.berlioz.plus.annotations.TemporalParameter;
+import org.pageseeder.berlioz.plus.constraints.TemporalParameterConstraint;
+import org.pageseeder.berlioz.plus.exceptions.InvalidParameterException;
+import org.pageseeder.berlioz.plus.exceptions.MissingParameterException;
+import org.pageseeder.berlioz.plus.util.IsoTemporal;
+import org.pageseeder.berlioz.plus.util.LongParser;
+
+/**
+ * Binds the parameters of a request to the constructor of a parameters class.
+ *
+ * <p>The constructor is the only constructor with all its parameters annotated with
+ * {@link Parameter}, {@link EmailParameter}, {@link LongParameter}, {@link LongListParameter} or
+ * {@link TemporalParameter};
+ * for a record, this is the canonical constructor as these annotations are propagated from the
+ * record components.
+ *
+ * <p>The annotations add constraints to the validator of the generator, and the values
+ * parsed by these constraints during validation are passed to the constructor. The
+ * constructor and the accessors for each argument are combined into a single method handle
+ * once per parameters class, so binding a request does not use reflection and passes
+ * primitive values without boxing them.
+ *
+ * @param <P> The type of parameters
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class ParameterBinder<P> {
+
+  /**
+   * The binders for each parameters class.
+   */
+  private static final ClassValue<ParameterBinder<?>> BINDERS = new ClassValue<ParameterBinder<?>>() {
+    @Override
+    protected ParameterBinder<?> computeValue(Class<?> type) {
+      return new ParameterBinder<>(type);
+    }
+  };
+
+  private static final MethodType STRING = MethodType.methodType(String.class, ValidatedRequest.class);
+
+  private static final MethodType LONG = MethodType.methodType(long.class, ValidatedRequest.class);
+
+  private static final MethodType LONG_OBJECT = MethodType.methodType(Long.class, ValidatedRequest.class);
+
+  private static final MethodType LONGS = MethodType.methodType(long[].class, ValidatedRequest.class);
+
+  private static final MethodType OBJECT = MethodType.methodType(Object.class, ValidatedRequest.class);
+
+  /**
+   * The type of parameters.
+   */
+  private final Class<P> type;
+
+  /**
+   * The annotations of each argument.
+   */
+  private final Annotation[] annotations;
+
+  /**
+   * The arguments of the constructor.
+   */
+  private final Argument[] arguments;
+
+  /**
+   * Creates the parameters from a validated request: <code>(ValidatedRequest)Object</code>.
+   */
+  private final MethodHandle factory;
+
+  /**
+   * The last validator extended by this binder.
+   */
+  private volatile @Nullable Extension extension;
+
+  private ParameterBinder(Class<P> type) {
+    if (type.isMemberClass() && !Modifier.isStatic(type.getModifiers()))
+      throw new IllegalArgumentException("Parameters class must not be an inner class: " + type.getName());
+    if (Modifier.isAbstract(type.getModifiers()))
+      throw new IllegalArgumentException("Parameters class must not be abstract: " + type.getName());
+    this.type = type;
+    Constructor<?> constructor = constructor(type);
+    java.lang.reflect.Parameter[] parameters = constructor.getParameters();
+    this.annotations = new Annotation[parameters.length];
+    this.arguments = new Argument[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      this.annotations[i] = annotation(parameters[i]);
+      this.arguments[i] = Argument.of(this.annotations[i], parameters[i].getType(), type);
+    }
+    this.factory = factory(constructor, this.arguments);
+  }
+
+  /**
+   * Returns the binder for the specified parameters class.
+   *
+   * @param type The type of parameters
+   * @param <P>  The type of parameters
+   *
+   * @return the binder for this type.
+   *
+   * @throws IllegalArgumentException if the type cannot be bound.
+   */
+  @SuppressWarnings("unchecked")
+  static <P> ParameterBinder<P> of(Class<P> type) {
+    return (ParameterBinder<P>) BINDERS.get(type);
+  }
+
+  /**
+   * Returns the validator including the constraints of the arguments.
+   *
+   * <p>The validator is computed once for each validator it extends.
+   *
+   * @param validator The validator to extend
+   *
+   * @return the extended validator.
+   */
+  RequestValidator extend(RequestValidator validator) {
+    Extension extension = this.extension;
+    if (extension == null || extension.base != validator) {
+      RequestValidator.Builder builder = validator.toBuilder();
+      for (int i = 0; i < this.arguments.length; i++) {
+        Annotation annotation = this.annotations[i];
+        Class<? extends Temporal> temporal = this.arguments[i].temporal;
+        if (annotation instanceof TemporalParameter && temporal != ((TemporalParameter) annotation).type()) {
+          builder.add(new TemporalParameterConstraint(this.arguments[i].name, this.arguments[i].required, temporal));
+        } else {
+          builder.update(annotation);
+        }
+      }
+      extension = new Extension(validator, builder.build());
+      this.extension = extension;
+    }
+    return extension.validator;
+  }
+
+  /**
+   * Creates the parameters for the specified request.
+   *
+   * @param req The validated request
+   *
+   * @return the parameters.
+   *
+   * @throws MissingParameterException If a required parameter is missing
+   * @throws InvalidParameterException If a value cannot be parsed
+   */
+  P bind(ValidatedRequest req) {
+    try {
+      return this.type.cast((Object) this.factory.invokeExact(req));
+    } catch (RuntimeException | Error ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Unable to create " + this.type.getName(), ex);
+    }
+  }
+
+  /**
+   * @return the names of the bound parameters in order.
+   */
+  List<String> names() {
+    List<String> names = new ArrayList<>(this.arguments.length);
+    for (Argument argument : this.arguments) {
+      names.add(argument.name);
+    }
+    return names;
+  }
+
+  private static Constructor<?> constructor(Class<?> type) {
+    Constructor<?> found = null;
+    Constructor<?> empty = null;
+    for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+      if (constructor.getParameterCount() == 0) {
+        empty = constructor;
+      } else if (isBound(constructor)) {
+        if (found != null)
+          throw new IllegalArgumentException("Several constructors with annotated parameters in " + type.getName());
+        found = constructor;
+      }
+    }
+    if (found == null) found = empty;
+    if (found == null)
+      throw new IllegalArgumentException("No constructor with annotated parameters in " + type.getName());
+    return found;
+  }
+
+  private static boolean isBound(Constructor<?> constructor) {
+    for (java.lang.reflect.Parameter parameter : constructor.getParameters()) {
+      if (annotationOrNull(parameter) == null) return false;
+    }
+    return true;
+  }
+
+  private static Annotation annotation(java.lang.reflect.Parameter parameter) {
+    Annotation annotation = annotationOrNull(parameter);
+    if (annotation == null) throw new IllegalArgumentException("Parameter is not annotated: " + parameter);
+    return annotation;
+  }
+
+  private static @Nullable Annotation annotationOrNull(java.lang.reflect.Parameter parameter) {
+    Annotation found = null;
+    for (Annotation annotation : parameter.getAnnotations()) {
+      if (annotation instanceof Parameter || annotation instanceof EmailParameter
+       || annotation instanceof LongParameter || annotation instanceof TemporalParameter
+       || annotation instanceof LongListParameter) {
+        if (found != null) throw new IllegalArgumentException("Parameter has several annotations: " + parameter);
+        found = annotation;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Combines the constructor and the accessors of its arguments into a single method handle.
+   */
+  private static MethodHandle factory(Constructor<?> constructor, Argument[] arguments) {
+    MethodHandle handle;
+    try {
+      constructor.trySetAccessible();
+      handle = MethodHandles.lookup().unreflectConstructor(constructor);
+    } catch (IllegalAccessException | SecurityException ex) {
+      throw new IllegalArgumentException("Cannot access constructor " + constructor, ex);
+    }
+    Class<?>[] types = constructor.getParameterTypes();
+    MethodHandle[] accessors = new MethodHandle[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      accessors[i] = arguments[i].accessor().asType(MethodType.methodType(types[i], ValidatedRequest.class));
+    }
+    handle = MethodHandles.filterArguments(handle, 0, accessors);
+    // All the accessors take the same request
+    MethodType type = MethodType.methodType(handle.type().returnType(), ValidatedRequest.class);
+    handle = MethodHandles.permuteArguments(handle, type, new int[arguments.length]);
+    return handle.asType(OBJECT);
+  }
+
+  /**
+   * A validator and its extension.
+   */
+  private static final class Extension {
+
+    private final RequestValidator base;
+
+    private final RequestValidator validator;
+
+    Extension(RequestValidator base, RequestValidator validator) {
+      this.base = base;
+      this.validator = validator;
+    }
+
+  }
+
+  /**
+   * The slot of a parameter in the parsed values of a validator.
+   */
+  private static final class Slot {
+
+    /** The parameter names of the parsed values */
+    private final String[] names;
+
+    private final int slot;
+
+    Slot(String[] names, int slot) {
+      this.names = names;
+      this.slot = slot;
+    }
+
+  }
+
+  /**
+   * Reads the value of an argument from a validated request.
+   *
+   * <p>Values published by the constraints during validation are used directly, the
+   * request parameter is only looked up and parsed when no value was published.
+   */
+  private static final class Argument {
+
+    private final String name;
+
+    private final boolean required;
+
+    /** The kind of accessor */
+    private final MethodType kind;
+
+    /** The temporal type or <code>null</code> */
+    private final @Nullable Class<? extends Temporal> temporal;
+
+    /** The slot resolved for the last parsed values */
+    private volatile @Nullable Slot slot;
+
+    private Argument(String name, boolean required, MethodType kind, @Nullable Class<? extends Temporal> temporal) {
+      this.name = name;
+      this.required = required;
+      this.kind = kind;
+      this.temporal = temporal;
+    }
+
+    static Argument of(Annotation annotation, Class<?> type, Class<?> owner) {
+      if (annotation instanceof Parameter || annotation instanceof EmailParameter) {
+        String name = annotation instanceof Parameter ? ((Parameter) annotation).value() : ((EmailParameter) annotation).value();
+        boolean required = annotation instanceof Parameter ? ((Parameter) annotation).required() : ((EmailParameter) annotation).required();
+        check(type == String.class, name, "String", owner);
+        return new Argument(name, required, STRING, null);
+      }
+      if (annotation instanceof LongParameter) {
+        LongParameter parameter = (LongParameter) annotation;
+        boolean primitive = type == long.class;
+        check(type == Long.class || primitive && parameter.required(), parameter.value(),
+            parameter.required() ? "long or Long" : "Long", owner);
+        return new Argument(parameter.value(), parameter.required(), primitive ? LONG : LONG_OBJECT, null);
+      }
+      if (annotation instanceof LongListParameter) {
+        LongListParameter parameter = (LongListParameter) annotation;
+        check(type == long[].class, parameter.value(), "long[]", owner);
+        return new Argument(parameter.value(), parameter.required(), LONGS, null);
+      }
+      TemporalParameter parameter = (TemporalParameter) annotation;
+      Class<? extends Temporal> temporal = parameter.type();
+      if (temporal != type && parameter.type() == LocalDate.class && isConcreteTemporal(type)) {
+        temporal = type.asSubclass(Temporal.class);
+      }
+      check(type.isAssignableFrom(temporal), parameter.value(), temporal.getName(), owner);
+      return new Argument(parameter.value(), parameter.required(), OBJECT, temporal);
+    }
+
+    private static boolean isConcreteTemporal(Class<?> type) {
+      return Temporal.class.isAssignableFrom(type) && !type.isInterface() && !Modifier.isAbstract(type.getModifiers());
+    }
+
+    private static void check(boolean valid, String name, String expected, Class<?> owner) {
+      if (!valid)
+        throw new IllegalArgumentException("Parameter " + name + " of " + owner.getName() + " must be bound to " + expected);
+    }
+
+    MethodHandle accessor() {
+      String method = this.kind == STRING ? "getString" : this.kind == LONG ? "getLong"
+          : this.kind == LONG_OBJECT ? "getLongObject" : this.kind == LONGS ? "getLongs" : "getTemporal";
+      try {
+        return MethodHandles.lookup().findVirtual(Argument.class, method, this.kind).bindTo(this);
+      } catch (ReflectiveOperationException ex) {
+        throw new IllegalStateException(ex);
+      }
+    }
+
+    /**
+     * @return the slot of this parameter in the parsed values or -1.
+     */
+    private int slot(ParsedValues values) {
+      Slot slot = this.slot;
+      String[] names = values.names();
+      if (slot == null || slot.names != names) {
+        slot = new Slot(names, values.slot(this.name));
+        this.slot = slot;
+      }
+      return slot.slot;
+    }
+
+    @Nullable String getString(ValidatedRequest req) {
+      String value = req.getOptionalParameter(this.name);
+      if (value == null && this.required) throw new MissingParameterException(this.name);
+      return value;
+    }
+
+    long getLong(ValidatedRequest req) {
+      ParsedValues values = req.parsedValues();
+      if (values != null) {
+        int slot = slot(values);
+        if (slot >= 0 && values.isLong(slot)) return values.getLong(slot);
+      }
+      return parseLong(req.getParameter(this.name));
+    }
+
+    @Nullable Long getLongObject(ValidatedRequest req) {
+      ParsedValues values = req.parsedValues();
+      if (values != null) {
+        int slot = slot(values);
+        if (slot >= 0 && values.isLong(slot)) return values.getLong(slot);
+      }
+      String value = getString(req);
+      return value != null ? parseLong(value) : null;
+    }
+
+    long[] getLongs(ValidatedRequest req) {
+      ParsedValues values = req.parsedValues();
+      if (values != null) {
+        int slot = slot(values);
+        Object value = slot >= 0 ? values.get(slot) : null;
+        if (value instanceof long[]) return ((long[]) value).clone();
+      }
+      return this.required ? req.getLongs(this::getName) : req.getOptionalLongs(this::getName);
+    }
+
+    private String getName() {
+      return this.name;
+    }
+
+    @Nullable Object getTemporal(ValidatedRequest req) {
+      Class<? extends Temporal> temporal = this.temporal;
+      ParsedValues values = req.parsedValues();
+      if (values != null) {
+        int slot = slot(values);
+        Object value = slot >= 0 ? values.get(slot) : null;
+        if (temporal.isInstance(value)) return value;
+      }
+      String text = getString(req);
+      if (text == null) return null;
+      Object value = IsoTemporal.isSupported(temporal) ? IsoTemporal.parse(text, temporal) : null;
+      if (value == null) throw new InvalidParameterException(this.name);
+      return value;
+    }
+
+    private long parseLong(String value) {
+      if (LongParser.check(value) != LongParser.OK) throw new InvalidParameterException(this.name);
+      return LongParser.parse(value);
+    }
+
+  }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+
+/**
+ * A read-only view of the parameters of a content request.
+ *
+ * <p>The view does not copy the parameters: lookups go directly to the request and
+ * iterating over the entries enumerates the parameter names of the request. Only the
+ * first value of each parameter is visible, like {@link ContentRequest#getParameter(String)}.
+ *
+ * <p>The view is only valid for the duration of the request; use a
+ * {@link ParameterSnapshot} to keep the parameters or pass them to another thread.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class ParameterMapView extends AbstractMap<String, String> {
+
+  private final ContentRequest req;
+
+  private @Nullable Set<Map.Entry<String, String>> entries;
+
+  ParameterMapView(ContentRequest req) {
+    this.req = req;
+  }
+
+  @Override
+  public @Nullable String get(@Nullable Object key) {
+    return key instanceof String ? this.req.getParameter((String) key) : null;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return !entrySet().iterator().hasNext();
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    Set<Map.Entry<String, String>> entries = this.entries;
+    if (entries == null) {
+      entries = new Entries();
+      this.entries = entries;
+    }
+    return entries;
+  }
+
+  private final class Entries extends AbstractSet<Map.Entry<String, String>> {
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new EntryIterator(ParameterMapView.this.req);
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (Iterator<?> i = iterator(); i.hasNext(); i.next()) {
+        size++;
+      }
+      return size;
+    }
+
+  }
+
+  /**
+   * Enumerates the parameter names, skipping the parameters without a value.
+   */
+  private static final class EntryIterator implements Iterator<Map.Entry<String, String>> {
+
+    private final ContentRequest req;
+
+    private final Enumeration<String> names;
+
+    private Map.@Nullable Entry<String, String> next;
+
+    EntryIterator(ContentRequest req) {
+      this.req = req;
+      this.names = req.getParameterNames();
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (this.next == null && this.names.hasMoreElements()) {
+        String name = this.names.nextElement();
+        String value = this.req.getParameter(name);
+        if (value != null) this.next = new AbstractMap.SimpleImmutableEntry<>(name, value);
+      }
+      return this.next != null;
+    }
+
+    @Override
+    public Map.Entry<String, String> next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      Map.Entry<String, String> entry = this.next;
+      this.next = null;
+      return entry;
+    }
+
+  }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+
+/**
+ * An immutable copy of the parameters of a request.
+ *
+ * <p>The names and values are kept in two flat arrays sorted by name, so a snapshot is
+ * compact, can be used as a cache key and safely passed to other threads. Lookups use
+ * a binary search and the entries are iterated in name order.
+ *
+ * <p>Only the first value of each parameter is included, like
+ * {@link ContentRequest#getParameter(String)}.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class ParameterSnapshot extends AbstractMap<String, String> {
+
+  /** The empty snapshot */
+  private static final ParameterSnapshot EMPTY = new ParameterSnapshot(new String[0], new String[0], 0);
+
+  /** The parameter names in ascending order */
+  private final String[] names;
+
+  /** The value of each parameter */
+  private final String[] values;
+
+  /** The number of parameters */
+  private final int size;
+
+  /** Computed on demand */
+  private int hash;
+
+  private @Nullable Set<Map.Entry<String, String>> entries;
+
+  /**
+   * Creates a new snapshot, trimming the arrays to the number of parameters so that
+   * snapshots kept as cache keys do not retain unused space.
+   */
+  private ParameterSnapshot(String[] names, String[] values, int size) {
+    this.names = names.length == size ? names : Arrays.copyOf(names, size);
+    this.values = values.length == size ? values : Arrays.copyOf(values, size);
+    this.size = size;
+  }
+
+  /**
+   * Copies the parameters of the specified request.
+   *
+   * @param req The content request
+   *
+   * @return the parameters of the request.
+   */
+  public static ParameterSnapshot of(ContentRequest req) {
+    Enumeration<String> parameters = req.getParameterNames();
+    if (!parameters.hasMoreElements()) return EMPTY;
+    String[] names = new String[8];
+    int size = 0;
+    while (parameters.hasMoreElements()) {
+      if (size == names.length) names = Arrays.copyOf(names, size * 2);
+      names[size++] = parameters.nextElement();
+    }
+    Arrays.sort(names, 0, size);
+    String[] values = new String[size];
+    int count = 0;
+    for (int i = 0; i < size; i++) {
+      String value = req.getParameter(names[i]);
+      if (value != null && (count == 0 || !names[i].equals(names[count - 1]))) {
+        names[count] = names[i];
+        values[count++] = value;
+      }
+    }
+    return new ParameterSnapshot(names, values, count);
+  }
+
+  /**
+   * Copies the specified parameters.
+   *
+   * @param parameters The parameters
+   *
+   * @return the snapshot of these parameters.
+   */
+  public static ParameterSnapshot of(Map<String, String> parameters) {
+    if (parameters instanceof ParameterSnapshot) return (ParameterSnapshot) parameters;
+    if (parameters.isEmpty()) return EMPTY;
+    String[] names = new String[parameters.size()];
+    int size = 0;
+    for (Map.Entry<String, String> entry : parameters.entrySet()) {
+      if (entry.getValue() == null) continue;
+      if (size == names.length) names = Arrays.copyOf(names, size * 2);
+      names[size++] = entry.getKey();
+    }
+    Arrays.sort(names, 0, size);
+    String[] values = new String[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = parameters.get(names[i]);
+    }
+    return new ParameterSnapshot(names, values, size);
+  }
+
+  @Override
+  public @Nullable String get(@Nullable Object key) {
+    int i = indexOf(key);
+    return i >= 0 ? this.values[i] : null;
+  }
+
+  @Override
+  public boolean containsKey(@Nullable Object key) {
+    return indexOf(key) >= 0;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  @Override
+  public Set<Map.Entry<String, String>> entrySet() {
+    Set<Map.Entry<String, String>> entries = this.entries;
+    if (entries == null) {
+      entries = new Entries();
+      this.entries = entries;
+    }
+    return entries;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) return true;
+    if (o instanceof ParameterSnapshot) {
+      ParameterSnapshot other = (ParameterSnapshot) o;
+      return this.size == other.size
+          && Arrays.equals(this.names, 0, this.size, other.names, 0, other.size)
+          && Arrays.equals(this.values, 0, this.size, other.values, 0, other.size);
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    int h = this.hash;
+    if (h == 0 && this.size > 0) {
+      for (int i = 0; i < this.size; i++) {
+        h += this.names[i].hashCode() ^ this.values[i].hashCode();
+      }
+      this.hash = h;
+    }
+    return h;
+  }
+
+  private int indexOf(@Nullable Object key) {
+    return key instanceof String ? Arrays.binarySearch(this.names, 0, this.size, key) : -1;
+  }
+
+  private final class Entries extends AbstractSet<Map.Entry<String, String>> {
+
+    @Override
+    public Iterator<Map.Entry<String, String>> iterator() {
+      return new Iterator<Map.Entry<String, String>>() {
+        private int i = 0;
+
+        @Override
+        public boolean hasNext() {
+          return this.i < ParameterSnapshot.this.size;
+        }
+
+        @Override
+        public Map.Entry<String, String> next() {
+          if (this.i >= ParameterSnapshot.this.size) throw new NoSuchElementException();
+          int index = this.i++;
+          return new AbstractMap.SimpleImmutableEntry<>(ParameterSnapshot.this.names[index], ParameterSnapshot.this.values[index]);
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return ParameterSnapshot.this.size;
+    }
+
+  }
+
+}
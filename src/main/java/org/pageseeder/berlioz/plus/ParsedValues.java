@@ -0,0 +1,263 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.plus.constraints.ParsingConstraint;
+import org.pageseeder.berlioz.plus.util.LongParser;
+
+/**
+ * The values parsed by constraints while validating a request.
+ *
+ * <p>Each parameter checked by a {@link ParsingConstraint} is given a slot when the
+ * validator is built. During validation, the constraints publish the value they have
+ * parsed in the slot of their parameter, and the typed getters of the
+ * {@link ValidatedRequest} read the slot before parsing the parameter again.
+ *
+ * <p>The slots are flat arrays indexed by slot number, created once per request and only
+ * for validators with parsing constraints. Each value is stored with the text it was parsed
+ * from, so a getter only uses a value if the parameter is unchanged.
+ *
+ * <p>Instances are not thread-safe, they are meant to be used by a single request.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class ParsedValues {
+
+  /**
+   * The name of the request attribute holding the parsed values.
+   */
+  static final String ATTRIBUTE = ParsedValues.class.getName();
+
+  /**
+   * Marks a slot holding a long value.
+   */
+  private static final Object LONG = new Object();
+
+  /**
+   * The name of the parameter of each slot (shared by all requests).
+   */
+  private final String[] names;
+
+  /**
+   * The text each value was parsed from: a string or the array of values of the parameter.
+   */
+  private final @Nullable Object[] sources;
+
+  /**
+   * The parsed values or {@link #LONG} for long values.
+   */
+  private final @Nullable Object[] values;
+
+  /**
+   * The long values.
+   */
+  private final long[] longs;
+
+  /**
+   * Creates new empty slots.
+   *
+   * @param names The name of the parameter of each slot
+   */
+  ParsedValues(String[] names) {
+    this.names = names;
+    this.sources = new Object[names.length];
+    this.values = new Object[names.length];
+    this.longs = new long[names.length];
+  }
+
+  /**
+   * Publishes a long value parsed from a parameter.
+   *
+   * @param slot   The slot of the parameter
+   * @param source The value of the parameter
+   * @param value  The parsed value
+   */
+  public void putLong(int slot, String source, long value) {
+    this.sources[slot] = source;
+    this.values[slot] = LONG;
+    this.longs[slot] = value;
+  }
+
+  /**
+   * Parses a parameter as a long within the specified range and publishes it if valid.
+   *
+   * <p>The value is checked and parsed in a single pass directly into the slot.
+   *
+   * @param slot   The slot of the parameter
+   * @param source The value of the parameter
+   * @param min    The minimum value (inclusive)
+   * @param max    The maximum value (inclusive)
+   *
+   * @return the code returned by {@link LongParser#parseInto(CharSequence, long, long, long[], int)}
+   */
+  public int parseLong(int slot, String source, long min, long max) {
+    int code = LongParser.parseInto(source, min, max, this.longs, slot);
+    if (code == LongParser.OK) {
+      this.sources[slot] = source;
+      this.values[slot] = LONG;
+    }
+    return code;
+  }
+
+  /**
+   * Publishes an object parsed from a parameter.
+   *
+   * @param slot   The slot of the parameter
+   * @param source The value of the parameter
+   * @param value  The parsed value
+   */
+  public void put(int slot, String source, Object value) {
+    this.sources[slot] = source;
+    this.values[slot] = value;
+  }
+
+  /**
+   * Publishes an object parsed from all the values of a parameter.
+   *
+   * @param slot    The slot of the parameter
+   * @param sources The values of the parameter
+   * @param value   The parsed value
+   */
+  public void putAll(int slot, String[] sources, Object value) {
+    this.sources[slot] = sources;
+    this.values[slot] = value;
+  }
+
+  /**
+   * Returns the slot of the specified parameter.
+   *
+   * @param name The name of the parameter
+   *
+   * @return the slot or -1 if the parameter has no slot.
+   */
+  int slot(String name) {
+    String[] names = this.names;
+    for (int i = 0; i < names.length; i++) {
+      if (names[i] == name || names[i].equals(name)) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Indicates whether the specified slot holds a long parsed from the specified text.
+   *
+   * @param slot   The slot of the parameter
+   * @param source The current value of the parameter
+   *
+   * @return <code>true</code> if {@link #getLong(int)} can be used;
+   *         <code>false</code> otherwise.
+   */
+  boolean hasLong(int slot, String source) {
+    return this.values[slot] == LONG && source.equals(this.sources[slot]);
+  }
+
+  /**
+   * @param slot The slot of the parameter
+   *
+   * @return the long value in the specified slot.
+   */
+  long getLong(int slot) {
+    return this.longs[slot];
+  }
+
+  /**
+   * @param slot The slot of the parameter
+   *
+   * @return <code>true</code> if the specified slot holds a long value.
+   */
+  boolean isLong(int slot) {
+    return this.values[slot] == LONG;
+  }
+
+  /**
+   * @param slot The slot of the parameter
+   *
+   * @return the object in the specified slot or <code>null</code> if it is empty or holds a long.
+   */
+  @Nullable Object get(int slot) {
+    Object value = this.values[slot];
+    return value != LONG ? value : null;
+  }
+
+  /**
+   * @return the name of the parameter of each slot (shared by all the requests of a validator).
+   */
+  String[] names() {
+    return this.names;
+  }
+
+  /**
+   * Returns the value in the specified slot if it was parsed from the specified text and
+   * is an instance of the specified type.
+   *
+   * @param slot   The slot of the parameter
+   * @param source The current value of the parameter
+   * @param type   The expected type
+   *
+   * @param <T> The type of value
+   *
+   * @return the value or <code>null</code>.
+   */
+  <T> @Nullable T get(int slot, String source, Class<T> type) {
+    Object value = this.values[slot];
+    if (type.isInstance(value) && source.equals(this.sources[slot])) return type.cast(value);
+    return null;
+  }
+
+  /**
+   * Returns the value in the specified slot if it was parsed from the specified values and
+   * is an instance of the specified type.
+   *
+   * @param slot    The slot of the parameter
+   * @param sources The current values of the parameter
+   * @param type    The expected type
+   *
+   * @param <T> The type of value
+   *
+   * @return the value or <code>null</code>.
+   */
+  <T> @Nullable T get(int slot, String[] sources, Class<T> type) {
+    Object value = this.values[slot];
+    Object previous = this.sources[slot];
+    if (type.isInstance(value) && previous instanceof String[] && Arrays.equals(sources, (String[])previous))
+      return type.cast(value);
+    return null;
+  }
+
+  /**
+   * @return the number of slots.
+   */
+  int size() {
+    return this.names.length;
+  }
+
+  /**
+   * Attaches these values to the specified request.
+   *
+   * @param req The content request
+   */
+  void attach(ContentRequest req) {
+    req.setAttribute(ATTRIBUTE, this);
+  }
+
+  /**
+   * Returns the values attached to the specified request.
+   *
+   * @param req The content request
+   *
+   * @return the values or <code>null</code> if none were attached.
+   */
+  static @Nullable ParsedValues of(ContentRequest req) {
+    Object values = req.getAttribute(ATTRIBUTE);
+    return values instanceof ParsedValues ? (ParsedValues) values : null;
+  }
+
+}
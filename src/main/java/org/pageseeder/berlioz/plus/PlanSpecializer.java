@@ -0,0 +1,548 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.MultiValueConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParsingConstraint;
+import org.pageseeder.berlioz.plus.constraints.ValueConstraint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generates a hidden class running the steps of a validation plan in a single method.
+ *
+ * <p>The interpreted plan calls each constraint through the {@link ValueConstraint}
+ * interface, a call site which becomes megamorphic as soon as a validator uses several
+ * kinds of constraints. The generated method instead holds each constraint in a field of
+ * its concrete type, so that every call is statically bound and can be inlined.
+ *
+ * <p>Parsing constraints on a parameter with a slot and multi-value constraints are given
+ * the parsed values of the request, like in the interpreted plan.
+ *
+ * <p>Constraint classes which cannot be named from this package (non-public classes or
+ * classes from another class loader) are called through their interface.
+ *
+ * <p>Hidden classes require Java 15 or later; on older JVMs, {@link #build()} returns
+ * <code>null</code> and the plan is interpreted.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class PlanSpecializer {
+
+  /** Logger for the specializer */
+  private static final Logger LOGGER = LoggerFactory.getLogger(PlanSpecializer.class);
+
+  /** The maximum number of constraints in a single method */
+  static final int MAX_CONSTRAINTS = 1000;
+
+  /**
+   * <code>Lookup.defineHiddenClass(byte[], boolean)</code> or <code>null</code> if not supported.
+   */
+  private static final @Nullable MethodHandle DEFINE_HIDDEN_CLASS = defineHiddenClass();
+
+  /** The name of the generated class (made unique by the JVM) */
+  private static final String CLASS_NAME = "org/pageseeder/berlioz/plus/SpecializedPlan";
+
+  private static final String CONTENT_REQUEST = internal(ContentRequest.class);
+
+  private static final String CONTENT_STATUS = internal(ContentStatus.class);
+
+  private static final String XML_PRINTER = internal(XMLPrinter.class);
+
+  private static final String PARSED_VALUES = internal(ParsedValues.class);
+
+  private static final String STRING = internal(String.class);
+
+  private static final String VALIDATE_VALUE = "(L" + STRING + ";L" + XML_PRINTER + ";)L" + CONTENT_STATUS + ";";
+
+  private static final String VALIDATE_PARSED = "(L" + STRING + ";L" + XML_PRINTER + ";L" + PARSED_VALUES + ";I)L" + CONTENT_STATUS + ";";
+
+  private static final String VALIDATE_VALUES = "(L" + CONTENT_REQUEST + ";L" + XML_PRINTER + ";L" + PARSED_VALUES + ";I)L" + CONTENT_STATUS + ";";
+
+  private static final String VALIDATE_REQUEST = "(L" + CONTENT_REQUEST + ";L" + XML_PRINTER + ";)L" + CONTENT_STATUS + ";";
+
+  private static final String RUN = "(L" + CONTENT_REQUEST + ";L" + XML_PRINTER + ";L" + PARSED_VALUES + ";)L" + CONTENT_STATUS + ";";
+
+  /** The operations in order: a parameter name or the index of a constraint */
+  private final List<Object> operations = new ArrayList<>();
+
+  /** The constraints in order */
+  private final List<Constraint> constraints = new ArrayList<>();
+
+  /** The slot of the parsed value for each constraint or -1 */
+  private final List<Integer> slots = new ArrayList<>();
+
+  /**
+   * The code generated for a plan.
+   */
+  interface Runner {
+
+    /**
+     * Runs all the steps of the plan until one fails.
+     *
+     * @param req    The content request to validate
+     * @param xml    The XML writer to use should an error be reported.
+     * @param values The parsed values or <code>null</code> if the plan has no slots
+     *
+     * @return the content status of the request.
+     */
+    ContentStatus validate(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values);
+
+  }
+
+  /**
+   * @return <code>true</code> if the JVM supports hidden classes.
+   */
+  static boolean isSupported() {
+    return DEFINE_HIDDEN_CLASS != null;
+  }
+
+  /**
+   * Adds a step looking up a parameter and checking its value.
+   *
+   * @param name   The name of the parameter
+   * @param slot   The slot of the parsed value or -1 if the value is not parsed
+   * @param checks The constraints on the value
+   */
+  void parameter(String name, int slot, ValueConstraint[] checks) {
+    this.operations.add(name);
+    for (ValueConstraint check : checks) {
+      this.operations.add(this.constraints.size());
+      this.constraints.add(check);
+      this.slots.add(check instanceof ParsingConstraint ? slot : -1);
+    }
+  }
+
+  /**
+   * Adds a step validating the request with an opaque constraint.
+   *
+   * @param constraint The constraint
+   */
+  void constraint(Constraint constraint) {
+    constraint(constraint, -1);
+  }
+
+  /**
+   * Adds a step validating the request with a constraint publishing its parsed values.
+   *
+   * @param constraint The constraint
+   * @param slot       The slot of the parsed values or -1 if the values are not parsed
+   */
+  void constraint(Constraint constraint, int slot) {
+    this.operations.add(this.constraints.size());
+    this.constraints.add(constraint);
+    this.slots.add(slot);
+  }
+
+  /**
+   * Generates and instantiates the hidden class.
+   *
+   * @return the generated code or <code>null</code> if the plan cannot be specialized.
+   */
+  @Nullable Runner build() {
+    MethodHandle define = DEFINE_HIDDEN_CLASS;
+    if (define == null || this.constraints.size() > MAX_CONSTRAINTS) return null;
+    try {
+      byte[] bytes = new ClassFile(this.operations, this.constraints, this.slots).toBytes();
+      Lookup hidden = (Lookup)define.invoke(MethodHandles.lookup(), bytes, true);
+      MethodHandle constructor = hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class, Object[].class));
+      Runner runner = (Runner)constructor.invoke(this.constraints.toArray());
+      LOGGER.debug("Specialized plan with {} constraint(s)", this.constraints.size());
+      return runner;
+    } catch (VirtualMachineError ex) {
+      throw ex;
+    } catch (Throwable ex) {
+      LOGGER.warn("Unable to specialize validation plan: {}", ex.toString());
+      return null;
+    }
+  }
+
+  private static @Nullable MethodHandle defineHiddenClass() {
+    try {
+      Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+      Object none = Array.newInstance(option, 0);
+      MethodType type = MethodType.methodType(Lookup.class, byte[].class, boolean.class, none.getClass());
+      MethodHandle define = MethodHandles.publicLookup().findVirtual(Lookup.class, "defineHiddenClass", type);
+      return MethodHandles.insertArguments(define.asFixedArity(), 3, none);
+    } catch (ReflectiveOperationException ex) {
+      LOGGER.debug("Hidden classes are not supported, validation plans will be interpreted");
+      return null;
+    }
+  }
+
+  private static String internal(Class<?> type) {
+    return type.getName().replace('.', '/');
+  }
+
+  /**
+   * Returns the type to use for the field holding the specified constraint.
+   */
+  private static Class<?> fieldType(Constraint constraint) {
+    Class<?> type = constraint.getClass();
+    boolean nameable = Modifier.isPublic(type.getModifiers())
+        && type.getEnclosingClass() == null
+        && type.getName().indexOf('/') < 0
+        && type.getClassLoader() == PlanSpecializer.class.getClassLoader();
+    if (nameable) return type;
+    if (constraint instanceof ParsingConstraint) return ParsingConstraint.class;
+    if (constraint instanceof MultiValueConstraint) return MultiValueConstraint.class;
+    return constraint instanceof ValueConstraint ? ValueConstraint.class : Constraint.class;
+  }
+
+  /**
+   * Writes the class file of the hidden class.
+   *
+   * <p>The class has one final field per constraint, a constructor taking the constraints
+   * as an array and a <code>validate</code> method which runs all the operations in order.
+   */
+  private static final class ClassFile {
+
+    private static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, ALOAD_2 = 0x2c, ALOAD_3 = 0x2d, ALOAD = 0x19;
+
+    private static final int ASTORE = 0x3a, ACONST_NULL = 0x01, AALOAD = 0x32, SIPUSH = 0x11;
+
+    private static final int LDC_W = 0x13, GETSTATIC = 0xb2, GETFIELD = 0xb4, PUTFIELD = 0xb5, CHECKCAST = 0xc0;
+
+    private static final int INVOKEVIRTUAL = 0xb6, INVOKESPECIAL = 0xb7, INVOKEINTERFACE = 0xb9;
+
+    private static final int IF_ACMPEQ = 0xa5, ARETURN = 0xb0, RETURN = 0xb1;
+
+    /** The local variable holding the parameter value */
+    private static final int VALUE = 4;
+
+    /** The local variable holding the status */
+    private static final int STATUS = 5;
+
+    private final List<Object> operations;
+
+    private final Class<?>[] types;
+
+    private final int[] slots;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+    private final DataOutputStream constants = new DataOutputStream(this.pool);
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    /** The offsets of the branch targets in the validate method */
+    private final List<Integer> frames = new ArrayList<>();
+
+    private int count = 1;
+
+    ClassFile(List<Object> operations, List<Constraint> constraints, List<Integer> slots) {
+      this.operations = operations;
+      this.types = new Class<?>[constraints.size()];
+      this.slots = new int[constraints.size()];
+      for (int i = 0; i < this.types.length; i++) {
+        this.types[i] = fieldType(constraints.get(i));
+        this.slots[i] = slots.get(i);
+      }
+    }
+
+    byte[] toBytes() throws IOException {
+      int thisClass = classRef(CLASS_NAME);
+      int superClass = classRef("java/lang/Object");
+      int runner = classRef(internal(Runner.class));
+      byte[] constructor = constructor();
+      byte[] validate = validate();
+      byte[] frames = stackMapTable();
+      int code = utf8("Code");
+      int stackMapTable = utf8("StackMapTable");
+      int[] fieldNames = new int[this.types.length];
+      int[] fieldTypes = new int[this.types.length];
+      for (int i = 0; i < this.types.length; i++) {
+        fieldNames[i] = utf8("c" + i);
+        fieldTypes[i] = utf8(descriptor(this.types[i]));
+      }
+      int init = utf8("<init>");
+      int initType = utf8("([Ljava/lang/Object;)V");
+      int validateName = utf8("validate");
+      int validateType = utf8(RUN);
+      this.constants.flush();
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      // Java 8: frames are required but no other feature is used
+      out.writeShort(52);
+      out.writeShort(this.count);
+      this.pool.writeTo(out);
+      out.writeShort(ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(1);
+      out.writeShort(runner);
+      out.writeShort(this.types.length);
+      for (int i = 0; i < this.types.length; i++) {
+        out.writeShort(ACC_PRIVATE | ACC_FINAL);
+        out.writeShort(fieldNames[i]);
+        out.writeShort(fieldTypes[i]);
+        out.writeShort(0);
+      }
+      out.writeShort(2);
+      writeMethod(out, init, initType, code, constructor, 3, 2, null, 0);
+      writeMethod(out, validateName, validateType, code, validate, 5, 6, frames, stackMapTable);
+      out.writeShort(0);
+      out.flush();
+      return bytes.toByteArray();
+    }
+
+    private byte[] constructor() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream code = new DataOutputStream(bytes);
+      code.writeByte(ALOAD_0);
+      code.writeByte(INVOKESPECIAL);
+      code.writeShort(methodRef("java/lang/Object", "<init>", "()V", false));
+      for (int i = 0; i < this.types.length; i++) {
+        code.writeByte(ALOAD_0);
+        code.writeByte(ALOAD_1);
+        code.writeByte(SIPUSH);
+        code.writeShort(i);
+        code.writeByte(AALOAD);
+        code.writeByte(CHECKCAST);
+        code.writeShort(classRef(internal(this.types[i])));
+        code.writeByte(PUTFIELD);
+        code.writeShort(fieldRef(i));
+      }
+      code.writeByte(RETURN);
+      code.flush();
+      return bytes.toByteArray();
+    }
+
+    private byte[] validate() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream code = new DataOutputStream(bytes);
+      int ok = fieldRef(CONTENT_STATUS, "OK", "L" + CONTENT_STATUS + ";");
+      // All locals are assigned first so that every frame is the same
+      code.writeByte(ACONST_NULL);
+      code.writeByte(ASTORE);
+      code.writeByte(VALUE);
+      code.writeByte(ACONST_NULL);
+      code.writeByte(ASTORE);
+      code.writeByte(STATUS);
+      for (Object operation : this.operations) {
+        if (operation instanceof String) {
+          // value = req.getParameter(name)
+          code.writeByte(ALOAD_1);
+          code.writeByte(LDC_W);
+          code.writeShort(string((String)operation));
+          code.writeByte(INVOKEINTERFACE);
+          code.writeShort(methodRef(CONTENT_REQUEST, "getParameter", "(L" + STRING + ";)L" + STRING + ";", true));
+          code.writeByte(2);
+          code.writeByte(0);
+          code.writeByte(ASTORE);
+          code.writeByte(VALUE);
+        } else {
+          // status = ci.validate(value, xml), ci.validate(value, xml, values, slot),
+          // ci.validate(req, xml, values, slot) or ci.validate(req, xml)
+          int i = (Integer)operation;
+          Class<?> type = this.types[i];
+          boolean value = ValueConstraint.class.isAssignableFrom(type);
+          boolean parsed = this.slots[i] >= 0;
+          code.writeByte(ALOAD_0);
+          code.writeByte(GETFIELD);
+          code.writeShort(fieldRef(i));
+          if (value) {
+            code.writeByte(ALOAD);
+            code.writeByte(VALUE);
+          } else {
+            code.writeByte(ALOAD_1);
+          }
+          code.writeByte(ALOAD_2);
+          if (parsed) {
+            code.writeByte(ALOAD_3);
+            code.writeByte(SIPUSH);
+            code.writeShort(this.slots[i]);
+          }
+          String descriptor = parsed ? (value ? VALIDATE_PARSED : VALIDATE_VALUES) : value ? VALIDATE_VALUE : VALIDATE_REQUEST;
+          if (type.isInterface()) {
+            code.writeByte(INVOKEINTERFACE);
+            code.writeShort(methodRef(internal(type), "validate", descriptor, true));
+            code.writeByte(parsed ? 5 : 3);
+            code.writeByte(0);
+          } else {
+            code.writeByte(INVOKEVIRTUAL);
+            code.writeShort(methodRef(internal(type), "validate", descriptor, false));
+          }
+          // if (status != OK) return status;
+          code.writeByte(ASTORE);
+          code.writeByte(STATUS);
+          code.writeByte(ALOAD);
+          code.writeByte(STATUS);
+          code.writeByte(GETSTATIC);
+          code.writeShort(ok);
+          code.writeByte(IF_ACMPEQ);
+          code.writeShort(6);
+          code.writeByte(ALOAD);
+          code.writeByte(STATUS);
+          code.writeByte(ARETURN);
+          code.flush();
+          this.frames.add(bytes.size());
+        }
+      }
+      code.writeByte(GETSTATIC);
+      code.writeShort(ok);
+      code.writeByte(ARETURN);
+      code.flush();
+      return bytes.toByteArray();
+    }
+
+    private void writeMethod(DataOutputStream out, int name, int type, int codeName, byte[] code,
+        int maxStack, int maxLocals, byte @Nullable [] table, int stackMapTable) throws IOException {
+      out.writeShort(ACC_PUBLIC);
+      out.writeShort(name);
+      out.writeShort(type);
+      out.writeShort(1);
+      out.writeShort(codeName);
+      out.writeInt(12 + code.length + (table != null ? 6 + table.length : 0));
+      out.writeShort(maxStack);
+      out.writeShort(maxLocals);
+      out.writeInt(code.length);
+      out.write(code);
+      out.writeShort(0);
+      if (table != null) {
+        out.writeShort(1);
+        out.writeShort(stackMapTable);
+        out.writeInt(table.length);
+        out.write(table);
+      } else {
+        out.writeShort(0);
+      }
+    }
+
+    /**
+     * Every branch target has the same locals and an empty stack.
+     *
+     * @return the stack map table or <code>null</code> if there is no branch.
+     */
+    private byte @Nullable [] stackMapTable() throws IOException {
+      List<Integer> frames = this.frames;
+      if (frames.isEmpty()) return null;
+      int[] locals = {
+          classRef(CLASS_NAME), classRef(CONTENT_REQUEST), classRef(XML_PRINTER), classRef(PARSED_VALUES),
+          classRef(STRING), classRef(CONTENT_STATUS)
+      };
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream table = new DataOutputStream(bytes);
+      table.writeShort(frames.size());
+      int previous = -1;
+      for (int offset : frames) {
+        table.writeByte(255);
+        table.writeShort(offset - previous - 1);
+        table.writeShort(locals.length);
+        for (int local : locals) {
+          table.writeByte(7);
+          table.writeShort(local);
+        }
+        table.writeShort(0);
+        previous = offset;
+      }
+      table.flush();
+      return bytes.toByteArray();
+    }
+
+    private static String descriptor(Class<?> type) {
+      return "L" + internal(type) + ";";
+    }
+
+    // Constant pool
+    // -------------------------------------------------------------------------------------
+
+    private int utf8(String value) throws IOException {
+      Integer index = this.indexes.get("U" + value);
+      if (index != null) return index;
+      this.constants.writeByte(1);
+      this.constants.writeUTF(value);
+      return add("U" + value);
+    }
+
+    private int classRef(String name) throws IOException {
+      Integer index = this.indexes.get("C" + name);
+      if (index != null) return index;
+      int utf8 = utf8(name);
+      this.constants.writeByte(7);
+      this.constants.writeShort(utf8);
+      return add("C" + name);
+    }
+
+    private int string(String value) throws IOException {
+      Integer index = this.indexes.get("S" + value);
+      if (index != null) return index;
+      int utf8 = utf8(value);
+      this.constants.writeByte(8);
+      this.constants.writeShort(utf8);
+      return add("S" + value);
+    }
+
+    private int nameAndType(String name, String descriptor) throws IOException {
+      String key = "N" + name + ':' + descriptor;
+      Integer index = this.indexes.get(key);
+      if (index != null) return index;
+      int n = utf8(name);
+      int d = utf8(descriptor);
+      this.constants.writeByte(12);
+      this.constants.writeShort(n);
+      this.constants.writeShort(d);
+      return add(key);
+    }
+
+    private int fieldRef(int i) throws IOException {
+      return fieldRef(CLASS_NAME, "c" + i, descriptor(this.types[i]));
+    }
+
+    private int fieldRef(String owner, String name, String descriptor) throws IOException {
+      return memberRef(9, owner, name, descriptor);
+    }
+
+    private int methodRef(String owner, String name, String descriptor, boolean isInterface) throws IOException {
+      return memberRef(isInterface ? 11 : 10, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+      String key = "M" + tag + owner + '.' + name + ':' + descriptor;
+      Integer index = this.indexes.get(key);
+      if (index != null) return index;
+      int c = classRef(owner);
+      int nt = nameAndType(name, descriptor);
+      this.constants.writeByte(tag);
+      this.constants.writeShort(c);
+      this.constants.writeShort(nt);
+      return add(key);
+    }
+
+    private int add(String key) throws IOException {
+      if (this.count >= 0xFFFF) throw new IOException("Too many constants");
+      int index = this.count++;
+      this.indexes.put(key, index);
+      return index;
+    }
+
+  }
+
+}
@@ -0,0 +1,212 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.lang.annotation.Annotation;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.spi.AnnotationProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A registry of the {@link AnnotationProcessor} service providers.
+ *
+ * <p>Service providers are loaded only once per class loader and indexed by the
+ * annotation types they declare, so that finding the processors for an annotation
+ * is a map lookup rather than a scan of all providers.
+ *
+ * <p>Processors which do not declare their annotation types are consulted for every
+ * annotation.
+ *
+ * <p>Registries are cached until they are explicitly refreshed, which is typically
+ * only necessary when classes are redeployed, or until their class loader is collected.
+ * A registry may also be discarded when memory is low, in which case it is reloaded
+ * the next time it is requested.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class ProcessorRegistry {
+
+  /** Logger for the registry */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProcessorRegistry.class);
+
+  /**
+   * Registries by class loader (guarded by itself).
+   *
+   * <p>The registries are softly referenced: since the processors are loaded by the
+   * class loader, a strong reference would keep the weak key reachable and the class
+   * loader could never be collected.
+   */
+  private static final Map<ClassLoader, SoftReference<ProcessorRegistry>> REGISTRIES = new WeakHashMap<>();
+
+  /**
+   * All the processors in the order they were loaded.
+   */
+  private final AnnotationProcessor[] processors;
+
+  /**
+   * The processors for each annotation type computed on demand.
+   */
+  private final ConcurrentMap<Class<? extends Annotation>, List<AnnotationProcessor>> index = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new registry with the specified processors.
+   *
+   * @param processors The processors in the order they were loaded.
+   */
+  private ProcessorRegistry(List<AnnotationProcessor> processors) {
+    this.processors = processors.toArray(new AnnotationProcessor[0]);
+  }
+
+  /**
+   * Returns the registry for the context class loader of the current thread.
+   *
+   * <p>This is the class loader used by {@link ServiceLoader#load(Class)}.
+   *
+   * @return the processor registry for the current context class loader.
+   */
+  public static ProcessorRegistry getInstance() {
+    return getInstance(Thread.currentThread().getContextClassLoader());
+  }
+
+  /**
+   * Returns the registry for the specified class loader.
+   *
+   * <p>The service providers are loaded the first time this method is called for
+   * a class loader.
+   *
+   * @param loader The class loader used to load the service providers
+   *
+   * @return the processor registry for this class loader.
+   */
+  public static ProcessorRegistry getInstance(@Nullable ClassLoader loader) {
+    ClassLoader key = loader != null ? loader : ClassLoader.getSystemClassLoader();
+    synchronized (REGISTRIES) {
+      SoftReference<ProcessorRegistry> ref = REGISTRIES.get(key);
+      ProcessorRegistry registry = ref != null ? ref.get() : null;
+      if (registry == null) {
+        registry = load(key);
+        REGISTRIES.put(key, new SoftReference<>(registry));
+      }
+      return registry;
+    }
+  }
+
+  /**
+   * Discards the registry for the context class loader of the current thread.
+   *
+   * <p>The service providers will be reloaded the next time the registry is requested.
+   */
+  public static void refresh() {
+    refresh(Thread.currentThread().getContextClassLoader());
+  }
+
+  /**
+   * Discards the registry for the specified class loader.
+   *
+   * <p>The service providers will be reloaded the next time the registry is requested.
+   *
+   * @param loader The class loader used to load the service providers
+   */
+  public static void refresh(@Nullable ClassLoader loader) {
+    ClassLoader key = loader != null ? loader : ClassLoader.getSystemClassLoader();
+    synchronized (REGISTRIES) {
+      REGISTRIES.remove(key);
+    }
+  }
+
+  /**
+   * Returns the processors which may accept annotations of the specified type.
+   *
+   * <p>This includes the processors declaring that type as well as the processors
+   * which do not declare any type, in the order they were loaded.
+   *
+   * @param type The type of annotation
+   *
+   * @return the candidate processors for this type of annotation (unmodifiable)
+   */
+  public List<AnnotationProcessor> getProcessors(Class<? extends Annotation> type) {
+    return this.index.computeIfAbsent(type, this::candidates);
+  }
+
+  /**
+   * Returns the constraints produced by all the processors accepting the specified annotation.
+   *
+   * @param annotation The annotation to process
+   *
+   * @return the corresponding constraints, usually zero or one.
+   */
+  public List<Constraint> getConstraints(Annotation annotation) {
+    List<AnnotationProcessor> candidates = getProcessors(annotation.annotationType());
+    if (candidates.isEmpty()) return Collections.emptyList();
+    List<Constraint> constraints = new ArrayList<>(candidates.size());
+    for (AnnotationProcessor processor : candidates) {
+      if (processor.accepts(annotation)) {
+        constraints.add(processor.getConstraint(annotation));
+      }
+    }
+    return constraints;
+  }
+
+  /**
+   * Indicates whether annotations of the specified type are only processed by the
+   * built-in processor.
+   *
+   * @param type The type of annotation
+   *
+   * @return <code>true</code> if no other processor may accept this type of annotation.
+   */
+  boolean isBuiltin(Class<? extends Annotation> type) {
+    for (AnnotationProcessor processor : getProcessors(type)) {
+      if (!(processor instanceof BuiltinProcessor)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of processors in this registry.
+   */
+  public int size() {
+    return this.processors.length;
+  }
+
+  private List<AnnotationProcessor> candidates(Class<? extends Annotation> type) {
+    List<AnnotationProcessor> candidates = new ArrayList<>(2);
+    for (AnnotationProcessor processor : this.processors) {
+      Collection<Class<? extends Annotation>> types = processor.getAnnotationTypes();
+      if (types.isEmpty() || types.contains(type)) {
+        candidates.add(processor);
+      }
+    }
+    LOGGER.debug("{} -> {} processor(s)", type.getName(), candidates.size());
+    return Collections.unmodifiableList(candidates);
+  }
+
+  private static ProcessorRegistry load(ClassLoader loader) {
+    List<AnnotationProcessor> processors = new ArrayList<>(2);
+    for (AnnotationProcessor processor : ServiceLoader.load(AnnotationProcessor.class, loader)) {
+      LOGGER.debug("Loaded annotation processor {}", processor.getClass().getName());
+      processors.add(processor);
+    }
+    return new ProcessorRegistry(processors);
+  }
+
+}
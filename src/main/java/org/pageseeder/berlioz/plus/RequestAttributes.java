@@ -0,0 +1,91 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+
+/**
+ * The values of the attributes set using an {@link AttributeKey}, indexed by key.
+ *
+ * <p>The slots are stored in a single attribute of the request, so that they are shared
+ * by all the generators processing the same request.
+ *
+ * <p>Instances are not thread-safe, they are meant to be used by a single request.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class RequestAttributes {
+
+  /**
+   * The name of the request attribute holding the slots.
+   */
+  static final String ATTRIBUTE = RequestAttributes.class.getName();
+
+  /**
+   * The value of each key by index.
+   */
+  private @Nullable Object[] values;
+
+  RequestAttributes() {
+    this.values = new Object[Math.max(AttributeKey.count(), 8)];
+  }
+
+  /**
+   * @param index The index of the key
+   *
+   * @return the value in the specified slot or <code>null</code>.
+   */
+  @Nullable Object get(int index) {
+    @Nullable Object[] values = this.values;
+    return index < values.length ? values[index] : null;
+  }
+
+  /**
+   * Sets the value in the specified slot, growing the slots for keys created since.
+   *
+   * @param index The index of the key
+   * @param value The value
+   */
+  void set(int index, Object value) {
+    if (index >= this.values.length) {
+      this.values = Arrays.copyOf(this.values, Math.max(index + 1, AttributeKey.count()));
+    }
+    this.values[index] = value;
+  }
+
+  /**
+   * Returns the slots attached to the specified request.
+   *
+   * @param req The content request
+   *
+   * @return the slots or <code>null</code> if none were attached.
+   */
+  static @Nullable RequestAttributes of(ContentRequest req) {
+    Object attributes = req.getAttribute(ATTRIBUTE);
+    return attributes instanceof RequestAttributes ? (RequestAttributes) attributes : null;
+  }
+
+  /**
+   * Returns the slots attached to the specified request, attaching new slots if needed.
+   *
+   * @param req The content request
+   *
+   * @return the slots for the request.
+   */
+  static RequestAttributes attach(ContentRequest req) {
+    RequestAttributes attributes = of(req);
+    if (attributes == null) {
+      attributes = new RequestAttributes();
+      req.setAttribute(ATTRIBUTE, attributes);
+    }
+    return attributes;
+  }
+
+}
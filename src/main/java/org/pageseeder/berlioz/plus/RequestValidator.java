@@ -5,16 +5,21 @@ package org.pageseeder.berlioz.plus;
 
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.ServiceLoader;
+import java.util.Objects;
 
+import org.jspecify.annotations.Nullable;
 import org.pageseeder.berlioz.content.ContentRequest;
 import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.annotations.AdaptiveOrder;
+import org.pageseeder.berlioz.plus.annotations.ReportAllErrors;
 import org.pageseeder.berlioz.plus.constraints.Constraint;
 import org.pageseeder.berlioz.plus.constraints.EmailParameterConstraint;
 import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
 import org.pageseeder.berlioz.plus.constraints.RequiredParameterConstraint;
-import org.pageseeder.berlioz.plus.spi.AnnotationProcessor;
+import org.pageseeder.berlioz.plus.regex.RegexBudget;
+import org.pageseeder.berlioz.plus.regex.RegexEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,23 +32,86 @@ import org.slf4j.LoggerFactory;
  *   <li>validate that parameters match a specific rule
  * </ul>
  *
+ * <p>Validators built by a {@link Builder} or returned by {@link #forClass(Class)} are
+ * immutable and can be shared safely by all the threads processing requests.
+ *
+ * <p>Validators created using a constructor or a factory method can still be modified
+ * by the methods adding constraints to the validator itself; the constraints and their
+ * plan are replaced together, so that a concurrent validation uses either the old or the
+ * new ones. These methods are deprecated in favour of the {@link Builder}.
+ *
+ * <p>By default, the validation stops at the first error. Validators can be configured
+ * to report all errors at once using {@link Builder#reportAllErrors()} or the
+ * {@link ReportAllErrors} annotation on the generator.
+ *
+ * <p>When stopping at the first error, parameters are checked by increasing cost of
+ * their constraints so that a request is rejected before expensive constraints are
+ * evaluated; see {@link ConstraintOrder}. The order can be adapted at runtime using
+ * {@link Builder#order(ConstraintOrder)} or the {@link AdaptiveOrder} annotation.
+ *
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 public final class RequestValidator {
 
+  /**
+   * The name of the system property to compile the validation plans into specialized
+   * classes (<code>true</code> or <code>false</code>, the default).
+   *
+   * <p>Specialized plans require Java 15 or later and are only used when stopping at
+   * the first error with a fixed order.
+   *
+   * @since 0.7.0
+   */
+  public static final String SPECIALIZE_PROPERTY = "org.pageseeder.berlioz.plus.specialize";
+
   /** Logger for the request validator */
   private static final Logger LOGGER = LoggerFactory.getLogger(RequestValidator.class);
 
-  /** List of constraints to obey */
-  private final List<Constraint> constraints = new ArrayList<>(4);
+  /**
+   * A validator without any constraint.
+   */
+  private static final RequestValidator NONE = new RequestValidator(new Constraint[0], false, ConstraintOrder.COST, false);
+
+  /**
+   * Validators generated at build time or computed from the annotations of each generator class.
+   */
+  private static final ClassValue<RequestValidator> VALIDATORS = new ClassValue<RequestValidator>() {
+    @Override
+    protected RequestValidator computeValue(Class<?> type) {
+      RequestValidator generated = ValidatorIndex.lookup(type);
+      return generated != null ? generated : annotations(type).build();
+    }
+  };
+
+  /**
+   * The constraints and plan of an immutable validator, <code>null</code> if mutable.
+   */
+  private final @Nullable State state;
+
+  /**
+   * The constraints and plan of a mutable validator, replaced as a whole when constraints
+   * are added so that the validation never sees one without the other.
+   */
+  private volatile @Nullable State updated;
+
+  /**
+   * Whether to report all errors instead of stopping at the first one.
+   */
+  private final boolean reportAllErrors;
+
+  /**
+   * The order of the parameters when stopping at the first error.
+   */
+  private final ConstraintOrder order;
 
   /**
    * Creates a new validator.
    */
   public RequestValidator() {
+    this(new Constraint[0], false, ConstraintOrder.COST, true);
   }
 
   /**
@@ -52,7 +120,7 @@ public final class RequestValidator {
    * @param constraint a constraint to obey for a request to be valid.
    */
   public RequestValidator(Constraint constraint) {
-    this.constraints.add(constraint);
+    this(new Constraint[]{constraint}, false, ConstraintOrder.COST, true);
   }
 
   /**
@@ -61,7 +129,23 @@ public final class RequestValidator {
    * @param constraints a list of constraints to obey for a request to be valid.
    */
   public RequestValidator(List<Constraint> constraints) {
-    this.constraints.addAll(constraints);
+    this(constraints.toArray(new Constraint[0]), false, ConstraintOrder.COST, true);
+  }
+
+  /**
+   * Creates a new validator.
+   *
+   * @param constraints     the constraints to obey (not copied)
+   * @param reportAllErrors whether to report all errors
+   * @param order           the order of the parameters when stopping at the first error
+   * @param mutable         whether constraints can be added to this validator
+   */
+  private RequestValidator(Constraint[] constraints, boolean reportAllErrors, ConstraintOrder order, boolean mutable) {
+    State state = new State(constraints, ValidationPlan.compile(constraints, order));
+    this.state = mutable ? null : state;
+    this.updated = mutable ? state : null;
+    this.reportAllErrors = reportAllErrors;
+    this.order = order;
   }
 
   /**
@@ -82,6 +166,17 @@ public final class RequestValidator {
     return new RequestValidator();
   }
 
+  /**
+   * Returns a new builder to accumulate constraints.
+   *
+   * @return a new builder without any constraint.
+   *
+   * @since 0.7.0
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
   /**
    * Creates a new {@code RequestValidator} instance using the annotations present on the specified class.
    *
@@ -93,13 +188,54 @@ public final class RequestValidator {
    * @return A new {@code RequestValidator} instance populated with constraints derived from the class annotations.
    */
   public static RequestValidator create(Class<? extends Generator> clazz) {
+    return annotations(clazz).build(true);
+  }
+
+  private static Builder annotations(Class<?> clazz) {
     LOGGER.debug("Building validator for {}", clazz.getName());
-    RequestValidator validator = new RequestValidator();
+    Builder builder = new Builder();
     Annotation[] annotations = clazz.getAnnotations();
     for (Annotation annotation : annotations) {
-      validator.addOptionalConstraint(annotation);
+      builder.update(annotation);
     }
-    return validator;
+    return builder;
+  }
+
+  /**
+   * Returns the validator for the annotations on the specified class.
+   *
+   * <p>Unlike {@link #create(Class)}, the validator is computed only once per class
+   * and shared by all the callers.
+   *
+   * <p>If the validator was generated at build time by the <code>pso-berlioz-plus-processor</code>
+   * annotation processor, the generated validator is used instead of processing the annotations.
+   *
+   * @param clazz The class from which annotations should be processed to configure the validator.
+   *
+   * @return The shared validator for this class.
+   *
+   * @since 0.7.0
+   */
+  public static RequestValidator forClass(Class<? extends Generator> clazz) {
+    return VALIDATORS.get(clazz);
+  }
+
+  /**
+   * Discards the shared validator computed for the specified class.
+   *
+   * <p>The validator will be computed again the next time {@link #forClass(Class)} is
+   * invoked for this class. This is useful when classes are redefined at runtime, for
+   * example by a debugger or an agent.
+   *
+   * <p>Note that generators already instantiated keep using the validator that was
+   * current when they were created.
+   *
+   * @param clazz The class to invalidate
+   *
+   * @since 0.7.0
+   */
+  public static void invalidate(Class<? extends Generator> clazz) {
+    VALIDATORS.remove(clazz);
   }
 
   /**
@@ -108,123 +244,402 @@ public final class RequestValidator {
    * <p>If this method returns a <code>ContentStatus</code> different from <code>OK</code>,
    * the generator should return as this method would have set the response content and headers.
    *
+   * <p>If this validator reports all errors, the errors are written in a single
+   * <code>errors</code> element; otherwise, only the first error is written.
+   *
    * @param req The content request to validate
    * @param xml The XML writer to use should an error be reported.
    *
    * @return the content status of the request.
    */
   public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
-    for (Constraint c : this.constraints) {
-      ContentStatus status = c.validate(req, xml);
-      if (status != ContentStatus.OK) return status;
+    ValidationPlan plan = state().plan;
+    if (this.reportAllErrors) return plan.validateAll(req, xml);
+    return plan.validate(req, xml);
+  }
+
+  /**
+   * Returns the compiled plan for the constraints.
+   *
+   * <p>Constraints on the same parameter are grouped so that each parameter
+   * is looked up only once per request.
+   *
+   * @return the validation plan.
+   */
+  ValidationPlan plan() {
+    return state().plan;
+  }
+
+  /**
+   * @return <code>true</code> if this validator reports all errors;
+   *         <code>false</code> if it stops at the first error.
+   *
+   * @since 0.7.0
+   */
+  public boolean reportsAllErrors() {
+    return this.reportAllErrors;
+  }
+
+  /**
+   * @return the order of the parameters when stopping at the first error.
+   *
+   * @since 0.7.0
+   */
+  public ConstraintOrder order() {
+    return this.order;
+  }
+
+  /**
+   * @return the constraints of this validator in declaration order (unmodifiable)
+   *
+   * @since 0.7.0
+   */
+  public List<Constraint> getConstraints() {
+    return List.of(state().constraints);
+  }
+
+  /**
+   * Returns a new builder initialized with the constraints of this validator.
+   *
+   * @return a new builder.
+   *
+   * @since 0.7.0
+   */
+  public Builder toBuilder() {
+    Builder builder = new Builder();
+    for (Constraint constraint : state().constraints) {
+      builder.add(constraint);
     }
-    return ContentStatus.OK;
+    builder.reportAllErrors = this.reportAllErrors;
+    builder.order = this.order;
+    return builder;
   }
 
   // Built-in builders
   // ---------------------------------------------------------------------------------------
 
   /**
-   * Method to create a new validator from an array of required parameters names.
+   * Adds constraints requiring the specified parameters to this validator.
    *
    * @param required the names of the required parameters.
    *
    * @return This validator instance.
+   *
+   * @throws UnsupportedOperationException If this validator is immutable.
+   *
+   * @deprecated Use {@link Builder#requires(String...)} instead
    */
+  @Deprecated
   public RequestValidator requires(String... required) {
-    for (String name : required) {
-      this.constraints.add(new RequiredParameterConstraint(name));
+    Constraint[] constraints = new Constraint[required.length];
+    for (int i = 0; i < required.length; i++) {
+      constraints[i] = new RequiredParameterConstraint(required[i]);
     }
-    return this;
+    return add(constraints);
   }
 
   /**
-   * Method to create a new validator from an array of required parameters names.
+   * Adds constraints requiring the specified parameters to this validator.
    *
-   * @param required the names of the required parameters.
+   * @param required the required parameters.
    *
    * @return This validator instance.
+   *
+   * @throws UnsupportedOperationException If this validator is immutable.
+   *
+   * @deprecated Use {@link Builder#requires(RequestParameter...)} instead
    */
+  @Deprecated
   public RequestValidator requires(RequestParameter... required) {
-    for (RequestParameter name : required) {
-      this.constraints.add(new RequiredParameterConstraint(name.getName()));
+    Constraint[] constraints = new Constraint[required.length];
+    for (int i = 0; i < required.length; i++) {
+      constraints[i] = new RequiredParameterConstraint(required[i].getName());
     }
-    return this;
+    return add(constraints);
   }
 
   /**
-   * Method to create a new validator that requires authentication.
+   * Adds a constraint checking that a parameter matches a regular expression to this validator.
    *
    * @param name The name of the parameter to check.
    * @param regex The regular expression to match.
    *
    * @return This validator instance.
+   *
+   * @throws UnsupportedOperationException If this validator is immutable.
+   *
+   * @deprecated Use {@link Builder#matches(String, String)} instead
    */
+  @Deprecated
   public RequestValidator matches(String name, String regex) {
-    this.constraints.add(new ParameterConstraint(name, false, regex));
-    return this;
+    return add(new ParameterConstraint(name, false, regex));
   }
 
   /**
-   * Method to create a new validator that checks that a specified parameter is a valid email address.
+   * Adds a constraint checking that a specified parameter is a valid email address to
+   * this validator.
    *
    * @param name The name of the parameter to check.
    *
    * @return This validator instance.
+   *
+   * @throws UnsupportedOperationException If this validator is immutable.
+   *
+   * @deprecated Use {@link Builder#isEmail(String)} instead
    */
+  @Deprecated
   public RequestValidator isEmail(String name) {
-    this.constraints.add(new EmailParameterConstraint(name, false));
-    return this;
+    return add(new EmailParameterConstraint(name, false));
   }
 
   /**
-   * Method to create a new validator that requires authentication.
+   * Returns a new validator which also includes the specified kind of constraint.
+   *
+   * <p>This validator is not modified.
    *
    * @param kindOfConstraint The type of constraint to add.
    *
    * @return A new request validator instance.
    */
   public RequestValidator with(Class<? extends Constraint> kindOfConstraint) {
-    List<Constraint> constraintList = new ArrayList<>(this.constraints);
-    Constraint constraint;
-    try {
-      constraint = kindOfConstraint.getDeclaredConstructor().newInstance();
-      constraintList.add(constraint);
-    } catch (ReflectiveOperationException ex) {
-      throw new IllegalArgumentException("Unable to instantiate constraint: " + kindOfConstraint.getName(), ex);
-    }
-    return new RequestValidator(constraintList);
+    return toBuilder().with(kindOfConstraint).build(true);
   }
 
   /**
-   * Updates the validator with an annotation, adding an optional constraint if applicable.
+   * Adds the constraint for the specified annotation to this validator if applicable.
    *
    * @param annotation The annotation to be processed and used for generating a constraint.
-   * @return The updated request validator instance.
+   *
+   * @return This validator instance.
+   *
+   * @throws UnsupportedOperationException If this validator is immutable.
+   *
+   * @deprecated Use {@link Builder#update(Annotation)} instead
    */
+  @Deprecated
   public RequestValidator update(Annotation annotation) {
-    addOptionalConstraint(annotation);
+    return add(ProcessorRegistry.getInstance().getConstraints(annotation).toArray(new Constraint[0]));
+  }
+
+  /**
+   * Adds the specified constraints to this validator and compiles the plan again.
+   */
+  private synchronized RequestValidator add(Constraint... added) {
+    State state = this.updated;
+    if (state == null) throw new UnsupportedOperationException("This validator is immutable, use toBuilder() to derive a new one");
+    Constraint[] constraints = Arrays.copyOf(state.constraints, state.constraints.length + added.length);
+    System.arraycopy(added, 0, constraints, state.constraints.length, added.length);
+    this.updated = new State(constraints, ValidationPlan.compile(constraints, this.order));
     return this;
   }
 
   /**
-   * Adds an optional constraint to the validator based on the provided annotation.
+   * @return the current constraints and plan of this validator.
+   */
+  private State state() {
+    State state = this.state;
+    return state != null ? state : Objects.requireNonNull(this.updated);
+  }
+
+  /**
+   * The constraints of a validator and the plan compiled from them.
+   */
+  private static final class State {
+
+    /** Constraints to obey in declaration order */
+    final Constraint[] constraints;
+
+    /** The constraints compiled into a plan */
+    final ValidationPlan plan;
+
+    State(Constraint[] constraints, ValidationPlan plan) {
+      this.constraints = constraints;
+      this.plan = plan;
+    }
+
+  }
+
+  /**
+   * Accumulates constraints to build an immutable {@link RequestValidator}.
    *
-   * <p>This method uses all available {@code AnnotationProcessor} implementations
-   * to process the annotation. If a processor accepts the annotation, it generates
-   * a corresponding constraint and adds it to the validator's internal list of constraints.
+   * <p>Builders are not thread-safe.
    *
-   * @param annotation The annotation to be processed and used for generating a constraint.
+   * @since 0.7.0
    */
-  private void addOptionalConstraint(Annotation annotation) {
-    ServiceLoader<AnnotationProcessor> loader = ServiceLoader.load(AnnotationProcessor.class);
-    for (AnnotationProcessor processor : loader) {
-      LOGGER.debug("{}/{}->{}", processor.getClass(), annotation, processor.accepts(annotation));
-      if (processor.accepts(annotation)) {
-        Constraint constraint = processor.getConstraint(annotation);
-        this.constraints.add(constraint);
+  public static final class Builder {
+
+    /** List of constraints to obey */
+    private final List<Constraint> constraints = new ArrayList<>(4);
+
+    /** Whether to report all errors */
+    private boolean reportAllErrors = false;
+
+    /** The order of the parameters when stopping at the first error */
+    private ConstraintOrder order = ConstraintOrder.COST;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the order in which parameters are checked when stopping at the first error.
+     *
+     * @param order The order of the parameters (<code>COST</code> by default)
+     *
+     * @return This builder.
+     */
+    public Builder order(ConstraintOrder order) {
+      this.order = Objects.requireNonNull(order);
+      return this;
+    }
+
+    /**
+     * Reports all errors instead of stopping at the first error.
+     *
+     * @return This builder.
+     */
+    public Builder reportAllErrors() {
+      this.reportAllErrors = true;
+      return this;
+    }
+
+    /**
+     * Adds the specified constraint.
+     *
+     * @param constraint The constraint to add.
+     *
+     * @return This builder.
+     */
+    public Builder add(Constraint constraint) {
+      this.constraints.add(constraint);
+      return this;
+    }
+
+    /**
+     * Requires the specified parameters.
+     *
+     * @param required the names of the required parameters.
+     *
+     * @return This builder.
+     */
+    public Builder requires(String... required) {
+      for (String name : required) {
+        this.constraints.add(new RequiredParameterConstraint(name));
       }
+      return this;
     }
+
+    /**
+     * Requires the specified parameters.
+     *
+     * @param required the required parameters.
+     *
+     * @return This builder.
+     */
+    public Builder requires(RequestParameter... required) {
+      for (RequestParameter name : required) {
+        this.constraints.add(new RequiredParameterConstraint(name.getName()));
+      }
+      return this;
+    }
+
+    /**
+     * Checks that a parameter matches a regular expression.
+     *
+     * @param name The name of the parameter to check.
+     * @param regex The regular expression to match.
+     *
+     * @return This builder.
+     */
+    public Builder matches(String name, String regex) {
+      this.constraints.add(new ParameterConstraint(name, false, regex));
+      return this;
+    }
+
+    /**
+     * Checks that a parameter matches a regular expression within the specified budget.
+     *
+     * @param name The name of the parameter to check.
+     * @param regex The regular expression to match.
+     * @param budget The maximum number of character accesses when matching.
+     *
+     * @return This builder.
+     *
+     * @see RegexBudget
+     * @since 0.7.0
+     */
+    public Builder matches(String name, String regex, long budget) {
+      this.constraints.add(new ParameterConstraint(name, false, regex, RegexEngine.DEFAULT, budget));
+      return this;
+    }
+
+    /**
+     * Checks that a specified parameter is a valid email address.
+     *
+     * @param name The name of the parameter to check.
+     *
+     * @return This builder.
+     */
+    public Builder isEmail(String name) {
+      this.constraints.add(new EmailParameterConstraint(name, false));
+      return this;
+    }
+
+    /**
+     * Adds a new instance of the specified kind of constraint.
+     *
+     * @param kindOfConstraint The type of constraint to add.
+     *
+     * @return This builder.
+     *
+     * @throws IllegalArgumentException If the constraint could not be instantiated.
+     */
+    public Builder with(Class<? extends Constraint> kindOfConstraint) {
+      try {
+        this.constraints.add(kindOfConstraint.getDeclaredConstructor().newInstance());
+      } catch (ReflectiveOperationException ex) {
+        throw new IllegalArgumentException("Unable to instantiate constraint: " + kindOfConstraint.getName(), ex);
+      }
+      return this;
+    }
+
+    /**
+     * Adds the constraints for the specified annotation if applicable.
+     *
+     * <p>This method uses the {@code AnnotationProcessor} implementations from the
+     * {@link ProcessorRegistry} to process the annotation. If a processor accepts the
+     * annotation, it generates a corresponding constraint which is added to this builder.
+     *
+     * <p>The {@link ReportAllErrors} annotation configures the builder to report all errors
+     * and the {@link AdaptiveOrder} annotation to use the adaptive order.
+     *
+     * @param annotation The annotation to be processed and used for generating a constraint.
+     *
+     * @return This builder.
+     */
+    public Builder update(Annotation annotation) {
+      if (annotation instanceof ReportAllErrors) this.reportAllErrors = true;
+      if (annotation instanceof AdaptiveOrder) this.order = ConstraintOrder.ADAPTIVE;
+      this.constraints.addAll(ProcessorRegistry.getInstance().getConstraints(annotation));
+      return this;
+    }
+
+    /**
+     * Builds an immutable validator from the constraints accumulated so far.
+     *
+     * <p>The builder can still be used after this method is called, without affecting
+     * the validators already built.
+     *
+     * @return a new request validator.
+     */
+    public RequestValidator build() {
+      if (this.constraints.isEmpty() && !this.reportAllErrors) return NONE;
+      return build(false);
+    }
+
+    private RequestValidator build(boolean mutable) {
+      return new RequestValidator(this.constraints.toArray(new Constraint[0]), this.reportAllErrors, this.order, mutable);
+    }
+
   }
 
-}
\ No newline at end of file
+}
@@ -5,7 +5,6 @@ package org.pageseeder.berlioz.plus;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeParseException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -23,15 +22,20 @@ import org.pageseeder.berlioz.content.Environment;
 import org.pageseeder.berlioz.content.Location;
 import org.pageseeder.berlioz.plus.exceptions.InvalidParameterException;
 import org.pageseeder.berlioz.plus.exceptions.MissingParameterException;
+import org.pageseeder.berlioz.plus.util.IsoTemporal;
+import org.pageseeder.berlioz.plus.util.LongParser;
 import org.pageseeder.berlioz.servlet.HttpContentRequest;
 
 /**
  * Defines a content request which has been filtered for this application.
  *
+ * <p>The typed getters use the values parsed by the constraints of the validator when
+ * available, so that a validated parameter is parsed only once per request.
+ *
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 public class ValidatedRequest {
 
@@ -40,6 +44,16 @@ public class ValidatedRequest {
    */
   private final ContentRequest req;
 
+  /**
+   * The values parsed during validation.
+   */
+  private final @Nullable ParsedValues values;
+
+  /**
+   * The typed attributes of the request, looked up on first use.
+   */
+  private @Nullable RequestAttributes attributes;
+
   /**
    * Create a new validated request wrapping a Berlioz content request.
    *
@@ -47,6 +61,7 @@ public class ValidatedRequest {
    */
   public ValidatedRequest(ContentRequest req) {
     this.req = req;
+    this.values = ParsedValues.of(req);
   }
 
   /**
@@ -91,6 +106,48 @@ public class ValidatedRequest {
     this.req.setAttribute(name, o);
   }
 
+  /**
+   * Returns the value of the specified attribute or <code>null</code>.
+   *
+   * <p>Values set with the key are read from an array slot; otherwise the request attribute
+   * with the name of the key is returned, so that values set by name remain visible. Once
+   * a value is set with the key, later changes to the request attribute by name are not seen.
+   *
+   * @param key The attribute key
+   * @param <T> The type of value
+   *
+   * @return the value of the attribute or <code>null</code>.
+   *
+   * @throws ClassCastException If the request attribute is not an instance of the type of the key
+   */
+  public final <T> @Nullable T getAttribute(AttributeKey<T> key) {
+    RequestAttributes attributes = this.attributes;
+    if (attributes == null) attributes = this.attributes = RequestAttributes.of(this.req);
+    Object value = attributes != null ? attributes.get(key.index()) : null;
+    if (value == null) value = this.req.getAttribute(key.name());
+    return key.type().cast(value);
+  }
+
+  /**
+   * Sets the value of the specified attribute.
+   *
+   * <p>The value is also set as the request attribute with the name of the key, so that it
+   * can be read by name; however, changing the request attribute by name afterwards does not
+   * change the value returned for the key.
+   *
+   * @param key   The attribute key
+   * @param value The value of the attribute
+   * @param <T>   The type of value
+   *
+   * @throws ClassCastException If the value is not an instance of the type of the key
+   */
+  public final <T> void setAttribute(AttributeKey<T> key, T value) {
+    RequestAttributes attributes = this.attributes;
+    if (attributes == null) attributes = this.attributes = RequestAttributes.attach(this.req);
+    attributes.set(key.index(), key.type().cast(value));
+    this.req.setAttribute(key.name(), value);
+  }
+
   /**
    * Returns an array containing all the Cookie objects the client sent with this request.
    *
@@ -233,12 +290,7 @@ public class ValidatedRequest {
    * @throws InvalidParameterException If the value is not a long value
    */
   public final long getLong(RequestParameter parameter) {
-    String value = getString(parameter);
-    try {
-      return Long.parseLong(value);
-    } catch (NumberFormatException ex) {
-      throw new InvalidParameterException(parameter, ex);
-    }
+    return toLong(parameter, getString(parameter));
   }
 
   /**
@@ -254,11 +306,7 @@ public class ValidatedRequest {
   public final long getLong(RequestParameter parameter, long fallback) {
     String value = getOptionalString(parameter);
     if (value == null || value.isEmpty()) return fallback;
-    try {
-      return Long.parseLong(value);
-    } catch (NumberFormatException ex) {
-      throw new InvalidParameterException(parameter, ex);
-    }
+    return toLong(parameter, value);
   }
 
   /**
@@ -272,16 +320,9 @@ public class ValidatedRequest {
    * @throws InvalidParameterException If the value is not a long value greater than 0
    */
   public final long getPositiveLong(RequestParameter parameter) {
-    String value = getString(parameter);
-    try {
-      long number = Long.parseLong(value);
-      if (number > 0)
-        return number;
-      else
-        throw new InvalidParameterException(parameter);
-    } catch (NumberFormatException ex) {
-      throw new InvalidParameterException(parameter, ex);
-    }
+    long value = toLong(parameter, getString(parameter));
+    if (value < 1) throw new InvalidParameterException(parameter);
+    return value;
   }
 
   /**
@@ -295,16 +336,9 @@ public class ValidatedRequest {
    * @throws InvalidParameterException If the value is not parsable as a local date
    */
   public final LocalDate getLocalDate(RequestParameter parameter, LocalDate fallback) {
-    LocalDate date = fallback;
-    try {
-      String text = getOptionalString(parameter);
-      if (text != null && !text.isEmpty()) {
-        date = LocalDate.parse(text);
-      }
-    } catch (DateTimeParseException ex) {
-      throw new InvalidParameterException(parameter, ex);
-    }
-    return date;
+    String text = getOptionalString(parameter);
+    if (text == null || text.isEmpty()) return fallback;
+    return toLocalDate(parameter, text);
   }
 
   /**
@@ -318,12 +352,7 @@ public class ValidatedRequest {
    * @throws InvalidParameterException If the value is not parsable as a local date
    */
   public final LocalDate getLocalDate(RequestParameter parameter) {
-    String text = getString(parameter);
-    try {
-      return LocalDate.parse(text);
-    } catch (DateTimeParseException ex) {
-      throw new InvalidParameterException(parameter, ex);
-    }
+    return toLocalDate(parameter, getString(parameter));
   }
 
   /**
@@ -337,14 +366,9 @@ public class ValidatedRequest {
    */
   @Nullable
   public final LocalDate getOptionalLocalDate(RequestParameter parameter) {
-    try {
-      String date = getOptionalString(parameter);
-      if (date != null && !date.isEmpty())
-       return LocalDate.parse(date);
-    } catch (DateTimeParseException ex) {
-      throw new InvalidParameterException(parameter, ex);
-    }
-    return null;
+    String date = getOptionalString(parameter);
+    if (date == null || date.isEmpty()) return null;
+    return toLocalDate(parameter, date);
   }
 
   /**
@@ -358,12 +382,7 @@ public class ValidatedRequest {
    * @throws InvalidParameterException If the value is not parsable as a local datetime
    */
   public final LocalDateTime getLocalDateTime(RequestParameter parameter) {
-    try {
-      String datetime = getString(parameter);
-      return LocalDateTime.parse(datetime);
-    } catch (DateTimeParseException ex) {
-      throw new InvalidParameterException(parameter, ex);
-    }
+    return toLocalDateTime(parameter, getString(parameter));
   }
 
   /**
@@ -377,19 +396,99 @@ public class ValidatedRequest {
    */
   @Nullable
   public final LocalDateTime getOptionalLocalDateTime(RequestParameter parameter) {
-    try {
-      String datetime = getOptionalString(parameter);
-      if (datetime != null && !datetime.isEmpty())
-       return LocalDateTime.parse(datetime);
-    } catch (DateTimeParseException ex) {
-      throw new InvalidParameterException(parameter, ex);
+    String datetime = getOptionalString(parameter);
+    if (datetime == null || datetime.isEmpty()) return null;
+    return toLocalDateTime(parameter, datetime);
+  }
+
+  /**
+   * Returns all the values of the specified parameter as longs.
+   *
+   * <p>The parameter can be repeated and each value can be a comma-separated list of longs.
+   * When the parameter was validated by a {@code @LongListParameter}, the values parsed
+   * during validation are used.
+   *
+   * @param parameter The parameter
+   *
+   * @return a new array with the corresponding longs
+   *
+   * @throws MissingParameterException If the parameter was missing.
+   * @throws InvalidParameterException If any of the values is not a long value
+   */
+  public final long[] getLongs(RequestParameter parameter) {
+    String[] values = this.req.getParameterValues(parameter.getName());
+    if (values == null || values.length == 0) throw new MissingParameterException(parameter);
+    return toLongs(parameter, values);
+  }
+
+  /**
+   * Returns all the values of the specified parameter as longs.
+   *
+   * @param parameter The parameter
+   *
+   * @return a new array with the corresponding longs, empty if the parameter was not specified
+   *
+   * @throws InvalidParameterException If any of the values is not a long value
+   */
+  public final long[] getOptionalLongs(RequestParameter parameter) {
+    String[] values = this.req.getParameterValues(parameter.getName());
+    if (values == null || values.length == 0) return new long[0];
+    return toLongs(parameter, values);
+  }
+
+  private long[] toLongs(RequestParameter parameter, String[] texts) {
+    ParsedValues values = this.values;
+    if (values != null) {
+      int slot = values.slot(parameter.getName());
+      long[] longs = slot >= 0 ? values.get(slot, texts, long[].class) : null;
+      if (longs != null) return longs.clone();
     }
-    return null;
+    long[] longs = LongParser.parseAll(texts);
+    if (longs == null) throw new InvalidParameterException(parameter);
+    return longs;
+  }
+
+  private long toLong(RequestParameter parameter, String text) {
+    ParsedValues values = this.values;
+    if (values != null) {
+      int slot = values.slot(parameter.getName());
+      if (slot >= 0 && values.hasLong(slot, text)) return values.getLong(slot);
+    }
+    if (LongParser.check(text) != LongParser.OK) throw new InvalidParameterException(parameter);
+    return LongParser.parse(text);
+  }
+
+  private LocalDate toLocalDate(RequestParameter parameter, String text) {
+    LocalDate date = parsed(parameter, text, LocalDate.class);
+    if (date == null) date = IsoTemporal.parseLocalDate(text);
+    if (date == null) throw new InvalidParameterException(parameter);
+    return date;
+  }
+
+  private LocalDateTime toLocalDateTime(RequestParameter parameter, String text) {
+    LocalDateTime datetime = parsed(parameter, text, LocalDateTime.class);
+    if (datetime == null) datetime = IsoTemporal.parseLocalDateTime(text);
+    if (datetime == null) throw new InvalidParameterException(parameter);
+    return datetime;
+  }
+
+  /**
+   * Returns the value parsed during validation if any.
+   */
+  private <T> @Nullable T parsed(RequestParameter parameter, String text, Class<T> type) {
+    ParsedValues values = this.values;
+    if (values == null) return null;
+    int slot = values.slot(parameter.getName());
+    return slot >= 0 ? values.get(slot, text, type) : null;
   }
 
   /**
    * Return a simple parameter map for this validated request.
    *
+   * <p>This method copies all the parameters into a new mutable map on each call;
+   * use {@link #getParameters()} to read them or {@link #getParameterSnapshot()} to
+   * keep them.
+   *
    * @return a simple parameter map for this validated request.
    */
   public Map<String, String> getParameterMap() {
@@ -404,10 +503,40 @@ public class ValidatedRequest {
     return parameters;
   }
 
+  /**
+   * Returns a read-only view of the parameters of this request.
+   *
+   * <p>The view is backed by the request and does not copy the parameters, it should
+   * not be used after the request has been processed.
+   *
+   * @return the parameters of this request (first value of each parameter).
+   */
+  public final Map<String, String> getParameters() {
+    return new ParameterMapView(this.req);
+  }
+
+  /**
+   * Returns an immutable copy of the parameters of this request.
+   *
+   * <p>The snapshot can be used as a cache key or passed to other threads.
+   *
+   * @return the parameters of this request (first value of each parameter).
+   */
+  public final ParameterSnapshot getParameterSnapshot() {
+    return ParameterSnapshot.of(this.req);
+  }
+
   protected ContentRequest request() {
     return this.req;
   }
 
+  /**
+   * @return the values parsed during validation or <code>null</code>.
+   */
+  final @Nullable ParsedValues parsedValues() {
+    return this.values;
+  }
+
   // HTTP Objects
   // --------------------------------------------------------------------------
 
@@ -0,0 +1,682 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.ConstraintCost;
+import org.pageseeder.berlioz.plus.constraints.MultiValueConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParsingConstraint;
+import org.pageseeder.berlioz.plus.constraints.ValueConstraint;
+import org.pageseeder.berlioz.plus.constraints.Violation;
+import org.pageseeder.berlioz.plus.xml.XMLName;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+/**
+ * The constraints of a validator compiled into steps so that each parameter is
+ * looked up only once.
+ *
+ * <p>{@link ValueConstraint Value constraints} are grouped by parameter name: each
+ * group looks up its parameter once and checks all the constraints on that value in
+ * declaration order. A group is placed where its parameter is first constrained.
+ *
+ * <p>Other constraints are opaque steps that run with the request in declaration
+ * order; value constraints are never moved across an opaque step, so that an opaque
+ * constraint (for example, an authentication check) is always evaluated before any
+ * constraint declared after it.
+ *
+ * <p>The plan can either stop at the first error or collect the errors from all
+ * parameters and report them together in an <code>errors</code> element.
+ *
+ * <p>When stopping at the first error, the parameter steps between two opaque steps
+ * can be reordered according to the {@link ConstraintOrder}, so that the cheapest
+ * parameters are checked first. Errors are always collected in declaration order.
+ *
+ * <p>{@link MultiValueConstraint Multi-value constraints} are steps of their own which can
+ * be reordered like parameter steps.
+ *
+ * <p>Each parameter checked by a {@link ParsingConstraint} or a multi-value constraint
+ * is given a slot when the plan is compiled. When the request is valid, the values
+ * parsed by these constraints are attached to the request so that the
+ * {@link ValidatedRequest} does not parse them again; see {@link ParsedValues}.
+ *
+ * <p>When the {@value RequestValidator#SPECIALIZE_PROPERTY} system property is
+ * <code>true</code>, a plan with a fixed order is compiled on first use into a hidden
+ * class which runs all its steps in a single method; see {@link PlanSpecializer}.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class ValidationPlan {
+
+  /**
+   * The steps in declaration order.
+   */
+  private final Step[] steps;
+
+  /**
+   * The steps in the order to run when stopping at the first error.
+   */
+  private final Step[] ordered;
+
+  /**
+   * The name of the parameter of each slot of the parsed values.
+   */
+  private final String[] slots;
+
+  /**
+   * Reorders the steps at runtime (only for the adaptive order).
+   */
+  private final @Nullable Adaptive adaptive;
+
+  /**
+   * The specialized code for the ordered steps, once generated.
+   */
+  private volatile PlanSpecializer.@Nullable Runner runner;
+
+  /**
+   * Whether the plan should be specialized on first use.
+   */
+  private volatile boolean specialize;
+
+  private ValidationPlan(Step[] steps, String[] slots, ConstraintOrder order, boolean specialize) {
+    this.steps = steps;
+    this.slots = slots;
+    this.ordered = order == ConstraintOrder.DECLARATION ? steps : byCost(steps);
+    this.adaptive = order == ConstraintOrder.ADAPTIVE ? new Adaptive(this.ordered) : null;
+    this.specialize = specialize && this.adaptive == null && steps.length > 0 && PlanSpecializer.isSupported();
+  }
+
+  /**
+   * Compiles the specified list of constraints into a validation plan.
+   *
+   * @param constraints The constraints in declaration order
+   * @param order       The order of the parameter steps when stopping at the first error
+   *
+   * @return the corresponding plan
+   */
+  static ValidationPlan compile(Constraint[] constraints, ConstraintOrder order) {
+    return compile(constraints, order, Boolean.getBoolean(RequestValidator.SPECIALIZE_PROPERTY));
+  }
+
+  /**
+   * Compiles the specified list of constraints into a validation plan.
+   *
+   * @param constraints The constraints in declaration order
+   * @param order       The order of the parameter steps when stopping at the first error
+   * @param specialize  Whether to generate specialized code on first use
+   *
+   * @return the corresponding plan
+   */
+  static ValidationPlan compile(Constraint[] constraints, ConstraintOrder order, boolean specialize) {
+    // Either opaque constraints or groups of value constraints
+    List<Object> layout = new ArrayList<>(constraints.length);
+    // Parameter groups since the last opaque constraint
+    List<Group> groups = new ArrayList<>(constraints.length);
+    for (Constraint constraint : constraints) {
+      if (constraint instanceof ValueConstraint) {
+        ValueConstraint check = (ValueConstraint) constraint;
+        Group group = find(groups, check.getName());
+        if (group == null) {
+          group = new Group(check.getName());
+          groups.add(group);
+          layout.add(group);
+        }
+        group.checks.add(check);
+      } else if (constraint instanceof MultiValueConstraint) {
+        layout.add(constraint);
+      } else {
+        layout.add(constraint);
+        groups.clear();
+      }
+    }
+    Step[] steps = new Step[layout.size()];
+    List<String> slots = new ArrayList<>();
+    for (int i = 0; i < steps.length; i++) {
+      Object o = layout.get(i);
+      if (o instanceof Group) {
+        Group group = (Group) o;
+        int slot = group.parses() ? slots.size() : -1;
+        if (slot >= 0) slots.add(group.name);
+        steps[i] = group.toStep(i, slot);
+      } else if (o instanceof MultiValueConstraint) {
+        MultiValueConstraint constraint = (MultiValueConstraint) o;
+        slots.add(constraint.getName());
+        steps[i] = new ValuesStep(i, constraint, slots.size() - 1);
+      } else {
+        steps[i] = new ConstraintStep(i, (Constraint) o);
+      }
+    }
+    return new ValidationPlan(steps, slots.toArray(new String[0]), order, specialize);
+  }
+
+  /**
+   * Validate the content request against the steps of this plan.
+   *
+   * @param req The content request to validate
+   * @param xml The XML writer to use should an error be reported.
+   *
+   * @return the content status of the request.
+   */
+  ContentStatus validate(ContentRequest req, XMLPrinter xml) {
+    ParsedValues values = this.slots.length > 0 ? new ParsedValues(this.slots) : null;
+    ContentStatus status;
+    if (this.adaptive != null) {
+      status = this.adaptive.validate(req, xml, values);
+    } else {
+      PlanSpecializer.Runner runner = this.runner;
+      if (runner == null && this.specialize) runner = specialize();
+      status = runner != null ? runner.validate(req, xml, values) : run(this.ordered, req, xml, values);
+    }
+    if (values != null && status == ContentStatus.OK) values.attach(req);
+    return status;
+  }
+
+  /**
+   * Generates the specialized code for this plan.
+   *
+   * @return the specialized code or <code>null</code> if the plan must be interpreted.
+   */
+  private synchronized PlanSpecializer.@Nullable Runner specialize() {
+    if (this.specialize) {
+      PlanSpecializer specializer = new PlanSpecializer();
+      for (Step step : this.ordered) {
+        if (step instanceof ParameterStep) {
+          ParameterStep parameter = (ParameterStep) step;
+          specializer.parameter(parameter.name, parameter.slot, parameter.checks);
+        } else if (step instanceof ValuesStep) {
+          ValuesStep values = (ValuesStep) step;
+          specializer.constraint(values.constraint, values.slot);
+        } else {
+          specializer.constraint(((ConstraintStep) step).constraint);
+        }
+      }
+      this.runner = specializer.build();
+      this.specialize = false;
+    }
+    return this.runner;
+  }
+
+  /**
+   * @return <code>true</code> if this plan runs specialized code.
+   */
+  boolean isSpecialized() {
+    return this.runner != null;
+  }
+
+  private static ContentStatus run(Step[] steps, ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values) {
+    for (Step step : steps) {
+      ContentStatus status = step.validate(req, xml, values);
+      if (status != ContentStatus.OK) return status;
+    }
+    return ContentStatus.OK;
+  }
+
+  /**
+   * Validate the content request against all the steps of this plan and report
+   * all the errors in a single <code>errors</code> element.
+   *
+   * <p>Only the first violation is reported for each parameter. Opaque constraints
+   * write to a buffer so that their output can be included in the <code>errors</code>
+   * element; if an opaque constraint fails, the validation stops as later constraints
+   * may depend on it.
+   *
+   * <p>No <code>errors</code> element is written if the request is valid.
+   *
+   * @param req The content request to validate
+   * @param xml The XML writer to use should an error be reported.
+   *
+   * @return the content status of the first error or <code>OK</code>.
+   */
+  ContentStatus validateAll(ContentRequest req, XMLPrinter xml) {
+    ParsedValues values = this.slots.length > 0 ? new ParsedValues(this.slots) : null;
+    Errors errors = null;
+    for (Step step : this.steps) {
+      errors = step.collect(req, xml, values, errors, this.steps.length);
+      if (errors != null && errors.stopped) break;
+    }
+    if (errors == null) {
+      if (values != null) values.attach(req);
+      return ContentStatus.OK;
+    }
+    errors.toXML(xml);
+    return errors.status;
+  }
+
+  /**
+   * @return the number of parameter lookups for each request.
+   */
+  int lookups() {
+    int lookups = 0;
+    for (Step step : this.steps) {
+      if (step instanceof ParameterStep || step instanceof ValuesStep) lookups++;
+    }
+    return lookups;
+  }
+
+  /**
+   * Returns the current order of the steps when stopping at the first error.
+   *
+   * <p>Parameter steps are identified by the name of their parameter and opaque
+   * steps by the simple name of the constraint class.
+   *
+   * @return the names of the steps in order.
+   */
+  List<String> order() {
+    Step[] steps = this.adaptive != null ? this.adaptive.current : this.ordered;
+    List<String> order = new ArrayList<>(steps.length);
+    for (Step step : steps) {
+      order.add(step.toString());
+    }
+    return order;
+  }
+
+  /**
+   * @return the number of slots for the parsed values of each request.
+   */
+  int slots() {
+    return this.slots.length;
+  }
+
+  /**
+   * @return the adaptive order or <code>null</code> if the order is fixed.
+   */
+  @Nullable Adaptive adaptive() {
+    return this.adaptive;
+  }
+
+  /**
+   * Sorts the parameter steps between opaque steps by increasing cost.
+   */
+  private static Step[] byCost(Step[] steps) {
+    Step[] ordered = steps.clone();
+    sortSegments(ordered, Comparator.comparingInt(step -> step.cost));
+    return ordered;
+  }
+
+  /**
+   * Sorts each run of parameter steps using a stable sort, opaque steps are left in place.
+   */
+  private static void sortSegments(Step[] steps, Comparator<Step> comparator) {
+    int start = 0;
+    for (int i = 0; i <= steps.length; i++) {
+      if (i == steps.length || steps[i] instanceof ConstraintStep) {
+        if (i - start > 1) Arrays.sort(steps, start, i, comparator);
+        start = i + 1;
+      }
+    }
+  }
+
+  private static @Nullable Group find(List<Group> groups, String name) {
+    for (Group group : groups) {
+      if (group.name.equals(name)) return group;
+    }
+    return null;
+  }
+
+  /**
+   * Value constraints on the same parameter collected during compilation.
+   */
+  private static final class Group {
+
+    private final String name;
+
+    private final List<ValueConstraint> checks = new ArrayList<>(2);
+
+    Group(String name) {
+      this.name = name;
+    }
+
+    /**
+     * @return <code>true</code> if any of the constraints parses the value.
+     */
+    boolean parses() {
+      for (ValueConstraint check : this.checks) {
+        if (check instanceof ParsingConstraint) return true;
+      }
+      return false;
+    }
+
+    ParameterStep toStep(int index, int slot) {
+      return new ParameterStep(index, this.name, slot, this.checks.toArray(new ValueConstraint[0]));
+    }
+
+  }
+
+  /**
+   * The errors collected when reporting all errors.
+   */
+  private static final class Errors {
+
+    private static final XMLName ERRORS = XMLName.of("errors");
+
+    /** Either violations or XML written by opaque constraints */
+    private final Object[] errors;
+
+    private int count = 0;
+
+    /** The status of the first error */
+    private final ContentStatus status;
+
+    /** Whether the validation should stop */
+    private boolean stopped = false;
+
+    private Errors(int capacity, ContentStatus status) {
+      this.errors = new Object[capacity];
+      this.status = status;
+    }
+
+    static Errors add(@Nullable Errors errors, int capacity, ContentStatus status, Object error) {
+      Errors e = errors != null ? errors : new Errors(capacity, status);
+      e.errors[e.count++] = error;
+      return e;
+    }
+
+    void toXML(XMLPrinter xml) {
+      xml.openElement(ERRORS, true);
+      for (int i = 0; i < this.count; i++) {
+        Object error = this.errors[i];
+        if (error instanceof Violation) {
+          ((Violation) error).toXML(xml);
+        } else {
+          xml.writeXML((String) error);
+        }
+      }
+      xml.closeElement();
+    }
+
+  }
+
+  /**
+   * A step in the plan.
+   */
+  private abstract static class Step {
+
+    /** The position of the step in declaration order */
+    final int index;
+
+    /** The ordinal of the cost class of the step */
+    final int cost;
+
+    Step(int index, ConstraintCost cost) {
+      this.index = index;
+      this.cost = cost.ordinal();
+    }
+
+    abstract ContentStatus validate(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values);
+
+    abstract @Nullable Errors collect(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values,
+        @Nullable Errors errors, int capacity);
+
+  }
+
+  /**
+   * Looks up a parameter once and checks its value against all its constraints.
+   */
+  private static final class ParameterStep extends Step {
+
+    private final String name;
+
+    /** The slot for the parsed value or -1 if the value is not parsed */
+    private final int slot;
+
+    private final ValueConstraint[] checks;
+
+    ParameterStep(int index, String name, int slot, ValueConstraint[] checks) {
+      super(index, maxCost(checks));
+      this.name = name;
+      this.slot = slot;
+      this.checks = checks;
+    }
+
+    /**
+     * The cost of a parameter is the cost of its most expensive constraint, as all
+     * its constraints must be checked when the value is valid.
+     */
+    private static ConstraintCost maxCost(ValueConstraint[] checks) {
+      ConstraintCost max = ConstraintCost.PRESENCE;
+      for (ValueConstraint check : checks) {
+        if (check.cost().compareTo(max) > 0) max = check.cost();
+      }
+      return max;
+    }
+
+    @Override
+    ContentStatus validate(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values) {
+      String value = req.getParameter(this.name);
+      for (ValueConstraint check : this.checks) {
+        ContentStatus status = values != null && check instanceof ParsingConstraint
+            ? ((ParsingConstraint) check).validate(value, xml, values, this.slot)
+            : check.validate(value, xml);
+        if (status != ContentStatus.OK) return status;
+      }
+      return ContentStatus.OK;
+    }
+
+    @Override
+    @Nullable Errors collect(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values,
+        @Nullable Errors errors, int capacity) {
+      String value = req.getParameter(this.name);
+      for (ValueConstraint check : this.checks) {
+        Violation violation = values != null && check instanceof ParsingConstraint
+            ? ((ParsingConstraint) check).check(value, values, this.slot)
+            : check.check(value);
+        if (violation != null) return Errors.add(errors, capacity, violation.status(), violation);
+      }
+      return errors;
+    }
+
+    @Override
+    public String toString() {
+      return this.name;
+    }
+
+  }
+
+  /**
+   * Looks up all the values of a parameter and checks them against a multi-value constraint.
+   */
+  private static final class ValuesStep extends Step {
+
+    private final MultiValueConstraint constraint;
+
+    /** The slot for the parsed values */
+    private final int slot;
+
+    ValuesStep(int index, MultiValueConstraint constraint, int slot) {
+      super(index, constraint.cost());
+      this.constraint = constraint;
+      this.slot = slot;
+    }
+
+    @Override
+    ContentStatus validate(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values) {
+      return values != null
+          ? this.constraint.validate(req, xml, values, this.slot)
+          : this.constraint.validate(req, xml);
+    }
+
+    @Override
+    @Nullable Errors collect(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values,
+        @Nullable Errors errors, int capacity) {
+      String[] parameters = req.getParameterValues(this.constraint.getName());
+      Violation violation = values != null
+          ? this.constraint.check(parameters, values, this.slot)
+          : this.constraint.check(parameters);
+      return violation != null ? Errors.add(errors, capacity, violation.status(), violation) : errors;
+    }
+
+    @Override
+    public String toString() {
+      return this.constraint.getName();
+    }
+
+  }
+
+  /**
+   * An opaque constraint given the whole request.
+   */
+  private static final class ConstraintStep extends Step {
+
+    private final Constraint constraint;
+
+    ConstraintStep(int index, Constraint constraint) {
+      super(index, ConstraintCost.CUSTOM);
+      this.constraint = constraint;
+    }
+
+    @Override
+    ContentStatus validate(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values) {
+      return this.constraint.validate(req, xml);
+    }
+
+    @Override
+    @Nullable Errors collect(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values,
+        @Nullable Errors errors, int capacity) {
+      XMLStringWriter buffer = new XMLStringWriter(XML.NamespaceAware.No);
+      ContentStatus status = this.constraint.validate(req, new XMLPrinter(buffer));
+      String output = buffer.toString();
+      if (status == ContentStatus.OK) {
+        if (!output.isEmpty()) xml.writeXML(output);
+        return errors;
+      }
+      Errors e = Errors.add(errors, capacity, status, output);
+      e.stopped = true;
+      return e;
+    }
+
+    @Override
+    public String toString() {
+      return this.constraint.getClass().getSimpleName();
+    }
+
+  }
+
+  /**
+   * Reorders the parameter steps using statistics sampled at runtime.
+   *
+   * <p>For each step, the plan samples how often it is evaluated, how often it
+   * rejects the request and how long it takes. Parameter steps are then sorted by
+   * their expected cost per rejection (mean time divided by the rejection rate),
+   * which minimizes the expected time to reject invalid requests.
+   *
+   * <p>Counters are lock-free and updated only for sampled requests. The statistics
+   * of a step are halved once it has been evaluated more than {@link #WINDOW} times,
+   * so that the order follows changes in traffic; steps which are no longer reached
+   * keep their last statistics.
+   * A new order is published atomically, so concurrent validations use either the
+   * previous order or the new one.
+   */
+  static final class Adaptive {
+
+    /** Sample one request in this number */
+    static final int SAMPLE_RATE = 64;
+
+    /** Number of sampled requests between each reordering */
+    static final int INTERVAL = 64;
+
+    /** Number of evaluations after which the statistics of a step are halved */
+    static final int WINDOW = 1024;
+
+    /** Counters for each step */
+    private static final int EVALUATIONS = 0, REJECTIONS = 1, NANOS = 2, COUNTERS = 3;
+
+    /** The order of the steps by cost */
+    private final Step[] initial;
+
+    /** The statistics for each step by declaration index */
+    private final AtomicLongArray stats;
+
+    /** The number of sampled requests */
+    private final AtomicInteger samples = new AtomicInteger();
+
+    /** The order currently in use */
+    private volatile Step[] current;
+
+    Adaptive(Step[] initial) {
+      this.initial = initial;
+      this.stats = new AtomicLongArray(initial.length * COUNTERS);
+      this.current = initial;
+    }
+
+    ContentStatus validate(ContentRequest req, XMLPrinter xml, @Nullable ParsedValues values) {
+      Step[] steps = this.current;
+      if (ThreadLocalRandom.current().nextInt(SAMPLE_RATE) != 0) return run(steps, req, xml, values);
+      ContentStatus result = ContentStatus.OK;
+      for (Step step : steps) {
+        long start = System.nanoTime();
+        ContentStatus status = step.validate(req, xml, values);
+        record(step.index, status != ContentStatus.OK, System.nanoTime() - start);
+        if (status != ContentStatus.OK) {
+          result = status;
+          break;
+        }
+      }
+      if (this.samples.incrementAndGet() % INTERVAL == 0) reorder();
+      return result;
+    }
+
+    private void record(int index, boolean rejected, long nanos) {
+      int i = index * COUNTERS;
+      this.stats.incrementAndGet(i + EVALUATIONS);
+      if (rejected) this.stats.incrementAndGet(i + REJECTIONS);
+      this.stats.addAndGet(i + NANOS, nanos);
+    }
+
+    /**
+     * Computes and publishes a new order from the statistics.
+     */
+    void reorder() {
+      int length = this.initial.length;
+      double[] score = new double[length];
+      double[] mean = new double[length];
+      int[] rank = new int[length];
+      for (int r = 0; r < length; r++) {
+        int index = this.initial[r].index;
+        int i = index * COUNTERS;
+        long evaluations = this.stats.get(i + EVALUATIONS);
+        long rejections = this.stats.get(i + REJECTIONS);
+        long nanos = this.stats.get(i + NANOS);
+        rank[index] = r;
+        if (evaluations == 0) {
+          // Never reached: keep its rank among other unknown steps
+          mean[index] = Double.POSITIVE_INFINITY;
+          score[index] = Double.POSITIVE_INFINITY;
+        } else {
+          // At least 1ns per evaluation as fast steps may be below the timer resolution,
+          // Laplace smoothing so that steps which never reject are ordered by time
+          mean[index] = (double) (nanos + evaluations) / evaluations;
+          score[index] = mean[index] * (evaluations + 2) / (rejections + 1);
+        }
+      }
+      Step[] next = this.initial.clone();
+      sortSegments(next, Comparator.<Step>comparingDouble(step -> score[step.index])
+          .thenComparingDouble(step -> mean[step.index])
+          .thenComparingInt(step -> rank[step.index]));
+      for (int i = 0; i < this.stats.length(); i += COUNTERS) {
+        if (this.stats.get(i + EVALUATIONS) > WINDOW) {
+          for (int c = 0; c < COUNTERS; c++) {
+            this.stats.getAndUpdate(i + c, v -> v >> 1);
+          }
+        }
+      }
+      this.current = next;
+    }
+
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.plus.annotations.AdaptiveOrder;
+import org.pageseeder.berlioz.plus.annotations.EmailParameter;
+import org.pageseeder.berlioz.plus.annotations.LongListParameter;
+import org.pageseeder.berlioz.plus.annotations.LongParameter;
+import org.pageseeder.berlioz.plus.annotations.Parameter;
+import org.pageseeder.berlioz.plus.annotations.ReportAllErrors;
+import org.pageseeder.berlioz.plus.annotations.TemporalParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The index of the validators generated at build time by the annotation processor.
+ *
+ * <p>Each line of the {@value #LOCATION} resources maps the binary name of a generator
+ * to the name of a class implementing <code>Supplier&lt;RequestValidator&gt;</code>. The
+ * class is loaded by name and instantiated once per generator class; it builds the same
+ * validator as the annotations would.
+ *
+ * <p>Generated validators are only used when the built-in annotations are handled by the
+ * built-in processor alone; otherwise, a custom {@link org.pageseeder.berlioz.plus.spi.AnnotationProcessor}
+ * may contribute constraints that the generated code does not know about and the validator
+ * is computed from the annotations at runtime instead.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class ValidatorIndex {
+
+  /**
+   * The location of the index files.
+   */
+  static final String LOCATION = "META-INF/berlioz-plus/validators";
+
+  /** Logger for the index */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ValidatorIndex.class);
+
+  /**
+   * The annotation types which generated validators handle.
+   */
+  private static final List<Class<? extends Annotation>> TYPES = List.of(Parameter.class, LongParameter.class,
+      EmailParameter.class, TemporalParameter.class, LongListParameter.class, ReportAllErrors.class, AdaptiveOrder.class);
+
+  /**
+   * Indexes by class loader (guarded by itself).
+   */
+  private static final Map<ClassLoader, Map<String, String>> INDEXES = new WeakHashMap<>();
+
+  /** Utility class */
+  private ValidatorIndex() {
+  }
+
+  /**
+   * Returns the validator generated for the specified class.
+   *
+   * @param type The generator class
+   *
+   * @return the generated validator or <code>null</code> if the validator must be computed
+   *         from the annotations.
+   */
+  static @Nullable RequestValidator lookup(Class<?> type) {
+    ClassLoader loader = type.getClassLoader() != null ? type.getClassLoader() : ClassLoader.getSystemClassLoader();
+    String name = index(loader).get(type.getName());
+    if (name == null) return null;
+    ProcessorRegistry registry = ProcessorRegistry.getInstance();
+    for (Class<? extends Annotation> annotation : TYPES) {
+      if (!registry.isBuiltin(annotation)) {
+        LOGGER.debug("Ignoring generated validator for {}: @{} has custom processors", type.getName(), annotation.getSimpleName());
+        return null;
+      }
+    }
+    try {
+      Object supplier = Class.forName(name, true, loader).getConstructor().newInstance();
+      Object validator = ((Supplier<?>)supplier).get();
+      LOGGER.debug("Using generated validator {}", name);
+      return (RequestValidator)validator;
+    } catch (ReflectiveOperationException | ClassCastException | LinkageError ex) {
+      LOGGER.warn("Unable to use generated validator {}: {}", name, ex.toString());
+      return null;
+    }
+  }
+
+  private static Map<String, String> index(ClassLoader loader) {
+    synchronized (INDEXES) {
+      return INDEXES.computeIfAbsent(loader, ValidatorIndex::load);
+    }
+  }
+
+  private static Map<String, String> load(ClassLoader loader) {
+    Map<String, String> index = new HashMap<>();
+    try {
+      Enumeration<URL> resources = loader.getResources(LOCATION);
+      while (resources.hasMoreElements()) {
+        URL url = resources.nextElement();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            int equals = line.indexOf('=');
+            if (line.startsWith("#") || equals < 0) continue;
+            index.put(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
+          }
+        }
+      }
+    } catch (IOException ex) {
+      LOGGER.warn("Unable to read {}: {}", LOCATION, ex.toString());
+    }
+    return index;
+  }
+
+}
@@ -4,21 +4,56 @@
 package org.pageseeder.berlioz.plus;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
 
 import org.jspecify.annotations.Nullable;
 import org.pageseeder.berlioz.plus.exceptions.OutputException;
+import org.pageseeder.berlioz.plus.xml.Utf8XMLWriter;
+import org.pageseeder.berlioz.plus.xml.XMLName;
 import org.pageseeder.xmlwriter.XMLWritable;
 import org.pageseeder.xmlwriter.XMLWriter;
 
 /**
 * XML String Appender's methods
+*
+* <p>Each method delegates to the underlying XML writer and rethrows any
+* <code>IOException</code> as an {@link OutputException}. The exception is created
+* outside the delegating methods so that they remain small enough to be inlined.
+*
+* <p>The methods taking an {@link XMLName} copy the encoded name directly when the
+* underlying writer is a {@link Utf8XMLWriter}, and pass the name as a string otherwise.
+*
+* <p>Numbers and dates are formatted straight into the output buffer of a
+* {@link Utf8XMLWriter}, with the same output as their <code>toString()</code> method;
+* they are passed as strings to other writers.
 */
 public final class XMLPrinter implements XMLWriter {
 
   private final XMLWriter xml;
 
+  /**
+   * The underlying writer if it accepts encoded names and formats values directly.
+   */
+  private final @Nullable Utf8XMLWriter utf8;
+
   public XMLPrinter(XMLWriter xml) {
     this.xml = xml;
+    this.utf8 = xml instanceof Utf8XMLWriter ? (Utf8XMLWriter) xml : null;
+  }
+
+  /**
+   * Returns a printer for the specified XML writer without wrapping it again if it
+   * is already a printer.
+   *
+   * @param xml The XML writer
+   *
+   * @return the corresponding printer.
+   */
+  static XMLPrinter of(XMLWriter xml) {
+    return xml instanceof XMLPrinter ? (XMLPrinter) xml : new XMLPrinter(xml);
   }
 
   @Override
@@ -26,7 +61,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.writeXML(text, off, len);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -35,7 +70,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.writeText(c);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -44,7 +79,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.writeText(text);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -53,7 +88,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.writeText(text, off, len);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -62,7 +97,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.writeCDATA(data);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -71,7 +106,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.writeXML(text);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -80,7 +115,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.writeComment(comment);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -89,7 +124,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.writePI(target, data);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -98,7 +133,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.openElement(name);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -107,7 +142,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.openElement(name, hasChildren);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -116,7 +151,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.openElement(uri, name, hasChildren);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -125,7 +160,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.closeElement();
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -134,7 +169,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.element(name, text);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -143,7 +178,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.emptyElement(element);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -152,7 +187,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.emptyElement(uri, element);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -161,7 +196,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.attribute(name, value);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -170,7 +205,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.attribute(name, value);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -179,7 +214,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.attribute(name, value);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -188,7 +223,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.attribute(uri, name, value);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -197,7 +232,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.attribute(uri, name, value);
     } catch (IOException | IllegalStateException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -206,7 +241,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       this.xml.attribute(uri, name, value);
     } catch (IOException | IllegalStateException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -221,7 +256,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.xmlDecl();
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -235,7 +270,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.flush();
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -244,7 +279,7 @@ public final class XMLPrinter implements XMLWriter {
     try {
       this.xml.close();
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -265,7 +300,7 @@ public final class XMLPrinter implements XMLWriter {
     try{
       o.toXML(this.xml);
     } catch (IOException ex) {
-      throw new OutputException(ex);
+      throw failed(ex);
     }
   }
 
@@ -274,6 +309,10 @@ public final class XMLPrinter implements XMLWriter {
    * If the provided value is {@code null}, no attribute will be added.
    * In case of an {@link IOException}, an {@link OutputException} is thrown.
    *
+   * <p>When writing to a {@link Utf8XMLWriter}, integers, <code>LocalDate</code>,
+   * <code>LocalDateTime</code>, <code>OffsetDateTime</code> and <code>Instant</code> values
+   * are formatted directly into its buffer, with the same output as <code>toString()</code>.
+   *
    * @param name The name of the attribute to add. Must not be {@code null}.
    * @param value The value of the attribute. If {@code null}, no action is performed.
    *
@@ -282,9 +321,11 @@ public final class XMLPrinter implements XMLWriter {
   public void attribute(String name, @Nullable Object value) {
     if (value != null) {
       try {
-        this.xml.attribute(name, value.toString());
+        Utf8XMLWriter utf8 = this.utf8;
+        if (utf8 != null) attribute(utf8, name, value);
+        else this.xml.attribute(name, value.toString());
       } catch (IOException ex) {
-        throw new OutputException(ex);
+        throw failed(ex);
       }
     }
   }
@@ -305,9 +346,227 @@ public final class XMLPrinter implements XMLWriter {
       try {
         this.xml.attribute(uri, name, value.toString());
       } catch (IOException | IllegalStateException ex) {
-        throw new OutputException(ex);
+        throw failed(ex);
+      }
+    }
+  }
+
+  /**
+   * Opens an element without children.
+   *
+   * @param name The name of the element
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void openElement(XMLName name) {
+    openElement(name, false);
+  }
+
+  /**
+   * Opens an element.
+   *
+   * @param name        The name of the element
+   * @param hasChildren Whether the element has children
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void openElement(XMLName name, boolean hasChildren) {
+    try {
+      Utf8XMLWriter utf8 = this.utf8;
+      if (utf8 != null) utf8.openElement(name, hasChildren);
+      else this.xml.openElement(name.name(), hasChildren);
+    } catch (IOException ex) {
+      throw failed(ex);
+    }
+  }
+
+  /**
+   * Writes an element containing the specified text.
+   *
+   * @param name The name of the element
+   * @param text The text of the element
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void element(XMLName name, String text) {
+    try {
+      Utf8XMLWriter utf8 = this.utf8;
+      if (utf8 != null) utf8.element(name, text);
+      else this.xml.element(name.name(), text);
+    } catch (IOException ex) {
+      throw failed(ex);
+    }
+  }
+
+  /**
+   * Writes an empty element.
+   *
+   * @param name The name of the element
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void emptyElement(XMLName name) {
+    try {
+      Utf8XMLWriter utf8 = this.utf8;
+      if (utf8 != null) utf8.emptyElement(name);
+      else this.xml.emptyElement(name.name());
+    } catch (IOException ex) {
+      throw failed(ex);
+    }
+  }
+
+  /**
+   * Adds an attribute to the current element.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void attribute(XMLName name, String value) {
+    try {
+      Utf8XMLWriter utf8 = this.utf8;
+      if (utf8 != null) utf8.attribute(name, value);
+      else this.xml.attribute(name.name(), value);
+    } catch (IOException ex) {
+      throw failed(ex);
+    }
+  }
+
+  /**
+   * Adds an attribute to the current element.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void attribute(XMLName name, long value) {
+    try {
+      Utf8XMLWriter utf8 = this.utf8;
+      if (utf8 != null) utf8.attribute(name, value);
+      else this.xml.attribute(name.name(), value);
+    } catch (IOException ex) {
+      throw failed(ex);
+    }
+  }
+
+  /**
+   * Adds an attribute to the current element if the value is not <code>null</code>.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void attribute(XMLName name, @Nullable Object value) {
+    if (value != null) {
+      try {
+        Utf8XMLWriter utf8 = this.utf8;
+        if (utf8 != null) attribute(utf8, name, value);
+        else this.xml.attribute(name.name(), value.toString());
+      } catch (IOException ex) {
+        throw failed(ex);
       }
     }
   }
 
+  // Numbers and dates
+  // --------------------------------------------------------------------------
+
+  /**
+   * Adds an attribute with the value written as <code>Double.toString</code>.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void attribute(String name, double value) {
+    try {
+      Utf8XMLWriter utf8 = this.utf8;
+      if (utf8 != null) utf8.attribute(name, value);
+      else this.xml.attribute(name, Double.toString(value));
+    } catch (IOException ex) {
+      throw failed(ex);
+    }
+  }
+
+  /**
+   * Adds an attribute with the value written as <code>Double.toString</code>.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void attribute(XMLName name, double value) {
+    try {
+      Utf8XMLWriter utf8 = this.utf8;
+      if (utf8 != null) utf8.attribute(name, value);
+      else this.xml.attribute(name.name(), Double.toString(value));
+    } catch (IOException ex) {
+      throw failed(ex);
+    }
+  }
+
+  /**
+   * Adds an attribute with the value written as <code>Float.toString</code>.
+   *
+   * <p>This overload keeps float values from being widened to double.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void attribute(String name, float value) {
+    attribute(name, Float.toString(value));
+  }
+
+  /**
+   * Adds an attribute with the value written as <code>Float.toString</code>.
+   *
+   * <p>This overload keeps float values from being widened to double.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws OutputException If thrown by the underlying writer
+   */
+  public void attribute(XMLName name, float value) {
+    attribute(name, Float.toString(value));
+  }
+
+  /**
+   * Writes numbers and dates directly to the buffer of the writer.
+   */
+  private static void attribute(Utf8XMLWriter xml, String name, Object value) throws IOException {
+    if (value instanceof Long || value instanceof Integer) xml.attribute(name, ((Number) value).longValue());
+    else if (value instanceof LocalDate) xml.attribute(name, (LocalDate) value);
+    else if (value instanceof LocalDateTime) xml.attribute(name, (LocalDateTime) value);
+    else if (value instanceof OffsetDateTime) xml.attribute(name, (OffsetDateTime) value);
+    else if (value instanceof Instant) xml.attribute(name, (Instant) value);
+    else xml.attribute(name, value.toString());
+  }
+
+  /**
+   * Writes numbers and dates directly to the buffer of the writer.
+   */
+  private static void attribute(Utf8XMLWriter xml, XMLName name, Object value) throws IOException {
+    if (value instanceof Long || value instanceof Integer) xml.attribute(name, ((Number) value).longValue());
+    else if (value instanceof LocalDate) xml.attribute(name, (LocalDate) value);
+    else if (value instanceof LocalDateTime) xml.attribute(name, (LocalDateTime) value);
+    else if (value instanceof OffsetDateTime) xml.attribute(name, (OffsetDateTime) value);
+    else if (value instanceof Instant) xml.attribute(name, (Instant) value);
+    else xml.attribute(name, value.toString());
+  }
+
+  /**
+   * Wraps the specified exception thrown by the underlying writer.
+   */
+  private static OutputException failed(Exception ex) {
+    return new OutputException(ex);
+  }
+
 }
@@ -13,13 +13,16 @@ import java.lang.annotation.Target;
 /**
  * Indicates a parameter that must be a valid email
  *
+ * <p>The address can be bound to a <code>String</code> constructor parameter of the
+ * parameters of a {@link org.pageseeder.berlioz.plus.BindingGenerator}.
+ *
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.PARAMETER})
 @Repeatable(EmailParameters.class)
 @Documented
 public @interface EmailParameter {
@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates a parameter whose values must all be castable as long values.
+ *
+ * <p>The parameter can be repeated (<code>id=1&amp;id=2</code>) and each value can be a
+ * comma-separated list (<code>id=1,2</code>).
+ *
+ * <p>The values can be bound to a <code>long[]</code> constructor parameter of the
+ * parameters of a {@link org.pageseeder.berlioz.plus.BindingGenerator}.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.PARAMETER})
+@Repeatable(LongListParameters.class)
+@Documented
+public @interface LongListParameter {
+
+  /**
+   * @return the name of the parameter
+   */
+  String value();
+
+  /**
+   * @return true if the parameter is required (default is <code>true</code>).
+   */
+  boolean required() default true;
+
+  /**
+   * @return the inclusive minimum value for each value (default is Long.MIN_VALUE)
+   */
+  long min() default Long.MIN_VALUE;
+
+  /**
+   * @return the inclusive maximum value for each value (default is Long.MAX_VALUE)
+   */
+  long max() default Long.MAX_VALUE;
+
+  /**
+   * @return the minimum number of values when the parameter is specified (default is 0)
+   */
+  int minCount() default 0;
+
+  /**
+   * @return the maximum number of values (default is 10,000)
+   */
+  int maxCount() default 10_000;
+
+}
@@ -13,13 +13,17 @@ import java.lang.annotation.Target;
 /**
  * Indicates a parameter that must be castable as a long value.
  *
+ * <p>The value can be bound to a constructor parameter of the parameters of a
+ * {@link org.pageseeder.berlioz.plus.BindingGenerator}, either a <code>long</code>
+ * if the parameter is required or a <code>Long</code>.
+ *
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.PARAMETER})
 @Repeatable(LongParameters.class)
 @Documented
 public @interface LongParameter {
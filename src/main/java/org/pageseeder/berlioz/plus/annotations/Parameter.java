@@ -10,16 +10,22 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.pageseeder.berlioz.plus.regex.RegexBudget;
+import org.pageseeder.berlioz.plus.regex.RegexEngine;
+
 /**
  * Indicates a required parameter.
  *
+ * <p>On a constructor parameter of the parameters of a
+ * {@link org.pageseeder.berlioz.plus.BindingGenerator}, the value is bound as a <code>String</code>.
+ *
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.PARAMETER})
 @Repeatable(Parameters.class)
 @Documented
 public @interface Parameter {
@@ -39,4 +45,22 @@ public @interface Parameter {
    */
   String matches() default "";
 
+  /**
+   * @return the engine used to match the regular expression (default is the engine
+   *         specified by the {@value RegexEngine#PROPERTY} system property).
+   *
+   * @since 0.7.0
+   */
+  RegexEngine engine() default RegexEngine.DEFAULT;
+
+  /**
+   * @return the maximum number of character accesses when matching the regular expression,
+   *         <code>0</code> for the default budget or <code>-1</code> for no budget.
+   *
+   * @see RegexBudget
+   *
+   * @since 0.7.0
+   */
+  long budget() default RegexBudget.DEFAULT;
+
 }
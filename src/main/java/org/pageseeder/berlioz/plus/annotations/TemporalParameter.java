@@ -15,13 +15,17 @@ import java.time.temporal.Temporal;
 /**
  * Indicates a parameter that must be castable as a temporal class.
  *
+ * <p>The parsed value can be bound to a constructor parameter of the parameters of a
+ * {@link org.pageseeder.berlioz.plus.BindingGenerator}; when the type of the constructor
+ * parameter is a concrete temporal class, it is used instead of the default type.
+ *
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 @Retention(RetentionPolicy.RUNTIME)
-@Target(ElementType.TYPE)
+@Target({ElementType.TYPE, ElementType.PARAMETER})
 @Repeatable(TemporalParameters.class)
 @Documented
 public @interface TemporalParameter {
@@ -13,7 +13,7 @@ import org.pageseeder.berlioz.plus.XMLPrinter;
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 public interface Constraint {
 
@@ -28,4 +28,17 @@ public interface Constraint {
    */
   ContentStatus validate(ContentRequest req, XMLPrinter xml);
 
+  /**
+   * Returns the relative cost of checking this constraint.
+   *
+   * <p>Validators may evaluate cheaper constraints first.
+   *
+   * @return the cost class of this constraint (<code>CUSTOM</code> by default)
+   *
+   * @since 0.7.0
+   */
+  default ConstraintCost cost() {
+    return ConstraintCost.CUSTOM;
+  }
+
 }
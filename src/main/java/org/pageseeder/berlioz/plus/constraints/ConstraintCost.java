@@ -0,0 +1,48 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.constraints;
+
+/**
+ * The relative cost class of checking a constraint.
+ *
+ * <p>Validators may use the cost to check cheaper constraints first, so that a
+ * request is rejected before expensive constraints are evaluated.
+ *
+ * <p>Constants are declared from the cheapest to the most expensive.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public enum ConstraintCost {
+
+  /**
+   * Only checks whether the parameter is specified.
+   *
+   * <p>Constraints of this class must only reject missing parameters.
+   */
+  PRESENCE,
+
+  /**
+   * Checks the length of the value.
+   */
+  LENGTH,
+
+  /**
+   * Parses the value as a number.
+   */
+  NUMERIC,
+
+  /**
+   * Matches the value against a pattern or parses it using a grammar (e.g. dates).
+   */
+  REGEX,
+
+  /**
+   * Unknown cost, for example a custom constraint accessing the session.
+   */
+  CUSTOM
+
+}
@@ -4,11 +4,8 @@
 package org.pageseeder.berlioz.plus.constraints;
 
 import java.util.Objects;
-import java.util.regex.Pattern;
 
-import org.pageseeder.berlioz.content.ContentRequest;
-import org.pageseeder.berlioz.content.ContentStatus;
-import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A constraint requiring a parameter to be a valid email address.
@@ -16,18 +13,26 @@ import org.pageseeder.berlioz.plus.XMLPrinter;
  * <p>Note: this constraint only checks against the pattern if the parameter
  * is specified.
  *
+ * <p>The value must match the following pattern:
+ * <pre>{@code [A-Za-z0-9]+([._%+-][A-Za-z0-9]+)*@[A-Za-z0-9]+([.-][A-Za-z0-9]+)*\.[A-Za-z]{2,}}</pre>
+ *
+ * <p>It is checked by a state machine in a single pass rather than a regular expression;
+ * values longer than {@value #MAX_LENGTH} characters are rejected without being scanned.
+ *
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
-public final class EmailParameterConstraint implements Constraint {
+public final class EmailParameterConstraint implements ValueConstraint {
 
   /**
-   * Regular expression pattern matching an email address.
+   * The maximum length of an email address (as per RFC 5321).
    */
-  private static final Pattern EMAIL_PATTERN =
-      Pattern.compile("^[A-Za-z0-9]+(?>[._%+-][A-Za-z0-9]+)*@[A-Za-z0-9]+(?>[.-][A-Za-z0-9]+)*\\.[A-Za-z]{2,}$");
+  public static final int MAX_LENGTH = 254;
+
+  // States of the email state machine
+  private static final int LOCAL_START = 0, LOCAL = 1, DOMAIN_START = 2, DOMAIN = 3;
 
   /**
    * Name of the parameter.
@@ -39,26 +44,85 @@ public final class EmailParameterConstraint implements Constraint {
    */
   private final boolean required;
 
+  /** Reported when the parameter is missing */
+  private final Violation missing;
+
+  /** Reported when the value is not an email address */
+  private final Violation invalid;
+
   public EmailParameterConstraint(String name, boolean required) {
     this.name = Objects.requireNonNull(name);
     this.required = required;
     if (name.isEmpty()) throw new IllegalArgumentException("Parameter name cannot be empty");
+    this.missing = Violation.missingParameter(name);
+    this.invalid = new Violation("invalid-email", name);
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
   }
 
   @Override
-  public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
-    String value = req.getParameter(this.name);
-    if (value == null) {
-      if (this.required) return RequiredParameterConstraint.failedRequired(this.name, xml);
-      return ContentStatus.OK;
-    } else {
-      if (EMAIL_PATTERN.matcher(value).matches()) return ContentStatus.OK;
-      xml.openElement("error");
-      xml.attribute("type", "invalid-email");
-      xml.attribute("parameter", this.name);
-      xml.closeElement();
-      return ContentStatus.BAD_REQUEST;
+  public ConstraintCost cost() {
+    return ConstraintCost.REGEX;
+  }
+
+  @Override
+  public @Nullable Violation check(@Nullable String value) {
+    if (value == null) return this.required ? this.missing : null;
+    return isEmail(value) ? null : this.invalid;
+  }
+
+  /**
+   * Indicates whether the specified value is an email address.
+   *
+   * <p>The local part and the domain are sequences of ASCII letters and digits separated
+   * by a single separator; the domain must include at least two parts and end with a dot
+   * followed by a top-level domain of at least two letters.
+   *
+   * @param value The value to check
+   *
+   * @return <code>true</code> if the value is an email address;
+   *         <code>false</code> if it is not or is longer than {@value #MAX_LENGTH} characters.
+   */
+  static boolean isEmail(CharSequence value) {
+    int length = value.length();
+    if (length > MAX_LENGTH) return false;
+    int state = LOCAL_START;
+    // Whether the last separator of the domain is a dot
+    boolean dot = false;
+    // Length of the current domain part if it only includes letters, -1 otherwise
+    int letters = 0;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      boolean alpha = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+      boolean alnum = alpha || (c >= '0' && c <= '9');
+      switch (state) {
+        case LOCAL_START:
+          if (!alnum) return false;
+          state = LOCAL;
+          break;
+        case LOCAL:
+          if (c == '@') state = DOMAIN_START;
+          else if (c == '.' || c == '_' || c == '%' || c == '+' || c == '-') state = LOCAL_START;
+          else if (!alnum) return false;
+          break;
+        case DOMAIN_START:
+          if (!alnum) return false;
+          letters = alpha ? 1 : -1;
+          state = DOMAIN;
+          break;
+        default: // DOMAIN
+          if (c == '.' || c == '-') {
+            dot = c == '.';
+            state = DOMAIN_START;
+          } else if (alnum) {
+            if (letters >= 0) letters = alpha ? letters + 1 : -1;
+          } else return false;
+      }
     }
+    return state == DOMAIN && dot && letters >= 2;
   }
 
 }
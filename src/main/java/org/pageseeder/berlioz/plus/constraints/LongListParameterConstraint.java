@@ -0,0 +1,159 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.constraints;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.plus.ParsedValues;
+import org.pageseeder.berlioz.plus.util.LongParser;
+
+/**
+ * A constraint requiring all the values of a parameter to be castable as long values.
+ *
+ * <p>The parameter can be repeated and each value can be a comma-separated list of longs;
+ * an empty value has no items, but empty items within a list are invalid. The items are
+ * checked and parsed in a single pass into a primitive array, which is published for the
+ * validated request.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class LongListParameterConstraint implements MultiValueConstraint {
+
+  /** The separator between items in a value */
+  private static final char SEPARATOR = ',';
+
+  /** No values */
+  private static final long[] EMPTY = new long[0];
+
+  /**
+   * Name of the parameter.
+   */
+  private final String name;
+
+  /**
+   * Whether the parameter is required
+   */
+  private final boolean required;
+
+  private final long min;
+
+  private final long max;
+
+  private final int minCount;
+
+  private final int maxCount;
+
+  /** Reported when the parameter is missing */
+  private final Violation missing;
+
+  /** Reported when an item is not a long */
+  private final Violation invalid;
+
+  /** Reported when an item is not within range */
+  private final Violation outOfRange;
+
+  /** Reported when the number of items is not within range */
+  private final Violation count;
+
+  /**
+   * Constructs a {@code LongListParameterConstraint} allowing any number of long values
+   * up to 10,000.
+   *
+   * @param name     The name of the parameter to be constrained.
+   * @param required Whether the parameter is mandatory.
+   *
+   * @throws NullPointerException     If the {@code name} is {@code null}.
+   * @throws IllegalArgumentException If the {@code name} is empty.
+   */
+  public LongListParameterConstraint(String name, boolean required) {
+    this(name, required, Long.MIN_VALUE, Long.MAX_VALUE, 0, 10_000);
+  }
+
+  /**
+   * Constructs a {@code LongListParameterConstraint} with the specified range for each
+   * value and number of values.
+   *
+   * @param name     The name of the parameter to be constrained. Must not be null or empty.
+   * @param required Indicates whether the parameter is mandatory.
+   * @param min      The minimum allowable value for each item (inclusive).
+   * @param max      The maximum allowable value for each item (inclusive).
+   * @param minCount The minimum number of items when the parameter is specified (inclusive).
+   * @param maxCount The maximum number of items (inclusive).
+   *
+   * @throws NullPointerException     If the {@code name} is {@code null}.
+   * @throws IllegalArgumentException If the {@code name} is empty, if {@code min} is greater than or
+   *                                  equal to {@code max} or if the counts are not a valid range.
+   */
+  public LongListParameterConstraint(String name, boolean required, long min, long max, int minCount, int maxCount) {
+    this.name = Objects.requireNonNull(name);
+    if (name.isEmpty()) throw new IllegalArgumentException("Parameter name cannot be empty");
+    if (min >= max) throw new IllegalArgumentException("Minimum must be less than maximum");
+    if (minCount < 0 || maxCount < minCount) throw new IllegalArgumentException("Invalid range of counts");
+    this.required = required;
+    this.min = min;
+    this.max = max;
+    this.minCount = minCount;
+    this.maxCount = maxCount;
+    this.missing = Violation.missingParameter(name);
+    this.invalid = new Violation("invalid-long-parameter", name);
+    this.outOfRange = new Violation("out-of-range", name, "min", Long.toString(min), "max", Long.toString(max));
+    this.count = new Violation("invalid-count", name, "min-count", Integer.toString(minCount), "max-count", Integer.toString(maxCount));
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public ConstraintCost cost() {
+    return ConstraintCost.NUMERIC;
+  }
+
+  @Override
+  public @Nullable Violation check(String @Nullable [] values) {
+    return parse(values, null, -1);
+  }
+
+  @Override
+  public @Nullable Violation check(String @Nullable [] values, ParsedValues parsed, int slot) {
+    return parse(values, parsed, slot);
+  }
+
+  /**
+   * Checks and parses all the items, stopping at the first invalid item.
+   */
+  private @Nullable Violation parse(String @Nullable [] values, @Nullable ParsedValues parsed, int slot) {
+    if (values == null || values.length == 0) return this.required ? this.missing : null;
+    long[] items = parsed != null ? new long[Math.min(values.length, this.maxCount)] : EMPTY;
+    int n = 0;
+    for (String value : values) {
+      int length = value.length();
+      if (length == 0) continue;
+      int start = 0;
+      while (start <= length) {
+        int end = value.indexOf(SEPARATOR, start);
+        if (end < 0) end = length;
+        if (n == this.maxCount) return this.count;
+        if (parsed != null && n == items.length) items = Arrays.copyOf(items, Math.min(Math.max(n * 2, 16), this.maxCount));
+        switch (LongParser.parseRegionInto(value, start, end, this.min, this.max, parsed != null ? items : null, n)) {
+          case LongParser.OK: break;
+          case LongParser.OUT_OF_RANGE: return this.outOfRange;
+          default: return this.invalid;
+        }
+        n++;
+        start = end + 1;
+      }
+    }
+    if (n < this.minCount) return this.count;
+    if (parsed != null) parsed.putAll(slot, values, n == items.length ? items : Arrays.copyOf(items, n));
+    return null;
+  }
+
+}
@@ -5,9 +5,9 @@ package org.pageseeder.berlioz.plus.constraints;
 
 import java.util.Objects;
 
-import org.pageseeder.berlioz.content.ContentRequest;
-import org.pageseeder.berlioz.content.ContentStatus;
-import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.plus.ParsedValues;
+import org.pageseeder.berlioz.plus.util.LongParser;
 
 /**
  * A constraint requiring a parameter to be castable as a long value.
@@ -15,9 +15,9 @@ import org.pageseeder.berlioz.plus.XMLPrinter;
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
-public final class LongParameterConstraint implements Constraint {
+public final class LongParameterConstraint implements ParsingConstraint {
 
   /**
    * Name of the parameter.
@@ -33,6 +33,15 @@ public final class LongParameterConstraint implements Constraint {
 
   private final long max;
 
+  /** Reported when the parameter is missing */
+  private final Violation missing;
+
+  /** Reported when the value is not a long */
+  private final Violation invalid;
+
+  /** Reported when the value is not within range */
+  private final Violation outOfRange;
+
   /**
    * Constructs a {@code LongParameterConstraint} with the specified parameter name and
    * whether it is required. The constraint will allow any value within the full range
@@ -67,46 +76,51 @@ public final class LongParameterConstraint implements Constraint {
     this.required = required;
     this.min = min;
     this.max = max;
+    this.missing = Violation.missingParameter(name);
+    this.invalid = new Violation("invalid-long-parameter", name);
+    this.outOfRange = new Violation("out-of-range", name, "min", Long.toString(min), "max", Long.toString(max));
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public ConstraintCost cost() {
+    return ConstraintCost.NUMERIC;
   }
 
   /**
-   * Validates the specified {@code ContentRequest} based on the constraints defined for this parameter.
-   * If the parameter value is missing, invalid, or out of the permissible range, appropriate error
-   * information is appended to the provided {@code XMLPrinter}.
+   * Checks the specified parameter value based on the constraints defined for this parameter.
    *
-   * @param req The {@code ContentRequest} containing the parameter to validate.
-   * @param xml The {@code XMLPrinter} used to append any error information during validation.
-   * @return A {@code ContentStatus} indicating the result of the validation. Returns {@code ContentStatus.OK}
-   *         if the parameter is valid or not required, and {@code ContentStatus.BAD_REQUEST} for invalid parameters.
+   * @param value The parameter value to validate, {@code null} if the parameter is missing.
+   * @return {@code null} if the parameter is valid or not required and missing; otherwise the
+   *         violation for a missing parameter, a value which is not a long or a value out of range.
    */
   @Override
-  public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
-    String value = req.getParameter(this.name);
-    ContentStatus status = ContentStatus.OK;
-    if (value == null) {
-      if (this.required) return RequiredParameterConstraint.failedRequired(this.name, xml);
-      return ContentStatus.OK;
-    } else {
-      try {
-        long v = Long.parseLong(value);
-        if (v < this.min || v > this.max) {
-          xml.openElement("error");
-          xml.attribute("type", "out-of-range");
-          xml.attribute("parameter", this.name);
-          xml.attribute("min", this.min);
-          xml.attribute("max", this.max);
-          xml.closeElement();
-          status = ContentStatus.BAD_REQUEST;
-        }
-      } catch (NumberFormatException ex) {
-        xml.openElement("error");
-        xml.attribute("type", "invalid-long-parameter");
-        xml.attribute("parameter", this.name);
-        xml.closeElement();
-        status = ContentStatus.BAD_REQUEST;
-      }
+  public @Nullable Violation check(@Nullable String value) {
+    return parse(value, null, -1);
+  }
+
+  @Override
+  public @Nullable Violation check(@Nullable String value, ParsedValues values, int slot) {
+    return parse(value, values, slot);
+  }
+
+  /**
+   * Checks and parses the value in a single pass, publishing it if the values are specified.
+   */
+  private @Nullable Violation parse(@Nullable String value, @Nullable ParsedValues values, int slot) {
+    if (value == null) return this.required ? this.missing : null;
+    int code = values != null
+        ? values.parseLong(slot, value, this.min, this.max)
+        : LongParser.check(value, this.min, this.max);
+    switch (code) {
+      case LongParser.OK: return null;
+      case LongParser.OUT_OF_RANGE: return this.outOfRange;
+      default: return this.invalid;
     }
-    return status;
   }
 
 }
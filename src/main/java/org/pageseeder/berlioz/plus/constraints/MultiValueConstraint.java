@@ -0,0 +1,78 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.constraints;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.ParsedValues;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+
+/**
+ * A constraint on all the values of a request parameter which can be repeated.
+ *
+ * <p>Like value constraints, multi-value constraints do not otherwise access the request,
+ * so the validator can order and report them like parameters. The values they parse are
+ * published so that the validated request does not need to parse them again.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public interface MultiValueConstraint extends Constraint {
+
+  /**
+   * @return the name of the parameter this constraint applies to.
+   */
+  String getName();
+
+  /**
+   * Checks the values of the parameter.
+   *
+   * @param values The values of the parameter or <code>null</code> if it was not specified
+   *
+   * @return <code>null</code> if the values are valid; the violation otherwise.
+   */
+  @Nullable Violation check(String @Nullable [] values);
+
+  /**
+   * Checks the values of the parameter and publishes the parsed values if they are valid.
+   *
+   * @param values The values of the parameter or <code>null</code> if it was not specified
+   * @param parsed The parsed values of the request
+   * @param slot   The slot of the parameter in the parsed values
+   *
+   * @return <code>null</code> if the values are valid; the violation otherwise.
+   */
+  @Nullable Violation check(String @Nullable [] values, ParsedValues parsed, int slot);
+
+  /**
+   * Validates the values of the parameter, publishes the parsed values if they are valid
+   * or reports the violation as an error element.
+   *
+   * @param req    The content request to validate
+   * @param xml    The XML to write the content to
+   * @param parsed The parsed values of the request
+   * @param slot   The slot of the parameter in the parsed values
+   *
+   * @return <code>OK</code> if the values were considered valid;
+   *         any other status otherwise in that case the generator should end.
+   */
+  default ContentStatus validate(ContentRequest req, XMLPrinter xml, ParsedValues parsed, int slot) {
+    Violation violation = check(req.getParameterValues(getName()), parsed, slot);
+    if (violation == null) return ContentStatus.OK;
+    violation.toXML(xml);
+    return violation.status();
+  }
+
+  @Override
+  default ContentStatus validate(ContentRequest req, XMLPrinter xml) {
+    Violation violation = check(req.getParameterValues(getName()));
+    if (violation == null) return ContentStatus.OK;
+    violation.toXML(xml);
+    return violation.status();
+  }
+
+}
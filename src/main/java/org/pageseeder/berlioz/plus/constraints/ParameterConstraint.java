@@ -4,13 +4,13 @@
 package org.pageseeder.berlioz.plus.constraints;
 
 import java.util.Objects;
-import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import org.jspecify.annotations.Nullable;
-import org.pageseeder.berlioz.content.ContentRequest;
-import org.pageseeder.berlioz.content.ContentStatus;
-import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.regex.RegexBudget;
+import org.pageseeder.berlioz.plus.regex.RegexCache;
+import org.pageseeder.berlioz.plus.regex.RegexEngine;
+import org.pageseeder.berlioz.plus.regex.RegexMatcher;
 
 /**
  * A constraint requiring a user to be authenticated.
@@ -18,12 +18,19 @@ import org.pageseeder.berlioz.plus.XMLPrinter;
  * <p>Note: this constraint only checks against the pattern if the parameter
  * is specified.
  *
+ * <p>The pattern is matched using the {@link RegexEngine} specified when the constraint
+ * is created, or the default engine. Compiled patterns are shared with other constraints
+ * using the same expression through the {@link RegexCache}.
+ *
+ * <p>The matching is aborted once the {@link RegexBudget} of the constraint is exceeded,
+ * in which case a <code>regex-budget-exceeded</code> violation is reported.
+ *
  * @author Christophe Lauret
  *
  * @since 0.6.0
- * @version 0.6.0
+ * @version 0.7.0
  */
-public final class ParameterConstraint implements Constraint {
+public final class ParameterConstraint implements ValueConstraint {
 
   /**
    * Name of the parameter.
@@ -39,42 +46,92 @@ public final class ParameterConstraint implements Constraint {
    * Regular expression pattern.
    */
   @Nullable
-  private final Pattern pattern;
+  private final RegexMatcher pattern;
+
+  /** Reported when the parameter is missing */
+  private final Violation missing;
+
+  /** Reported when the value does not match the pattern */
+  private final @Nullable Violation invalid;
+
+  /** Reported when the budget is exceeded */
+  private final @Nullable Violation exceeded;
+
+  /** The maximum number of character accesses when matching */
+  private final long budget;
 
   public ParameterConstraint(String name, boolean required, String regex) {
+    this(name, required, regex, RegexEngine.DEFAULT, RegexBudget.DEFAULT);
+  }
+
+  /**
+   * Creates a new parameter constraint using the specified regex engine.
+   *
+   * @param name     The name of the parameter
+   * @param required Whether the parameter is required
+   * @param regex    The regular expression the value must match (ignored if empty)
+   * @param engine   The engine used to match the regular expression
+   *
+   * @throws IllegalArgumentException If the name is empty or the regular expression is invalid
+   *
+   * @since 0.7.0
+   */
+  public ParameterConstraint(String name, boolean required, String regex, RegexEngine engine) {
+    this(name, required, regex, engine, RegexBudget.DEFAULT);
+  }
+
+  /**
+   * Creates a new parameter constraint using the specified regex engine and budget.
+   *
+   * @param name     The name of the parameter
+   * @param required Whether the parameter is required
+   * @param regex    The regular expression the value must match (ignored if empty)
+   * @param engine   The engine used to match the regular expression
+   * @param budget   The maximum number of character accesses when matching, {@link RegexBudget#DEFAULT}
+   *                 or {@link RegexBudget#UNLIMITED}
+   *
+   * @throws IllegalArgumentException If the name is empty or the regular expression is invalid
+   *
+   * @since 0.7.0
+   */
+  public ParameterConstraint(String name, boolean required, String regex, RegexEngine engine, long budget) {
     this.name = Objects.requireNonNull(name);
     if (name.isEmpty()) throw new IllegalArgumentException("Parameter name cannot be empty");
     this.required = required;
     if (!regex.isEmpty()) {
       try {
-        this.pattern = Pattern.compile(regex);
+        this.pattern = RegexCache.matcher(regex, engine);
       } catch (PatternSyntaxException ex) {
         throw new IllegalArgumentException("Invalid pattern", ex);
       }
     } else {
       this.pattern = null;
     }
+    this.missing = Violation.missingParameter(name);
+    this.invalid = this.pattern != null ? new Violation("invalid-parameter", name, "pattern", this.pattern.pattern()) : null;
+    this.exceeded = this.pattern != null ? new Violation("regex-budget-exceeded", name, "pattern", this.pattern.pattern()) : null;
+    this.budget = RegexBudget.resolve(budget);
   }
 
   @Override
-  public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
-    String value = req.getParameter(this.name);
-    if (value == null) {
-      if (this.required) return RequiredParameterConstraint.failedRequired(this.name, xml);
-      return ContentStatus.OK;
-    } else {
-      Pattern p = this.pattern;
-      if (p != null) {
-        if (p.matcher(value).matches()) return ContentStatus.OK;
-        else {
-          xml.openElement("error");
-          xml.attribute("type", "invalid-parameter");
-          xml.attribute("parameter", this.name);
-          xml.attribute("pattern", p.toString());
-          xml.closeElement();
-          return ContentStatus.BAD_REQUEST;
-        }
-      } else return ContentStatus.OK;
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public ConstraintCost cost() {
+    return this.pattern != null ? ConstraintCost.REGEX : ConstraintCost.PRESENCE;
+  }
+
+  @Override
+  public @Nullable Violation check(@Nullable String value) {
+    if (value == null) return this.required ? this.missing : null;
+    RegexMatcher p = this.pattern;
+    if (p == null) return null;
+    switch (p.match(value, this.budget)) {
+      case MATCH: return null;
+      case BUDGET_EXCEEDED: return this.exceeded;
+      default: return this.invalid;
     }
   }
 
@@ -0,0 +1,54 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.constraints;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.ParsedValues;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+
+/**
+ * A value constraint which parses the value of the parameter to check it.
+ *
+ * <p>When used by a validator, the constraint publishes the value it has parsed so that
+ * the typed getters of the validated request do not need to parse it again.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public interface ParsingConstraint extends ValueConstraint {
+
+  /**
+   * Checks the value of the parameter and publishes the parsed value if it is valid.
+   *
+   * @param value  The value of the parameter or <code>null</code> if it was not specified
+   * @param values The parsed values of the request
+   * @param slot   The slot of the parameter in the parsed values
+   *
+   * @return <code>null</code> if the value is valid; the violation otherwise.
+   */
+  @Nullable Violation check(@Nullable String value, ParsedValues values, int slot);
+
+  /**
+   * Validates the value of the parameter, publishes the parsed value if it is valid or
+   * reports the violation as an error element.
+   *
+   * @param value  The value of the parameter or <code>null</code> if it was not specified
+   * @param xml    The XML to write the content to
+   * @param values The parsed values of the request
+   * @param slot   The slot of the parameter in the parsed values
+   *
+   * @return <code>OK</code> if the value was considered valid;
+   *         any other status otherwise in that case the generator should end.
+   */
+  default ContentStatus validate(@Nullable String value, XMLPrinter xml, ParsedValues values, int slot) {
+    Violation violation = check(value, values, slot);
+    if (violation == null) return ContentStatus.OK;
+    violation.toXML(xml);
+    return violation.status();
+  }
+
+}
@@ -5,7 +5,7 @@ package org.pageseeder.berlioz.plus.constraints;
 
 import java.util.Objects;
 
-import org.pageseeder.berlioz.content.ContentRequest;
+import org.jspecify.annotations.Nullable;
 import org.pageseeder.berlioz.content.ContentStatus;
 import org.pageseeder.berlioz.plus.XMLPrinter;
 
@@ -15,31 +15,49 @@ import org.pageseeder.berlioz.plus.XMLPrinter;
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
-public final class RequiredParameterConstraint implements Constraint {
+public final class RequiredParameterConstraint implements ValueConstraint {
 
   /** Name of the parameter */
   private final String name;
 
+  /** Reported when the parameter is missing */
+  private final Violation missing;
+
   public RequiredParameterConstraint(String name) {
     this.name = Objects.requireNonNull(name);
     if (name.isEmpty()) throw new IllegalArgumentException();
+    this.missing = Violation.missingParameter(name);
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public ConstraintCost cost() {
+    return ConstraintCost.PRESENCE;
   }
 
   @Override
-  public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
-    String value = req.getParameter(this.name);
-    if (value != null) return ContentStatus.OK;
-    return failedRequired(this.name, xml);
+  public @Nullable Violation check(@Nullable String value) {
+    return value != null ? null : this.missing;
   }
 
+  /**
+   * Reports a missing parameter as an error element.
+   *
+   * @param name The name of the missing parameter
+   * @param xml  The XML to write the error to
+   *
+   * @return always <code>BAD_REQUEST</code>
+   */
   public static ContentStatus failedRequired(String name, XMLPrinter xml) {
-    xml.openElement("error");
-    xml.attribute("type", "missing-parameter");
-    xml.attribute("parameter", name);
-    xml.closeElement();
-    return ContentStatus.BAD_REQUEST;
+    Violation violation = Violation.missingParameter(name);
+    violation.toXML(xml);
+    return violation.status();
   }
 
-}
\ No newline at end of file
+}
@@ -3,18 +3,22 @@
  */
 package org.pageseeder.berlioz.plus.constraints;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
-import java.time.*;
+import java.lang.reflect.Modifier;
 import java.time.temporal.Temporal;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.jspecify.annotations.Nullable;
-import org.pageseeder.berlioz.content.ContentRequest;
-import org.pageseeder.berlioz.content.ContentStatus;
-import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.ParsedValues;
+import org.pageseeder.berlioz.plus.util.IsoTemporal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * A constraint requiring a parameter to be a valid email address.
@@ -25,15 +29,32 @@ import org.pageseeder.berlioz.plus.XMLPrinter;
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
-public final class TemporalParameterConstraint implements Constraint {
+public final class TemporalParameterConstraint implements ParsingConstraint {
+
+  /** Logger for the temporal constraints */
+  private static final Logger LOGGER = LoggerFactory.getLogger(TemporalParameterConstraint.class);
+
+  /**
+   * Returned for types without a suitable parse(CharSequence) method.
+   */
+  private static final Function<CharSequence, ?> NO_PARSER = text -> {
+    throw new UnsupportedOperationException();
+  };
 
   /**
-   * Cache reflective parse methods to avoid repeated lookups.
-   * Value is {@code null} when the type has no suitable parse(CharSequence) method.
+   * Parse functions bound to the static parse(CharSequence) method of each type.
+   *
+   * <p>Functions are generated once per type so that they can be invoked directly
+   * rather than reflectively.
    */
-  private static final ConcurrentMap<Class<? extends Temporal>, Method> PARSE_METHOD_CACHE = new ConcurrentHashMap<>();
+  private static final ClassValue<Function<CharSequence, ?>> PARSERS = new ClassValue<Function<CharSequence, ?>>() {
+    @Override
+    protected Function<CharSequence, ?> computeValue(Class<?> type) {
+      return bind(type);
+    }
+  };
 
   /**
    * Name of the parameter.
@@ -58,6 +79,12 @@ public final class TemporalParameterConstraint implements Constraint {
    */
   private final Class<? extends Temporal> type;
 
+  /** Reported when the parameter is missing */
+  private final Violation missing;
+
+  /** Reported when the value cannot be parsed as the temporal type */
+  private final Violation invalid;
+
   /**
    * Constructs a {@code TemporalParameterConstraint} to validate a temporal parameter.
    *
@@ -73,117 +100,131 @@ public final class TemporalParameterConstraint implements Constraint {
     this.required = required;
     if (name.isEmpty()) throw new IllegalArgumentException("Parameter name cannot be empty");
     this.type = type;
+    this.missing = Violation.missingParameter(name);
+    // A missing type is only reported when a value is parsed
+    this.invalid = new Violation("invalid-" + (type != null ? type.getSimpleName().toLowerCase() : "temporal"), name);
   }
 
   @Override
-  public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
-    String value = req.getParameter(this.name);
-    if (value == null) {
-      if (this.required) return RequiredParameterConstraint.failedRequired(this.name, xml);
-      return ContentStatus.OK;
-    } else {
-      if (isParsableAs(value, this.type)) return ContentStatus.OK;
-      xml.openElement("error");
-      xml.attribute("type", "invalid-"+this.type.getSimpleName().toLowerCase());
-      xml.attribute("parameter", this.name);
-      xml.closeElement();
-      return ContentStatus.BAD_REQUEST;
-    }
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public ConstraintCost cost() {
+    return ConstraintCost.REGEX;
+  }
+
+  @Override
+  public @Nullable Violation check(@Nullable String value) {
+    return parse(value, null, -1);
+  }
+
+  @Override
+  public @Nullable Violation check(@Nullable String value, ParsedValues values, int slot) {
+    return parse(value, values, slot);
+  }
+
+  /**
+   * Parses the value once, publishing it if the values are specified.
+   */
+  private @Nullable Violation parse(@Nullable String value, @Nullable ParsedValues values, int slot) {
+    if (value == null) return this.required ? this.missing : null;
+    Object parsed = parse(value, this.type);
+    if (parsed == null) return this.invalid;
+    if (values != null) values.put(slot, value, parsed);
+    return null;
   }
 
   /**
-   * Determines if a given string value can be parsed into a specified type that implements
-   * the {@code Temporal} interface.
+   * Parses the specified value as the specified temporal type.
    *
-   * @param value The string value to be checked for parsability; can be {@code null}.
+   * @param value The string value to parse; must not be null.
    * @param type  The {@code Class} object representing the type extending {@code Temporal}
    *              to which the value is expected to be parsed; must not be {@code null}.
    *
-   * @return {@code true} if the value can be successfully parsed as the specified temporal type;
-   *         {@code false} otherwise.
+   * @return the parsed value or {@code null} if the value cannot be parsed as the specified type.
    *
    * @throws NullPointerException If the {@code type} parameter is {@code null}.
    */
-  private static boolean isParsableAs(@Nullable String value, Class<? extends Temporal> type) {
-    if (value == null) return false;
+  private static @Nullable Object parse(String value, Class<? extends Temporal> type) {
     Objects.requireNonNull(type, "Temporal type must not be null");
 
     // Fast-path for common Java time types
-    // These avoid reflection and are generally the hottest cases.
-    try {
-      if (type == LocalDate.class) {
-        LocalDate.parse(value);
-        return true;
-      }
-      if (type == LocalDateTime.class) {
-        LocalDateTime.parse(value);
-        return true;
-      }
-      if (type == LocalTime.class) {
-        LocalTime.parse(value);
-        return true;
-      }
-      if (type == OffsetDateTime.class) {
-        OffsetDateTime.parse(value);
-        return true;
-      }
-      if (type == OffsetTime.class) {
-        OffsetTime.parse(value);
-        return true;
-      }
-      if (type == ZonedDateTime.class) {
-        ZonedDateTime.parse(value);
-        return true;
-      }
-      if (type == Instant.class) {
-        Instant.parse(value);
-        return true;
-      }
-    } catch (RuntimeException ex) {
-      // Not parsable for this common type (e.g., DateTimeParseException)
-      return false;
+    // These avoid reflection and exceptions and are generally the hottest cases.
+    if (IsoTemporal.isSupported(type)) {
+      return IsoTemporal.parse(value, type);
     }
 
-    return isParsableAsOtherTemporal(value, type);
+    return parseOtherTemporal(value, type);
   }
 
   /**
-   * Checks if a given string value can be parsed into a specified type that implements the {@code Temporal} interface.
+   * Parses a given string value into a specified type that implements the {@code Temporal} interface.
    *
-   * @param value The string value to be checked for parsability; must not be null.
+   * <p>Types without a static {@code parse(CharSequence)} method cannot parse any value.
+   *
+   * @param value The string value to be parsed; must not be null.
    * @param type  The class type extending {@code Temporal} to which the value is expected to be parsed; must not be null.
    *
-   * @return {@code true} if the value can be successfully parsed as the specified temporal type; {@code false} otherwise.
+   * @return the parsed value or {@code null} if the value cannot be parsed as the specified temporal type.
+   */
+  private static @Nullable Object parseOtherTemporal(String value, Class<? extends Temporal> type) {
+    Function<CharSequence, ?> parser = PARSERS.get(type);
+    if (parser == NO_PARSER) return null;
+    try {
+      return parser.apply(value);
+    } catch (RuntimeException ex) {
+      // Parsing failed; most commonly a DateTimeParseException
+      return null;
+    }
+  }
+
+  /**
+   * Binds the static {@code parse(CharSequence)} method of the specified type to a function.
+   *
+   * <p>The function is generated using the {@link LambdaMetafactory} so that it is invoked
+   * like a lambda expression. If the method cannot be linked this way (for example, when the
+   * type is not visible from this class loader), the function invokes the method handle.
+   *
+   * @param type The temporal type
    *
-   * @throws IllegalStateException If the specified type does not have a {@code parse(CharSequence)} method or if access
-   *                               to the method is not permitted.
+   * @return the parse function or {@link #NO_PARSER}.
    */
-  private static boolean isParsableAsOtherTemporal(String value, Class<? extends Temporal> type) {
-    // Generic path: cached reflective lookup of static parse(CharSequence)
-    Method parse = PARSE_METHOD_CACHE.computeIfAbsent(type, t -> {
-      try {
-        // Must be static for java.time types; the invocation target will be null.
-        return t.getMethod("parse", CharSequence.class);
-      } catch (NoSuchMethodException ex) {
-        return null; // cached "no parser" for this type
-      } catch (SecurityException ex) {
-        throw new IllegalStateException("Cannot access parse(CharSequence) on " + t.getName(), ex);
+  @SuppressWarnings("unchecked")
+  private static Function<CharSequence, ?> bind(Class<?> type) {
+    MethodHandle handle;
+    try {
+      Method method = type.getMethod("parse", CharSequence.class);
+      if (!Modifier.isStatic(method.getModifiers())) {
+        LOGGER.warn("Method parse(CharSequence) on {} is not static, values will be rejected", type.getName());
+        return NO_PARSER;
       }
-    });
-
-    if (parse == null) {
-      throw new IllegalStateException("No parse(CharSequence) method found on " + type.getName());
+      handle = MethodHandles.publicLookup().unreflect(method);
+    } catch (NoSuchMethodException ex) {
+      LOGGER.warn("No parse(CharSequence) method found on {}, values will be rejected", type.getName());
+      return NO_PARSER;
+    } catch (IllegalAccessException | SecurityException ex) {
+      LOGGER.warn("Cannot access parse(CharSequence) on {}, values will be rejected", type.getName(), ex);
+      return NO_PARSER;
     }
-
     try {
-      parse.invoke(null, value); // static method => null target
-      return true;
-    } catch (IllegalAccessException ex) {
-      throw new IllegalStateException("Cannot invoke parse(CharSequence) on " + type.getName(), ex);
-    } catch (InvocationTargetException | IllegalArgumentException ex) {
-      // InvocationTargetException: Parsing failed; most commonly wraps DateTimeParseException
-      // IllegalArgumentException: Should not happen with the correct signature, but treat as not parsable
-      return false;
+      CallSite site = LambdaMetafactory.metafactory(MethodHandles.lookup(), "apply",
+          MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+          handle, handle.type());
+      return (Function<CharSequence, ?>) site.getTarget().invokeExact();
+    } catch (Throwable ex) {
+      LOGGER.debug("Unable to generate parse function for {}, using method handle", type.getName(), ex);
+      MethodHandle generic = handle.asType(MethodType.methodType(Object.class, CharSequence.class));
+      return text -> {
+        try {
+          return (Object) generic.invokeExact(text);
+        } catch (RuntimeException | Error error) {
+          throw error;
+        } catch (Throwable throwable) {
+          throw new IllegalStateException(throwable);
+        }
+      };
     }
   }
 
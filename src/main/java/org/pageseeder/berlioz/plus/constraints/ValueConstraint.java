@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.constraints;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+
+/**
+ * A constraint on the value of a single request parameter.
+ *
+ * <p>Unlike other constraints, a value constraint does not need to access the request
+ * so the validator can look up the parameter once and check all the constraints
+ * applying to that parameter in a single pass.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public interface ValueConstraint extends Constraint {
+
+  /**
+   * @return the name of the parameter this constraint applies to.
+   */
+  String getName();
+
+  /**
+   * Checks the value of the parameter.
+   *
+   * <p>Implementations should not allocate when the value is valid and are
+   * encouraged to reuse the same violation instances.
+   *
+   * @param value The value of the parameter or <code>null</code> if it was not specified
+   *
+   * @return <code>null</code> if the value is valid; the violation otherwise.
+   */
+  @Nullable Violation check(@Nullable String value);
+
+  /**
+   * Validates the value of the parameter and reports any violation as an error element.
+   *
+   * @param value The value of the parameter or <code>null</code> if it was not specified
+   * @param xml   The XML to write the content to
+   *
+   * @return <code>OK</code> if the value was considered valid;
+   *         any other status otherwise in that case the generator should end.
+   */
+  default ContentStatus validate(@Nullable String value, XMLPrinter xml) {
+    Violation violation = check(value);
+    if (violation == null) return ContentStatus.OK;
+    violation.toXML(xml);
+    return violation.status();
+  }
+
+  @Override
+  default ContentStatus validate(ContentRequest req, XMLPrinter xml) {
+    return validate(req.getParameter(getName()), xml);
+  }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.constraints;
+
+import java.util.Objects;
+
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.xml.XMLName;
+
+/**
+ * A violation of a constraint by the value of a parameter.
+ *
+ * <p>Violations are immutable and do not include the value of the parameter, so
+ * constraints can create them once and reuse them for every request.
+ *
+ * <p>A violation is reported as an <code>error</code> element, for example:
+ * <pre>{@code <error type="out-of-range" parameter="page" min="1" max="100"/>}</pre>
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class Violation {
+
+  private static final XMLName ERROR = XMLName.of("error");
+
+  private static final XMLName TYPE = XMLName.of("type");
+
+  private static final XMLName PARAMETER = XMLName.of("parameter");
+
+  /**
+   * The status to return when this violation is reported.
+   */
+  private final ContentStatus status;
+
+  /**
+   * The type of error.
+   */
+  private final String type;
+
+  /**
+   * The name of the parameter.
+   */
+  private final String parameter;
+
+  /**
+   * The names of additional attributes.
+   */
+  private final XMLName[] names;
+
+  /**
+   * The values of additional attributes.
+   */
+  private final String[] values;
+
+  /**
+   * Creates a new violation resulting in a bad request.
+   *
+   * @param type       The type of error, for example "invalid-email"
+   * @param parameter  The name of the parameter
+   * @param attributes Additional attributes to report as name/value pairs
+   *
+   * @throws IllegalArgumentException If the attributes are not name/value pairs or
+   *                                  if a name is not a valid XML name
+   */
+  public Violation(String type, String parameter, String... attributes) {
+    this(ContentStatus.BAD_REQUEST, type, parameter, attributes);
+  }
+
+  /**
+   * Creates a new violation.
+   *
+   * @param status     The status to return
+   * @param type       The type of error, for example "invalid-email"
+   * @param parameter  The name of the parameter
+   * @param attributes Additional attributes to report as name/value pairs
+   *
+   * @throws IllegalArgumentException If the attributes are not name/value pairs or
+   *                                  if a name is not a valid XML name
+   */
+  public Violation(ContentStatus status, String type, String parameter, String... attributes) {
+    this.status = Objects.requireNonNull(status);
+    this.type = Objects.requireNonNull(type);
+    this.parameter = Objects.requireNonNull(parameter);
+    if (attributes.length % 2 != 0) throw new IllegalArgumentException("Attributes must be name/value pairs");
+    this.names = new XMLName[attributes.length / 2];
+    this.values = new String[attributes.length / 2];
+    for (int i = 0; i < this.names.length; i++) {
+      this.names[i] = XMLName.of(attributes[i * 2]);
+      this.values[i] = attributes[i * 2 + 1];
+    }
+  }
+
+  /**
+   * Returns the violation for a missing required parameter.
+   *
+   * @param parameter The name of the parameter
+   *
+   * @return the corresponding violation
+   */
+  public static Violation missingParameter(String parameter) {
+    return new Violation("missing-parameter", parameter);
+  }
+
+  /**
+   * @return the status to return when this violation is reported.
+   */
+  public ContentStatus status() {
+    return this.status;
+  }
+
+  /**
+   * @return the type of error
+   */
+  public String type() {
+    return this.type;
+  }
+
+  /**
+   * @return the name of the parameter
+   */
+  public String parameter() {
+    return this.parameter;
+  }
+
+  /**
+   * Writes this violation as an <code>error</code> element.
+   *
+   * @param xml The XML to write the error to
+   */
+  public void toXML(XMLPrinter xml) {
+    xml.openElement(ERROR);
+    xml.attribute(TYPE, this.type);
+    xml.attribute(PARAMETER, this.parameter);
+    for (int i = 0; i < this.names.length; i++) {
+      xml.attribute(this.names[i], this.values[i]);
+    }
+    xml.closeElement();
+  }
+
+  @Override
+  public String toString() {
+    return this.type + ":" + this.parameter;
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+/**
+ * A character sequence which aborts the matching once a number of character accesses
+ * has been reached.
+ *
+ * <p>Backtracking engines read characters each time they try an alternative, so the
+ * number of character accesses is a measure of the work done to match the input.
+ *
+ * <p>Instances are not thread-safe and must only be used for a single match.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class BudgetedCharSequence implements CharSequence {
+
+  /**
+   * Thrown when the budget is exceeded; it is shared as it has no stack trace.
+   */
+  static final BudgetExceededException EXCEEDED = new BudgetExceededException();
+
+  private final CharSequence text;
+
+  /** The remaining character accesses shared with sub-sequences */
+  private final long[] remaining;
+
+  BudgetedCharSequence(CharSequence text, long budget) {
+    this(text, new long[]{budget});
+  }
+
+  private BudgetedCharSequence(CharSequence text, long[] remaining) {
+    this.text = text;
+    this.remaining = remaining;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (--this.remaining[0] < 0) throw EXCEEDED;
+    return this.text.charAt(index);
+  }
+
+  @Override
+  public int length() {
+    return this.text.length();
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return new BudgetedCharSequence(this.text.subSequence(start, end), this.remaining);
+  }
+
+  @Override
+  public String toString() {
+    return this.text.toString();
+  }
+
+  /**
+   * Aborts the matching when the budget is exceeded.
+   */
+  static final class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    BudgetExceededException() {
+      super("Regex budget exceeded", null, false, false);
+    }
+
+  }
+
+}
@@ -0,0 +1,351 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.berlioz.plus.regex.RegexParser.Alternation;
+import org.pageseeder.berlioz.plus.regex.RegexParser.CharSet;
+import org.pageseeder.berlioz.plus.regex.RegexParser.Concatenation;
+import org.pageseeder.berlioz.plus.regex.RegexParser.Node;
+import org.pageseeder.berlioz.plus.regex.RegexParser.Repeat;
+
+/**
+ * A matcher using a deterministic finite automaton (DFA).
+ *
+ * <p>The regular expression is parsed into a syntax tree, compiled into a nondeterministic
+ * automaton (Thompson construction) and then into a DFA using the subset construction.
+ * Code points are mapped to classes of equivalent code points so that the transition
+ * table remains small.
+ *
+ * <p>Matching reads each code point of the input once and never backtracks, so the time
+ * taken is linear in the length of the input.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class DfaMatcher implements RegexMatcher {
+
+  /** The maximum number of states of the nondeterministic automaton */
+  static final int MAX_NFA_STATES = 10_000;
+
+  /** The maximum number of states of the deterministic automaton */
+  static final int MAX_DFA_STATES = 2_000;
+
+  /** No transition */
+  private static final int DEAD = -1;
+
+  private final String pattern;
+
+  /** The lower bound of each class of code points */
+  private final int[] bounds;
+
+  /** The class of each ASCII character */
+  private final int[] ascii;
+
+  /** The number of classes */
+  private final int classes;
+
+  /** The transitions: <code>table[state * classes + class]</code> */
+  private final int[] table;
+
+  /** Whether each state is accepting */
+  private final boolean[] accept;
+
+  private DfaMatcher(String pattern, int[] bounds, int[] table, boolean[] accept) {
+    this.pattern = pattern;
+    this.bounds = bounds;
+    this.classes = bounds.length;
+    this.table = table;
+    this.accept = accept;
+    this.ascii = new int[128];
+    for (int c = 0; c < 128; c++) {
+      this.ascii[c] = classOf(bounds, c);
+    }
+  }
+
+  /**
+   * Compiles the specified regular expression into a DFA.
+   *
+   * @param regex A valid regular expression
+   *
+   * @return the matcher or <code>null</code> if the expression is not supported or the
+   *         automaton would be too large.
+   */
+  static @Nullable DfaMatcher compile(String regex) {
+    Node node = RegexParser.parse(regex);
+    if (node == null) return null;
+    Nfa nfa = new Nfa();
+    int start = nfa.build(node, Nfa.MATCH);
+    if (start < 0) return null;
+    return nfa.determinize(regex, start);
+  }
+
+  @Override
+  public boolean matches(CharSequence input) {
+    int[] table = this.table;
+    int classes = this.classes;
+    int state = 0;
+    int length = input.length();
+    for (int i = 0; i < length; i++) {
+      char c = input.charAt(i);
+      int cls;
+      if (c < 128) {
+        cls = this.ascii[c];
+      } else {
+        int cp = c;
+        if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(input.charAt(i + 1))) {
+          cp = Character.toCodePoint(c, input.charAt(++i));
+        }
+        cls = classOf(this.bounds, cp);
+      }
+      state = table[state * classes + cls];
+      if (state == DEAD) return false;
+    }
+    return this.accept[state];
+  }
+
+  @Override
+  public Result match(CharSequence input, long budget) {
+    if (budget >= 0 && input.length() > budget) {
+      RegexBudget.exceeded(this.pattern);
+      return Result.BUDGET_EXCEEDED;
+    }
+    return matches(input) ? Result.MATCH : Result.NO_MATCH;
+  }
+
+  @Override
+  public String pattern() {
+    return this.pattern;
+  }
+
+  @Override
+  public RegexEngine engine() {
+    return RegexEngine.DFA;
+  }
+
+  /**
+   * @return the number of states of the automaton.
+   */
+  int states() {
+    return this.accept.length;
+  }
+
+  /**
+   * Returns the size of the arrays of the automaton and of the expression, plus a fixed
+   * overhead for the object headers.
+   *
+   * @return an estimate of the size of this matcher in bytes.
+   */
+  long estimatedSize() {
+    return 128 + 2L * this.pattern.length() + 4L * (this.bounds.length + this.ascii.length + this.table.length)
+        + this.accept.length;
+  }
+
+  @Override
+  public String toString() {
+    return this.pattern;
+  }
+
+  private static int classOf(int[] bounds, int cp) {
+    int i = Arrays.binarySearch(bounds, cp);
+    return i >= 0 ? i : -i - 2;
+  }
+
+  /**
+   * A nondeterministic automaton.
+   *
+   * <p>Each state either consumes a code point within a set of ranges, or has epsilon
+   * transitions to other states.
+   */
+  private static final class Nfa {
+
+    /** The accepting state */
+    static final int MATCH = 0;
+
+    /** The ranges consumed by each state or <code>null</code> */
+    private final List<int @Nullable []> ranges = new ArrayList<>();
+
+    /** The state after consuming a code point */
+    private final List<Integer> out = new ArrayList<>();
+
+    /** The epsilon transitions of each state */
+    private final List<int[]> epsilons = new ArrayList<>();
+
+    Nfa() {
+      add(null, DEAD, new int[0]);
+    }
+
+    private int add(int @Nullable [] ranges, int out, int[] epsilons) {
+      this.ranges.add(ranges);
+      this.out.add(out);
+      this.epsilons.add(epsilons);
+      return this.ranges.size() - 1;
+    }
+
+    /**
+     * Builds the states matching the specified node and then continuing to the next state.
+     *
+     * @return the start state or -1 if the automaton is too large.
+     */
+    int build(Node node, int next) {
+      if (next < 0 || this.ranges.size() > MAX_NFA_STATES) return -1;
+      if (node instanceof CharSet) {
+        return add(((CharSet) node).ranges, next, new int[0]);
+      }
+      if (node instanceof Concatenation) {
+        List<Node> nodes = ((Concatenation) node).nodes;
+        int state = next;
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+          state = build(nodes.get(i), state);
+        }
+        return state;
+      }
+      if (node instanceof Alternation) {
+        List<Node> nodes = ((Alternation) node).nodes;
+        int[] starts = new int[nodes.size()];
+        for (int i = 0; i < starts.length; i++) {
+          starts[i] = build(nodes.get(i), next);
+          if (starts[i] < 0) return -1;
+        }
+        return add(null, DEAD, starts);
+      }
+      Repeat repeat = (Repeat) node;
+      int state = next;
+      if (repeat.max < 0) {
+        // Loop: split to the node (which returns to the split) or to the next state
+        int loop = add(null, DEAD, new int[0]);
+        int body = build(repeat.node, loop);
+        if (body < 0) return -1;
+        this.epsilons.set(loop, new int[]{body, next});
+        state = loop;
+      } else {
+        for (int i = repeat.min; i < repeat.max; i++) {
+          int body = build(repeat.node, state);
+          if (body < 0) return -1;
+          state = add(null, DEAD, new int[]{body, state});
+        }
+      }
+      for (int i = 0; i < repeat.min; i++) {
+        state = build(repeat.node, state);
+      }
+      return state;
+    }
+
+    /**
+     * Adds the states reachable from the specified state using epsilon transitions.
+     */
+    private void closure(int state, BitSet set) {
+      Deque<Integer> stack = new ArrayDeque<>();
+      stack.push(state);
+      while (!stack.isEmpty()) {
+        int s = stack.pop();
+        if (set.get(s)) continue;
+        set.set(s);
+        for (int e : this.epsilons.get(s)) {
+          if (!set.get(e)) stack.push(e);
+        }
+      }
+    }
+
+    /**
+     * Builds the DFA using the subset construction.
+     *
+     * @return the matcher or <code>null</code> if there are too many states.
+     */
+    @Nullable DfaMatcher determinize(String regex, int start) {
+      int[] bounds = bounds();
+      int classes = bounds.length;
+      // Whether each NFA state consumes each class of code points
+      int size = this.ranges.size();
+      BitSet[] consumes = new BitSet[size];
+      // Only the states consuming code points and the match state distinguish subsets
+      BitSet important = new BitSet(size);
+      important.set(MATCH);
+      for (int s = 0; s < size; s++) {
+        int[] r = this.ranges.get(s);
+        if (r == null) continue;
+        important.set(s);
+        consumes[s] = new BitSet(classes);
+        for (int c = 0; c < classes; c++) {
+          if (contains(r, bounds[c])) consumes[s].set(c);
+        }
+      }
+      Map<BitSet, Integer> index = new HashMap<>();
+      List<BitSet> subsets = new ArrayList<>();
+      BitSet initial = new BitSet(size);
+      closure(start, initial);
+      initial.and(important);
+      index.put(initial, 0);
+      subsets.add(initial);
+      int[] table = new int[16 * classes];
+      for (int d = 0; d < subsets.size(); d++) {
+        BitSet subset = subsets.get(d);
+        for (int c = 0; c < classes; c++) {
+          BitSet target = new BitSet(size);
+          for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+            if (consumes[s] != null && consumes[s].get(c)) closure(this.out.get(s), target);
+          }
+          target.and(important);
+          int t = DEAD;
+          if (!target.isEmpty()) {
+            Integer known = index.get(target);
+            if (known == null) {
+              if (subsets.size() >= MAX_DFA_STATES) return null;
+              known = subsets.size();
+              index.put(target, known);
+              subsets.add(target);
+            }
+            t = known;
+          }
+          int i = d * classes + c;
+          if (i >= table.length) table = Arrays.copyOf(table, table.length * 2);
+          table[i] = t;
+        }
+      }
+      boolean[] accept = new boolean[subsets.size()];
+      for (int d = 0; d < accept.length; d++) {
+        accept[d] = subsets.get(d).get(MATCH);
+      }
+      return new DfaMatcher(regex, bounds, Arrays.copyOf(table, subsets.size() * classes), accept);
+    }
+
+    /**
+     * Computes the lower bounds of the classes of code points which are consumed by the
+     * same states.
+     */
+    private int[] bounds() {
+      BitSet points = new BitSet();
+      points.set(0);
+      for (int[] r : this.ranges) {
+        if (r == null) continue;
+        for (int i = 0; i < r.length; i += 2) {
+          points.set(r[i]);
+          if (r[i + 1] < RegexParser.MAX_CODE_POINT) points.set(r[i + 1] + 1);
+        }
+      }
+      return points.stream().toArray();
+    }
+
+    private static boolean contains(int[] ranges, int cp) {
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (cp < ranges[i]) return false;
+        if (cp <= ranges[i + 1]) return true;
+      }
+      return false;
+    }
+
+  }
+
+}
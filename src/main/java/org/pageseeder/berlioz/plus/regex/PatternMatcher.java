@@ -0,0 +1,76 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+import java.util.regex.Pattern;
+
+/**
+ * A matcher backed by a {@link Pattern}.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class PatternMatcher implements RegexMatcher {
+
+  private final Pattern pattern;
+
+  PatternMatcher(Pattern pattern) {
+    this.pattern = pattern;
+  }
+
+  @Override
+  public boolean matches(CharSequence input) {
+    return this.pattern.matcher(input).matches();
+  }
+
+  @Override
+  public Result match(CharSequence input, long budget) {
+    // Any negative budget is unlimited: match the input directly without counting accesses
+    if (budget < 0) return matches(input) ? Result.MATCH : Result.NO_MATCH;
+    try {
+      return matches(new BudgetedCharSequence(input, budget)) ? Result.MATCH : Result.NO_MATCH;
+    } catch (BudgetedCharSequence.BudgetExceededException ex) {
+      RegexBudget.exceeded(pattern());
+      return Result.BUDGET_EXCEEDED;
+    }
+  }
+
+  @Override
+  public String pattern() {
+    return this.pattern.pattern();
+  }
+
+  @Override
+  public RegexEngine engine() {
+    return RegexEngine.PATTERN;
+  }
+
+  /**
+   * @return the underlying pattern.
+   */
+  Pattern compiled() {
+    return this.pattern;
+  }
+
+  /**
+   * Returns a rough estimate of the size of this matcher.
+   *
+   * <p>The nodes of a compiled pattern are not accessible, so this is only a heuristic:
+   * a fixed overhead plus a fixed number of bytes for each character of the expression.
+   * It is meant to compare patterns with each other, not to measure the heap.
+   *
+   * @return a rough estimate of the size of this matcher in bytes.
+   */
+  long estimatedSize() {
+    return 128 + 64L * this.pattern.pattern().length();
+  }
+
+  @Override
+  public String toString() {
+    return this.pattern.pattern();
+  }
+
+}
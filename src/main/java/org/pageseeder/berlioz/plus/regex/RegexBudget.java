@@ -0,0 +1,96 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The budget limiting the work done to match a value against a regular expression.
+ *
+ * <p>The budget is the maximum number of character accesses while matching a value;
+ * once exceeded, the matching is aborted so that a crafted value cannot keep a request
+ * thread busy. Since the DFA engine reads each character once, it exceeds the budget only
+ * when the value is longer than the budget.
+ *
+ * <p>The default budget is {@value #DEFAULT_BUDGET} and can be changed using the
+ * {@value #PROPERTY} system property.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class RegexBudget {
+
+  /**
+   * The name of the system property to specify the default budget, a positive number
+   * of character accesses.
+   */
+  public static final String PROPERTY = "org.pageseeder.berlioz.plus.regex.budget";
+
+  /**
+   * Use the default budget, as specified by the {@value #PROPERTY} system property.
+   */
+  public static final long DEFAULT = 0;
+
+  /**
+   * No budget: the matching is never aborted.
+   */
+  public static final long UNLIMITED = -1;
+
+  /**
+   * The default budget when the system property is not specified.
+   */
+  public static final long DEFAULT_BUDGET = 1_000_000;
+
+  /** Logger for the budget */
+  private static final Logger LOGGER = LoggerFactory.getLogger(RegexBudget.class);
+
+  /** Number of times a budget was exceeded */
+  private static final LongAdder EXCEEDED = new LongAdder();
+
+  /** Utility class */
+  private RegexBudget() {
+  }
+
+  /**
+   * Resolves the specified budget.
+   *
+   * @param budget A budget, {@link #DEFAULT} or {@link #UNLIMITED}
+   *
+   * @return the number of character accesses allowed or {@link #UNLIMITED}.
+   */
+  public static long resolve(long budget) {
+    if (budget != DEFAULT) return budget < 0 ? UNLIMITED : budget;
+    String value = System.getProperty(PROPERTY);
+    if (value == null) return DEFAULT_BUDGET;
+    try {
+      long configured = Long.parseLong(value.trim());
+      if (configured > 0) return configured;
+    } catch (NumberFormatException ex) {
+      // Reported below
+    }
+    LOGGER.warn("Invalid regex budget '{}' specified by {}, using {}", value, PROPERTY, DEFAULT_BUDGET);
+    return DEFAULT_BUDGET;
+  }
+
+  /**
+   * @return the number of times a budget was exceeded since the class was loaded.
+   */
+  public static long getExceededCount() {
+    return EXCEEDED.sum();
+  }
+
+  /**
+   * Records that the budget was exceeded while matching the specified pattern.
+   */
+  static void exceeded(String pattern) {
+    EXCEEDED.increment();
+    LOGGER.debug("Regex budget exceeded for /{}/", pattern);
+  }
+
+}
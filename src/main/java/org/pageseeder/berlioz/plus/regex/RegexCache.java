@@ -0,0 +1,311 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded cache of compiled regular expressions shared by all constraints.
+ *
+ * <p>Generators often declare the same patterns, so the compiled expressions are interned
+ * by regular expression, flags and engine: the same instance is returned for the same key
+ * while it remains in the cache.
+ *
+ * <p>The cache holds at most {@value #DEFAULT_CAPACITY} expressions by default, which can be
+ * changed using the {@value #PROPERTY} system property. When full, entries are evicted
+ * using a second-chance (clock) policy: the eviction pass resumes where the previous one
+ * stopped and evicts the first entry which has not been used since it was last visited.
+ * New entries count as used.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class RegexCache {
+
+  /**
+   * The name of the system property to specify the maximum number of cached expressions.
+   */
+  public static final String PROPERTY = "org.pageseeder.berlioz.plus.regex.cache";
+
+  /**
+   * The maximum number of cached expressions when the system property is not specified.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /** Logger for the cache */
+  private static final Logger LOGGER = LoggerFactory.getLogger(RegexCache.class);
+
+  /** The cache shared by all constraints */
+  private static final RegexCache SHARED = new RegexCache(capacity());
+
+  private final int capacity;
+
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  /** Where the next eviction pass resumes (guarded by this cache) */
+  private @Nullable Iterator<Map.Entry<Key, Entry>> hand;
+
+  RegexCache(int capacity) {
+    this.capacity = capacity;
+  }
+
+  /**
+   * Returns the shared matcher for the specified regular expression and engine.
+   *
+   * @param regex  The regular expression
+   * @param engine The engine used to match the regular expression
+   *
+   * @return the corresponding matcher
+   *
+   * @throws PatternSyntaxException If the regular expression is not valid
+   */
+  public static RegexMatcher matcher(String regex, RegexEngine engine) {
+    return SHARED.intern(regex, 0, engine.resolve());
+  }
+
+  /**
+   * Returns the shared pattern for the specified regular expression and flags.
+   *
+   * @param regex The regular expression
+   * @param flags The match flags, see {@link Pattern#compile(String, int)}
+   *
+   * @return the corresponding pattern
+   *
+   * @throws PatternSyntaxException If the regular expression is not valid
+   * @throws IllegalArgumentException If the flags are not valid
+   */
+  public static Pattern pattern(String regex, int flags) {
+    return ((PatternMatcher)SHARED.intern(regex, flags, RegexEngine.PATTERN)).compiled();
+  }
+
+  /**
+   * @return the statistics of the shared cache.
+   */
+  public static Stats getStats() {
+    return SHARED.stats();
+  }
+
+  /**
+   * Removes all the entries from the shared cache; the statistics are preserved.
+   */
+  public static void clear() {
+    SHARED.entries.clear();
+  }
+
+  /**
+   * Returns the cached matcher or compiles and caches a new one.
+   */
+  RegexMatcher intern(String regex, int flags, RegexEngine engine) {
+    Key key = new Key(regex, flags, engine);
+    Entry entry = this.entries.get(key);
+    if (entry != null) {
+      entry.used = true;
+      this.hits.increment();
+      return entry.matcher;
+    }
+    this.misses.increment();
+    // Compiled outside the map so that other expressions are not blocked
+    RegexMatcher matcher = flags == 0 ? engine.compile(regex) : new PatternMatcher(Pattern.compile(regex, flags));
+    Entry created = new Entry(matcher);
+    Entry existing = this.entries.putIfAbsent(key, created);
+    if (existing != null) return existing.matcher;
+    if (this.entries.size() > this.capacity) evict(key);
+    return matcher;
+  }
+
+  /**
+   * Evicts entries until the cache is within its capacity.
+   *
+   * <p>Entries used since they were last visited are given a second chance. The entry
+   * which was just added is never evicted by the pass it triggered.
+   *
+   * @param added The key of the entry which was just added
+   */
+  private synchronized void evict(Key added) {
+    while (this.entries.size() > this.capacity) {
+      Iterator<Map.Entry<Key, Entry>> hand = this.hand;
+      if (hand == null || !hand.hasNext()) {
+        hand = this.entries.entrySet().iterator();
+        this.hand = hand;
+        if (!hand.hasNext()) return;
+      }
+      Map.Entry<Key, Entry> e = hand.next();
+      Entry entry = e.getValue();
+      if (e.getKey().equals(added)) continue;
+      if (entry.used) {
+        entry.used = false;
+      } else if (this.entries.remove(e.getKey(), entry)) {
+        this.evictions.increment();
+      }
+    }
+  }
+
+  Stats stats() {
+    int size = 0;
+    long estimated = 0;
+    for (Entry entry : this.entries.values()) {
+      size++;
+      estimated += entry.size;
+    }
+    return new Stats(this.hits.sum(), this.misses.sum(), this.evictions.sum(), size, estimated);
+  }
+
+  private static int capacity() {
+    String value = System.getProperty(PROPERTY);
+    if (value == null) return DEFAULT_CAPACITY;
+    try {
+      return Math.max(1, Integer.parseInt(value.trim()));
+    } catch (NumberFormatException ex) {
+      LOGGER.warn("Invalid regex cache capacity '{}' specified by {}", value, PROPERTY);
+      return DEFAULT_CAPACITY;
+    }
+  }
+
+  /**
+   * The statistics of the cache.
+   */
+  public static final class Stats {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    private final int size;
+
+    private final long estimatedSize;
+
+    Stats(long hits, long misses, long evictions, int size, long estimatedSize) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.size = size;
+      this.estimatedSize = estimatedSize;
+    }
+
+    /**
+     * @return the number of expressions found in the cache.
+     */
+    public long getHitCount() {
+      return this.hits;
+    }
+
+    /**
+     * @return the number of expressions which had to be compiled.
+     */
+    public long getMissCount() {
+      return this.misses;
+    }
+
+    /**
+     * @return the ratio of hits over all requests or <code>0</code> if there were none.
+     */
+    public double getHitRate() {
+      long total = this.hits + this.misses;
+      return total == 0 ? 0 : (double)this.hits / total;
+    }
+
+    /**
+     * @return the number of expressions evicted to keep the cache within its capacity.
+     */
+    public long getEvictionCount() {
+      return this.evictions;
+    }
+
+    /**
+     * @return the number of expressions in the cache.
+     */
+    public int getSize() {
+      return this.size;
+    }
+
+    /**
+     * Returns an estimate of the size of the compiled expressions.
+     *
+     * <p>The size of the expressions compiled by the DFA engine is computed from their
+     * automaton, but the size of <code>java.util.regex</code> patterns is only a rough
+     * heuristic based on the length of the expression, so this should only be used to
+     * compare caches and spot unusually large expressions, not to measure the heap.
+     *
+     * @return an estimate of the size of the compiled expressions in bytes.
+     */
+    public long getEstimatedSize() {
+      return this.estimatedSize;
+    }
+
+    @Override
+    public String toString() {
+      return "RegexCache.Stats[hits=" + this.hits + ", misses=" + this.misses + ", evictions=" + this.evictions
+          + ", size=" + this.size + ", estimatedSize=" + this.estimatedSize + "]";
+    }
+
+  }
+
+  private static final class Key {
+
+    private final String regex;
+
+    private final int flags;
+
+    private final RegexEngine engine;
+
+    Key(String regex, int flags, RegexEngine engine) {
+      this.regex = Objects.requireNonNull(regex);
+      this.flags = flags;
+      this.engine = engine;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key key = (Key)o;
+      return this.regex.equals(key.regex) && this.flags == key.flags && this.engine == key.engine;
+    }
+
+    @Override
+    public int hashCode() {
+      return (this.regex.hashCode() * 31 + this.flags) * 31 + this.engine.hashCode();
+    }
+
+  }
+
+  private static final class Entry {
+
+    private final RegexMatcher matcher;
+
+    private final long size;
+
+    /** Whether the entry was used since the last eviction pass */
+    private volatile boolean used;
+
+    Entry(RegexMatcher matcher) {
+      this.matcher = matcher;
+      this.used = true;
+      this.size = matcher instanceof DfaMatcher
+          ? ((DfaMatcher)matcher).estimatedSize()
+          : ((PatternMatcher)matcher).estimatedSize();
+    }
+
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The engines available to match regular expressions.
+ *
+ * <p>The default engine is <code>PATTERN</code>; it can be changed globally using the
+ * {@value #PROPERTY} system property (<code>pattern</code> or <code>dfa</code>).
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public enum RegexEngine {
+
+  /**
+   * Use the engine specified by the {@value #PROPERTY} system property.
+   */
+  DEFAULT,
+
+  /**
+   * Use a backtracking {@link Pattern}.
+   *
+   * <p>All the features of Java regular expressions are supported, but the time taken
+   * to match a value may grow exponentially with its length for some expressions.
+   */
+  PATTERN,
+
+  /**
+   * Use a deterministic finite automaton compiled from the regular expression.
+   *
+   * <p>The time taken to match a value is linear in its length. Regular expressions using
+   * features which are not regular (for example, backreferences or lookarounds), flags
+   * or very large automata are matched using a {@link Pattern} instead.
+   */
+  DFA;
+
+  /**
+   * The name of the system property to specify the default engine.
+   */
+  public static final String PROPERTY = "org.pageseeder.berlioz.plus.regex.engine";
+
+  /** Logger for the regex engines */
+  private static final Logger LOGGER = LoggerFactory.getLogger(RegexEngine.class);
+
+  /**
+   * Compiles the specified regular expression using this engine.
+   *
+   * @param regex The regular expression
+   *
+   * @return the corresponding matcher
+   *
+   * @throws PatternSyntaxException If the regular expression is not valid
+   */
+  public RegexMatcher compile(String regex) {
+    // Always compiled first to report syntax errors consistently
+    Pattern pattern = Pattern.compile(regex);
+    if (resolve() == DFA) {
+      DfaMatcher dfa = DfaMatcher.compile(regex);
+      if (dfa != null) return dfa;
+      LOGGER.debug("Unable to compile /{}/ into an automaton, using java.util.regex", regex);
+    }
+    return new PatternMatcher(pattern);
+  }
+
+  /**
+   * @return this engine or the engine specified by the system property if this is <code>DEFAULT</code>.
+   */
+  public RegexEngine resolve() {
+    if (this != DEFAULT) return this;
+    RegexEngine engine = forName(System.getProperty(PROPERTY));
+    return engine != null ? engine : PATTERN;
+  }
+
+  private static @Nullable RegexEngine forName(@Nullable String name) {
+    if (name == null) return null;
+    for (RegexEngine engine : values()) {
+      if (engine != DEFAULT && engine.name().equalsIgnoreCase(name.trim())) return engine;
+    }
+    LOGGER.warn("Unknown regex engine '{}' specified by {}", name, PROPERTY);
+    return null;
+  }
+
+}
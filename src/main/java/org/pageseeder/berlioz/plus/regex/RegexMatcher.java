@@ -0,0 +1,70 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+/**
+ * A compiled regular expression which checks whether entire values match.
+ *
+ * <p>Implementations are immutable and thread-safe.
+ *
+ * @author Christophe Lauret
+ *
+ * @see RegexEngine#compile(String)
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public interface RegexMatcher {
+
+  /**
+   * Indicates whether the entire input matches the regular expression.
+   *
+   * <p>This method returns the same result as
+   * {@code Pattern.compile(pattern()).matcher(input).matches()}.
+   *
+   * @param input The value to match
+   *
+   * @return <code>true</code> if the input matches; <code>false</code> otherwise.
+   */
+  boolean matches(CharSequence input);
+
+  /**
+   * Matches the entire input within the specified budget.
+   *
+   * @param input  The value to match
+   * @param budget The maximum number of character accesses or {@link RegexBudget#UNLIMITED}
+   *
+   * @return whether the input matches or whether the budget was exceeded.
+   *
+   * @see RegexBudget
+   */
+  Result match(CharSequence input, long budget);
+
+  /**
+   * @return the source of the regular expression.
+   */
+  String pattern();
+
+  /**
+   * @return the engine actually used to match values (either <code>PATTERN</code> or <code>DFA</code>).
+   */
+  RegexEngine engine();
+
+  /**
+   * The result of matching a value within a budget.
+   */
+  enum Result {
+
+    /** The value matches the regular expression. */
+    MATCH,
+
+    /** The value does not match the regular expression. */
+    NO_MATCH,
+
+    /** The budget was exceeded before the result could be determined. */
+    BUDGET_EXCEEDED
+
+  }
+
+}
@@ -0,0 +1,438 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Parses the regular subset of Java regular expressions into a syntax tree.
+ *
+ * <p>The following constructs are supported:
+ * <ul>
+ *   <li>literals, including escaped metacharacters, <code>\t \n \r \f \a \e</code>,
+ *       <code>\xhh</code> and <code>&#92;uhhhh</code>, where an escaped surrogate pair is
+ *       a single code point</li>
+ *   <li>the predefined classes <code>. \d \D \s \S \w \W</code></li>
+ *   <li>character classes with ranges and negation, without nested classes or intersections</li>
+ *   <li>capturing and non-capturing groups and alternations</li>
+ *   <li>greedy and reluctant quantifiers <code>* + ? {n} {n,} {n,m}</code></li>
+ *   <li><code>^</code> at the start and <code>$</code> at the end of the expression</li>
+ * </ul>
+ *
+ * <p>Anything else (backreferences, lookarounds, atomic groups, possessive quantifiers,
+ * boundaries, flags, Unicode properties, etc.) is not supported.
+ *
+ * <p>The parser assumes that the expression has already been compiled successfully
+ * by {@link java.util.regex.Pattern}.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class RegexParser {
+
+  /** The maximum number of repetitions in a counted quantifier */
+  private static final int MAX_REPEAT = 1000;
+
+  /** The largest code point */
+  static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+
+  /** The characters not matched by '.' (line terminators) */
+  private static final Node DOT = new CharSet(complement(ranges('\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029)));
+
+  private static final int[] DIGITS = ranges('0', '9');
+
+  private static final int[] SPACES = ranges('\t', '\r', ' ', ' ');
+
+  private static final int[] WORD = ranges('0', '9', 'A', 'Z', '_', '_', 'a', 'z');
+
+  private final String regex;
+
+  private int pos = 0;
+
+  private RegexParser(String regex) {
+    this.regex = regex;
+  }
+
+  /**
+   * Parses the specified regular expression.
+   *
+   * @param regex A valid regular expression
+   *
+   * @return the syntax tree or <code>null</code> if the expression uses unsupported constructs.
+   */
+  static @Nullable Node parse(String regex) {
+    RegexParser parser = new RegexParser(regex);
+    try {
+      Node node = parser.alternation();
+      return parser.atEnd() ? node : null;
+    } catch (Unsupported ex) {
+      return null;
+    }
+  }
+
+  private boolean atEnd() {
+    return this.pos >= this.regex.length();
+  }
+
+  private int peek() {
+    return atEnd() ? -1 : this.regex.codePointAt(this.pos);
+  }
+
+  private int peekAt(int offset) {
+    int i = this.pos + offset;
+    return i < this.regex.length() ? this.regex.charAt(i) : -1;
+  }
+
+  private int next() throws Unsupported {
+    if (atEnd()) throw new Unsupported();
+    int c = this.regex.codePointAt(this.pos);
+    this.pos += Character.charCount(c);
+    return c;
+  }
+
+  private Node alternation() throws Unsupported {
+    List<Node> alternatives = new ArrayList<>(2);
+    alternatives.add(concatenation());
+    while (peek() == '|') {
+      this.pos++;
+      alternatives.add(concatenation());
+    }
+    return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+  }
+
+  private Node concatenation() throws Unsupported {
+    List<Node> nodes = new ArrayList<>(4);
+    while (!atEnd() && peek() != '|' && peek() != ')') {
+      Node atom = atom();
+      if (atom != null) nodes.add(quantified(atom));
+    }
+    return nodes.size() == 1 ? nodes.get(0) : new Concatenation(nodes);
+  }
+
+  /**
+   * @return the atom or <code>null</code> for an anchor which does not need to be matched
+   */
+  private @Nullable Node atom() throws Unsupported {
+    int start = this.pos;
+    int c = next();
+    switch (c) {
+      case '(':
+        if (peek() == '?') {
+          // Only non-capturing groups
+          if (peekAt(1) != ':') throw new Unsupported();
+          this.pos += 2;
+        }
+        Node group = alternation();
+        if (next() != ')') throw new Unsupported();
+        return group;
+      case '[':
+        return characterClass();
+      case '.':
+        return DOT;
+      case '^':
+        if (start != 0) throw new Unsupported();
+        return null;
+      case '$':
+        if (!atEnd()) throw new Unsupported();
+        return null;
+      case '\\':
+        return new CharSet(escape());
+      case '*': case '+': case '?': case '{': case ')':
+        throw new Unsupported();
+      default:
+        return new CharSet(ranges(c, c));
+    }
+  }
+
+  private Node quantified(Node atom) throws Unsupported {
+    int min;
+    int max;
+    switch (peek()) {
+      case '*': min = 0; max = -1; this.pos++; break;
+      case '+': min = 1; max = -1; this.pos++; break;
+      case '?': min = 0; max = 1; this.pos++; break;
+      case '{':
+        this.pos++;
+        min = number();
+        if (peek() == ',') {
+          this.pos++;
+          max = peek() == '}' ? -1 : number();
+        } else {
+          max = min;
+        }
+        if (next() != '}') throw new Unsupported();
+        if (min > MAX_REPEAT || max > MAX_REPEAT || (max >= 0 && max < min)) throw new Unsupported();
+        break;
+      default:
+        return atom;
+    }
+    // Reluctant quantifiers match the same values, possessive ones may not
+    if (peek() == '?') this.pos++;
+    int c = peek();
+    if (c == '+' || c == '*' || c == '?' || c == '{') throw new Unsupported();
+    return new Repeat(atom, min, max);
+  }
+
+  private int number() throws Unsupported {
+    int start = this.pos;
+    int value = 0;
+    while (!atEnd() && peek() >= '0' && peek() <= '9') {
+      value = value * 10 + (next() - '0');
+      if (value > MAX_REPEAT) throw new Unsupported();
+    }
+    if (this.pos == start) throw new Unsupported();
+    return value;
+  }
+
+  /**
+   * Parses an escape sequence after the backslash.
+   *
+   * @return the corresponding ranges
+   */
+  private int[] escape() throws Unsupported {
+    int c = next();
+    switch (c) {
+      case 'd': return DIGITS;
+      case 'D': return complement(DIGITS);
+      case 's': return SPACES;
+      case 'S': return complement(SPACES);
+      case 'w': return WORD;
+      case 'W': return complement(WORD);
+      case 't': return ranges('\t', '\t');
+      case 'n': return ranges('\n', '\n');
+      case 'r': return ranges('\r', '\r');
+      case 'f': return ranges('\f', '\f');
+      case 'a': return ranges(0x07, 0x07);
+      case 'e': return ranges(0x1B, 0x1B);
+      case 'x': return single(hex(2));
+      case 'u': return single(unicode());
+      default:
+        // Other letters and digits have special meanings (backreferences, boundaries, etc.)
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) throw new Unsupported();
+        return ranges(c, c);
+    }
+  }
+
+  /**
+   * Parses a <code>&#92;uhhhh</code> escape after the 'u', combining an escaped surrogate
+   * pair into a single code point like {@link java.util.regex.Pattern}.
+   */
+  private int unicode() throws Unsupported {
+    int c = hex(4);
+    if (Character.isHighSurrogate((char) c) && peekAt(0) == '\\' && peekAt(1) == 'u') {
+      int start = this.pos;
+      this.pos += 2;
+      int low = hex(4);
+      if (Character.isLowSurrogate((char) low)) return Character.toCodePoint((char) c, (char) low);
+      this.pos = start;
+    }
+    return c;
+  }
+
+  private int hex(int digits) throws Unsupported {
+    int value = 0;
+    for (int i = 0; i < digits; i++) {
+      int d = Character.digit(next(), 16);
+      if (d < 0) throw new Unsupported();
+      value = value * 16 + d;
+    }
+    return value;
+  }
+
+  private Node characterClass() throws Unsupported {
+    boolean negate = false;
+    if (peek() == '^') {
+      negate = true;
+      this.pos++;
+    }
+    if (peek() == ']') throw new Unsupported();
+    List<int[]> sets = new ArrayList<>();
+    while (true) {
+      int c = next();
+      if (c == ']') break;
+      if (c == '[' || (c == '&' && peek() == '&')) throw new Unsupported();
+      int lo;
+      if (c == '\\') {
+        int[] escaped = escape();
+        if (!isSingle(escaped)) {
+          if (peek() == '-' && peekAt(1) != ']') throw new Unsupported();
+          sets.add(escaped);
+          continue;
+        }
+        lo = escaped[0];
+      } else {
+        lo = c;
+      }
+      int hi = lo;
+      if (peek() == '-' && peekAt(1) != ']' && peekAt(1) != -1) {
+        this.pos++;
+        int d = next();
+        if (d == '[') throw new Unsupported();
+        if (d == '\\') {
+          int[] escaped = escape();
+          if (!isSingle(escaped)) throw new Unsupported();
+          d = escaped[0];
+        }
+        if (d < lo) throw new Unsupported();
+        hi = d;
+      }
+      sets.add(ranges(lo, hi));
+    }
+    int[] ranges = union(sets);
+    return new CharSet(negate ? complement(ranges) : ranges);
+  }
+
+  // Ranges are sorted arrays of inclusive [low, high] pairs
+  // ---------------------------------------------------------------------------------------
+
+  private static int[] ranges(int... bounds) {
+    return union(List.of(bounds));
+  }
+
+  private static int[] single(int c) {
+    return new int[]{c, c};
+  }
+
+  private static boolean isSingle(int[] ranges) {
+    return ranges.length == 2 && ranges[0] == ranges[1];
+  }
+
+  /**
+   * Returns the sorted and merged union of the specified ranges.
+   */
+  static int[] union(List<int[]> sets) {
+    int count = 0;
+    for (int[] set : sets) count += set.length / 2;
+    long[] pairs = new long[count];
+    int n = 0;
+    for (int[] set : sets) {
+      for (int i = 0; i < set.length; i += 2) {
+        pairs[n++] = ((long) set[i] << 32) | set[i + 1];
+      }
+    }
+    Arrays.sort(pairs);
+    int[] merged = new int[count * 2];
+    int m = 0;
+    for (long pair : pairs) {
+      int lo = (int) (pair >>> 32);
+      int hi = (int) pair;
+      if (m > 0 && lo <= merged[m - 1] + 1) {
+        merged[m - 1] = Math.max(merged[m - 1], hi);
+      } else {
+        merged[m++] = lo;
+        merged[m++] = hi;
+      }
+    }
+    return Arrays.copyOf(merged, m);
+  }
+
+  /**
+   * Returns the complement of the specified ranges over all code points.
+   */
+  static int[] complement(int[] ranges) {
+    int[] complement = new int[ranges.length + 2];
+    int n = 0;
+    int next = 0;
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] > next) {
+        complement[n++] = next;
+        complement[n++] = ranges[i] - 1;
+      }
+      next = ranges[i + 1] + 1;
+    }
+    if (next <= MAX_CODE_POINT) {
+      complement[n++] = next;
+      complement[n++] = MAX_CODE_POINT;
+    }
+    return Arrays.copyOf(complement, n);
+  }
+
+  /**
+   * Thrown when the expression uses an unsupported construct.
+   */
+  private static final class Unsupported extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    Unsupported() {
+      super(null, null, false, false);
+    }
+
+  }
+
+  // Syntax tree
+  // ---------------------------------------------------------------------------------------
+
+  /**
+   * A node of the syntax tree.
+   */
+  abstract static class Node {
+  }
+
+  /**
+   * Matches a single code point within a set of ranges.
+   */
+  static final class CharSet extends Node {
+
+    final int[] ranges;
+
+    CharSet(int[] ranges) {
+      this.ranges = ranges;
+    }
+
+  }
+
+  /**
+   * Matches each node in sequence.
+   */
+  static final class Concatenation extends Node {
+
+    final List<Node> nodes;
+
+    Concatenation(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+  }
+
+  /**
+   * Matches any of the nodes.
+   */
+  static final class Alternation extends Node {
+
+    final List<Node> nodes;
+
+    Alternation(List<Node> nodes) {
+      this.nodes = nodes;
+    }
+
+  }
+
+  /**
+   * Matches a node repeatedly.
+   */
+  static final class Repeat extends Node {
+
+    final Node node;
+
+    final int min;
+
+    /** The maximum number of repetitions or -1 if unbounded */
+    final int max;
+
+    Repeat(Node node, int min, int max) {
+      this.node = node;
+      this.min = min;
+      this.max = max;
+    }
+
+  }
+
+}
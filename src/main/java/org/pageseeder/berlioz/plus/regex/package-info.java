@@ -0,0 +1,8 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+/**
+ * Regular expression engines used to check parameter values.
+ */
+@org.jspecify.annotations.NullMarked
+package org.pageseeder.berlioz.plus.regex;
@@ -1,6 +1,8 @@
 package org.pageseeder.berlioz.plus.spi;
 
 import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.Collections;
 
 import org.pageseeder.berlioz.plus.constraints.Constraint;
 
@@ -11,7 +13,7 @@ import org.pageseeder.berlioz.plus.constraints.Constraint;
  * @author Christophe Lauret
  *
  * @since 0.5.0
- * @version 0.6.0
+ * @version 0.7.0
  */
 public interface AnnotationProcessor {
 
@@ -33,4 +35,22 @@ public interface AnnotationProcessor {
    */
   Constraint getConstraint(Annotation annotation);
 
+  /**
+   * Returns the annotation types this processor accepts.
+   *
+   * <p>The processor registry uses these types to index processors so that only
+   * the processors declaring the type of an annotation are consulted.
+   *
+   * <p>An empty collection (the default) indicates that the accepted types are not
+   * known in advance and that {@link #accepts(Annotation)} must be called for every
+   * annotation.
+   *
+   * @return the annotation types this processor accepts or an empty collection.
+   *
+   * @since 0.7.0
+   */
+  default Collection<Class<? extends Annotation>> getAnnotationTypes() {
+    return Collections.emptySet();
+  }
+
 }
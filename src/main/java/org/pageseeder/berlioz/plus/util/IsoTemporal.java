@@ -0,0 +1,401 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.util;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.Temporal;
+import java.util.function.Function;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Parses ISO-8601 values for the most common <code>java.time</code> types without
+ * throwing exceptions.
+ *
+ * <p>Each method validates and constructs the value in a single pass and returns
+ * <code>null</code> if the text is not valid; the values returned are equal to the
+ * values returned by the <code>parse(CharSequence)</code> method of each type.
+ *
+ * <p>The lexers handle the usual shapes of values, for example
+ * <code>2016-05-27T10:15:30.123+10:00</code>. Values which are valid for the
+ * <code>java.time</code> formatters but have an unusual shape (expanded years,
+ * leap seconds, offsets with seconds, region-based zones, etc.) are delegated to the
+ * <code>parse(CharSequence)</code> method of the type.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class IsoTemporal {
+
+  /** Utility class */
+  private IsoTemporal() {
+  }
+
+  /**
+   * Indicates whether this class can parse the specified type.
+   *
+   * @param type The temporal type
+   *
+   * @return <code>true</code> for the seven types supported by this class.
+   */
+  public static boolean isSupported(@Nullable Class<?> type) {
+    return type == LocalDate.class
+        || type == LocalDateTime.class
+        || type == LocalTime.class
+        || type == OffsetDateTime.class
+        || type == OffsetTime.class
+        || type == ZonedDateTime.class
+        || type == Instant.class;
+  }
+
+  /**
+   * Parses the specified text as a value of the specified type.
+   *
+   * @param text The text to parse
+   * @param type The temporal type
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   *
+   * @throws IllegalArgumentException If the type is not supported
+   */
+  public static @Nullable Temporal parse(CharSequence text, Class<? extends Temporal> type) {
+    if (type == LocalDate.class) return parseLocalDate(text);
+    if (type == LocalDateTime.class) return parseLocalDateTime(text);
+    if (type == LocalTime.class) return parseLocalTime(text);
+    if (type == OffsetDateTime.class) return parseOffsetDateTime(text);
+    if (type == OffsetTime.class) return parseOffsetTime(text);
+    if (type == ZonedDateTime.class) return parseZonedDateTime(text);
+    if (type == Instant.class) return parseInstant(text);
+    throw new IllegalArgumentException("Unsupported temporal type " + type.getName());
+  }
+
+  /**
+   * Parses a local date such as <code>2016-05-27</code>.
+   *
+   * @param text The text to parse
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   */
+  public static @Nullable LocalDate parseLocalDate(CharSequence text) {
+    Lexer lexer = new Lexer(text);
+    LocalDate date = lexer.date();
+    if (date != null && lexer.atEnd()) return date;
+    return lexer.deferred ? fallback(text, LocalDate::parse) : null;
+  }
+
+  /**
+   * Parses a local time such as <code>10:15</code> or <code>10:15:30.123</code>.
+   *
+   * @param text The text to parse
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   */
+  public static @Nullable LocalTime parseLocalTime(CharSequence text) {
+    Lexer lexer = new Lexer(text);
+    LocalTime time = lexer.time(false);
+    if (time != null && lexer.atEnd()) return time;
+    return lexer.deferred ? fallback(text, LocalTime::parse) : null;
+  }
+
+  /**
+   * Parses a local date-time such as <code>2016-05-27T10:15:30</code>.
+   *
+   * @param text The text to parse
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   */
+  public static @Nullable LocalDateTime parseLocalDateTime(CharSequence text) {
+    Lexer lexer = new Lexer(text);
+    LocalDateTime datetime = lexer.dateTime(false);
+    if (datetime != null && lexer.atEnd()) return datetime;
+    return lexer.deferred ? fallback(text, LocalDateTime::parse) : null;
+  }
+
+  /**
+   * Parses an offset time such as <code>10:15:30+10:00</code>.
+   *
+   * @param text The text to parse
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   */
+  public static @Nullable OffsetTime parseOffsetTime(CharSequence text) {
+    Lexer lexer = new Lexer(text);
+    LocalTime time = lexer.time(false);
+    ZoneOffset offset = time != null ? lexer.offset() : null;
+    if (time != null && offset != null && lexer.atEnd()) return OffsetTime.of(time, offset);
+    return lexer.deferred ? fallback(text, OffsetTime::parse) : null;
+  }
+
+  /**
+   * Parses an offset date-time such as <code>2016-05-27T10:15:30Z</code>.
+   *
+   * @param text The text to parse
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   */
+  public static @Nullable OffsetDateTime parseOffsetDateTime(CharSequence text) {
+    Lexer lexer = new Lexer(text);
+    LocalDateTime datetime = lexer.dateTime(false);
+    ZoneOffset offset = datetime != null ? lexer.offset() : null;
+    if (datetime != null && offset != null && lexer.atEnd()) return OffsetDateTime.of(datetime, offset);
+    return lexer.deferred ? fallback(text, OffsetDateTime::parse) : null;
+  }
+
+  /**
+   * Parses a zoned date-time such as <code>2016-05-27T10:15:30+10:00</code>.
+   *
+   * <p>Values including a region-based zone ID (for example <code>[Australia/Sydney]</code>)
+   * are delegated to {@link ZonedDateTime#parse(CharSequence)}.
+   *
+   * @param text The text to parse
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   */
+  public static @Nullable ZonedDateTime parseZonedDateTime(CharSequence text) {
+    Lexer lexer = new Lexer(text);
+    LocalDateTime datetime = lexer.dateTime(false);
+    ZoneOffset offset = datetime != null ? lexer.offset() : null;
+    if (datetime != null && offset != null) {
+      if (lexer.atEnd()) return ZonedDateTime.of(datetime, offset);
+      if (lexer.peek() == '[') lexer.deferred = true;
+    }
+    return lexer.deferred ? fallback(text, ZonedDateTime::parse) : null;
+  }
+
+  /**
+   * Parses an instant in UTC such as <code>2016-05-27T10:15:30.123Z</code>.
+   *
+   * @param text The text to parse
+   *
+   * @return the corresponding value or <code>null</code> if the text is not valid
+   */
+  public static @Nullable Instant parseInstant(CharSequence text) {
+    Lexer lexer = new Lexer(text);
+    LocalDateTime datetime = lexer.dateTime(true);
+    if (datetime != null) {
+      char c = lexer.peek();
+      if ((c == 'Z' || c == 'z') && lexer.pos + 1 == text.length()) {
+        return Instant.ofEpochSecond(datetime.toEpochSecond(ZoneOffset.UTC), datetime.getNano());
+      }
+      // Offsets are accepted by newer versions of the JDK
+      if (c == '+' || c == '-') lexer.deferred = true;
+    }
+    return lexer.deferred ? fallback(text, Instant::parse) : null;
+  }
+
+  /**
+   * Parses the text using the JDK parser.
+   */
+  private static <T> @Nullable T fallback(CharSequence text, Function<CharSequence, T> parser) {
+    try {
+      return parser.apply(text);
+    } catch (DateTimeException ex) {
+      return null;
+    }
+  }
+
+  /**
+   * A lexer over ISO-8601 text.
+   *
+   * <p>Each method returns <code>null</code> if the text does not match; if the text
+   * has an unusual shape which might still be valid, the <code>deferred</code>
+   * flag is set so that the JDK parser is used.
+   */
+  private static final class Lexer {
+
+    private final CharSequence text;
+
+    private int pos = 0;
+
+    private boolean deferred = false;
+
+    Lexer(CharSequence text) {
+      this.text = text;
+    }
+
+    boolean atEnd() {
+      return this.pos == this.text.length();
+    }
+
+    char peek() {
+      return this.pos < this.text.length() ? this.text.charAt(this.pos) : '\0';
+    }
+
+    /**
+     * Consumes the specified character if it is next.
+     */
+    boolean accept(char c) {
+      if (peek() != c) return false;
+      this.pos++;
+      return true;
+    }
+
+    /**
+     * Consumes the specified character ignoring case if it is next.
+     */
+    boolean acceptIgnoreCase(char upper) {
+      char c = peek();
+      if (c != upper && c != Character.toLowerCase(upper)) return false;
+      this.pos++;
+      return true;
+    }
+
+    /**
+     * Consumes exactly two ASCII digits.
+     *
+     * @return the value or -1
+     */
+    int twoDigits() {
+      if (this.pos + 2 > this.text.length()) return -1;
+      int d1 = this.text.charAt(this.pos) - '0';
+      int d2 = this.text.charAt(this.pos + 1) - '0';
+      if (d1 < 0 || d1 > 9 || d2 < 0 || d2 > 9) return -1;
+      this.pos += 2;
+      return d1 * 10 + d2;
+    }
+
+    /**
+     * Consumes a year of exactly four digits.
+     *
+     * @return the value or -1
+     */
+    int year() {
+      char c = peek();
+      if (c == '+' || c == '-') {
+        // Expanded or negative years
+        this.deferred = true;
+        return -1;
+      }
+      int year = 0;
+      int digits = 0;
+      while (this.pos < this.text.length()) {
+        int d = this.text.charAt(this.pos) - '0';
+        if (d < 0 || d > 9) break;
+        year = year * 10 + d;
+        digits++;
+        this.pos++;
+        if (digits > 4) {
+          this.deferred = true;
+          return -1;
+        }
+      }
+      return digits == 4 ? year : -1;
+    }
+
+    @Nullable LocalDate date() {
+      int year = year();
+      if (year < 0 || !accept('-')) return null;
+      int month = twoDigits();
+      if (month < 1 || month > 12 || !accept('-')) return null;
+      int day = twoDigits();
+      if (day < 1 || day > lengthOfMonth(year, month)) return null;
+      return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * @param instant whether the seconds are required and leap seconds may be accepted
+     */
+    @Nullable LocalTime time(boolean instant) {
+      int hour = twoDigits();
+      if (hour < 0 || !accept(':')) return null;
+      int minute = twoDigits();
+      if (minute < 0 || minute > 59) return null;
+      int second = 0;
+      int nano = 0;
+      if (accept(':')) {
+        second = twoDigits();
+        if (second < 0) return null;
+        if (accept('.')) {
+          nano = fraction();
+          if (nano < 0) return null;
+        } else if (peek() == ',') {
+          this.deferred = true;
+          return null;
+        }
+      } else if (instant) {
+        return null;
+      }
+      if (instant && (hour == 24 || second == 60)) {
+        // End of day and leap seconds
+        this.deferred = true;
+        return null;
+      }
+      if (hour > 23 || second > 59) return null;
+      return LocalTime.of(hour, minute, second, nano);
+    }
+
+    /**
+     * Consumes one to nine digits after the decimal point.
+     *
+     * @return the nano of second or -1
+     */
+    int fraction() {
+      int nano = 0;
+      int digits = 0;
+      while (this.pos < this.text.length()) {
+        int d = this.text.charAt(this.pos) - '0';
+        if (d < 0 || d > 9) break;
+        if (digits == 9) return -1;
+        nano = nano * 10 + d;
+        digits++;
+        this.pos++;
+      }
+      if (digits == 0) {
+        this.deferred = true;
+        return -1;
+      }
+      for (int i = digits; i < 9; i++) nano *= 10;
+      return nano;
+    }
+
+    @Nullable LocalDateTime dateTime(boolean instant) {
+      LocalDate date = date();
+      if (date == null || !acceptIgnoreCase('T')) return null;
+      LocalTime time = time(instant);
+      if (time == null) return null;
+      return LocalDateTime.of(date, time);
+    }
+
+    /**
+     * Consumes a 'Z' or an offset in the form <code>+HH:MM</code>.
+     */
+    @Nullable ZoneOffset offset() {
+      if (acceptIgnoreCase('Z')) return ZoneOffset.UTC;
+      char sign = peek();
+      if (sign != '+' && sign != '-') return null;
+      this.pos++;
+      int hours = twoDigits();
+      if (hours < 0 || !accept(':')) {
+        this.deferred = true;
+        return null;
+      }
+      int minutes = twoDigits();
+      if (minutes < 0 || peek() == ':' || minutes > 59 || hours > 18 || (hours == 18 && minutes > 0)) {
+        this.deferred = true;
+        return null;
+      }
+      return sign == '+' ? ZoneOffset.ofHoursMinutes(hours, minutes) : ZoneOffset.ofHoursMinutes(-hours, -minutes);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+      switch (month) {
+        case 2: return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+        case 4: case 6: case 9: case 11: return 30;
+        default: return 31;
+      }
+    }
+
+  }
+
+}
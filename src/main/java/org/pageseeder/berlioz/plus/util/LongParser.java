@@ -0,0 +1,274 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.util;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Parses decimal long values without throwing exceptions or allocating objects.
+ *
+ * <p>Parameters often contain values which are not numbers (for example, when URLs
+ * are crawled by bots); using {@link Long#parseLong(String)} would create a
+ * <code>NumberFormatException</code> and its stack trace for each invalid value.
+ *
+ * <p>Instead, the {@link #check(CharSequence)} methods return a code indicating
+ * whether the value is a valid long and the {@link #parse(CharSequence)} method
+ * should only be called on valid values; it returns the value directly. To check and
+ * parse a value in a single pass, use {@link #parseInto(CharSequence, long, long, long[], int)}
+ * which returns the same code and stores the value in an array.
+ *
+ * <p>The syntax is the same as for {@link Long#parseLong(String)}: an optional
+ * '+' or '-' sign followed by one or more decimal digits, including non-ASCII digits.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class LongParser {
+
+  /** The value is a valid long. */
+  public static final int OK = 0;
+
+  /** The value is empty or only includes a sign. */
+  public static final int EMPTY = 1;
+
+  /** The value includes a character which is not a digit. */
+  public static final int INVALID = 2;
+
+  /** The value only includes digits but is not within the range of long values. */
+  public static final int OVERFLOW = 3;
+
+  /** The value is a valid long but is not within the specified range. */
+  public static final int OUT_OF_RANGE = 4;
+
+  /** Utility class */
+  private LongParser() {
+  }
+
+  /**
+   * Checks whether the specified value can be parsed as a long.
+   *
+   * @param value The value to check
+   *
+   * @return {@link #OK}, {@link #EMPTY}, {@link #INVALID} or {@link #OVERFLOW}
+   */
+  public static int check(CharSequence value) {
+    return checkRegion(value, 0, value.length());
+  }
+
+  /**
+   * Checks whether the specified range of characters can be parsed as a long.
+   *
+   * <p>This is used to check the items of a list without creating a string for each item.
+   *
+   * @param value The value to check
+   * @param start The index of the first character (inclusive)
+   * @param end   The index of the last character (exclusive)
+   *
+   * @return {@link #OK}, {@link #EMPTY}, {@link #INVALID} or {@link #OVERFLOW}
+   *
+   * @throws IndexOutOfBoundsException If the range is not within the value
+   */
+  public static int checkRegion(CharSequence value, int start, int end) {
+    return scan(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE, null, 0);
+  }
+
+  /**
+   * Checks whether the specified value can be parsed as a long within the specified range.
+   *
+   * @param value The value to check
+   * @param min   The minimum value (inclusive)
+   * @param max   The maximum value (inclusive)
+   *
+   * @return {@link #OK}, {@link #EMPTY}, {@link #INVALID}, {@link #OVERFLOW} or {@link #OUT_OF_RANGE}
+   */
+  public static int check(CharSequence value, long min, long max) {
+    return scan(value, 0, value.length(), min, max, null, 0);
+  }
+
+  /**
+   * Checks and parses the specified value as a long within the specified range in a
+   * single pass.
+   *
+   * <p>The value is stored in the array only if it is valid, that is if this method
+   * returns {@link #OK}.
+   *
+   * @param value The value to parse
+   * @param min   The minimum value (inclusive)
+   * @param max   The maximum value (inclusive)
+   * @param out   The array to store the value into, <code>null</code> to only check the value
+   * @param index The index of the value in the array
+   *
+   * @return {@link #OK}, {@link #EMPTY}, {@link #INVALID}, {@link #OVERFLOW} or {@link #OUT_OF_RANGE}
+   *
+   * @throws IndexOutOfBoundsException If the value is valid and the index is not within the array
+   */
+  public static int parseInto(CharSequence value, long min, long max, long @Nullable [] out, int index) {
+    return scan(value, 0, value.length(), min, max, out, index);
+  }
+
+  /**
+   * Checks and parses the specified range of characters as a long within the specified
+   * range of values in a single pass.
+   *
+   * <p>This is used to parse the items of a list without creating a string for each item.
+   * The value is stored in the array only if it is valid, that is if this method returns
+   * {@link #OK}.
+   *
+   * @param value The value to parse
+   * @param start The index of the first character (inclusive)
+   * @param end   The index of the last character (exclusive)
+   * @param min   The minimum value (inclusive)
+   * @param max   The maximum value (inclusive)
+   * @param out   The array to store the value into, <code>null</code> to only check the value
+   * @param index The index of the value in the array
+   *
+   * @return {@link #OK}, {@link #EMPTY}, {@link #INVALID}, {@link #OVERFLOW} or {@link #OUT_OF_RANGE}
+   *
+   * @throws IndexOutOfBoundsException If the range is not within the value or if the value
+   *                                   is valid and the index is not within the array
+   */
+  public static int parseRegionInto(CharSequence value, int start, int end, long min, long max,
+      long @Nullable [] out, int index) {
+    return scan(value, start, end, min, max, out, index);
+  }
+
+  /**
+   * Parses the specified value as a long.
+   *
+   * <p>This method should only be called after the value has been checked, the
+   * exception is only thrown to guard against programming errors.
+   *
+   * @param value The value to parse
+   *
+   * @return the corresponding long
+   *
+   * @throws NumberFormatException If the value is not a valid long
+   */
+  public static long parse(CharSequence value) {
+    return parseRegion(value, 0, value.length());
+  }
+
+  /**
+   * Parses the specified range of characters as a long.
+   *
+   * <p>This method should only be called after the range has been checked, the
+   * exception is only thrown to guard against programming errors.
+   *
+   * @param value The value to parse
+   * @param start The index of the first character (inclusive)
+   * @param end   The index of the last character (exclusive)
+   *
+   * @return the corresponding long
+   *
+   * @throws NumberFormatException If the range is not a valid long
+   * @throws IndexOutOfBoundsException If the range is not within the value
+   */
+  public static long parseRegion(CharSequence value, int start, int end) {
+    if (scan(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE, null, 0) != OK) {
+      throw new NumberFormatException("For input string: \"" + value.subSequence(start, end) + "\"");
+    }
+    return accumulate(value, start, end);
+  }
+
+  /**
+   * Parses the specified values as a list of longs.
+   *
+   * <p>Each value can be a single long or a comma-separated list of longs; empty values
+   * are ignored but empty items within a list are invalid.
+   *
+   * @param values The values to parse
+   *
+   * @return the corresponding longs or <code>null</code> if any item is not a valid long.
+   */
+  public static long @Nullable [] parseAll(String[] values) {
+    long[] items = new long[values.length];
+    int n = 0;
+    for (String value : values) {
+      int length = value.length();
+      if (length == 0) continue;
+      int start = 0;
+      while (start <= length) {
+        int end = value.indexOf(',', start);
+        if (end < 0) end = length;
+        if (n == items.length) items = Arrays.copyOf(items, n * 2);
+        if (scan(value, start, end, Long.MIN_VALUE, Long.MAX_VALUE, items, n++) != OK) return null;
+        start = end + 1;
+      }
+    }
+    return n == items.length ? items : Arrays.copyOf(items, n);
+  }
+
+  /**
+   * Checks the specified range of characters and accumulates its value in the same pass.
+   *
+   * <p>The value is accumulated negatively to handle <code>Long.MIN_VALUE</code> like
+   * {@link Long#parseLong(String)}; once it overflows, the remaining characters are only
+   * checked to be digits so that invalid values are reported as such.
+   */
+  private static int scan(CharSequence value, int start, int end, long min, long max, long @Nullable [] out, int index) {
+    if (start < 0 || end > value.length() || start > end) throw new IndexOutOfBoundsException();
+    if (start == end) return EMPTY;
+    int i = start;
+    char first = value.charAt(start);
+    boolean negative = first == '-';
+    if (negative || first == '+') {
+      if (end - start == 1) return EMPTY;
+      i++;
+    }
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multmin = limit / 10;
+    long result = 0;
+    boolean overflow = false;
+    for (; i < end; i++) {
+      int digit = digit(value.charAt(i));
+      if (digit < 0) return INVALID;
+      if (!overflow) {
+        if (result < multmin) {
+          overflow = true;
+        } else {
+          result *= 10;
+          if (result < limit + digit) overflow = true;
+          else result -= digit;
+        }
+      }
+    }
+    if (overflow) return OVERFLOW;
+    long v = negative ? result : -result;
+    if (v < min || v > max) return OUT_OF_RANGE;
+    if (out != null) out[index] = v;
+    return OK;
+  }
+
+  /**
+   * Returns the value of the specified range of characters once checked.
+   */
+  private static long accumulate(CharSequence value, int start, int end) {
+    int i = start;
+    char first = value.charAt(start);
+    boolean negative = first == '-';
+    if (negative || first == '+') i++;
+    long result = 0;
+    for (; i < end; i++) {
+      result = result * 10 - digit(value.charAt(i));
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Returns the value of the specified decimal digit.
+   *
+   * @param c The character
+   *
+   * @return the value of the digit or -1 if the character is not a decimal digit.
+   */
+  private static int digit(char c) {
+    if (c >= '0' && c <= '9') return c - '0';
+    return c < 0x80 ? -1 : Character.digit(c, 10);
+  }
+
+}
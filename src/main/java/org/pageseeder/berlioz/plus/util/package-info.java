@@ -0,0 +1,8 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+/**
+ * Utility classes for parsing and validating parameter values.
+ */
+@org.jspecify.annotations.NullMarked
+package org.pageseeder.berlioz.plus.util;
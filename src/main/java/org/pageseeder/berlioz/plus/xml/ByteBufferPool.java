@@ -0,0 +1,122 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.xml;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of byte buffers of the same size.
+ *
+ * <p>Buffers are acquired for the duration of a response and released when the writer
+ * is closed, so that direct buffers, which are expensive to allocate, are reused across
+ * requests. When the pool is empty a new buffer is allocated; when the pool is full a
+ * released buffer is left to the garbage collector.
+ *
+ * <p>Direct buffers are best to write to a channel; heap buffers are best to write to an
+ * output stream as their array can be written without copying it.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class ByteBufferPool {
+
+  /** The smallest buffer size allowed */
+  static final int MIN_BUFFER_SIZE = 64;
+
+  private final int bufferSize;
+
+  private final int capacity;
+
+  private final boolean direct;
+
+  /** The buffers available */
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+  /** The number of buffers available (may briefly exceed the actual size of the queue) */
+  private final AtomicInteger size = new AtomicInteger();
+
+  /**
+   * Creates a new pool.
+   *
+   * @param bufferSize The size of each buffer in bytes
+   * @param capacity   The maximum number of buffers kept in the pool
+   * @param direct     Whether to allocate direct buffers
+   *
+   * @throws IllegalArgumentException If the buffer size is less than 64 bytes or the capacity is negative
+   */
+  public ByteBufferPool(int bufferSize, int capacity, boolean direct) {
+    if (bufferSize < MIN_BUFFER_SIZE) throw new IllegalArgumentException("Buffer size must be at least " + MIN_BUFFER_SIZE);
+    if (capacity < 0) throw new IllegalArgumentException("Capacity cannot be negative");
+    this.bufferSize = bufferSize;
+    this.capacity = capacity;
+    this.direct = direct;
+  }
+
+  /**
+   * Returns a cleared buffer from the pool or a new buffer if the pool is empty.
+   *
+   * @return a buffer with a capacity of the buffer size.
+   */
+  public ByteBuffer acquire() {
+    ByteBuffer buffer = this.buffers.poll();
+    if (buffer == null) return this.direct ? ByteBuffer.allocateDirect(this.bufferSize) : ByteBuffer.allocate(this.bufferSize);
+    this.size.decrementAndGet();
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Returns the specified buffer to the pool.
+   *
+   * <p>The buffer must no longer be used by the caller. Buffers which were not allocated
+   * by this pool are ignored.
+   *
+   * @param buffer The buffer to release
+   */
+  public void release(ByteBuffer buffer) {
+    if (buffer.capacity() != this.bufferSize || buffer.isDirect() != this.direct || buffer.isReadOnly()) return;
+    if (this.size.incrementAndGet() > this.capacity) {
+      this.size.decrementAndGet();
+      return;
+    }
+    buffer.clear();
+    this.buffers.offer(buffer);
+  }
+
+  /**
+   * @return the size of each buffer in bytes.
+   */
+  public int bufferSize() {
+    return this.bufferSize;
+  }
+
+  /**
+   * @return the maximum number of buffers kept in the pool.
+   */
+  public int capacity() {
+    return this.capacity;
+  }
+
+  /**
+   * @return whether the pool allocates direct buffers.
+   */
+  public boolean isDirect() {
+    return this.direct;
+  }
+
+  /**
+   * @return the number of buffers currently available.
+   */
+  public int available() {
+    return this.size.get();
+  }
+
+}
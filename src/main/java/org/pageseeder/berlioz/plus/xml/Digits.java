@@ -0,0 +1,200 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.xml;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+/**
+ * Writes numbers and dates as ASCII bytes, with the same output as their
+ * <code>toString()</code> method.
+ *
+ * <p>Each method writes into the specified array from the specified index and returns
+ * the index after the last byte written. The array must have room for
+ * {@link #MAX_LENGTH} bytes.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+final class Digits {
+
+  /**
+   * The maximum number of bytes written by any method.
+   */
+  static final int MAX_LENGTH = 48;
+
+  private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+  /** 0000-01-01T00:00:00Z */
+  private static final long MIN_FOUR_DIGIT_YEAR = -62167219200L;
+
+  /** 9999-12-31T23:59:59Z */
+  private static final long MAX_FOUR_DIGIT_YEAR = 253402300799L;
+
+  private static final int SECONDS_PER_DAY = 86400;
+
+  private Digits() {
+  }
+
+  /**
+   * Writes a long as {@link Long#toString(long)}.
+   */
+  static int putLong(byte[] b, int at, long value) {
+    if (value == Long.MIN_VALUE) {
+      System.arraycopy(MIN_LONG, 0, b, at, MIN_LONG.length);
+      return at + MIN_LONG.length;
+    }
+    if (value < 0) {
+      b[at++] = '-';
+      value = -value;
+    }
+    int length = 1;
+    for (long p = 10; length < 19 && value >= p; p *= 10) length++;
+    return putPadded(b, at, value, length);
+  }
+
+  /**
+   * Indicates whether the specified double is written by {@link #putDouble(byte[], int, double)}.
+   *
+   * <p>Only integral values below 10<sup>7</sup> are handled, since <code>Double.toString</code>
+   * writes them as the integer followed by ".0".
+   */
+  static boolean isIntegral(double value) {
+    return value == Math.rint(value) && Math.abs(value) < 1e7;
+  }
+
+  /**
+   * Writes an integral double as {@link Double#toString(double)}.
+   *
+   * @see #isIntegral(double)
+   */
+  static int putDouble(byte[] b, int at, double value) {
+    if (Double.doubleToRawLongBits(value) < 0) {
+      b[at++] = '-';
+      value = -value;
+    }
+    at = putLong(b, at, (long) value);
+    b[at++] = '.';
+    b[at++] = '0';
+    return at;
+  }
+
+  /**
+   * Writes a date as {@link LocalDate#toString()}.
+   */
+  static int putDate(byte[] b, int at, LocalDate date) {
+    return putDate(b, at, date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+  }
+
+  /**
+   * Writes a date and time as {@link LocalDateTime#toString()}.
+   */
+  static int putDateTime(byte[] b, int at, LocalDateTime datetime) {
+    at = putDate(b, at, datetime.getYear(), datetime.getMonthValue(), datetime.getDayOfMonth());
+    b[at++] = 'T';
+    return putTime(b, at, datetime.getHour(), datetime.getMinute(), datetime.getSecond(), datetime.getNano(), false);
+  }
+
+  /**
+   * Writes a date and time with an offset as {@link OffsetDateTime#toString()}.
+   */
+  static int putDateTime(byte[] b, int at, OffsetDateTime datetime) {
+    at = putDateTime(b, at, datetime.toLocalDateTime());
+    String offset = datetime.getOffset().getId();
+    for (int i = 0; i < offset.length(); i++) {
+      b[at++] = (byte) offset.charAt(i);
+    }
+    return at;
+  }
+
+  /**
+   * Indicates whether the specified instant is written by {@link #putInstant(byte[], int, Instant)}.
+   *
+   * <p>Only instants with a four-digit year are handled.
+   */
+  static boolean isFourDigitYear(Instant instant) {
+    long seconds = instant.getEpochSecond();
+    return seconds >= MIN_FOUR_DIGIT_YEAR && seconds <= MAX_FOUR_DIGIT_YEAR;
+  }
+
+  /**
+   * Writes an instant with a four-digit year as {@link Instant#toString()}.
+   *
+   * @see #isFourDigitYear(Instant)
+   */
+  static int putInstant(byte[] b, int at, Instant instant) {
+    long seconds = instant.getEpochSecond();
+    long days = Math.floorDiv(seconds, SECONDS_PER_DAY);
+    int time = Math.floorMod(seconds, SECONDS_PER_DAY);
+    // Civil date from the number of days since 1970-01-01 in the proleptic Gregorian calendar
+    long z = days + 719468;
+    long era = Math.floorDiv(z, 146097);
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long mp = (5 * dayOfYear + 2) / 153;
+    int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+    int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+    int year = (int) (yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+    at = putDate(b, at, year, month, day);
+    b[at++] = 'T';
+    at = putTime(b, at, time / 3600, time / 60 % 60, time % 60, instant.getNano(), true);
+    b[at++] = 'Z';
+    return at;
+  }
+
+  private static int putDate(byte[] b, int at, int year, int month, int day) {
+    int absYear = Math.abs(year);
+    if (absYear < 1000) {
+      if (year < 0) b[at++] = '-';
+      at = putPadded(b, at, absYear, 4);
+    } else {
+      if (year > 9999) b[at++] = '+';
+      at = putLong(b, at, year);
+    }
+    b[at++] = '-';
+    at = putPadded(b, at, month, 2);
+    b[at++] = '-';
+    return putPadded(b, at, day, 2);
+  }
+
+  /**
+   * Writes the time as {@link java.time.LocalTime#toString()}, with the seconds omitted
+   * when they and the nanoseconds are zero unless required.
+   */
+  private static int putTime(byte[] b, int at, int hour, int minute, int second, int nano, boolean seconds) {
+    at = putPadded(b, at, hour, 2);
+    b[at++] = ':';
+    at = putPadded(b, at, minute, 2);
+    if (seconds || second > 0 || nano > 0) {
+      b[at++] = ':';
+      at = putPadded(b, at, second, 2);
+      if (nano > 0) {
+        b[at++] = '.';
+        if (nano % 1_000_000 == 0) at = putPadded(b, at, nano / 1_000_000, 3);
+        else if (nano % 1000 == 0) at = putPadded(b, at, nano / 1000, 6);
+        else at = putPadded(b, at, nano, 9);
+      }
+    }
+    return at;
+  }
+
+  /**
+   * Writes a positive number with the specified number of digits, padded with zeros.
+   */
+  private static int putPadded(byte[] b, int at, long value, int digits) {
+    int end = at + digits;
+    for (int i = end - 1; i >= at; i--) {
+      b[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    return end;
+  }
+
+}
@@ -0,0 +1,1040 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.xml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.jspecify.annotations.Nullable;
+import org.pageseeder.xmlwriter.XMLWriter;
+
+/**
+ * An XML writer encoding directly to UTF-8 bytes.
+ *
+ * <p>Characters are escaped and encoded straight into a byte buffer acquired from a
+ * {@link ByteBufferPool}, without going through a <code>Writer</code> and a charset
+ * encoder. Each time the buffer is full, it is written to the underlying output stream
+ * or channel; the buffer is returned to the pool when the writer is closed.
+ *
+ * <p>Namespace prefixes set with {@link #setPrefixMapping(String, String)} are declared on
+ * the next element opened and remain in scope until that element is closed. The methods
+ * taking a namespace URI write the name with the prefix mapped to it, or the name alone
+ * when the URI is <code>null</code> or empty.
+ *
+ * <p>Characters which are not allowed in XML 1.0 (control characters other than tab,
+ * line feed and carriage return) are dropped from text and attribute values, and
+ * unpaired surrogates are replaced by U+FFFD. Tabs, line feeds and carriage returns in
+ * attribute values are written as character references so that they are not normalized
+ * to spaces when parsed.
+ *
+ * <p>Longer strings are encoded in bulk: ASCII characters are narrowed eight at a time
+ * into a long, checked for characters to escape with a few arithmetic operations, and
+ * written to the buffer as a whole when clean. Only the blocks including characters
+ * which need escaping or multibyte encoding go through the character by character path.
+ *
+ * <p>The methods taking an {@link XMLName} copy the bytes encoded when the name was
+ * created instead of encoding the name again.
+ *
+ * <p>Numbers and dates written as attributes are formatted directly into the buffer,
+ * with the same output as their <code>toString()</code> method.
+ *
+ * <p>Closing the writer closes any open element and flushes the output, but does not
+ * close the underlying output stream or channel. Instances are not thread-safe.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class Utf8XMLWriter implements XMLWriter, Closeable {
+
+  /** The maximum number of bytes written for a single character (<code>&amp;quot;</code>) */
+  private static final int MARGIN = 6;
+
+  /** Escaping modes */
+  private static final int RAW = 0, TEXT = 1, ATTRIBUTE = 2;
+
+  /** How to write each ASCII character in text: <code>null</code> as is, empty to drop */
+  private static final byte[][] TEXT_ESCAPES = escapes(false);
+
+  /** How to write each ASCII character in attribute values */
+  private static final byte[][] ATTRIBUTE_ESCAPES = escapes(true);
+
+  /** U+FFFD */
+  private static final byte[] REPLACEMENT = {(byte) 0xEF, (byte) 0xBF, (byte) 0xBD};
+
+  /** Strings shorter than this are encoded one character at a time */
+  private static final int BULK_THRESHOLD = 16;
+
+  /** The maximum number of characters narrowed to bytes at once */
+  private static final int CHUNK = 512;
+
+  /** To write eight narrowed characters at once */
+  private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  /** The byte 0x01 repeated in each lane of a long */
+  private static final long ONES = 0x0101010101010101L;
+
+  /** The high bit of each lane of a long */
+  private static final long HIGHS = 0x8080808080808080L;
+
+  /** Until a namespace prefix is mapped */
+  private static final String[] NO_MAPPINGS = {};
+
+  private final ByteBufferPool pool;
+
+  /** The output stream or <code>null</code> when writing to a channel */
+  private final @Nullable OutputStream out;
+
+  /** The channel, created on demand to write direct buffers to an output stream */
+  private @Nullable WritableByteChannel channel;
+
+  /** The current buffer or <code>null</code> once closed */
+  private @Nullable ByteBuffer buffer;
+
+  /** The names of the open elements as <code>String</code> or <code>XMLName</code> */
+  private Object[] elements = new Object[16];
+
+  /** Whether each open element has children (for indentation) */
+  private boolean[] children = new boolean[16];
+
+  /** The number of open elements */
+  private int depth = 0;
+
+  /** Whether the start tag of the current element is still open */
+  private boolean nude = false;
+
+  /** The namespace URIs of the prefix mappings in scope */
+  private String[] uris = NO_MAPPINGS;
+
+  /** The prefix mapped to each namespace URI */
+  private String[] prefixes = NO_MAPPINGS;
+
+  /** The depth of the element declaring each prefix mapping */
+  private int[] levels = new int[0];
+
+  /** The number of prefix mappings in scope */
+  private int mappings = 0;
+
+  /** The number of prefix mappings, last in the arrays, to declare on the next element */
+  private int pending = 0;
+
+  /** The indentation or <code>null</code> */
+  private @Nullable String indent;
+
+  /** Whether anything was written (for indentation) */
+  private boolean started = false;
+
+  /** To format numbers and dates in attribute values */
+  private final byte[] digits = new byte[Digits.MAX_LENGTH];
+
+  /** The characters copied from a string, allocated on first use */
+  private char @Nullable [] chars;
+
+  /** The characters narrowed to bytes for direct buffers, allocated on first use */
+  private byte @Nullable [] bytes;
+
+  /**
+   * Creates a writer for the specified output stream.
+   *
+   * <p>A pool of heap buffers avoids copying the bytes before writing them to the stream.
+   *
+   * @param out  The output stream
+   * @param pool The buffers to use
+   */
+  public Utf8XMLWriter(OutputStream out, ByteBufferPool pool) {
+    this.out = Objects.requireNonNull(out);
+    this.pool = Objects.requireNonNull(pool);
+    this.buffer = pool.acquire();
+  }
+
+  /**
+   * Creates a writer for the specified channel.
+   *
+   * @param channel The channel
+   * @param pool    The buffers to use
+   */
+  public Utf8XMLWriter(WritableByteChannel channel, ByteBufferPool pool) {
+    this.out = null;
+    this.channel = Objects.requireNonNull(channel);
+    this.pool = Objects.requireNonNull(pool);
+    this.buffer = pool.acquire();
+  }
+
+  @Override
+  public void xmlDecl() throws IOException {
+    encode("<?xml version=\"1.0\" encoding=\"utf-8\"?>", RAW);
+    this.started = true;
+  }
+
+  @Override
+  public void setIndentChars(@Nullable String spaces) {
+    if (this.started) throw new IllegalStateException("Cannot set indentation once the writer has started");
+    this.indent = spaces != null && !spaces.isEmpty() ? spaces : null;
+  }
+
+  @Override
+  public void writeText(char c) throws IOException {
+    deNude();
+    ByteBuffer b = buffer(MARGIN);
+    if (c < 0x80) {
+      byte[] escape = TEXT_ESCAPES[c];
+      if (escape == null) b.put((byte) c);
+      else b.put(escape);
+    } else if (Character.isSurrogate(c)) {
+      b.put(REPLACEMENT);
+    } else {
+      putChar(b, c);
+    }
+  }
+
+  @Override
+  public void writeText(@Nullable String text) throws IOException {
+    if (text == null) return;
+    deNude();
+    encode(text, TEXT);
+  }
+
+  @Override
+  public void writeText(char[] text, int off, int len) throws IOException {
+    deNude();
+    encode(text, off, len, TEXT);
+  }
+
+  @Override
+  public void writeCDATA(@Nullable String data) throws IOException {
+    if (data == null) return;
+    deNude();
+    encode("<![CDATA[", RAW);
+    // A CDATA section cannot include ']]>', so it is split across two sections
+    int start = 0;
+    for (int end = data.indexOf("]]>"); end >= 0; end = data.indexOf("]]>", start)) {
+      encode(data.substring(start, end + 2), RAW);
+      encode("]]><![CDATA[", RAW);
+      start = end + 2;
+    }
+    encode(start == 0 ? data : data.substring(start), RAW);
+    encode("]]>", RAW);
+  }
+
+  @Override
+  public void writeXML(@Nullable String text) throws IOException {
+    if (text == null) return;
+    deNude();
+    encode(text, RAW);
+  }
+
+  @Override
+  public void writeXML(char[] text, int off, int len) throws IOException {
+    deNude();
+    encode(text, off, len, RAW);
+  }
+
+  @Override
+  public void writeComment(@Nullable String comment) throws IOException {
+    if (comment == null) return;
+    if (comment.contains("--")) throw new IllegalArgumentException("A comment must not contain '--'");
+    deNude();
+    encode("<!--", RAW);
+    encode(comment, RAW);
+    encode("-->", RAW);
+  }
+
+  @Override
+  public void writePI(String target, String data) throws IOException {
+    deNude();
+    encode("<?", RAW);
+    encode(target, RAW);
+    encode(" ", RAW);
+    encode(data, RAW);
+    encode("?>", RAW);
+  }
+
+  @Override
+  public void attribute(String name, String value) throws IOException {
+    startAttribute(name);
+    encode(value, ATTRIBUTE);
+    buffer(1).put((byte) '"');
+  }
+
+  /**
+   * Writes an attribute using the encoded name.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(XMLName name, String value) throws IOException {
+    startAttribute(name);
+    encode(value, ATTRIBUTE);
+    buffer(1).put((byte) '"');
+  }
+
+  @Override
+  public void attribute(String name, int value) throws IOException {
+    attribute(name, (long) value);
+  }
+
+  /**
+   * Writes the digits of the value directly to the buffer.
+   */
+  @Override
+  public void attribute(String name, long value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putLong(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the digits of the value directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(XMLName name, long value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putLong(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the value as <code>Double.toString</code>, formatting integral values directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(String name, double value) throws IOException {
+    if (!Digits.isIntegral(value)) {
+      attribute(name, Double.toString(value));
+      return;
+    }
+    startAttribute(name);
+    endAttribute(Digits.putDouble(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the value as <code>Double.toString</code>, formatting integral values directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(XMLName name, double value) throws IOException {
+    if (!Digits.isIntegral(value)) {
+      attribute(name, Double.toString(value));
+      return;
+    }
+    startAttribute(name);
+    endAttribute(Digits.putDouble(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the date as <code>LocalDate.toString</code> directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(String name, LocalDate value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putDate(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the date as <code>LocalDate.toString</code> directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(XMLName name, LocalDate value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putDate(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the date and time as <code>LocalDateTime.toString</code> directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(String name, LocalDateTime value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putDateTime(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the date and time as <code>LocalDateTime.toString</code> directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(XMLName name, LocalDateTime value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putDateTime(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the date and time as <code>OffsetDateTime.toString</code> directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(String name, OffsetDateTime value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putDateTime(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the date and time as <code>OffsetDateTime.toString</code> directly to the buffer.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(XMLName name, OffsetDateTime value) throws IOException {
+    startAttribute(name);
+    endAttribute(Digits.putDateTime(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the instant as <code>Instant.toString</code>, directly to the buffer when its year has four digits.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(String name, Instant value) throws IOException {
+    if (!Digits.isFourDigitYear(value)) {
+      attribute(name, value.toString());
+      return;
+    }
+    startAttribute(name);
+    endAttribute(Digits.putInstant(this.digits, 0, value));
+  }
+
+  /**
+   * Writes an attribute with the instant as <code>Instant.toString</code>, directly to the buffer when its year has four digits.
+   *
+   * @param name  The name of the attribute
+   * @param value The value of the attribute
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void attribute(XMLName name, Instant value) throws IOException {
+    if (!Digits.isFourDigitYear(value)) {
+      attribute(name, value.toString());
+      return;
+    }
+    startAttribute(name);
+    endAttribute(Digits.putInstant(this.digits, 0, value));
+  }
+
+  @Override
+  public void openElement(String name) throws IOException {
+    openElement(name, false);
+  }
+
+  @Override
+  public void openElement(String name, boolean hasChildren) throws IOException {
+    startElement();
+    buffer(1).put((byte) '<');
+    encode(name, RAW);
+    push(name, hasChildren);
+    if (this.pending > 0) declareMappings();
+  }
+
+  /**
+   * Opens an element using the encoded name.
+   *
+   * @param name        The name of the element
+   * @param hasChildren Whether the element has children (for indentation)
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void openElement(XMLName name, boolean hasChildren) throws IOException {
+    startElement();
+    put(name.startTag);
+    push(name, hasChildren);
+    if (this.pending > 0) declareMappings();
+  }
+
+  @Override
+  public void closeElement() throws IOException {
+    if (this.depth == 0) throw new IllegalStateException("No element to close");
+    this.depth--;
+    if (this.mappings > this.pending) removeMappings();
+    Object name = this.elements[this.depth];
+    if (this.nude) {
+      buffer(2).put((byte) '/').put((byte) '>');
+      this.nude = false;
+    } else {
+      if (this.indent != null && this.children[this.depth]) newLine(this.depth);
+      if (name instanceof XMLName) {
+        put(((XMLName) name).endTag);
+      } else {
+        buffer(2).put((byte) '<').put((byte) '/');
+        encode((String) name, RAW);
+        buffer(1).put((byte) '>');
+      }
+    }
+  }
+
+  @Override
+  public void element(String name, String text) throws IOException {
+    openElement(name, false);
+    writeText(text);
+    closeElement();
+  }
+
+  @Override
+  public void emptyElement(String element) throws IOException {
+    openElement(element, false);
+    closeElement();
+  }
+
+  /**
+   * Writes an element containing the specified text using the encoded name.
+   *
+   * @param name The name of the element
+   * @param text The text of the element
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void element(XMLName name, String text) throws IOException {
+    openElement(name, false);
+    writeText(text);
+    closeElement();
+  }
+
+  /**
+   * Writes an empty element using the encoded name.
+   *
+   * @param name The name of the element
+   *
+   * @throws IOException If thrown by the underlying output
+   */
+  public void emptyElement(XMLName name) throws IOException {
+    openElement(name, false);
+    closeElement();
+  }
+
+  /**
+   * Maps the namespace URI to the prefix; the mapping is declared on the next element opened.
+   *
+   * <p>Use an empty prefix to set the default namespace.
+   */
+  @Override
+  public void setPrefixMapping(String uri, String prefix) {
+    Objects.requireNonNull(uri, "Namespace URI is required");
+    Objects.requireNonNull(prefix, "Prefix is required");
+    if (prefix.equals(prefix(uri))) return;
+    if (this.mappings == this.uris.length) {
+      int length = Math.max(4, this.mappings * 2);
+      this.uris = Arrays.copyOf(this.uris, length);
+      this.prefixes = Arrays.copyOf(this.prefixes, length);
+      this.levels = Arrays.copyOf(this.levels, length);
+    }
+    this.uris[this.mappings] = uri;
+    this.prefixes[this.mappings] = prefix;
+    this.mappings++;
+    this.pending++;
+  }
+
+  @Override
+  public void openElement(@Nullable String uri, String name, boolean hasChildren) throws IOException {
+    openElement(qualify(uri, name), hasChildren);
+  }
+
+  @Override
+  public void emptyElement(@Nullable String uri, String element) throws IOException {
+    openElement(qualify(uri, element), false);
+    closeElement();
+  }
+
+  @Override
+  public void attribute(@Nullable String uri, String name, String value) throws IOException {
+    attribute(qualify(uri, name), value);
+  }
+
+  @Override
+  public void attribute(@Nullable String uri, String name, int value) throws IOException {
+    attribute(qualify(uri, name), (long) value);
+  }
+
+  @Override
+  public void attribute(@Nullable String uri, String name, long value) throws IOException {
+    attribute(qualify(uri, name), value);
+  }
+
+  /**
+   * Writes the buffered bytes to the output and flushes the output stream.
+   */
+  @Override
+  public void flush() throws IOException {
+    ByteBuffer b = this.buffer;
+    if (b == null) return;
+    drain(b);
+    if (this.out != null) this.out.flush();
+  }
+
+  /**
+   * Closes the open elements, flushes the output and releases the buffer.
+   *
+   * <p>The underlying output stream or channel is not closed.
+   */
+  @Override
+  public void close() throws IOException {
+    ByteBuffer b = this.buffer;
+    if (b == null) return;
+    try {
+      while (this.depth > 0) closeElement();
+      flush();
+    } finally {
+      this.buffer = null;
+      this.pool.release(b);
+    }
+  }
+
+  // Private helpers
+  // --------------------------------------------------------------------------
+
+  /**
+   * Closes the start tag of the current element if needed.
+   */
+  private void deNude() throws IOException {
+    if (this.nude) {
+      buffer(1).put((byte) '>');
+      this.nude = false;
+    }
+  }
+
+  /**
+   * Writes the name of an attribute followed by the equal sign and opening quote.
+   */
+  private void startAttribute(String name) throws IOException {
+    if (!this.nude) throw new IllegalStateException("Cannot write attribute: not inside an element");
+    buffer(1).put((byte) ' ');
+    encode(name, RAW);
+    buffer(2).put((byte) '=').put((byte) '"');
+  }
+
+  /**
+   * Writes the encoded name of an attribute followed by the equal sign and opening quote.
+   */
+  private void startAttribute(XMLName name) throws IOException {
+    if (!this.nude) throw new IllegalStateException("Cannot write attribute: not inside an element");
+    put(name.attribute);
+  }
+
+  /**
+   * Writes the value formatted in the digits array and the closing quote.
+   */
+  private void endAttribute(int length) throws IOException {
+    ByteBuffer b = buffer(length + 1);
+    b.put(this.digits, 0, length).put((byte) '"');
+  }
+
+  /**
+   * Closes the start tag of the parent and indents the new element if needed.
+   */
+  private void startElement() throws IOException {
+    deNude();
+    if (this.indent != null && (this.depth == 0 ? this.started : this.children[this.depth - 1])) {
+      newLine(this.depth);
+    }
+  }
+
+  /**
+   * Returns the name prefixed with the prefix mapped to the namespace URI.
+   *
+   * @throws IllegalStateException If no prefix is mapped to the namespace URI
+   */
+  private String qualify(@Nullable String uri, String name) {
+    if (uri == null || uri.isEmpty()) return name;
+    String prefix = prefix(uri);
+    if (prefix == null) throw new IllegalStateException("No prefix mapped to namespace URI " + uri);
+    return prefix.isEmpty() ? name : prefix + ':' + name;
+  }
+
+  /**
+   * Returns the prefix mapped to the namespace URI or <code>null</code>.
+   */
+  private @Nullable String prefix(String uri) {
+    for (int i = this.mappings - 1; i >= 0; i--) {
+      if (this.uris[i].equals(uri)) return this.prefixes[i];
+    }
+    return null;
+  }
+
+  /**
+   * Declares the pending prefix mappings on the element whose start tag was just written.
+   */
+  private void declareMappings() throws IOException {
+    for (int i = this.mappings - this.pending; i < this.mappings; i++) {
+      this.levels[i] = this.depth;
+      String prefix = this.prefixes[i];
+      attribute(prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix, this.uris[i]);
+    }
+    this.pending = 0;
+  }
+
+  /**
+   * Removes the prefix mappings declared by the element being closed, keeping the pending ones.
+   */
+  private void removeMappings() {
+    int declared = this.mappings - this.pending;
+    int kept = declared;
+    while (kept > 0 && this.levels[kept - 1] > this.depth) kept--;
+    if (kept == declared) return;
+    System.arraycopy(this.uris, declared, this.uris, kept, this.pending);
+    System.arraycopy(this.prefixes, declared, this.prefixes, kept, this.pending);
+    this.mappings = kept + this.pending;
+  }
+
+  /**
+   * Records the element whose start tag was just written.
+   */
+  private void push(Object name, boolean hasChildren) {
+    if (this.depth == this.elements.length) {
+      this.elements = Arrays.copyOf(this.elements, this.depth * 2);
+      this.children = Arrays.copyOf(this.children, this.depth * 2);
+    }
+    this.elements[this.depth] = name;
+    this.children[this.depth] = hasChildren;
+    this.depth++;
+    this.nude = true;
+    this.started = true;
+  }
+
+  private void newLine(int level) throws IOException {
+    String indent = this.indent;
+    buffer(1).put((byte) '\n');
+    for (int i = 0; i < level && indent != null; i++) {
+      encode(indent, RAW);
+    }
+  }
+
+  /**
+   * Returns the buffer after ensuring it has room for the specified number of bytes.
+   */
+  private ByteBuffer buffer(int room) throws IOException {
+    ByteBuffer b = this.buffer;
+    if (b == null) throw new IOException("Writer is closed");
+    if (b.remaining() < room) drain(b);
+    return b;
+  }
+
+  /**
+   * Copies the specified bytes, in several parts if they do not fit in the buffer.
+   */
+  private void put(byte[] bytes) throws IOException {
+    put(bytes, 0, bytes.length);
+  }
+
+  /**
+   * Copies the specified range of bytes, in several parts if they do not fit in the buffer.
+   */
+  private void put(byte[] bytes, int off, int len) throws IOException {
+    ByteBuffer b = buffer(0);
+    if (b.remaining() < len) drain(b);
+    int end = off + len;
+    while (end - off > b.remaining()) {
+      int length = b.remaining();
+      b.put(bytes, off, length);
+      off += length;
+      drain(b);
+    }
+    b.put(bytes, off, end - off);
+  }
+
+  /**
+   * Escapes and encodes the specified string.
+   *
+   * <p>Long strings are copied in chunks to a character array to be encoded in bulk.
+   */
+  private void encode(String s, int mode) throws IOException {
+    int length = s.length();
+    if (length < BULK_THRESHOLD) {
+      encodeChars(s, mode);
+      return;
+    }
+    char[] chars = this.chars;
+    if (chars == null) {
+      chars = new char[CHUNK];
+      this.chars = chars;
+    }
+    int i = 0;
+    while (i < length) {
+      int end = Math.min(length, i + CHUNK);
+      // Keep surrogate pairs in the same chunk
+      if (end < length && Character.isHighSurrogate(s.charAt(end - 1))) end--;
+      s.getChars(i, end, chars, 0);
+      encode(chars, 0, end - i, mode);
+      i = end;
+    }
+  }
+
+  /**
+   * Escapes and encodes the specified characters in bulk.
+   *
+   * <p>Eight characters at a time are narrowed into the lanes of a long, which is checked
+   * for characters to escape and stored with a single write when they are all clean.
+   * With a heap buffer, the long is stored directly in its backing array; otherwise the
+   * clean bytes are collected in a scratch array and copied to the buffer at once.
+   *
+   * <p>The block including the first character which is not clean and the dirty
+   * characters following it are encoded one at a time before resuming the bulk path.
+   * When the buffer is full, it is written out and the bulk path resumes.
+   */
+  private void encode(char[] text, int off, int len, int mode) throws IOException {
+    byte @Nullable [][] escapes = escapes(mode);
+    boolean quote = mode == ATTRIBUTE;
+    int end = off + len;
+    int i = off;
+    while (i < end) {
+      // Room for at least one block
+      ByteBuffer b = buffer(8);
+      boolean heap = b.hasArray();
+      byte[] bytes = heap ? b.array() : scratch();
+      int from = heap ? b.arrayOffset() + b.position() : 0;
+      int limit = from + (heap ? b.remaining() : CHUNK);
+      int to = from;
+      boolean dirty = false;
+      while (i + 8 <= end && to + 8 <= limit) {
+        long w = 0;
+        int any = 0;
+        for (int k = 0; k < 8; k++) {
+          char c = text[i + k];
+          any |= c;
+          w |= (long) c << (k << 3);
+        }
+        if (any >= 0x80) {
+          dirty = true;
+          break;
+        }
+        long found = escapes != null ? special(w, quote) : 0;
+        LONGS.set(bytes, to, w);
+        if (found != 0) {
+          int clean = Long.numberOfTrailingZeros(found) >>> 3;
+          to += clean;
+          i += clean;
+          dirty = true;
+          break;
+        }
+        to += 8;
+        i += 8;
+      }
+      if (to > from) {
+        if (heap) b.position(b.position() + to - from);
+        else put(bytes, 0, to);
+      }
+      if (i + 8 > end) {
+        // Short of eight characters, encode what is left one at a time
+        if (i < end) i = encodeDirty(text, i, end, escapes, true);
+      } else if (dirty) {
+        i = encodeDirty(text, i, end, escapes, false);
+      }
+      // Otherwise out of room: resume the bulk path with the next buffer
+    }
+  }
+
+  /**
+   * @return the array to collect clean bytes when the buffer is not a heap buffer
+   */
+  private byte[] scratch() {
+    byte[] bytes = this.bytes;
+    if (bytes == null) {
+      bytes = new byte[CHUNK];
+      this.bytes = bytes;
+    }
+    return bytes;
+  }
+
+  /**
+   * Encodes the block of eight characters from the specified index and the dirty
+   * characters which follow.
+   *
+   * <p>Encoding the whole block keeps text with scattered non-ASCII characters from
+   * switching path on every character.
+   *
+   * @param all Whether to also encode the clean characters, for the last few characters
+   *
+   * @return the index of the next character to encode
+   */
+  private int encodeDirty(char[] text, int i, int end, byte @Nullable [][] escapes, boolean all) throws IOException {
+    ByteBuffer b = buffer(MARGIN);
+    int stop = Math.min(end, i + b.remaining() / MARGIN);
+    int block = i + 8;
+    do {
+      char c = text[i];
+      if (c < 0x80) {
+        byte[] escape = escapes != null ? escapes[c] : null;
+        if (escape == null) b.put((byte) c);
+        else b.put(escape);
+      } else if (!Character.isSurrogate(c)) {
+        putChar(b, c);
+      } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text[i + 1])) {
+        putCodePoint(b, Character.toCodePoint(c, text[++i]));
+      } else {
+        b.put(REPLACEMENT);
+      }
+      i++;
+    } while (i < stop && (all || i < block || text[i] >= 0x80 || escapes != null && escapes[text[i]] != null));
+    return i;
+  }
+
+  /**
+   * Flags the lanes of a long holding eight ASCII characters which may need escaping.
+   *
+   * <p>A lane is flagged by setting its high bit when it is below 0x20, when it is
+   * <code>&lt;</code> or <code>&gt;</code> (which only differ by 0x02), when it is
+   * <code>&amp;</code> and, for attributes, <code>"</code> (which only differs from
+   * <code>&amp;</code> by 0x04). Only the lowest flagged lane is exact: the borrow of
+   * the subtraction may flag higher lanes. Tabs and new lines are flagged although
+   * they are only escaped in attribute values.
+   *
+   * @param w     Eight ASCII characters, the first one in the lowest lane
+   * @param quote Whether double quotes must be escaped
+   *
+   * @return the high bit of the flagged lanes
+   */
+  static long special(long w, boolean quote) {
+    long found = ((w - 0x20 * ONES) & ~w)
+        | zero((w | 0x02 * ONES) ^ ('>' * ONES))
+        | zero(quote ? (w | 0x04 * ONES) ^ ('&' * ONES) : w ^ ('&' * ONES));
+    return found & HIGHS;
+  }
+
+  /**
+   * Sets the high bit of the lowest lane which is zero (higher lanes may be set too).
+   */
+  private static long zero(long w) {
+    return (w - ONES) & ~w;
+  }
+
+  /**
+   * Escapes and encodes the specified characters one at a time.
+   *
+   * <p>Characters are encoded in runs which are guaranteed to fit in the buffer, so
+   * that the loop over the characters does not check the space left.
+   */
+  private void encodeChars(String s, int mode) throws IOException {
+    byte @Nullable [][] escapes = escapes(mode);
+    int length = s.length();
+    int i = 0;
+    while (i < length) {
+      ByteBuffer b = buffer(MARGIN);
+      int stop = Math.min(length, i + b.remaining() / MARGIN);
+      for (; i < stop; i++) {
+        char c = s.charAt(i);
+        if (c < 0x80) {
+          byte[] escape = escapes != null ? escapes[c] : null;
+          if (escape == null) b.put((byte) c);
+          else b.put(escape);
+        } else if (!Character.isSurrogate(c)) {
+          putChar(b, c);
+        } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+          // A pair takes 4 bytes for 2 characters so it always fits
+          putCodePoint(b, Character.toCodePoint(c, s.charAt(++i)));
+        } else {
+          b.put(REPLACEMENT);
+        }
+      }
+    }
+  }
+
+  /**
+   * Encodes a character of the basic multilingual plane above U+007F.
+   */
+  private static void putChar(ByteBuffer b, char c) {
+    if (c < 0x800) {
+      b.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+    } else {
+      b.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+    }
+  }
+
+  /**
+   * Encodes a supplementary character.
+   */
+  private static void putCodePoint(ByteBuffer b, int cp) {
+    b.put((byte) (0xF0 | cp >> 18))
+     .put((byte) (0x80 | cp >> 12 & 0x3F))
+     .put((byte) (0x80 | cp >> 6 & 0x3F))
+     .put((byte) (0x80 | cp & 0x3F));
+  }
+
+  /**
+   * Writes the content of the buffer to the output and clears it.
+   */
+  private void drain(ByteBuffer b) throws IOException {
+    b.flip();
+    OutputStream out = this.out;
+    if (out != null && b.hasArray()) {
+      out.write(b.array(), b.arrayOffset(), b.limit());
+    } else if (b.hasRemaining()) {
+      WritableByteChannel channel = this.channel;
+      if (channel == null) {
+        channel = Channels.newChannel(Objects.requireNonNull(out));
+        this.channel = channel;
+      }
+      while (b.hasRemaining()) {
+        channel.write(b);
+      }
+    }
+    b.clear();
+  }
+
+  private static byte @Nullable [][] escapes(int mode) {
+    return mode == TEXT ? TEXT_ESCAPES : mode == ATTRIBUTE ? ATTRIBUTE_ESCAPES : null;
+  }
+
+  private static byte[][] escapes(boolean attribute) {
+    byte[][] escapes = new byte[128][];
+    for (int c = 0; c < 0x20; c++) {
+      if (c != '\t' && c != '\n' && c != '\r') escapes[c] = new byte[0];
+    }
+    escapes['<'] = "&lt;".getBytes(StandardCharsets.US_ASCII);
+    escapes['>'] = "&gt;".getBytes(StandardCharsets.US_ASCII);
+    escapes['&'] = "&amp;".getBytes(StandardCharsets.US_ASCII);
+    if (attribute) {
+      // Otherwise normalized to spaces by the parser
+      escapes['\t'] = "&#x9;".getBytes(StandardCharsets.US_ASCII);
+      escapes['\n'] = "&#xA;".getBytes(StandardCharsets.US_ASCII);
+      escapes['\r'] = "&#xD;".getBytes(StandardCharsets.US_ASCII);
+      escapes['"'] = "&quot;".getBytes(StandardCharsets.US_ASCII);
+    }
+    return escapes;
+  }
+
+}
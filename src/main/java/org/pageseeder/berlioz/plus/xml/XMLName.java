@@ -0,0 +1,129 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+package org.pageseeder.berlioz.plus.xml;
+
+import java.nio.charset.StandardCharsets;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An element or attribute name checked and encoded once.
+ *
+ * <p>Names are typically declared as constants and passed to the methods of the
+ * {@link org.pageseeder.berlioz.plus.XMLPrinter} or {@link Utf8XMLWriter} taking an
+ * <code>XMLName</code>:
+ *
+ * <pre>{@code
+ * private static final XMLName DOCUMENT = XMLName.of("document");
+ * private static final XMLName ID = XMLName.of("id");
+ *
+ * xml.openElement(DOCUMENT);
+ * xml.attribute(ID, id);
+ * }</pre>
+ *
+ * <p>A {@link Utf8XMLWriter} copies the UTF-8 bytes of the start tag, end tag and
+ * attribute prefix computed when the name is created, instead of encoding the name
+ * on each call. Other writers receive the name as a string.
+ *
+ * @author Christophe Lauret
+ *
+ * @since 0.7.0
+ * @version 0.7.0
+ */
+public final class XMLName {
+
+  /**
+   * The name.
+   */
+  private final String name;
+
+  /**
+   * The bytes of <code>&lt;name</code>.
+   */
+  final byte[] startTag;
+
+  /**
+   * The bytes of <code>&lt;/name&gt;</code>.
+   */
+  final byte[] endTag;
+
+  /**
+   * The bytes of <code>&#x20;name="</code>.
+   */
+  final byte[] attribute;
+
+  private XMLName(String name) {
+    this.name = name;
+    this.startTag = ("<" + name).getBytes(StandardCharsets.UTF_8);
+    this.endTag = ("</" + name + ">").getBytes(StandardCharsets.UTF_8);
+    this.attribute = (" " + name + "=\"").getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the token for the specified name.
+   *
+   * @param name The element or attribute name
+   *
+   * @return the corresponding token
+   *
+   * @throws IllegalArgumentException If the name is not a valid XML name
+   */
+  public static XMLName of(String name) {
+    if (!isValid(name)) throw new IllegalArgumentException("Invalid XML name: '" + name + "'");
+    return new XMLName(name);
+  }
+
+  /**
+   * @return the name
+   */
+  public String name() {
+    return this.name;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    return o instanceof XMLName && this.name.equals(((XMLName) o).name);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.name.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return this.name;
+  }
+
+  /**
+   * Indicates whether the specified string is a valid XML 1.0 name.
+   *
+   * @param name The name to check
+   *
+   * @return <code>true</code> if it matches the <code>Name</code> production.
+   */
+  static boolean isValid(String name) {
+    if (name.isEmpty()) return false;
+    for (int i = 0; i < name.length(); ) {
+      int c = name.codePointAt(i);
+      if (i == 0 ? !isNameStartChar(c) : !isNameChar(c)) return false;
+      i += Character.charCount(c);
+    }
+    return true;
+  }
+
+  private static boolean isNameStartChar(int c) {
+    return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_' || c == ':'
+        || c >= 0xC0 && c <= 0xD6 || c >= 0xD8 && c <= 0xF6 || c >= 0xF8 && c <= 0x2FF
+        || c >= 0x370 && c <= 0x37D || c >= 0x37F && c <= 0x1FFF || c >= 0x200C && c <= 0x200D
+        || c >= 0x2070 && c <= 0x218F || c >= 0x2C00 && c <= 0x2FEF || c >= 0x3001 && c <= 0xD7FF
+        || c >= 0xF900 && c <= 0xFDCF || c >= 0xFDF0 && c <= 0xFFFD || c >= 0x10000 && c <= 0xEFFFF;
+  }
+
+  private static boolean isNameChar(int c) {
+    return isNameStartChar(c) || c >= '0' && c <= '9' || c == '-' || c == '.' || c == 0xB7
+        || c >= 0x300 && c <= 0x36F || c >= 0x203F && c <= 0x2040;
+  }
+
+}
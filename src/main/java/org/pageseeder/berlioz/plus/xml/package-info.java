@@ -0,0 +1,8 @@
+/*
+ * (c) Copyright LPCC Pty Ltd (Australia) 2016
+ */
+/**
+ * XML writers encoding directly to bytes.
+ */
+@org.jspecify.annotations.NullMarked
+package org.pageseeder.berlioz.plus.xml;
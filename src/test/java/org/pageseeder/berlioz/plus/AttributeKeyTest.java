@@ -0,0 +1,69 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+
+class AttributeKeyTest {
+
+  private static final AttributeKey<String> USER = AttributeKey.of("user", String.class);
+
+  private static final AttributeKey<Integer> TENANT = AttributeKey.of("tenant", Integer.class);
+
+  @Test
+  void of_invalidArguments_throw() {
+    assertThrows(NullPointerException.class, () -> AttributeKey.of(null, String.class));
+    assertThrows(NullPointerException.class, () -> AttributeKey.of("x", null));
+    assertThrows(IllegalArgumentException.class, () -> AttributeKey.of("", String.class));
+    assertThrows(IllegalArgumentException.class, () -> AttributeKey.of("x", int.class));
+    assertNotEquals(USER.index(), TENANT.index());
+  }
+
+  @Test
+  void setAttribute_sharedByRequestsAndVisibleByName() {
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of());
+    ValidatedRequest first = new ValidatedRequest(req);
+    assertNull(first.getAttribute(USER));
+    first.setAttribute(USER, "john");
+    assertEquals("john", first.getAttribute(USER));
+    assertEquals("john", first.getAttribute("user"));
+    ValidatedRequest second = new ValidatedRequest(req);
+    assertEquals("john", second.getAttribute(USER));
+    assertNull(second.getAttribute(TENANT));
+  }
+
+  @Test
+  void getAttribute_fallsBackToRequestAttribute() {
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of());
+    req.setAttribute("tenant", 7);
+    ValidatedRequest validated = new ValidatedRequest(req);
+    assertEquals(Integer.valueOf(7), validated.getAttribute(TENANT));
+    req.setAttribute("user", Boolean.TRUE);
+    assertThrows(ClassCastException.class, () -> validated.getAttribute(USER));
+  }
+
+  @Test
+  void setAttribute_keyCreatedAfterSlots_grows() {
+    ValidatedRequest validated = new ValidatedRequest(new MapBackedContentRequest(Map.of()));
+    validated.setAttribute(USER, "john");
+    AttributeKey<Long> late = null;
+    for (int i = 0; i < 20; i++) {
+      late = AttributeKey.of("late", Long.class);
+    }
+    validated.setAttribute(late, 1L);
+    assertEquals(Long.valueOf(1), validated.getAttribute(late));
+    assertEquals("john", validated.getAttribute(USER));
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  void setAttribute_wrongType_throwsClassCastException() {
+    AttributeKey raw = USER;
+    ValidatedRequest validated = new ValidatedRequest(new MapBackedContentRequest(Map.of()));
+    assertThrows(ClassCastException.class, () -> validated.setAttribute(raw, 1));
+  }
+
+}
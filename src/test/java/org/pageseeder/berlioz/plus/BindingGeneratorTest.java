@@ -0,0 +1,208 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.annotations.EmailParameter;
+import org.pageseeder.berlioz.plus.annotations.LongListParameter;
+import org.pageseeder.berlioz.plus.annotations.LongParameter;
+import org.pageseeder.berlioz.plus.annotations.Parameter;
+import org.pageseeder.berlioz.plus.annotations.TemporalParameter;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class BindingGeneratorTest {
+
+  static final class Params {
+
+    final long id;
+    final @Nullable Long page;
+    final LocalDate from;
+    final @Nullable LocalDateTime at;
+    final @Nullable String q;
+
+    Params(@LongParameter(value = "id", min = 1) long id,
+           @LongParameter(value = "page", required = false) @Nullable Long page,
+           @TemporalParameter("from") LocalDate from,
+           @TemporalParameter(value = "at", required = false) @Nullable LocalDateTime at,
+           @Parameter(value = "q", required = false, matches = "[a-z]+") @Nullable String q) {
+      this.id = id;
+      this.page = page;
+      this.from = from;
+      this.at = at;
+      this.q = q;
+    }
+
+    Params() {
+      this(0, null, LocalDate.MIN, null, null);
+    }
+
+  }
+
+  @EmailParameter("email")
+  static final class Sample extends BindingGenerator<Params> {
+
+    @Nullable Params last;
+
+    Sample() {
+      super(Params.class);
+    }
+
+    @Override
+    public ContentStatus generate(Params parameters, ValidatedRequest req, XMLPrinter xml) {
+      this.last = parameters;
+      return ContentStatus.OK;
+    }
+
+  }
+
+  static final class OptionalPrimitive {
+    OptionalPrimitive(@LongParameter(value = "id", required = false) long id) {
+    }
+  }
+
+  static final class WrongType {
+    WrongType(@Parameter("id") long id) {
+    }
+  }
+
+  static final class Empty {
+  }
+
+  static final class Ids extends BindingGenerator<Ids.Values> {
+
+    static final class Values {
+      final long[] ids;
+      Values(@LongListParameter(value = "ids", required = false, min = 1) long[] ids) {
+        this.ids = ids;
+      }
+    }
+
+    @Nullable Values last;
+
+    Ids() {
+      super(Values.class);
+    }
+
+    @Override
+    public ContentStatus generate(Values parameters, ValidatedRequest req, XMLPrinter xml) {
+      this.last = parameters;
+      return ContentStatus.OK;
+    }
+
+  }
+
+  @Test
+  void process_valid_bindsParameters() throws Exception {
+    Sample generator = new Sample();
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put("id", "42");
+    parameters.put("from", "2016-02-29");
+    parameters.put("at", "2016-02-29T10:15:30");
+    parameters.put("q", "abc");
+    parameters.put("email", "john@example.org");
+    MapBackedContentRequest req = new MapBackedContentRequest(parameters);
+    generator.process(req, new XMLStringWriter(XML.NamespaceAware.No));
+    assertEquals(ContentStatus.OK, req.getStatus());
+    Params params = generator.last;
+    assertNotNull(params);
+    assertEquals(42L, params.id);
+    assertNull(params.page);
+    assertEquals(LocalDate.of(2016, 2, 29), params.from);
+    assertEquals(LocalDateTime.of(2016, 2, 29, 10, 15, 30), params.at);
+    assertEquals("abc", params.q);
+  }
+
+  @Test
+  void process_invalid_rejectedBeforeBinding() throws Exception {
+    for (String[] invalid : new String[][]{{"id", "0"}, {"from", "2016-02-30"}, {"at", "2016-02-29"}, {"q", "ABC"}, {"email", "x"}}) {
+      Sample generator = new Sample();
+      Map<String, String> parameters = new HashMap<>(Map.of("id", "42", "from", "2016-02-29", "email", "john@example.org"));
+      parameters.put(invalid[0], invalid[1]);
+      MapBackedContentRequest req = new MapBackedContentRequest(parameters);
+      generator.process(req, new XMLStringWriter(XML.NamespaceAware.No));
+      assertEquals(ContentStatus.BAD_REQUEST, req.getStatus(), invalid[0]);
+      assertNull(generator.last, invalid[0]);
+    }
+  }
+
+  @Test
+  void process_missingRequired_rejected() throws Exception {
+    Sample generator = new Sample();
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("from", "2016-02-29", "email", "john@example.org"));
+    generator.process(req, new XMLStringWriter(XML.NamespaceAware.No));
+    assertEquals(ContentStatus.BAD_REQUEST, req.getStatus());
+    assertNull(generator.last);
+  }
+
+  @Test
+  void process_longList_bindsArray() throws Exception {
+    Ids generator = new Ids();
+    generator.process(new MapBackedContentRequest(Map.of("ids", "3,1,2")), new XMLStringWriter(XML.NamespaceAware.No));
+    assertNotNull(generator.last);
+    assertArrayEquals(new long[]{3, 1, 2}, generator.last.ids);
+    generator.process(new MapBackedContentRequest(Map.of()), new XMLStringWriter(XML.NamespaceAware.No));
+    assertArrayEquals(new long[0], generator.last.ids);
+    generator.last = null;
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("ids", "3,0"));
+    generator.process(req, new XMLStringWriter(XML.NamespaceAware.No));
+    assertEquals(ContentStatus.BAD_REQUEST, req.getStatus());
+    assertNull(generator.last);
+  }
+
+  @Test
+  void bind_withoutParsedValues_parsesParameters() {
+    ParameterBinder<Params> binder = ParameterBinder.of(Params.class);
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "7", "page", "2", "from", "2016-02-29"));
+    Params params = binder.bind(new ValidatedRequest(req));
+    assertEquals(7L, params.id);
+    assertEquals(Long.valueOf(2), params.page);
+    assertEquals(LocalDate.of(2016, 2, 29), params.from);
+    assertNull(params.at);
+  }
+
+  @Test
+  void bind_usesParsedValues() {
+    ParameterBinder<Params> binder = ParameterBinder.of(Params.class);
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "7", "from", "2016-02-29"));
+    ParsedValues values = new ParsedValues(new String[]{"from", "id"});
+    values.putLong(1, "7", 8L);
+    values.put(0, "2016-02-29", LocalDate.of(2000, 1, 1));
+    values.attach(req);
+    Params params = binder.bind(new ValidatedRequest(req));
+    assertEquals(8L, params.id);
+    assertEquals(LocalDate.of(2000, 1, 1), params.from);
+  }
+
+  @Test
+  void of_sameType_sameBinder() {
+    assertSame(ParameterBinder.of(Params.class), ParameterBinder.of(Params.class));
+    assertEquals(List.of("id", "page", "from", "at", "q"), ParameterBinder.of(Params.class).names());
+    assertEquals(List.of(), ParameterBinder.of(Empty.class).names());
+  }
+
+  @Test
+  void extend_addsConstraints() {
+    ParameterBinder<Params> binder = ParameterBinder.of(Params.class);
+    RequestValidator base = RequestValidator.forClass(Sample.class);
+    RequestValidator extended = binder.extend(base);
+    assertEquals(base.getConstraints().size() + 5, extended.getConstraints().size());
+    assertSame(extended, binder.extend(base));
+  }
+
+  @Test
+  void of_invalidTypes_throwIae() {
+    assertThrows(IllegalArgumentException.class, () -> ParameterBinder.of(OptionalPrimitive.class));
+    assertThrows(IllegalArgumentException.class, () -> ParameterBinder.of(WrongType.class));
+  }
+
+}
@@ -0,0 +1,100 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class GeneratorTest {
+
+  /**
+   * Records the printers used for validation and generation.
+   */
+  static final class Recording extends Generator<ValidatedRequest> {
+
+    final List<XMLPrinter> printers;
+
+    Recording(List<XMLPrinter> printers) {
+      super(new BuiltinFactory(), validator -> validator.toBuilder().add(new Capture(printers)).build());
+      this.printers = printers;
+    }
+
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      this.printers.add(xml);
+      xml.element("ok", "true");
+      return ContentStatus.OK;
+    }
+
+  }
+
+  static final class Capture implements Constraint {
+
+    private final List<XMLPrinter> printers;
+
+    Capture(List<XMLPrinter> printers) {
+      this.printers = printers;
+    }
+
+    @Override
+    public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
+      this.printers.add(xml);
+      return ContentStatus.OK;
+    }
+
+  }
+
+  @Test
+  void process_singlePrinterPerRequest() throws Exception {
+    List<XMLPrinter> printers = new ArrayList<>();
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of());
+    new Recording(printers).process(req, xml);
+    assertEquals(ContentStatus.OK, req.getStatus());
+    assertEquals(2, printers.size());
+    assertSame(printers.get(0), printers.get(1));
+    assertEquals("<ok>true</ok>", xml.toString());
+  }
+
+  @Test
+  void process_printer_notWrappedAgain() throws Exception {
+    List<XMLPrinter> printers = new ArrayList<>();
+    XMLPrinter printer = new XMLPrinter(new XMLStringWriter(XML.NamespaceAware.No));
+    new Recording(printers).process(new MapBackedContentRequest(Map.of()), printer);
+    assertSame(printer, printers.get(0));
+    assertSame(printer, printers.get(1));
+  }
+
+  @Test
+  void process_onePrinterConstructedPerCall() throws Exception {
+    List<XMLPrinter> printers = new ArrayList<>();
+    Recording generator = new Recording(printers);
+    for (int i = 0; i < 10; i++) {
+      generator.process(new MapBackedContentRequest(Map.of()), new XMLStringWriter(XML.NamespaceAware.No));
+    }
+    assertEquals(20, printers.size());
+    Set<XMLPrinter> constructed = Collections.newSetFromMap(new IdentityHashMap<>());
+    constructed.addAll(printers);
+    assertEquals(10, constructed.size());
+    printers.clear();
+    XMLPrinter printer = new XMLPrinter(new XMLStringWriter(XML.NamespaceAware.No));
+    for (int i = 0; i < 10; i++) {
+      generator.process(new MapBackedContentRequest(Map.of()), printer);
+    }
+    assertEquals(20, printers.size());
+    printers.forEach(p -> assertSame(printer, p));
+  }
+
+}
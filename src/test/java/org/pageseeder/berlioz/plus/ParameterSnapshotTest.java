@@ -0,0 +1,69 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+
+class ParameterSnapshotTest {
+
+  private static final Map<String, String> PARAMETERS = Map.of("q", "berlioz", "id", "42", "page", "3", "caf\u00e9", "\u00e9");
+
+  @Test
+  void view_readsRequest() {
+    MapBackedContentRequest req = new MapBackedContentRequest(PARAMETERS);
+    Map<String, String> view = new ValidatedRequest(req).getParameters();
+    assertEquals(PARAMETERS, view);
+    assertEquals(PARAMETERS.hashCode(), view.hashCode());
+    assertEquals(4, view.size());
+    assertEquals("42", view.get("id"));
+    assertNull(view.get("x"));
+    assertNull(view.get(1));
+    assertTrue(view.containsKey("page"));
+    assertFalse(view.containsKey("x"));
+    assertThrows(UnsupportedOperationException.class, () -> view.put("x", "1"));
+    assertThrows(UnsupportedOperationException.class, () -> view.entrySet().iterator().next().setValue("1"));
+    assertTrue(new ValidatedRequest(new MapBackedContentRequest(Map.of())).getParameters().isEmpty());
+  }
+
+  @Test
+  void snapshot_sortedAndImmutable() {
+    ParameterSnapshot snapshot = new ValidatedRequest(new MapBackedContentRequest(PARAMETERS)).getParameterSnapshot();
+    assertEquals(PARAMETERS, snapshot);
+    assertEquals(snapshot, PARAMETERS);
+    assertEquals(PARAMETERS.hashCode(), snapshot.hashCode());
+    assertEquals(List.of("caf\u00e9", "id", "page", "q"), new ArrayList<>(snapshot.keySet()));
+    assertEquals("berlioz", snapshot.get("q"));
+    assertNull(snapshot.get("x"));
+    assertNull(snapshot.get(null));
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.put("x", "1"));
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.remove("q"));
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.entrySet().iterator().next().setValue("1"));
+  }
+
+  @Test
+  void snapshot_doesNotFollowRequest() {
+    MapBackedContentRequest req = new MapBackedContentRequest(PARAMETERS);
+    ParameterSnapshot snapshot = ParameterSnapshot.of(req);
+    Map<String, String> copy = new HashMap<>(PARAMETERS);
+    copy.put("id", "43");
+    assertNotEquals(snapshot, ParameterSnapshot.of(new MapBackedContentRequest(copy)));
+    assertEquals(snapshot, ParameterSnapshot.of(new HashMap<>(PARAMETERS)));
+    assertSame(snapshot, ParameterSnapshot.of(snapshot));
+  }
+
+  @Test
+  void snapshot_empty() {
+    ParameterSnapshot empty = ParameterSnapshot.of(new MapBackedContentRequest(Map.of()));
+    assertTrue(empty.isEmpty());
+    assertEquals(0, empty.hashCode());
+    assertEquals(Map.of(), empty);
+    assertSame(empty, ParameterSnapshot.of(Map.of()));
+  }
+
+}
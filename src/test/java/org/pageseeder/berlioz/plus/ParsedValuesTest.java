@@ -0,0 +1,177 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.LongListParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.LongParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.RequiredParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.TemporalParameterConstraint;
+import org.pageseeder.berlioz.plus.exceptions.InvalidParameterException;
+import org.pageseeder.berlioz.plus.exceptions.MissingParameterException;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+import org.pageseeder.berlioz.plus.util.LongParser;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class ParsedValuesTest {
+
+  private static final Constraint[] CONSTRAINTS = {
+      new RequiredParameterConstraint("id"),
+      new LongParameterConstraint("id", true, 1, 1000),
+      new ParameterConstraint("name", false, "[a-z]+"),
+      new TemporalParameterConstraint("from", false, LocalDate.class),
+      new TemporalParameterConstraint("at", false, LocalDateTime.class),
+      new LongListParameterConstraint("ids", false, 1, 1000, 0, 10)
+  };
+
+  private enum Param implements RequestParameter {
+    ID, FROM, AT, NAME, IDS;
+
+    @Override
+    public String getName() {
+      return name().toLowerCase();
+    }
+  }
+
+  @Test
+  void compile_slotsOnlyForParsedParameters() {
+    assertEquals(4, ValidationPlan.compile(CONSTRAINTS, ConstraintOrder.DECLARATION).slots());
+    Constraint[] none = {new RequiredParameterConstraint("id"), new ParameterConstraint("name", false, "[a-z]+")};
+    assertEquals(0, ValidationPlan.compile(none, ConstraintOrder.DECLARATION).slots());
+  }
+
+  @Test
+  void parseLong_publishesOnlyValidValues() {
+    ParsedValues values = new ParsedValues(new String[]{"id"});
+    assertEquals(LongParser.OUT_OF_RANGE, values.parseLong(0, "0", 1, 1000));
+    assertFalse(values.isLong(0));
+    assertEquals(LongParser.INVALID, values.parseLong(0, "x", 1, 1000));
+    assertFalse(values.isLong(0));
+    assertEquals(LongParser.OK, values.parseLong(0, "42", 1, 1000));
+    assertTrue(values.hasLong(0, "42"));
+    assertEquals(42L, values.getLong(0));
+    assertEquals(LongParser.OUT_OF_RANGE, values.parseLong(0, "1001", 1, 1000));
+    assertEquals(42L, values.getLong(0));
+  }
+
+  @Test
+  void validate_valid_attachesParsedValues() {
+    for (ConstraintOrder order : ConstraintOrder.values()) {
+      MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "42", "from", "2016-02-29", "at", "2016-02-29T10:15:30"));
+      assertEquals(ContentStatus.OK, validate(ValidationPlan.compile(CONSTRAINTS, order, false), req));
+      ParsedValues values = ParsedValues.of(req);
+      assertNotNull(values);
+      int id = values.slot("id");
+      assertTrue(values.hasLong(id, "42"));
+      assertEquals(42L, values.getLong(id));
+      assertEquals(LocalDate.of(2016, 2, 29), values.get(values.slot("from"), "2016-02-29", LocalDate.class));
+      assertEquals(-1, values.slot("name"));
+    }
+  }
+
+  @Test
+  void validate_invalid_doesNotAttach() {
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "42", "from", "2016-02-30"));
+    assertEquals(ContentStatus.BAD_REQUEST, validate(ValidationPlan.compile(CONSTRAINTS, ConstraintOrder.COST), req));
+    assertNull(ParsedValues.of(req));
+  }
+
+  @Test
+  void validateAll_valid_attachesParsedValues() {
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "42"));
+    ValidationPlan plan = ValidationPlan.compile(CONSTRAINTS, ConstraintOrder.DECLARATION);
+    assertEquals(ContentStatus.OK, plan.validateAll(req, new XMLPrinter(new XMLStringWriter(XML.NamespaceAware.No))));
+    ParsedValues values = ParsedValues.of(req);
+    assertNotNull(values);
+    assertTrue(values.hasLong(values.slot("id"), "42"));
+  }
+
+  @Test
+  void validate_specialized_attachesParsedValues() {
+    assumeTrue(PlanSpecializer.isSupported(), "Hidden classes require Java 15");
+    ValidationPlan plan = ValidationPlan.compile(CONSTRAINTS, ConstraintOrder.COST, true);
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "7", "at", "2016-02-29T10:15:30"));
+    assertEquals(ContentStatus.OK, validate(plan, req));
+    assertTrue(plan.isSpecialized());
+    ParsedValues values = ParsedValues.of(req);
+    assertNotNull(values);
+    assertEquals(7L, values.getLong(values.slot("id")));
+    assertEquals(LocalDateTime.of(2016, 2, 29, 10, 15, 30), values.get(values.slot("at"), "2016-02-29T10:15:30", LocalDateTime.class));
+  }
+
+  @Test
+  void getters_validatedRequest_returnParsedValues() {
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "42", "from", "2016-02-29", "at", "2016-02-29T10:15:30"));
+    assertEquals(ContentStatus.OK, validate(ValidationPlan.compile(CONSTRAINTS, ConstraintOrder.COST), req));
+    ValidatedRequest validated = new ValidatedRequest(req);
+    assertEquals(42L, validated.getLong(Param.ID));
+    assertEquals(42L, validated.getPositiveLong(Param.ID));
+    assertEquals(LocalDate.of(2016, 2, 29), validated.getLocalDate(Param.FROM));
+    assertEquals(LocalDateTime.of(2016, 2, 29, 10, 15, 30), validated.getLocalDateTime(Param.AT));
+  }
+
+  @Test
+  void getters_readSlotsBeforeParsing() {
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "7", "from", "2016-02-29"));
+    ParsedValues values = new ParsedValues(new String[]{"id", "from"});
+    values.putLong(0, "7", 8L);
+    values.put(1, "2016-02-29", LocalDate.of(2000, 1, 1));
+    values.attach(req);
+    ValidatedRequest validated = new ValidatedRequest(req);
+    assertEquals(8L, validated.getLong(Param.ID));
+    assertEquals(LocalDate.of(2000, 1, 1), validated.getLocalDate(Param.FROM));
+  }
+
+  @Test
+  void getters_changedValue_parsesAgain() {
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "7", "from", "2016-02-29"));
+    ParsedValues values = new ParsedValues(new String[]{"id", "from"});
+    values.putLong(0, "6", 6L);
+    values.put(1, "2016-02-29", LocalDateTime.of(2000, 1, 1, 0, 0));
+    values.attach(req);
+    ValidatedRequest validated = new ValidatedRequest(req);
+    assertEquals(7L, validated.getLong(Param.ID));
+    assertEquals(LocalDate.of(2016, 2, 29), validated.getLocalDate(Param.FROM));
+  }
+
+  @Test
+  void getLongs_validatedRequest_returnsCopyOfParsedValues() {
+    for (ConstraintOrder order : ConstraintOrder.values()) {
+      MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "1", "ids", "3,1,2"));
+      assertEquals(ContentStatus.OK, validate(ValidationPlan.compile(CONSTRAINTS, order, true), req));
+      ParsedValues values = ParsedValues.of(req);
+      assertNotNull(values);
+      long[] parsed = values.get(values.slot("ids"), new String[]{"3", "1", "2"}, long[].class);
+      assertArrayEquals(new long[]{3, 1, 2}, parsed);
+      ValidatedRequest validated = new ValidatedRequest(req);
+      long[] longs = validated.getLongs(Param.IDS);
+      assertArrayEquals(new long[]{3, 1, 2}, longs);
+      assertNotSame(parsed, longs);
+      longs[0] = 0;
+      assertArrayEquals(new long[]{3, 1, 2}, validated.getLongs(Param.IDS));
+    }
+  }
+
+  @Test
+  void getLongs_withoutParsedValues_parsesParameter() {
+    ValidatedRequest validated = new ValidatedRequest(new MapBackedContentRequest(Map.of("ids", "4,-5", "x", "1,a")));
+    assertArrayEquals(new long[]{4, -5}, validated.getLongs(Param.IDS));
+    assertArrayEquals(new long[0], validated.getOptionalLongs(Param.NAME));
+    assertThrows(MissingParameterException.class, () -> validated.getLongs(Param.NAME));
+    assertThrows(InvalidParameterException.class, () -> validated.getLongs(() -> "x"));
+  }
+
+  private static ContentStatus validate(ValidationPlan plan, MapBackedContentRequest req) {
+    return plan.validate(req, new XMLPrinter(new XMLStringWriter(XML.NamespaceAware.No)));
+  }
+
+}
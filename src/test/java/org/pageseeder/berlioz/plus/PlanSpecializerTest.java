@@ -0,0 +1,132 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.EmailParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.LongListParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.LongParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.RequiredParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.TemporalParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ValueConstraint;
+import org.pageseeder.berlioz.plus.constraints.Violation;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class PlanSpecializerTest {
+
+  private static final Constraint[] CONSTRAINTS = {
+      new RequiredParameterConstraint("id"),
+      new LongParameterConstraint("id", true, 1, 1000),
+      new ParameterConstraint("name", false, "[a-z-]+"),
+      new HiddenConstraint(),
+      new EmailParameterConstraint("email", false),
+      new TemporalParameterConstraint("from", false, LocalDate.class),
+      new ParameterConstraint("caf\u00e9", false, "[0-9]*"),
+      new SecretConstraint(),
+      new LongListParameterConstraint("ids", false, 1, 1000, 0, 2),
+      new RequiredParameterConstraint("name")
+  };
+
+  private static final String[] NAMES = {"id", "name", "email", "from", "caf\u00e9", "secret", "ids"};
+
+  private static final String[] VALUES = {"", "12", "0", "5000", "abc", "a-b", "x@example.org", "2016-02-29", "open", "!", "3,4", "1,2,3"};
+
+  @Test
+  void validate_specialized_sameAsInterpreted() {
+    assumeSupported();
+    for (ConstraintOrder order : new ConstraintOrder[]{ConstraintOrder.COST, ConstraintOrder.DECLARATION}) {
+      ValidationPlan interpreted = ValidationPlan.compile(CONSTRAINTS, order, false);
+      ValidationPlan specialized = ValidationPlan.compile(CONSTRAINTS, order, true);
+      Random random = new Random(7);
+      for (int i = 0; i < 2000; i++) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String name : NAMES) {
+          if (random.nextInt(4) != 0) parameters.put(name, VALUES[random.nextInt(VALUES.length)]);
+        }
+        assertEquals(run(interpreted, parameters), run(specialized, parameters), parameters.toString());
+      }
+      assertTrue(specialized.isSpecialized());
+      assertFalse(interpreted.isSpecialized());
+    }
+  }
+
+  @Test
+  void validate_adaptiveOrder_isNotSpecialized() {
+    ValidationPlan plan = ValidationPlan.compile(CONSTRAINTS, ConstraintOrder.ADAPTIVE, true);
+    run(plan, Map.of("id", "1"));
+    assertFalse(plan.isSpecialized());
+  }
+
+  @Test
+  void validate_manyConstraints_specialized() {
+    assumeSupported();
+    Constraint[] constraints = new Constraint[300];
+    for (int i = 0; i < constraints.length; i++) {
+      constraints[i] = new LongParameterConstraint("p" + i, false, 0, i + 1);
+    }
+    ValidationPlan plan = ValidationPlan.compile(constraints, ConstraintOrder.DECLARATION, true);
+    assertEquals("OK", run(plan, Map.of("p299", "299")));
+    assertTrue(plan.isSpecialized());
+    assertTrue(run(plan, Map.of("p150", "152")).contains("parameter=\"p150\""));
+  }
+
+  private static String run(ValidationPlan plan, Map<String, String> parameters) {
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentStatus status = plan.validate(new MapBackedContentRequest(parameters), new XMLPrinter(xml));
+    return status + xml.toString();
+  }
+
+  /**
+   * Not accessible from the specialized code.
+   */
+  private static final class HiddenConstraint implements ValueConstraint {
+    @Override
+    public String getName() {
+      return "name";
+    }
+    @Override
+    public @Nullable Violation check(@Nullable String value) {
+      return "a-b".equals(value) ? new Violation("reserved", "name") : null;
+    }
+  }
+
+  /**
+   * An opaque constraint.
+   */
+  public static final class SecretConstraint implements Constraint {
+    @Override
+    public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
+      if ("!".equals(req.getParameter("secret"))) {
+        xml.element("forbidden", "secret");
+        return ContentStatus.FORBIDDEN;
+      }
+      return ContentStatus.OK;
+    }
+  }
+
+  /**
+   * Skips the test when hidden classes are not available, unless the build runs the
+   * tests with specialized plans enabled, in which case they must be.
+   */
+  private static void assumeSupported() {
+    if (Boolean.getBoolean(RequestValidator.SPECIALIZE_PROPERTY)) {
+      assertTrue(PlanSpecializer.isSupported(), "Hidden classes require Java 15");
+    } else {
+      assumeTrue(PlanSpecializer.isSupported(), "Hidden classes require Java 15");
+    }
+  }
+
+}
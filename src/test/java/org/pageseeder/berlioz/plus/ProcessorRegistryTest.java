@@ -0,0 +1,70 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.annotation.Annotation;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.plus.annotations.LongParameter;
+import org.pageseeder.berlioz.plus.annotations.Parameter;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.LongParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
+import org.pageseeder.berlioz.plus.spi.AnnotationProcessor;
+
+class ProcessorRegistryTest {
+
+  @Parameter("q")
+  @LongParameter("id")
+  @Deprecated
+  static final class Annotated {
+  }
+
+  @Test
+  void getInstance_sameClassLoader_returnsSameRegistry() {
+    ClassLoader loader = getClass().getClassLoader();
+    assertSame(ProcessorRegistry.getInstance(loader), ProcessorRegistry.getInstance(loader));
+  }
+
+  @Test
+  void refresh_reloadsRegistry() {
+    ClassLoader loader = getClass().getClassLoader();
+    ProcessorRegistry registry = ProcessorRegistry.getInstance(loader);
+    ProcessorRegistry.refresh(loader);
+    ProcessorRegistry reloaded = ProcessorRegistry.getInstance(loader);
+    assertNotSame(registry, reloaded);
+    assertEquals(registry.size(), reloaded.size());
+  }
+
+  @Test
+  void getProcessors_builtinType_returnsBuiltinProcessor() {
+    ProcessorRegistry registry = ProcessorRegistry.getInstance(getClass().getClassLoader());
+    List<AnnotationProcessor> processors = registry.getProcessors(Parameter.class);
+    assertEquals(1, processors.size());
+    assertTrue(processors.get(0) instanceof BuiltinProcessor);
+    assertSame(processors, registry.getProcessors(Parameter.class), "Candidates should be cached by type");
+  }
+
+  @Test
+  void getProcessors_unknownType_returnsEmpty() {
+    ProcessorRegistry registry = ProcessorRegistry.getInstance(getClass().getClassLoader());
+    assertTrue(registry.getProcessors(Deprecated.class).isEmpty());
+  }
+
+  @Test
+  void getConstraints_returnsConstraintPerAcceptedAnnotation() {
+    ProcessorRegistry registry = ProcessorRegistry.getInstance(getClass().getClassLoader());
+    Annotation q = Annotated.class.getAnnotation(Parameter.class);
+    Annotation id = Annotated.class.getAnnotation(LongParameter.class);
+    Annotation deprecated = Annotated.class.getAnnotation(Deprecated.class);
+    List<Constraint> forQ = registry.getConstraints(q);
+    List<Constraint> forId = registry.getConstraints(id);
+    assertEquals(1, forQ.size());
+    assertTrue(forQ.get(0) instanceof ParameterConstraint);
+    assertEquals(1, forId.size());
+    assertTrue(forId.get(0) instanceof LongParameterConstraint);
+    assertTrue(registry.getConstraints(deprecated).isEmpty());
+  }
+
+}
@@ -0,0 +1,394 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jspecify.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.content.ContentRequest;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.annotations.AdaptiveOrder;
+import org.pageseeder.berlioz.plus.annotations.EmailParameter;
+import org.pageseeder.berlioz.plus.annotations.LongParameter;
+import org.pageseeder.berlioz.plus.annotations.Parameter;
+import org.pageseeder.berlioz.plus.annotations.ReportAllErrors;
+import org.pageseeder.berlioz.plus.constraints.Constraint;
+import org.pageseeder.berlioz.plus.constraints.RequiredParameterConstraint;
+import org.pageseeder.berlioz.plus.constraints.ValueConstraint;
+import org.pageseeder.berlioz.plus.constraints.Violation;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class RequestValidatorTest {
+
+  @Parameter(value = "q", matches = "[a-z]+")
+  @LongParameter(value = "id", min = 1)
+  static final class SampleGenerator extends ValidatingGenerator {
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      return ContentStatus.OK;
+    }
+  }
+
+  @AdaptiveOrder
+  @EmailParameter("email")
+  static final class AdaptiveGenerator extends ValidatingGenerator {
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      return ContentStatus.OK;
+    }
+  }
+
+  @ReportAllErrors
+  @Parameter(value = "q", matches = "[a-z]+")
+  @LongParameter(value = "id", min = 1)
+  @EmailParameter("email")
+  static final class ReportingGenerator extends ValidatingGenerator {
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      return ContentStatus.OK;
+    }
+  }
+
+  @Test
+  void forClass_returnsSameValidatorForEachCall() {
+    assertSame(RequestValidator.forClass(SampleGenerator.class), RequestValidator.forClass(SampleGenerator.class));
+  }
+
+  @Test
+  void forClass_derivingValidator_doesNotModifySharedValidator() {
+    RequestValidator validator = RequestValidator.forClass(SampleGenerator.class);
+    RequestValidator derived = validator.toBuilder().requires("other").build();
+    assertThrows(UnsupportedOperationException.class, () -> validator.requires("other"));
+    assertNotSame(validator, derived);
+    assertEquals(2, validator.getConstraints().size());
+    assertEquals(3, derived.getConstraints().size());
+  }
+
+  @Test
+  void forClass_validatesAnnotations() {
+    RequestValidator validator = RequestValidator.forClass(SampleGenerator.class);
+    assertEquals(ContentStatus.OK, validate(validator, Map.of("q", "abc", "id", "1")));
+    assertEquals(ContentStatus.BAD_REQUEST, validate(validator, Map.of("q", "abc", "id", "0")));
+    assertEquals(ContentStatus.BAD_REQUEST, validate(validator, Map.of("q", "ABC", "id", "1")));
+  }
+
+  @Test
+  void invalidate_recomputesValidator() {
+    RequestValidator validator = RequestValidator.forClass(SampleGenerator.class);
+    RequestValidator.invalidate(SampleGenerator.class);
+    RequestValidator recomputed = RequestValidator.forClass(SampleGenerator.class);
+    assertNotSame(validator, recomputed);
+    assertSame(recomputed, RequestValidator.forClass(SampleGenerator.class));
+  }
+
+  @Test
+  void generators_shareValidator() {
+    // Instantiating generators must not rebuild the validator
+    RequestValidator validator = RequestValidator.forClass(SampleGenerator.class);
+    new SampleGenerator();
+    new SampleGenerator();
+    assertSame(validator, RequestValidator.forClass(SampleGenerator.class));
+  }
+
+  @Test
+  void validate_sameParameter_isLookedUpOnce() {
+    RequestValidator validator = RequestValidator.create()
+        .requires("id")
+        .matches("id", "[0-9]+")
+        .with(LongConstraint.class);
+    MapBackedContentRequest req = new MapBackedContentRequest(Map.of("id", "123"));
+    ContentStatus status = validator.validate(req, new XMLPrinter(new XMLStringWriter(XML.NamespaceAware.No)));
+    assertEquals(ContentStatus.OK, status);
+    assertEquals(1, req.getLookups());
+    assertEquals(1, validator.plan().lookups());
+  }
+
+  @Test
+  void validate_opaqueConstraint_keepsDeclarationOrder() {
+    RequestValidator validator = RequestValidator.create()
+        .requires("id")
+        .with(ForbiddenConstraint.class)
+        .requires("id", "other");
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("id", "1"));
+    // The missing "other" parameter is declared after the opaque constraint
+    assertEquals(ContentStatus.FORBIDDEN, validator.validate(req, new XMLPrinter(xml)));
+    assertTrue(xml.toString().isEmpty());
+  }
+
+  @Test
+  void requires_modifiesValidator() {
+    RequestValidator validator = RequestValidator.create().requires("id");
+    assertEquals(ContentStatus.OK, validate(validator, Map.of("id", "1")));
+    // The return value may be ignored
+    validator.requires("other");
+    assertEquals(ContentStatus.BAD_REQUEST, validate(validator, Map.of("id", "1")));
+    assertSame(validator, validator.isEmail("email"));
+    assertEquals(3, validator.getConstraints().size());
+  }
+
+  @Test
+  void with_returnsNewValidator() {
+    RequestValidator validator = RequestValidator.create().requires("id");
+    RequestValidator derived = validator.with(ForbiddenConstraint.class);
+    assertEquals(ContentStatus.OK, validate(validator, Map.of("id", "1")));
+    assertEquals(ContentStatus.FORBIDDEN, validate(derived, Map.of("id", "1")));
+    assertSame(derived, derived.requires("other"));
+  }
+
+  @Test
+  void none_returnsNewValidator() {
+    RequestValidator.none().requires("id");
+    assertNotSame(RequestValidator.none(), RequestValidator.none());
+    assertTrue(RequestValidator.none().getConstraints().isEmpty());
+  }
+
+  @Test
+  void builder_build_isNotAffectedByLaterChanges() {
+    RequestValidator.Builder builder = RequestValidator.builder().requires("id");
+    RequestValidator validator = builder.build();
+    builder.requires("other").isEmail("email");
+    assertEquals(1, validator.getConstraints().size());
+    assertEquals(3, builder.build().getConstraints().size());
+    assertThrows(UnsupportedOperationException.class, () -> validator.getConstraints().clear());
+  }
+
+  @Test
+  void builder_empty_isShared() {
+    RequestValidator validator = RequestValidator.builder().build();
+    assertSame(validator, RequestValidator.builder().build());
+    assertThrows(UnsupportedOperationException.class, () -> validator.requires("id"));
+    assertTrue(validator.getConstraints().isEmpty());
+  }
+
+  @Test
+  void validate_concurrently_isConsistent() throws Exception {
+    final int threads = 64;
+    final int iterations = 2_000;
+    RequestValidator validator = RequestValidator.builder()
+        .requires("id")
+        .matches("id", "[0-9]+")
+        .isEmail("email")
+        .build();
+    List<Constraint> constraints = validator.getConstraints();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger failures = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      for (int t = 0; t < threads; t++) {
+        final boolean valid = t % 2 == 0;
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < iterations; i++) {
+            Map<String, String> parameters = valid
+                ? Map.of("id", Integer.toString(i), "email", "user" + thread + "@example.org")
+                : Map.of("id", "x" + i, "email", "user" + thread + "@example.org");
+            ContentStatus expected = valid ? ContentStatus.OK : ContentStatus.BAD_REQUEST;
+            if (validate(validator, parameters) != expected) failures.incrementAndGet();
+            // Deriving validators must never affect the shared validator
+            validator.toBuilder().requires("other" + i).build();
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(0, failures.get());
+    assertEquals(constraints, validator.getConstraints());
+  }
+
+  @Test
+  void validate_failFast_reportsFirstErrorOnly() {
+    RequestValidator validator = RequestValidator.builder().requires("a", "b").isEmail("email").build();
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("email", "nope"));
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    String out = xml.toString();
+    assertTrue(out.contains("type=\"missing-parameter\" parameter=\"a\""), out);
+    assertEquals(1, out.split("<error ").length - 1, out);
+    assertFalse(out.contains("<errors"), out);
+  }
+
+  @Test
+  void validate_reportAllErrors_reportsEachInvalidParameter() {
+    RequestValidator validator = RequestValidator.builder().requires("a", "b").isEmail("email").reportAllErrors().build();
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("b", "x", "email", "nope"));
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    String out = xml.toString();
+    assertTrue(out.startsWith("<errors>") && out.endsWith("</errors>"), out);
+    assertTrue(out.indexOf("type=\"missing-parameter\" parameter=\"a\"") < out.indexOf("type=\"invalid-email\" parameter=\"email\""), out);
+    assertEquals(2, out.split("<error ").length - 1, out);
+  }
+
+  @Test
+  void validate_reportAllErrors_validRequest_writesNothing() {
+    RequestValidator validator = RequestValidator.builder().requires("a").isEmail("email").reportAllErrors().build();
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("a", "x", "email", "john@example.org"));
+    assertEquals(ContentStatus.OK, validator.validate(req, new XMLPrinter(xml)));
+    assertTrue(xml.toString().isEmpty());
+  }
+
+  @Test
+  void validate_reportAllErrors_onePerParameter() {
+    RequestValidator validator = RequestValidator.forClass(ReportingGenerator.class);
+    assertTrue(validator.reportsAllErrors());
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("q", "ABC"));
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    String out = xml.toString();
+    assertTrue(out.startsWith("<errors>"), out);
+    assertTrue(out.contains("type=\"invalid-parameter\" parameter=\"q\""), out);
+    assertTrue(out.contains("type=\"missing-parameter\" parameter=\"id\""), out);
+    assertTrue(out.contains("type=\"missing-parameter\" parameter=\"email\""), out);
+    assertEquals(3, out.split("<error ").length - 1, out);
+  }
+
+  @Test
+  void validate_reportAllErrors_stopsAtFailedOpaqueConstraint() {
+    RequestValidator validator = RequestValidator.builder()
+        .requires("a")
+        .with(ForbiddenConstraint.class)
+        .requires("b")
+        .reportAllErrors()
+        .build();
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of());
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    String out = xml.toString();
+    assertTrue(out.contains("parameter=\"a\""), out);
+    assertFalse(out.contains("parameter=\"b\""), out);
+  }
+
+  @Test
+  void toBuilder_keepsReportAllErrors() {
+    RequestValidator validator = RequestValidator.builder().reportAllErrors().build();
+    assertTrue(validator.toBuilder().requires("id").build().reportsAllErrors());
+    assertFalse(RequestValidator.none().requires("id").reportsAllErrors());
+  }
+
+  @Test
+  void validate_regexBudgetExceeded_returnsBadRequest() {
+    RequestValidator validator = RequestValidator.builder().matches("q", "(.*a){12}", 100_000).build();
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("q", "a".repeat(30) + "c"));
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    assertTrue(xml.toString().contains("type=\"regex-budget-exceeded\" parameter=\"q\""), xml.toString());
+    assertEquals(ContentStatus.OK, validator.validate(new MapBackedContentRequest(Map.of("q", "a".repeat(12))), new XMLPrinter(xml)));
+  }
+
+  @Test
+  void validate_costOrder_checksCheapParametersFirst() {
+    RequestValidator validator = RequestValidator.builder().matches("a", "[0-9]+").requires("b").build();
+    assertEquals(ConstraintOrder.COST, validator.order());
+    assertEquals(List.of("b", "a"), validator.plan().order());
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("a", "x"));
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    assertTrue(xml.toString().contains("type=\"missing-parameter\" parameter=\"b\""), xml.toString());
+  }
+
+  @Test
+  void validate_declarationOrder_keepsOrder() {
+    RequestValidator validator = RequestValidator.builder()
+        .matches("a", "[0-9]+")
+        .requires("b")
+        .order(ConstraintOrder.DECLARATION)
+        .build();
+    assertEquals(List.of("a", "b"), validator.plan().order());
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of("a", "x"));
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    assertTrue(xml.toString().contains("type=\"invalid-parameter\" parameter=\"a\""), xml.toString());
+    assertEquals(ConstraintOrder.DECLARATION, validator.toBuilder().requires("c").build().order());
+  }
+
+  @Test
+  void validate_costOrder_neverCrossesOpaqueConstraint() {
+    RequestValidator validator = RequestValidator.builder()
+        .isEmail("e")
+        .requires("a")
+        .with(ForbiddenConstraint.class)
+        .requires("b")
+        .add(new LongConstraint())
+        .requires("c")
+        .build();
+    assertEquals(List.of("a", "e", "ForbiddenConstraint", "b", "c", "id"), validator.plan().order());
+  }
+
+  @Test
+  void validate_costOrder_sameParameterKeepsDeclarationOrder() {
+    RequestValidator validator = RequestValidator.builder()
+        .add(new LongConstraint())
+        .add(new RequiredParameterConstraint("id"))
+        .build();
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    ContentRequest req = new MapBackedContentRequest(Map.of());
+    assertEquals(ContentStatus.BAD_REQUEST, validator.validate(req, new XMLPrinter(xml)));
+    assertTrue(xml.toString().contains("type=\"not-digits\""), xml.toString());
+  }
+
+  @Test
+  void validate_adaptiveOrder_checksRejectingParameterFirst() {
+    RequestValidator validator = RequestValidator.builder()
+        .add(new LongConstraint())
+        .matches("q", "[a-z]+")
+        .order(ConstraintOrder.ADAPTIVE)
+        .build();
+    assertEquals(List.of("q", "id"), validator.plan().order());
+    Map<String, String> parameters = Map.of("q", "abc", "id", "x");
+    for (int i = 0; i < 100_000; i++) {
+      assertEquals(ContentStatus.BAD_REQUEST, validate(validator, parameters));
+    }
+    assertEquals(List.of("id", "q"), validator.plan().order());
+  }
+
+  @Test
+  void forClass_adaptiveOrderAnnotation() {
+    assertEquals(ConstraintOrder.ADAPTIVE, RequestValidator.forClass(AdaptiveGenerator.class).order());
+    assertEquals(ConstraintOrder.COST, RequestValidator.forClass(SampleGenerator.class).order());
+  }
+
+  public static final class LongConstraint implements ValueConstraint {
+    @Override
+    public String getName() {
+      return "id";
+    }
+    @Override
+    public @Nullable Violation check(@Nullable String value) {
+      return value != null && value.chars().allMatch(Character::isDigit) ? null : new Violation("not-digits", "id");
+    }
+  }
+
+  public static final class ForbiddenConstraint implements Constraint {
+    @Override
+    public ContentStatus validate(ContentRequest req, XMLPrinter xml) {
+      return ContentStatus.FORBIDDEN;
+    }
+  }
+
+  private static ContentStatus validate(RequestValidator validator, Map<String, String> parameters) {
+    ContentRequest req = new MapBackedContentRequest(parameters);
+    return validator.validate(req, new XMLPrinter(new XMLStringWriter(XML.NamespaceAware.No)));
+  }
+
+}
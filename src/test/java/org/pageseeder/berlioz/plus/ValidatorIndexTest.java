@@ -0,0 +1,80 @@
+package org.pageseeder.berlioz.plus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.annotations.Parameter;
+import org.pageseeder.berlioz.plus.annotations.ReportAllErrors;
+
+class ValidatorIndexTest {
+
+  @Parameter("q")
+  static final class IndexedGenerator extends ValidatingGenerator {
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      return ContentStatus.OK;
+    }
+  }
+
+  /**
+   * Stands for a generated validator; it differs from the annotations so that tests can tell.
+   */
+  public static final class IndexedValidator implements Supplier<RequestValidator> {
+    @Override
+    public RequestValidator get() {
+      return RequestValidator.builder().requires("generated").reportAllErrors().build();
+    }
+  }
+
+  @Parameter("q")
+  static final class MissingGenerator extends ValidatingGenerator {
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      return ContentStatus.OK;
+    }
+  }
+
+  @ReportAllErrors
+  @Parameter("q")
+  static final class ReflectiveGenerator extends ValidatingGenerator {
+    @Override
+    public ContentStatus generate(ValidatedRequest req, XMLPrinter xml) {
+      return ContentStatus.OK;
+    }
+  }
+
+  @Test
+  void lookup_indexedGenerator_usesGeneratedValidator() {
+    RequestValidator validator = ValidatorIndex.lookup(IndexedGenerator.class);
+    assertNotNull(validator);
+    assertEquals(List.of("generated"), validator.plan().order());
+    assertSame(RequestValidator.forClass(IndexedGenerator.class), RequestValidator.forClass(IndexedGenerator.class));
+    assertEquals(List.of("generated"), RequestValidator.forClass(IndexedGenerator.class).plan().order());
+  }
+
+  @Test
+  void lookup_missingValidatorClass_fallsBackToAnnotations() {
+    assertNull(ValidatorIndex.lookup(MissingGenerator.class));
+    assertEquals(List.of("q"), RequestValidator.forClass(MissingGenerator.class).plan().order());
+  }
+
+  @Test
+  void lookup_notIndexed_fallsBackToAnnotations() {
+    assertNull(ValidatorIndex.lookup(ReflectiveGenerator.class));
+    RequestValidator validator = RequestValidator.forClass(ReflectiveGenerator.class);
+    assertEquals(List.of("q"), validator.plan().order());
+    assertTrue(validator.reportsAllErrors());
+  }
+
+  @Test
+  void isBuiltin_builtinTypes() {
+    ProcessorRegistry registry = ProcessorRegistry.getInstance();
+    assertTrue(registry.isBuiltin(Parameter.class));
+    assertTrue(registry.isBuiltin(ReportAllErrors.class));
+  }
+
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Test;
 import org.pageseeder.berlioz.content.ContentRequest;
@@ -70,4 +72,53 @@ class EmailParameterConstraintTest {
     assertTrue(xml.toString().contains("invalid-email"), "XML should contain 'invalid-email' error type");
   }
 
+  /**
+   * The pattern previously used by the constraint.
+   */
+  private static final Pattern EMAIL_PATTERN =
+      Pattern.compile("^[A-Za-z0-9]+(?>[._%+-][A-Za-z0-9]+)*@[A-Za-z0-9]+(?>[.-][A-Za-z0-9]+)*\\.[A-Za-z]{2,}$");
+
+  @Test
+  void isEmail_allShortStrings_matchesPattern() {
+    char[] alphabet = "aZ1.-_@+".toCharArray();
+    char[] chars = new char[7];
+    for (int length = 0; length <= chars.length; length++) {
+      int combinations = (int) Math.pow(alphabet.length, length);
+      for (int n = 0; n < combinations; n++) {
+        for (int i = 0, x = n; i < length; i++, x /= alphabet.length) {
+          chars[i] = alphabet[x % alphabet.length];
+        }
+        assertSameAsPattern(new String(chars, 0, length));
+      }
+    }
+  }
+
+  @Test
+  void isEmail_randomStrings_matchesPattern() {
+    Random random = new Random(42);
+    char[] alphabet = "abcXYZ0129._%+-@!\n ".toCharArray();
+    for (int i = 0; i < 200_000; i++) {
+      char[] chars = new char[random.nextInt(40)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = alphabet[random.nextInt(alphabet.length)];
+      }
+      assertSameAsPattern(new String(chars));
+    }
+    for (String email : List.of("john.doe@example.com", "a@b.co", "a@b.c", "a@b-c.org", "a@b.c-d", "a@b.c1",
+        "a@b.co\n", "a..b@c.de", ".a@b.cd", "a.@b.cd", "a@@b.cd", "a@b..cd", "a@-b.cd", "a@b.cd.", "\u00e9@b.cd")) {
+      assertSameAsPattern(email);
+    }
+  }
+
+  @Test
+  void isEmail_longerThanMaxLength_isRejected() {
+    String local = "a".repeat(EmailParameterConstraint.MAX_LENGTH - "@example.org".length());
+    assertTrue(EmailParameterConstraint.isEmail(local + "@example.org"));
+    assertFalse(EmailParameterConstraint.isEmail(local + "a@example.org"));
+  }
+
+  private static void assertSameAsPattern(String value) {
+    assertEquals(EMAIL_PATTERN.matcher(value).matches(), EmailParameterConstraint.isEmail(value), value);
+  }
+
 }
\ No newline at end of file
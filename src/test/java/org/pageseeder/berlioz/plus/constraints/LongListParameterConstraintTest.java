@@ -0,0 +1,95 @@
+package org.pageseeder.berlioz.plus.constraints;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.content.ContentStatus;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.test.MapBackedContentRequest;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class LongListParameterConstraintTest {
+
+  @Test
+  void constructor_invalidArguments_throw() {
+    assertThrows(NullPointerException.class, () -> new LongListParameterConstraint(null, false));
+    assertThrows(IllegalArgumentException.class, () -> new LongListParameterConstraint("", false));
+    assertThrows(IllegalArgumentException.class, () -> new LongListParameterConstraint("ids", false, 10, 10, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new LongListParameterConstraint("ids", false, 0, 10, -1, 1));
+    assertThrows(IllegalArgumentException.class, () -> new LongListParameterConstraint("ids", false, 0, 10, 2, 1));
+  }
+
+  @Test
+  void check_missing() {
+    assertNull(new LongListParameterConstraint("ids", false).check(null));
+    assertNull(new LongListParameterConstraint("ids", false).check(new String[0]));
+    Violation violation = new LongListParameterConstraint("ids", true).check(null);
+    assertNotNull(violation);
+    assertEquals(ContentStatus.BAD_REQUEST, violation.status());
+  }
+
+  @Test
+  void check_validLists_returnsNull() {
+    LongListParameterConstraint c = new LongListParameterConstraint("ids", true);
+    assertNull(c.check(new String[]{"1"}));
+    assertNull(c.check(new String[]{"1,2,3"}));
+    assertNull(c.check(new String[]{"1", "-2,+3", ""}));
+    assertNull(c.check(new String[]{"\u0661\u0662"}));
+  }
+
+  @Test
+  void check_invalidItems_reportsInvalid() {
+    LongListParameterConstraint c = new LongListParameterConstraint("ids", true);
+    for (String value : new String[]{"a", "1,,2", "1,", ",1", "1, 2", "9223372036854775808"}) {
+      assertEquals("invalid-long-parameter:ids", type(c.check(new String[]{value})), value);
+    }
+  }
+
+  @Test
+  void check_range_reportsOutOfRange() {
+    LongListParameterConstraint c = new LongListParameterConstraint("ids", true, 1, 10, 0, 100);
+    assertNull(c.check(new String[]{"1,10"}));
+    assertEquals("out-of-range:ids", type(c.check(new String[]{"1,11"})));
+    assertEquals("out-of-range:ids", type(c.check(new String[]{"5", "0"})));
+    String xml = toXML(c.check(new String[]{"0"}));
+    assertTrue(xml.contains("min=\"1\"") && xml.contains("max=\"10\""), xml);
+  }
+
+  @Test
+  void check_count_reportsInvalidCount() {
+    LongListParameterConstraint c = new LongListParameterConstraint("ids", false, 0, 10, 2, 3);
+    assertNull(c.check(new String[]{"1,2"}));
+    assertNull(c.check(new String[]{"1", "2,3"}));
+    assertEquals("invalid-count:ids", type(c.check(new String[]{"1"})));
+    assertEquals("invalid-count:ids", type(c.check(new String[]{""})));
+    assertEquals("invalid-count:ids", type(c.check(new String[]{"1,2", "3,4"})));
+    String xml = toXML(c.check(new String[]{"1"}));
+    assertTrue(xml.contains("min-count=\"2\"") && xml.contains("max-count=\"3\""), xml);
+  }
+
+  @Test
+  void validate_request_writesViolation() {
+    LongListParameterConstraint c = new LongListParameterConstraint("ids", true, 0, 10, 0, 10);
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    assertEquals(ContentStatus.OK, c.validate(new MapBackedContentRequest(Map.of("ids", "1,2")), new XMLPrinter(xml)));
+    assertTrue(xml.toString().isEmpty());
+    assertEquals(ContentStatus.BAD_REQUEST, c.validate(new MapBackedContentRequest(Map.of("ids", "1,x")), new XMLPrinter(xml)));
+    assertTrue(xml.toString().contains("type=\"invalid-long-parameter\""));
+  }
+
+  private static String type(Violation violation) {
+    assertNotNull(violation);
+    return violation.toString();
+  }
+
+  private static String toXML(Violation violation) {
+    assertNotNull(violation);
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
+    violation.toXML(new XMLPrinter(xml));
+    return xml.toString();
+  }
+
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDate;
 import java.time.Year;
+import java.time.YearMonth;
 import java.time.temporal.Temporal;
 import java.util.Map;
 
@@ -104,12 +105,22 @@ class TemporalParameterConstraintTest {
   }
 
   @Test
-  void validate_typeWithoutParseMethod_throwsIllegalStateException() {
+  void validate_typeWithoutParseMethod_returnsBadRequest() {
     TemporalParameterConstraint c = new TemporalParameterConstraint("t", true, Temporal.class);
     ContentRequest req = new MapBackedContentRequest(Map.of("t", "anything"));
-    XMLPrinter xml = new XMLPrinter(new XMLStringWriter(XML.NamespaceAware.No));
+    XMLStringWriter xml = new XMLStringWriter(XML.NamespaceAware.No);
 
-    assertThrows(IllegalStateException.class, () -> c.validate(req, xml));
+    assertEquals(ContentStatus.BAD_REQUEST, c.validate(req, new XMLPrinter(xml)));
+    assertEquals(ContentStatus.BAD_REQUEST, c.validate(req, new XMLPrinter(xml)));
+    assertTrue(xml.toString().contains("invalid-temporal"), xml.toString());
+  }
+
+  @Test
+  void validate_yearMonth_usesGeneratedParser() {
+    TemporalParameterConstraint c = new TemporalParameterConstraint("month", false, YearMonth.class);
+    assertNull(c.check("2025-03"));
+    assertNotNull(c.check("2025-13"));
+    assertNotNull(c.check("March"));
   }
 
   @Test
@@ -0,0 +1,81 @@
+package org.pageseeder.berlioz.plus.regex;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.plus.constraints.ParameterConstraint;
+
+class RegexCacheTest {
+
+  @Test
+  void intern_sameKey_returnsSameInstance() {
+    RegexCache cache = new RegexCache(16);
+    RegexMatcher matcher = cache.intern("[a-z0-9-]+", 0, RegexEngine.PATTERN);
+    assertSame(matcher, cache.intern("[a-z0-9-]+", 0, RegexEngine.PATTERN));
+    assertNotSame(matcher, cache.intern("[a-z0-9-]+", 0, RegexEngine.DFA));
+    assertNotSame(matcher, cache.intern("[a-z0-9-]+", Pattern.CASE_INSENSITIVE, RegexEngine.PATTERN));
+    RegexCache.Stats stats = cache.stats();
+    assertEquals(1, stats.getHitCount());
+    assertEquals(3, stats.getMissCount());
+    assertEquals(0.25, stats.getHitRate());
+    assertEquals(3, stats.getSize());
+    assertTrue(stats.getEstimatedSize() > 0);
+  }
+
+  @Test
+  void intern_overCapacity_evictsUnusedEntries() {
+    RegexCache cache = new RegexCache(4);
+    RegexMatcher used = cache.intern("used", 0, RegexEngine.PATTERN);
+    int reloads = 0;
+    for (int i = 0; i < 100; i++) {
+      cache.intern("x" + i, 0, RegexEngine.PATTERN);
+      RegexMatcher current = cache.intern("used", 0, RegexEngine.PATTERN);
+      if (current != used) reloads++;
+      used = current;
+    }
+    // New entries count as used, so the hand occasionally finds all entries used
+    assertTrue(reloads < 5, "reloads=" + reloads);
+    RegexCache.Stats stats = cache.stats();
+    assertEquals(4, stats.getSize());
+    assertEquals(97 + reloads, stats.getEvictionCount());
+  }
+
+  @Test
+  void intern_overCapacity_keepsNewEntry() {
+    RegexCache cache = new RegexCache(4);
+    for (int i = 0; i < 100; i++) {
+      RegexMatcher created = cache.intern("x" + i, 0, RegexEngine.PATTERN);
+      assertSame(created, cache.intern("x" + i, 0, RegexEngine.PATTERN), "x" + i);
+    }
+    RegexCache.Stats stats = cache.stats();
+    assertEquals(100, stats.getHitCount());
+    assertEquals(4, stats.getSize());
+  }
+
+  @Test
+  void intern_invalidPattern_isNotCached() {
+    RegexCache cache = new RegexCache(4);
+    assertThrows(PatternSyntaxException.class, () -> cache.intern("[a-", 0, RegexEngine.PATTERN));
+    assertEquals(0, cache.stats().getSize());
+  }
+
+  @Test
+  void pattern_sharedWithMatcher() {
+    Pattern pattern = RegexCache.pattern("[0-9]{4}", 0);
+    assertSame(pattern, RegexCache.pattern("[0-9]{4}", 0));
+    assertTrue(pattern.matcher("2016").matches());
+    assertTrue(RegexCache.pattern("abc", Pattern.CASE_INSENSITIVE).matcher("ABC").matches());
+  }
+
+  @Test
+  void constraints_shareCompiledPatterns() {
+    long hits = RegexCache.getStats().getHitCount();
+    new ParameterConstraint("a", false, "[a-z]{3}-cache", RegexEngine.PATTERN);
+    new ParameterConstraint("b", false, "[a-z]{3}-cache", RegexEngine.PATTERN);
+    assertEquals(hits + 1, RegexCache.getStats().getHitCount());
+  }
+
+}
@@ -0,0 +1,182 @@
+package org.pageseeder.berlioz.plus.regex;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.jupiter.api.Test;
+
+class RegexEngineTest {
+
+  private static final List<String> SUPPORTED = List.of(
+      "[0-9]{1,12}", "[a-z0-9]+(-[a-z0-9]+)*", "^[A-Z]{2}-\\d{4}$", "(a|b)*abb", "a|ab|abc|", "(a+)+b",
+      "(a|aa)+", "(a*)*", "()*a", "a{2}b{0,1}c{3,}", "a{0}", "[^a-c]x?", "[\\w.-]+@[\\w-]+\\.\\w{2,}", "\\S+\\s\\D",
+      ".*\\.xml", "[-a]", "[a-]", "[\\]\\[]+", "\\x41\\u0042", "(?:ab)+?", "a+?b*?", "[\\d\\s]*", "\\W",
+      "\uD83D\uDE00+", ".", "[^x]", "[a-zA-Z_$][a-zA-Z0-9_$]*", "#+ ", "a}]", "(x|y|z){2,3}",
+      "\\uD83D\\uDE00+", "[\\uD83D\\uDE00-\\uD83D\\uDE4F]", "\\uD83Dx?");
+
+  private static final List<String> UNSUPPORTED = List.of(
+      "(a)\\1", "a(?=b)", "(?<!a)b", "(?>a+)b", "a*+", "\\bword\\b", "(?i)abc", "\\p{L}+", "[a-z&&[^e]]",
+      "a$b", "a^", "\\Qa.b\\E", "(?<name>a)", "[a[b]]", "\\0101");
+
+  @Test
+  void compile_supportedPatterns_useDfa() {
+    for (String regex : SUPPORTED) {
+      assertEquals(RegexEngine.DFA, RegexEngine.DFA.compile(regex).engine(), regex);
+    }
+  }
+
+  @Test
+  void compile_unsupportedPatterns_fallBackToPattern() {
+    for (String regex : UNSUPPORTED) {
+      RegexMatcher matcher = RegexEngine.DFA.compile(regex);
+      assertEquals(RegexEngine.PATTERN, matcher.engine(), regex);
+      assertEquals(regex, matcher.pattern());
+    }
+  }
+
+  @Test
+  void compile_invalidPattern_throwsPatternSyntaxException() {
+    assertThrows(PatternSyntaxException.class, () -> RegexEngine.DFA.compile("[a-"));
+    assertThrows(PatternSyntaxException.class, () -> RegexEngine.PATTERN.compile("a{2"));
+  }
+
+  @Test
+  void compile_tooManyStates_fallsBackToPattern() {
+    // The DFA for this expression has 2^n states
+    assertEquals(RegexEngine.PATTERN, RegexEngine.DFA.compile("[ab]*a[ab]{20}").engine());
+  }
+
+  @Test
+  void resolve_default_usesSystemProperty() {
+    String previous = System.getProperty(RegexEngine.PROPERTY);
+    try {
+      System.clearProperty(RegexEngine.PROPERTY);
+      assertEquals(RegexEngine.PATTERN, RegexEngine.DEFAULT.resolve());
+      System.setProperty(RegexEngine.PROPERTY, "dfa");
+      assertEquals(RegexEngine.DFA, RegexEngine.DEFAULT.resolve());
+      assertEquals(RegexEngine.DFA, RegexEngine.DEFAULT.compile("[a-z]+").engine());
+      assertEquals(RegexEngine.PATTERN, RegexEngine.PATTERN.resolve());
+    } finally {
+      if (previous != null) System.setProperty(RegexEngine.PROPERTY, previous);
+      else System.clearProperty(RegexEngine.PROPERTY);
+    }
+  }
+
+  @Test
+  void matches_randomInputs_sameAsPattern() {
+    Random random = new Random(42);
+    String alphabet = "aAbcxyz019_-.@ $#]}\n\r\t\u00E9\u2028\uD83D\uDE00\uD83D";
+    for (String regex : SUPPORTED) {
+      Pattern pattern = Pattern.compile(regex);
+      RegexMatcher dfa = RegexEngine.DFA.compile(regex);
+      for (int i = 0; i < 5_000; i++) {
+        StringBuilder input = new StringBuilder();
+        int length = random.nextInt(16);
+        for (int j = 0; j < length; j++) {
+          input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        String value = input.toString();
+        assertEquals(pattern.matcher(value).matches(), dfa.matches(value), regex + " ~ " + value);
+      }
+    }
+  }
+
+  @Test
+  void matches_sampleValues_sameAsPattern() {
+    List<String> values = List.of("", "a", "aa", "abb", "aabb", "babb", "a-b-c", "a--b", "-a", "AB-1234", "AB-123",
+        "john.smith@example.org", "x.xml", ".xml", "xml", "\uD83D\uDE00\uD83D\uDE00", "\uD83D", "abc", "aaab",
+        "aacccc", "aabccc", "x", "yzx", "#  ", "a}]", "AB", "0", "123456789012", "1234567890123", "$foo_1",
+        "\uD83D\uDE4F", "\uD83Dx", "\uDE00");
+    for (String regex : SUPPORTED) {
+      Pattern pattern = Pattern.compile(regex);
+      RegexMatcher dfa = RegexEngine.DFA.compile(regex);
+      for (String value : values) {
+        assertEquals(pattern.matcher(value).matches(), dfa.matches(value), regex + " ~ " + value);
+      }
+    }
+  }
+
+  @Test
+  void matches_pathologicalInput_isLinear() {
+    RegexMatcher dfa = RegexEngine.DFA.compile("(a|aa)+b");
+    String input = "a".repeat(100_000);
+    assertFalse(dfa.matches(input));
+    assertTrue(dfa.matches(input + "b"));
+  }
+
+  @Test
+  void match_pathologicalInput_exceedsBudget() {
+    // Takes about a billion character accesses without a budget
+    RegexMatcher matcher = RegexEngine.PATTERN.compile("(.*a){12}");
+    long before = RegexBudget.getExceededCount();
+    assertEquals(RegexMatcher.Result.BUDGET_EXCEEDED, matcher.match("a".repeat(30) + "c", 100_000));
+    assertEquals(before + 1, RegexBudget.getExceededCount());
+    assertEquals(RegexMatcher.Result.MATCH, matcher.match("a".repeat(12), 100_000));
+    assertEquals(RegexMatcher.Result.NO_MATCH, matcher.match("a".repeat(11), 100_000));
+  }
+
+  @Test
+  void match_dfa_exceedsBudgetOnlyWhenLonger() {
+    RegexMatcher dfa = RegexEngine.DFA.compile("(a|aa)+b");
+    assertEquals(RegexMatcher.Result.NO_MATCH, dfa.match("a".repeat(64), 64));
+    assertEquals(RegexMatcher.Result.BUDGET_EXCEEDED, dfa.match("a".repeat(65), 64));
+    assertEquals(RegexMatcher.Result.MATCH, dfa.match("aab", RegexBudget.UNLIMITED));
+  }
+
+  @Test
+  void match_unlimitedBudget_doesNotWrapInput() {
+    RegexMatcher matcher = RegexEngine.PATTERN.compile("[a-z]+");
+    AtomicBoolean wrapped = new AtomicBoolean();
+    CharSequence input = new CharSequence() {
+      private final String text = "abc";
+      @Override
+      public char charAt(int index) {
+        if (StackWalker.getInstance().walk(frames -> frames.anyMatch(f -> f.getClassName().equals(BudgetedCharSequence.class.getName())))) {
+          wrapped.set(true);
+        }
+        return this.text.charAt(index);
+      }
+      @Override
+      public int length() {
+        return this.text.length();
+      }
+      @Override
+      public CharSequence subSequence(int start, int end) {
+        return this.text.subSequence(start, end);
+      }
+    };
+    assertEquals(RegexMatcher.Result.MATCH, matcher.match(input, RegexBudget.UNLIMITED));
+    assertFalse(wrapped.get());
+    assertEquals(RegexMatcher.Result.MATCH, matcher.match(input, 100));
+    assertTrue(wrapped.get());
+  }
+
+  @Test
+  void resolve_budget() {
+    assertEquals(RegexBudget.UNLIMITED, RegexBudget.resolve(-5));
+    assertEquals(1000, RegexBudget.resolve(1000));
+    String previous = System.getProperty(RegexBudget.PROPERTY);
+    try {
+      System.clearProperty(RegexBudget.PROPERTY);
+      assertEquals(RegexBudget.DEFAULT_BUDGET, RegexBudget.resolve(RegexBudget.DEFAULT));
+      System.setProperty(RegexBudget.PROPERTY, "5000");
+      assertEquals(5000, RegexBudget.resolve(RegexBudget.DEFAULT));
+      // Only positive budgets can be specified by the property
+      System.setProperty(RegexBudget.PROPERTY, "0");
+      assertEquals(RegexBudget.DEFAULT_BUDGET, RegexBudget.resolve(RegexBudget.DEFAULT));
+      System.setProperty(RegexBudget.PROPERTY, "-1");
+      assertEquals(RegexBudget.DEFAULT_BUDGET, RegexBudget.resolve(RegexBudget.DEFAULT));
+      System.setProperty(RegexBudget.PROPERTY, "x");
+      assertEquals(RegexBudget.DEFAULT_BUDGET, RegexBudget.resolve(RegexBudget.DEFAULT));
+    } finally {
+      if (previous == null) System.clearProperty(RegexBudget.PROPERTY);
+      else System.setProperty(RegexBudget.PROPERTY, previous);
+    }
+  }
+
+}
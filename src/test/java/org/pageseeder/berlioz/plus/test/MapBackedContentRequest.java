@@ -18,12 +18,15 @@ public final class MapBackedContentRequest implements ContentRequest {
 
   private ContentStatus status = ContentStatus.OK;
 
+  private int lookups = 0;
+
   public MapBackedContentRequest(Map<String, String> params) {
     this.params = new HashMap<>(params);
   }
 
   @Override
   public @Nullable String getParameter(String name) {
+    this.lookups++;
     return this.params.get(name);
   }
 
@@ -97,4 +100,11 @@ public final class MapBackedContentRequest implements ContentRequest {
   public ContentStatus getStatus() {
     return status;
   }
+
+  /**
+   * @return the number of times a parameter was looked up using {@link #getParameter(String)}
+   */
+  public int getLookups() {
+    return lookups;
+  }
 }
@@ -0,0 +1,112 @@
+package org.pageseeder.berlioz.plus.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.Temporal;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class IsoTemporalTest {
+
+  private static final List<String> DATES = List.of(
+      "2016-05-27", "0000-01-01", "9999-12-31", "2016-02-29", "2015-02-29", "2000-02-29", "1900-02-29",
+      "2016-04-31", "2016-13-01", "2016-00-10", "2016-01-00", "2016-1-01", "16-01-01", "+12016-01-01",
+      "-2016-01-01", "+2016-01-01", "20160-01-01", "2016/01/01", "2016-01-01 ", " 2016-01-01", "", "abc"
+  );
+
+  private static final List<String> TIMES = List.of(
+      "10:15", "10:15:30", "10:15:30.1", "10:15:30.123456789", "10:15:30.1234567890", "10:15:30.",
+      "10:15:30,5", "00:00", "23:59:59", "24:00", "24:00:00", "23:60", "23:59:60", "1:15", "10:1", "10-15",
+      "10:15:3", "10:15:30Z", ""
+  );
+
+  private static final List<String> OFFSETS = List.of(
+      "Z", "z", "+10:00", "-05:30", "+00:00", "-00:00", "+18:00", "-18:00", "+18:01", "+19:00", "+10:60",
+      "+10", "+1000", "+10:00:30", "+10:00:60", "[Australia/Sydney]", "+10:00[Australia/Sydney]",
+      "Z[UTC]", "+10:00[", "UTC", ""
+  );
+
+  @Test
+  void parseLocalDate_matchesJdk() {
+    for (String date : DATES) {
+      assertSameAsJdk(date, LocalDate.class, LocalDate::parse);
+    }
+  }
+
+  @Test
+  void parseLocalTime_matchesJdk() {
+    for (String time : TIMES) {
+      assertSameAsJdk(time, LocalTime.class, LocalTime::parse);
+    }
+  }
+
+  @Test
+  void parseDateTimes_matchJdk() {
+    for (String date : DATES) {
+      for (String time : TIMES) {
+        for (String t : List.of("T", "t", " ")) {
+          String datetime = date + t + time;
+          assertSameAsJdk(datetime, LocalDateTime.class, LocalDateTime::parse);
+          for (String offset : OFFSETS) {
+            assertSameAsJdk(datetime + offset, OffsetDateTime.class, OffsetDateTime::parse);
+            assertSameAsJdk(datetime + offset, ZonedDateTime.class, ZonedDateTime::parse);
+            assertSameAsJdk(datetime + offset, Instant.class, Instant::parse);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void parseOffsetTime_matchesJdk() {
+    for (String time : TIMES) {
+      for (String offset : OFFSETS) {
+        assertSameAsJdk(time + offset, OffsetTime.class, OffsetTime::parse);
+      }
+    }
+  }
+
+  @Test
+  void parse_randomMutations_matchJdk() {
+    Random random = new Random(42);
+    String[] samples = {"2016-05-27T10:15:30.123+10:00", "2016-02-29T23:59:59Z", "0001-01-01T00:00:00.5-05:30"};
+    char[] alphabet = "0123456789-+:.TZ ".toCharArray();
+    for (int i = 0; i < 50_000; i++) {
+      char[] chars = samples[random.nextInt(samples.length)].toCharArray();
+      chars[random.nextInt(chars.length)] = alphabet[random.nextInt(alphabet.length)];
+      String text = new String(chars, 0, 1 + random.nextInt(chars.length));
+      assertSameAsJdk(text, LocalDate.class, LocalDate::parse);
+      assertSameAsJdk(text, LocalDateTime.class, LocalDateTime::parse);
+      assertSameAsJdk(text, OffsetDateTime.class, OffsetDateTime::parse);
+      assertSameAsJdk(text, ZonedDateTime.class, ZonedDateTime::parse);
+      assertSameAsJdk(text, Instant.class, Instant::parse);
+    }
+  }
+
+  @Test
+  void parse_unsupportedType_throwsIae() {
+    assertFalse(IsoTemporal.isSupported(java.time.Year.class));
+    assertThrows(IllegalArgumentException.class, () -> IsoTemporal.parse("2016", java.time.Year.class));
+  }
+
+  private static void assertSameAsJdk(String text, Class<? extends Temporal> type, Function<CharSequence, Temporal> jdk) {
+    Temporal expected;
+    try {
+      expected = jdk.apply(text);
+    } catch (RuntimeException ex) {
+      expected = null;
+    }
+    assertEquals(expected, IsoTemporal.parse(text, type), type.getSimpleName() + " " + text);
+  }
+
+}
@@ -0,0 +1,136 @@
+package org.pageseeder.berlioz.plus.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LongParserTest {
+
+  private static final List<String> VALUES = List.of(
+      "0", "-0", "+0", "1", "-1", "+1", "007", "123456789",
+      "9223372036854775807", "-9223372036854775808",
+      "9223372036854775808", "-9223372036854775809", "+9223372036854775808",
+      "92233720368547758070", "99999999999999999999", "-99999999999999999999",
+      "", "-", "+", "+-1", "-+1", "--1", " 1", "1 ", "1.0", "1e3", "0x10", "abc", "12a",
+      "99999999999999999999x", "\u0661\u0662\u0663", "-\u0967\u0968", "\uff11\uff12", "\u00b2"
+  );
+
+  @Test
+  void check_matchesLongParseLong() {
+    for (String value : VALUES) {
+      assertSameAsJdk(value);
+    }
+  }
+
+  @Test
+  void check_randomValues_matchesLongParseLong() {
+    Random random = new Random(42);
+    char[] alphabet = "0123456789-+ a".toCharArray();
+    for (int i = 0; i < 100_000; i++) {
+      char[] chars = new char[1 + random.nextInt(21)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = random.nextInt(10) == 0 ? alphabet[random.nextInt(alphabet.length)] : (char) ('0' + random.nextInt(10));
+      }
+      assertSameAsJdk(new String(chars));
+      assertSameAsJdk(Long.toString(random.nextLong()));
+    }
+  }
+
+  @Test
+  void check_codes() {
+    assertEquals(LongParser.EMPTY, LongParser.check(""));
+    assertEquals(LongParser.EMPTY, LongParser.check("-"));
+    assertEquals(LongParser.INVALID, LongParser.check("12a"));
+    assertEquals(LongParser.INVALID, LongParser.check("99999999999999999999x"));
+    assertEquals(LongParser.OVERFLOW, LongParser.check("9223372036854775808"));
+    assertEquals(LongParser.OK, LongParser.check(new StringBuilder("-42")));
+  }
+
+  @Test
+  void check_range() {
+    assertEquals(LongParser.OK, LongParser.check("1", 1, 10));
+    assertEquals(LongParser.OK, LongParser.check("10", 1, 10));
+    assertEquals(LongParser.OUT_OF_RANGE, LongParser.check("0", 1, 10));
+    assertEquals(LongParser.OUT_OF_RANGE, LongParser.check("11", 1, 10));
+    assertEquals(LongParser.INVALID, LongParser.check("x", 1, 10));
+  }
+
+  @Test
+  void parseInto_range() {
+    long[] out = new long[2];
+    assertEquals(LongParser.OK, LongParser.parseInto("10", 1, 10, out, 1));
+    assertEquals(10L, out[1]);
+    assertEquals(LongParser.OUT_OF_RANGE, LongParser.parseInto("11", 1, 10, out, 0));
+    assertEquals(LongParser.OVERFLOW, LongParser.parseInto("-9223372036854775809", 1, 10, out, 0));
+    assertEquals(LongParser.EMPTY, LongParser.parseInto("+", 1, 10, out, 0));
+    assertEquals(LongParser.OK, LongParser.parseInto("5", 1, 10, null, 0));
+    assertEquals(0L, out[0]);
+  }
+
+  @Test
+  void parse_invalid_throwsNumberFormatException() {
+    assertThrows(NumberFormatException.class, () -> LongParser.parse("abc"));
+    assertThrows(NumberFormatException.class, () -> LongParser.parse("-"));
+    assertThrows(NumberFormatException.class, () -> LongParser.parse("9223372036854775808"));
+  }
+
+  @Test
+  void checkRegion_items() {
+    String list = "12,-3,,x,99999999999999999999";
+    assertEquals(LongParser.OK, LongParser.checkRegion(list, 0, 2));
+    assertEquals(12L, LongParser.parseRegion(list, 0, 2));
+    assertEquals(-3L, LongParser.parseRegion(list, 3, 5));
+    assertEquals(LongParser.EMPTY, LongParser.checkRegion(list, 6, 6));
+    assertEquals(LongParser.INVALID, LongParser.checkRegion(list, 7, 8));
+    assertEquals(LongParser.OVERFLOW, LongParser.checkRegion(list, 9, list.length()));
+    assertThrows(IndexOutOfBoundsException.class, () -> LongParser.checkRegion(list, 3, 2));
+    assertThrows(IndexOutOfBoundsException.class, () -> LongParser.parseRegion(list, 0, list.length() + 1));
+  }
+
+  @Test
+  void parseRegionInto_items() {
+    String list = "12,-3,,x,99999999999999999999,50";
+    long[] out = new long[3];
+    assertEquals(LongParser.OK, LongParser.parseRegionInto(list, 0, 2, 1, 20, out, 0));
+    assertEquals(LongParser.OUT_OF_RANGE, LongParser.parseRegionInto(list, 3, 5, 1, 20, out, 1));
+    assertEquals(LongParser.OK, LongParser.parseRegionInto(list, 3, 5, -5, 20, out, 1));
+    assertEquals(LongParser.EMPTY, LongParser.parseRegionInto(list, 6, 6, 1, 20, out, 2));
+    assertEquals(LongParser.INVALID, LongParser.parseRegionInto(list, 7, 8, 1, 20, out, 2));
+    assertEquals(LongParser.OVERFLOW, LongParser.parseRegionInto(list, 9, 29, 1, 20, out, 2));
+    assertEquals(LongParser.OUT_OF_RANGE, LongParser.parseRegionInto(list, 30, 32, 1, 20, out, 2));
+    assertArrayEquals(new long[]{12, -3, 0}, out);
+  }
+
+  @Test
+  void parseAll_lists() {
+    assertArrayEquals(new long[]{1, 2, 3}, LongParser.parseAll(new String[]{"1,2", "", "3"}));
+    assertArrayEquals(new long[0], LongParser.parseAll(new String[0]));
+    assertNull(LongParser.parseAll(new String[]{"1,,2"}));
+    assertNull(LongParser.parseAll(new String[]{"1,"}));
+    assertNull(LongParser.parseAll(new String[]{"1", "a"}));
+  }
+
+  private static void assertSameAsJdk(String value) {
+    Long expected;
+    try {
+      expected = Long.parseLong(value);
+    } catch (NumberFormatException ex) {
+      expected = null;
+    }
+    int code = LongParser.check(value);
+    long[] out = {-7};
+    assertEquals(code, LongParser.parseInto(value, Long.MIN_VALUE, Long.MAX_VALUE, out, 0), value);
+    if (expected == null) {
+      assertNotEquals(LongParser.OK, code, value);
+      assertEquals(-7, out[0], value);
+    } else {
+      assertEquals(LongParser.OK, code, value);
+      assertEquals(expected.longValue(), LongParser.parse(value), value);
+      assertEquals(expected.longValue(), out[0], value);
+    }
+  }
+
+}
@@ -0,0 +1,101 @@
+package org.pageseeder.berlioz.plus.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DigitsTest {
+
+  private final byte[] bytes = new byte[Digits.MAX_LENGTH];
+
+  @Test
+  void putLong_sameAsToString() {
+    for (long value : new long[]{0, 1, -1, 9, 10, 99, 100, -100, 123456789, Integer.MIN_VALUE, Integer.MAX_VALUE,
+        999_999_999_999_999_999L, 1_000_000_000_000_000_000L, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE + 1}) {
+      assertEquals(Long.toString(value), string(Digits.putLong(this.bytes, 0, value)));
+    }
+    Random random = new Random(3);
+    for (int i = 0; i < 10000; i++) {
+      long value = random.nextLong() >> random.nextInt(64);
+      assertEquals(Long.toString(value), string(Digits.putLong(this.bytes, 0, value)));
+    }
+  }
+
+  @Test
+  void putDouble_integralValues() {
+    for (double value : new double[]{0.0, -0.0, 1, -1, 42, 9_999_999, -9_999_999}) {
+      assertTrue(Digits.isIntegral(value));
+      assertEquals(Double.toString(value), string(Digits.putDouble(this.bytes, 0, value)));
+    }
+    for (double value : new double[]{0.5, 1e7, -1e7, 1e300, Double.NaN, Double.POSITIVE_INFINITY, Double.MIN_VALUE}) {
+      assertFalse(Digits.isIntegral(value), Double.toString(value));
+    }
+  }
+
+  @Test
+  void putDate_sameAsToString() {
+    for (LocalDate date : new LocalDate[]{LocalDate.of(2016, 2, 29), LocalDate.of(1, 1, 1), LocalDate.of(0, 12, 31),
+        LocalDate.of(-1, 1, 1), LocalDate.of(-999, 1, 1), LocalDate.of(-1000, 1, 1), LocalDate.of(999, 10, 10),
+        LocalDate.of(9999, 12, 31), LocalDate.of(10000, 1, 1), LocalDate.MIN, LocalDate.MAX}) {
+      assertEquals(date.toString(), string(Digits.putDate(this.bytes, 0, date)));
+    }
+    Random random = new Random(5);
+    for (int i = 0; i < 10000; i++) {
+      LocalDate date = LocalDate.ofEpochDay(random.nextInt(10_000_000) - 5_000_000);
+      assertEquals(date.toString(), string(Digits.putDate(this.bytes, 0, date)));
+    }
+  }
+
+  @Test
+  void putDateTime_sameAsToString() {
+    LocalDate date = LocalDate.of(2016, 2, 29);
+    for (LocalTime time : new LocalTime[]{LocalTime.MIDNIGHT, LocalTime.of(10, 15), LocalTime.of(10, 15, 30),
+        LocalTime.of(10, 0, 0, 1), LocalTime.of(10, 0, 0, 1000), LocalTime.of(10, 0, 0, 1_000_000),
+        LocalTime.of(10, 0, 0, 120_000_000), LocalTime.of(10, 0, 0, 123_400_000), LocalTime.of(10, 0, 0, 123_456_780),
+        LocalTime.MAX}) {
+      LocalDateTime datetime = date.atTime(time);
+      assertEquals(datetime.toString(), string(Digits.putDateTime(this.bytes, 0, datetime)));
+      for (ZoneOffset offset : new ZoneOffset[]{ZoneOffset.UTC, ZoneOffset.ofHours(10), ZoneOffset.ofHoursMinutes(-9, -30),
+          ZoneOffset.ofHoursMinutesSeconds(5, 30, 15), ZoneOffset.MIN, ZoneOffset.MAX}) {
+        OffsetDateTime odt = datetime.atOffset(offset);
+        assertEquals(odt.toString(), string(Digits.putDateTime(this.bytes, 0, odt)));
+      }
+    }
+    OffsetDateTime max = LocalDateTime.MAX.atOffset(ZoneOffset.MIN);
+    assertEquals(max.toString(), string(Digits.putDateTime(this.bytes, 0, max)));
+  }
+
+  @Test
+  void putInstant_sameAsToString() {
+    for (Instant instant : new Instant[]{Instant.EPOCH, Instant.ofEpochSecond(-1), Instant.ofEpochSecond(0, 1),
+        Instant.ofEpochSecond(1456704000L, 500_000_000), Instant.ofEpochSecond(1456704000L, 500_000),
+        Instant.parse("0000-01-01T00:00:00Z"), Instant.parse("9999-12-31T23:59:59.999999999Z"),
+        Instant.parse("1600-02-29T12:00:00Z"), Instant.parse("2000-03-01T00:00:00Z")}) {
+      assertTrue(Digits.isFourDigitYear(instant), instant.toString());
+      assertEquals(instant.toString(), string(Digits.putInstant(this.bytes, 0, instant)));
+    }
+    Random random = new Random(9);
+    for (int i = 0; i < 10000; i++) {
+      long seconds = -62167219200L + (long) (random.nextDouble() * (253402300799L + 62167219200L));
+      Instant instant = Instant.ofEpochSecond(seconds, random.nextBoolean() ? 0 : random.nextInt(1_000_000_000));
+      assertEquals(instant.toString(), string(Digits.putInstant(this.bytes, 0, instant)));
+    }
+    assertFalse(Digits.isFourDigitYear(Instant.parse("-0001-12-31T23:59:59Z")));
+    assertFalse(Digits.isFourDigitYear(Instant.parse("+10000-01-01T00:00:00Z")));
+    assertFalse(Digits.isFourDigitYear(Instant.MAX));
+  }
+
+  private String string(int length) {
+    return new String(this.bytes, 0, length, StandardCharsets.US_ASCII);
+  }
+
+}
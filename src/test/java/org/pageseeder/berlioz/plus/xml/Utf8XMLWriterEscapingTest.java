@@ -0,0 +1,204 @@
+package org.pageseeder.berlioz.plus.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the bulk escaping of long strings with the escaping one character at a time
+ * and with a reference escaping written independently of the writer.
+ */
+class Utf8XMLWriterEscapingTest {
+
+  private static final String[] PIECES = {
+      "a", "Z", "0", " ", ".", "=", ";", "?", "'", "<", ">", "&", "\"", "\t", "\n", "\r", "\u0000", "\u0001", "\u001f",
+      "\u007f", "\u00e9", "\u00ff", "\u0100", "\u20ac", "\u4e2d", "\ufffd", "\ud83d\ude00", "\ud800", "\udc00"
+  };
+
+  @Test
+  void special_matchesNaiveScan() {
+    Random random = new Random(7);
+    for (int run = 0; run < 20000; run++) {
+      byte[] bytes = new byte[8];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = (byte) (random.nextInt(4) == 0 ? random.nextInt(0x80) : 0x20 + random.nextInt(0x60));
+      }
+      for (boolean quote : new boolean[]{false, true}) {
+        assertEquals(naiveScan(bytes, quote), firstLane(bytes, quote));
+      }
+    }
+  }
+
+  @Test
+  void special_eachLane() {
+    for (char special : new char[]{'<', '>', '&', '"', '\u0000', '\t', '\u001f'}) {
+      for (int position = 0; position < 8; position++) {
+        byte[] bytes = "=;?=%'=\u007f".getBytes(StandardCharsets.US_ASCII);
+        bytes[position] = (byte) special;
+        assertEquals(special == '"' ? 8 : position, firstLane(bytes, false), special + "@" + position);
+        assertEquals(position, firstLane(bytes, true), special + "@" + position);
+      }
+    }
+  }
+
+  @Test
+  void text_sameAsCharacterByCharacter() throws IOException {
+    Random random = new Random(42);
+    for (int run = 0; run < 500; run++) {
+      String text = random(random, 1 + random.nextInt(run < 400 ? 64 : 2000));
+      assertEquals("<p>" + reference(text, false) + "</p>", textOneByOne(text), text);
+      assertEquals(textOneByOne(text), text(text), text);
+      assertEquals(textOneByOne(text), chars(text), text);
+    }
+  }
+
+  @Test
+  void attribute_sameAsReference() throws IOException {
+    Random random = new Random(11);
+    for (int run = 0; run < 500; run++) {
+      String value = random(random, 1 + random.nextInt(run < 400 ? 64 : 2000));
+      assertEquals("<a v=\"" + reference(value, true) + "\"/>", attribute(value), value);
+    }
+  }
+
+  @Test
+  void fullSizeBuffers_sameAsSmallBuffers() throws IOException {
+    Random random = new Random(13);
+    for (int run = 0; run < 20; run++) {
+      String text = random(random, 5000 + random.nextInt(20000));
+      for (boolean direct : new boolean[]{false, true}) {
+        ByteBufferPool pool = new ByteBufferPool(8192, 1, direct);
+        assertEquals(text(text), write(pool, xml -> xml.element("p", text)));
+        assertEquals(chars(text), write(pool, xml -> {
+          xml.openElement("p");
+          xml.writeText(text.toCharArray(), 0, text.length());
+          xml.closeElement();
+        }));
+        assertEquals(attribute(text), write(pool, xml -> {
+          xml.openElement("a");
+          xml.attribute("v", text);
+          xml.closeElement();
+        }));
+      }
+    }
+  }
+
+  @Test
+  void surrogatePairs_acrossChunks() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1200; i++) text.append(i == 511 || i == 700 ? "\ud83d\ude00" : "x");
+    assertEquals(textOneByOne(text.toString()), text(text.toString()));
+    assertEquals("<p>" + text + "</p>", text(text.toString()));
+  }
+
+  private static String random(Random random, int pieces) {
+    StringBuilder s = new StringBuilder();
+    boolean clean = random.nextBoolean();
+    for (int i = 0; i < pieces; i++) {
+      // Mostly clean text with a few special characters, or anything
+      s.append(clean && random.nextInt(10) > 0 ? "abcdefgh ".substring(random.nextInt(9)) : PIECES[random.nextInt(PIECES.length)]);
+    }
+    return s.toString();
+  }
+
+  private static int firstLane(byte[] bytes, boolean quote) {
+    long w = 0;
+    for (int i = 0; i < 8; i++) w |= (long) bytes[i] << (i * 8);
+    return Long.numberOfTrailingZeros(Utf8XMLWriter.special(w, quote)) >>> 3;
+  }
+
+  private static int naiveScan(byte[] bytes, boolean quote) {
+    for (int i = 0; i < bytes.length; i++) {
+      byte c = bytes[i];
+      if (c < 0x20 || c == '<' || c == '>' || c == '&' || quote && c == '"') return i;
+    }
+    return bytes.length;
+  }
+
+  /**
+   * Writes the text in pieces too short for the bulk path without splitting pairs.
+   */
+  private static String textOneByOne(String text) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(out, new ByteBufferPool(64, 1, false))) {
+      xml.openElement("p");
+      for (int i = 0; i < text.length(); ) {
+        int end = Math.min(text.length(), i + 7);
+        if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) end--;
+        xml.writeText(text.substring(i, end));
+        i = end;
+      }
+      xml.closeElement();
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String text(String text) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(out, new ByteBufferPool(64, 1, false))) {
+      xml.element("p", text);
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String chars(String text) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(out, new ByteBufferPool(64, 1, true))) {
+      xml.openElement("p");
+      char[] chars = ("##" + text + "##").toCharArray();
+      xml.writeText(chars, 2, text.length());
+      xml.closeElement();
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String attribute(String value) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(out, new ByteBufferPool(64, 1, false))) {
+      xml.openElement("a");
+      xml.attribute("v", value);
+      xml.closeElement();
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private static String write(ByteBufferPool pool, Writing writing) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(out, pool)) {
+      writing.write(xml);
+    }
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  private interface Writing {
+    void write(Utf8XMLWriter xml) throws IOException;
+  }
+
+  /**
+   * The expected text or attribute value, written independently of the writer.
+   */
+  private static String reference(String value, boolean attribute) {
+    StringBuilder s = new StringBuilder();
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '&') s.append("&amp;");
+      else if (c == '<') s.append("&lt;");
+      else if (c == '>') s.append("&gt;");
+      else if (attribute && c == '"') s.append("&quot;");
+      else if (attribute && c == '\t') s.append("&#x9;");
+      else if (attribute && c == '\n') s.append("&#xA;");
+      else if (attribute && c == '\r') s.append("&#xD;");
+      else if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') continue;
+      else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) s.append(c).append(value.charAt(++i));
+      else if (Character.isSurrogate(c)) s.append('\ufffd');
+      else s.append(c);
+    }
+    return s.toString();
+  }
+
+}
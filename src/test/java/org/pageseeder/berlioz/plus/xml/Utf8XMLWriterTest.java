@@ -0,0 +1,251 @@
+package org.pageseeder.berlioz.plus.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class Utf8XMLWriterTest {
+
+  private final ByteBufferPool heap = new ByteBufferPool(64, 2, false);
+
+  @Test
+  void elements_andAttributes() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8XMLWriter xml = new Utf8XMLWriter(out, this.heap);
+    xml.xmlDecl();
+    xml.openElement("list", true);
+    xml.attribute("q", "a<b & \"c\" > 'd'");
+    xml.attribute("count", 3);
+    xml.attribute("total", -12L);
+    xml.element("item", "x < y & z > \"w\"");
+    xml.emptyElement("empty");
+    xml.writeText('&');
+    xml.writeComment(" note ");
+    xml.writePI("php", "echo");
+    xml.writeXML("<raw/>");
+    xml.closeElement();
+    xml.close();
+    assertEquals("<?xml version=\"1.0\" encoding=\"utf-8\"?>"
+        + "<list q=\"a&lt;b &amp; &quot;c&quot; &gt; 'd'\" count=\"3\" total=\"-12\">"
+        + "<item>x &lt; y &amp; z &gt; \"w\"</item><empty/>&amp;<!-- note --><?php echo?><raw/></list>",
+        out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void unicode_encodedAsUtf8() throws IOException {
+    String text = "caf\u00e9 \u20ac \ud83d\ude00 \u4e2d";
+    assertEquals("<p t=\"" + text + "\">" + text + "</p>", write(text, text));
+  }
+
+  @Test
+  void invalidCharacters_droppedOrReplaced() throws IOException {
+    assertEquals("<p t=\"ab\">a\tb\n\ufffdx\ufffdc</p>", write("a\u0000b", "a\tb\u0001\n\ud83dx\udc00c"));
+  }
+
+  @Test
+  void attributeWhitespace_writtenAsReferences() throws IOException {
+    assertEquals("<p t=\"a&#x9;b&#xA;c&#xD;&#xA;d e\">a\tb\nc\r\nd e</p>", write("a\tb\nc\r\nd e", "a\tb\nc\r\nd e"));
+  }
+
+  @Test
+  void longText_spansSeveralBuffers() throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      text.append(i % 7 == 0 ? "&" : i % 5 == 0 ? "\u00e9" : i % 11 == 0 ? "\ud83d\ude00" : "x");
+    }
+    String expected = text.toString().replace("&", "&amp;");
+    assertEquals("<p t=\"" + expected + "\">" + expected + "</p>", write(text.toString(), text.toString()));
+  }
+
+  @Test
+  void channel_withDirectBuffers() throws IOException {
+    ByteBufferPool direct = new ByteBufferPool(64, 1, true);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8XMLWriter xml = new Utf8XMLWriter(Channels.newChannel(out), direct);
+    xml.element("p", "\u00e9t\u00e9 ".repeat(50));
+    xml.close();
+    assertEquals("<p>" + "\u00e9t\u00e9 ".repeat(50) + "</p>", out.toString(StandardCharsets.UTF_8));
+    assertEquals(1, direct.available());
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    Utf8XMLWriter other = new Utf8XMLWriter(stream, direct);
+    assertEquals(0, direct.available());
+    other.element("p", "x");
+    other.close();
+    assertEquals("<p>x</p>", stream.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void close_closesElements_andReleasesBuffer() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8XMLWriter xml = new Utf8XMLWriter(out, this.heap);
+    xml.openElement("a");
+    xml.openElement("b");
+    xml.writeText("c");
+    assertEquals(0, out.size());
+    xml.flush();
+    assertEquals("<a><b>c", out.toString(StandardCharsets.UTF_8));
+    xml.close();
+    xml.close();
+    assertEquals("<a><b>c</b></a>", out.toString(StandardCharsets.UTF_8));
+    assertEquals(1, this.heap.available());
+    assertThrows(IOException.class, () -> xml.writeText("x"));
+  }
+
+  @Test
+  void indentation() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8XMLWriter xml = new Utf8XMLWriter(out, this.heap);
+    xml.setIndentChars("  ");
+    xml.openElement("a", true);
+    xml.openElement("b", true);
+    xml.element("c", "1");
+    xml.closeElement();
+    xml.emptyElement("d");
+    xml.closeElement();
+    xml.close();
+    assertEquals("<a>\n  <b>\n    <c>1</c>\n  </b>\n  <d/>\n</a>", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void cdataAndComments() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8XMLWriter xml = new Utf8XMLWriter(out, this.heap);
+    xml.writeCDATA("a]]>b");
+    assertThrows(IllegalArgumentException.class, () -> xml.writeComment("a--b"));
+    xml.close();
+    assertEquals("<![CDATA[a]]]]><![CDATA[>b]]>", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void invalidStates_throw() throws IOException {
+    Utf8XMLWriter xml = new Utf8XMLWriter(new ByteArrayOutputStream(), this.heap);
+    assertThrows(IllegalStateException.class, () -> xml.attribute("a", "b"));
+    assertThrows(IllegalStateException.class, xml::closeElement);
+    assertThrows(IllegalStateException.class, () -> xml.openElement("urn:x", "a", false));
+    xml.openElement("a");
+    assertThrows(IllegalStateException.class, () -> xml.setIndentChars(" "));
+  }
+
+  @Test
+  void namespaces_declaredOnNextElement() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8XMLWriter xml = new Utf8XMLWriter(out, this.heap);
+    xml.setPrefixMapping("urn:a", "a");
+    xml.setPrefixMapping("urn:d", "");
+    xml.openElement("urn:a", "root", true);
+    xml.attribute("urn:a", "n", 1);
+    xml.attribute("", "plain", "x");
+    xml.emptyElement("urn:d", "item");
+    xml.setPrefixMapping("urn:a", "a");
+    xml.setPrefixMapping("urn:b", "b");
+    xml.openElement(null, "child", false);
+    xml.attribute("urn:b", "id", 2L);
+    xml.emptyElement("urn:b", "leaf");
+    xml.closeElement();
+    assertThrows(IllegalStateException.class, () -> xml.emptyElement("urn:b", "leaf"));
+    xml.setPrefixMapping("urn:a", "z");
+    xml.emptyElement("urn:a", "last");
+    xml.emptyElement("urn:a", "after");
+    xml.close();
+    assertEquals("<a:root xmlns:a=\"urn:a\" xmlns=\"urn:d\" a:n=\"1\" plain=\"x\"><item/>"
+        + "<child xmlns:b=\"urn:b\" b:id=\"2\"><b:leaf/></child>"
+        + "<z:last xmlns:z=\"urn:a\"/><a:after/></a:root>", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void usableByPrinter() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    XMLPrinter xml = new XMLPrinter(new Utf8XMLWriter(out, this.heap));
+    xml.openElement("a");
+    xml.attribute("n", (Object) 1);
+    xml.closeElement();
+    xml.close();
+    assertEquals("<a n=\"1\"/>", out.toString(StandardCharsets.UTF_8));
+    // Must keep compiling: a null literal resolves to attribute(String, String)
+    Consumer<XMLPrinter> nullLiteral = printer -> printer.attribute("n", null);
+    assertNotNull(nullLiteral);
+  }
+
+  @Test
+  void printer_numbersAndDates_sameAsToString() {
+    LocalDate date = LocalDate.of(2016, 2, 29);
+    LocalDateTime datetime = date.atTime(10, 15, 0, 120_000_000);
+    OffsetDateTime odt = datetime.atOffset(ZoneOffset.ofHours(10));
+    Instant instant = odt.toInstant();
+    Instant far = Instant.parse("+12016-02-29T00:00:00Z");
+    String expected = "<a i=\"-7\" l=\"9223372036854775807\" d=\"3.0\" e=\"0.1\" f=\"0.1\" n=\"-0.0\""
+        + " date=\"" + date + "\" dt=\"" + datetime + "\" odt=\"" + odt + "\" in=\"" + instant + "\""
+        + " far=\"" + far + "\" o=\"" + date + "\" x=\"1\"/>";
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    XMLPrinter utf8 = new XMLPrinter(new Utf8XMLWriter(out, this.heap));
+    XMLStringWriter string = new XMLStringWriter(XML.NamespaceAware.No);
+    for (XMLPrinter xml : new XMLPrinter[]{utf8, new XMLPrinter(string)}) {
+      xml.openElement("a");
+      xml.attribute("i", -7);
+      xml.attribute(XMLName.of("l"), Long.MAX_VALUE);
+      xml.attribute("d", 3.0);
+      xml.attribute(XMLName.of("e"), 0.1);
+      xml.attribute("f", 0.1f);
+      xml.attribute("n", -0.0);
+      xml.attribute("date", date);
+      xml.attribute(XMLName.of("dt"), datetime);
+      xml.attribute("odt", odt);
+      xml.attribute(XMLName.of("in"), instant);
+      xml.attribute("far", far);
+      xml.attribute("o", (Object) date);
+      xml.attribute(XMLName.of("x"), (Object) 1);
+      xml.attribute("none", (LocalDate) null);
+      xml.attribute("any", (Object) null);
+      xml.closeElement();
+    }
+    utf8.close();
+    assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+    assertEquals(expected, string.toString());
+  }
+
+  @Test
+  void pool_isBounded() {
+    ByteBufferPool pool = new ByteBufferPool(64, 1, false);
+    assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(63, 1, false));
+    assertThrows(IllegalArgumentException.class, () -> new ByteBufferPool(64, -1, false));
+    java.nio.ByteBuffer a = pool.acquire();
+    java.nio.ByteBuffer b = pool.acquire();
+    assertNotSame(a, b);
+    a.put((byte) 1);
+    pool.release(a);
+    pool.release(b);
+    pool.release(java.nio.ByteBuffer.allocate(128));
+    pool.release(java.nio.ByteBuffer.allocateDirect(64));
+    assertEquals(1, pool.available());
+    java.nio.ByteBuffer c = pool.acquire();
+    assertSame(a, c);
+    assertEquals(0, c.position());
+    assertEquals(0, pool.available());
+  }
+
+  private String write(String attribute, String text) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Utf8XMLWriter xml = new Utf8XMLWriter(out, this.heap);
+    xml.openElement("p");
+    xml.attribute("t", attribute);
+    xml.writeText(text.toCharArray(), 0, text.length());
+    xml.closeElement();
+    xml.close();
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+}
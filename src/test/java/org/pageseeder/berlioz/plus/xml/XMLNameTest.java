@@ -0,0 +1,109 @@
+package org.pageseeder.berlioz.plus.xml;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.berlioz.plus.XMLPrinter;
+import org.pageseeder.berlioz.plus.constraints.Violation;
+import org.pageseeder.xmlwriter.XML;
+import org.pageseeder.xmlwriter.XMLStringWriter;
+
+class XMLNameTest {
+
+  private static final XMLName LIST = XMLName.of("list");
+  private static final XMLName ITEM = XMLName.of("item");
+  private static final XMLName EMPTY = XMLName.of("empty");
+  private static final XMLName ID = XMLName.of("id");
+  private static final XMLName LABEL = XMLName.of("\u00e9t\u00e9");
+
+  @Test
+  void of_validNames() {
+    for (String name : new String[]{"a", "_a", "a-b.c", "x:y", "a1", "\u00e9t\u00e9", "\u4e2d\u6587", "\ud800\udc00"}) {
+      assertEquals(name, XMLName.of(name).name());
+    }
+    assertEquals(XMLName.of("a"), XMLName.of("a"));
+    assertEquals(XMLName.of("a").hashCode(), XMLName.of("a").hashCode());
+  }
+
+  @Test
+  void of_invalidNames_throwIae() {
+    for (String name : new String[]{"", "1a", "-a", ".a", "a b", "a>", "a\"", "a=b", "a&b", "\u00b7a", "a\ud800"}) {
+      assertThrows(IllegalArgumentException.class, () -> XMLName.of(name), name);
+    }
+  }
+
+  @Test
+  void writer_sameOutputAsStrings() throws IOException {
+    ByteBufferPool pool = new ByteBufferPool(64, 2, false);
+    ByteArrayOutputStream tokens = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(tokens, pool)) {
+      xml.setIndentChars("  ");
+      xml.openElement(LIST, true);
+      xml.attribute(ID, 42);
+      xml.attribute(LABEL, "a<b");
+      xml.element(ITEM, "x & y");
+      xml.openElement(ITEM, false);
+      xml.closeElement();
+      xml.emptyElement(EMPTY);
+      xml.closeElement();
+    }
+    ByteArrayOutputStream strings = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(strings, pool)) {
+      xml.setIndentChars("  ");
+      xml.openElement("list", true);
+      xml.attribute("id", 42);
+      xml.attribute("\u00e9t\u00e9", "a<b");
+      xml.element("item", "x & y");
+      xml.openElement("item", false);
+      xml.closeElement();
+      xml.emptyElement("empty");
+      xml.closeElement();
+    }
+    assertEquals("<list id=\"42\" \u00e9t\u00e9=\"a&lt;b\">\n  <item>x &amp; y</item>\n  <item/>\n  <empty/>\n</list>",
+        tokens.toString(StandardCharsets.UTF_8));
+    assertEquals(strings.toString(StandardCharsets.UTF_8), tokens.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void writer_longNames_spanSeveralBuffers() throws IOException {
+    StringBuilder name = new StringBuilder("n");
+    for (int i = 0; i < 200; i++) name.append(i % 10);
+    XMLName token = XMLName.of(name.toString());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (Utf8XMLWriter xml = new Utf8XMLWriter(out, new ByteBufferPool(64, 1, false))) {
+      xml.openElement(token, false);
+      xml.attribute(token, "v");
+      xml.writeText("t");
+      xml.closeElement();
+    }
+    assertEquals("<" + name + " " + name + "=\"v\">t</" + name + ">", out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void printer_otherWriters_useName() {
+    XMLStringWriter out = new XMLStringWriter(XML.NamespaceAware.No);
+    XMLPrinter xml = new XMLPrinter(out);
+    xml.openElement(LIST);
+    xml.attribute(ID, 7);
+    xml.attribute(LABEL, (Object) null);
+    xml.element(ITEM, "a");
+    xml.emptyElement(EMPTY);
+    xml.closeElement();
+    assertEquals("<list id=\"7\"><item>a</item><empty/></list>", out.toString());
+  }
+
+  @Test
+  void violation_invalidAttributeName_throwsIae() {
+    assertThrows(IllegalArgumentException.class, () -> new Violation("out-of-range", "page", "max value", "10"));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    XMLPrinter xml = new XMLPrinter(new Utf8XMLWriter(out, new ByteBufferPool(64, 1, false)));
+    new Violation("out-of-range", "page", "min", "1", "max", "10").toXML(xml);
+    xml.close();
+    assertEquals("<error type=\"out-of-range\" parameter=\"page\" min=\"1\" max=\"10\"/>", out.toString(StandardCharsets.UTF_8));
+  }
+
+}